@@ -53,7 +53,16 @@ function ChatHeader({
                   activeUser.online ? 'bg-emerald-500' : 'bg-slate-400 dark:bg-slate-600'
                 }`}
               />
-              {activeUser.online ? 'Online' : 'Offline'}
+              {activeUser.online
+                ? 'Online'
+                : activeUser.lastSeenAt
+                  ? `Last seen ${new Date(activeUser.lastSeenAt).toLocaleString([], {
+                      day: '2-digit',
+                      month: 'short',
+                      hour: '2-digit',
+                      minute: '2-digit',
+                    })}`
+                  : 'Offline'}
             </p>
           )}
         </div>
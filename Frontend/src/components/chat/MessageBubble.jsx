@@ -1,4 +1,5 @@
 import { useRef } from 'react'
+import useAttachmentUrl from '../../hooks/useAttachmentUrl'
 
 const QUICK_REACTIONS = ['\u{1F44D}', '\u2764\uFE0F', '\u{1F602}']
 
@@ -21,6 +22,9 @@ function MessageBubble({
   onToggleSelect,
 }) {
   const longPressTimerRef = useRef(null)
+  const attachmentUrl = useAttachmentUrl(message.attachment?.url)
+  const signedPreviewUrl = useAttachmentUrl(message.attachment?.previewUrl)
+  const attachmentPreviewUrl = message.attachment?.previewUrl ? signedPreviewUrl : attachmentUrl
   const reactionBuckets = Array.isArray(message.reactions)
     ? Object.values(
         message.reactions.reduce((accumulator, reaction) => {
@@ -142,22 +146,25 @@ function MessageBubble({
             {message.attachment ? (
               <div className="mt-2 rounded-xl border border-white/40 bg-white/30 p-2 text-xs text-inherit dark:border-white/15 dark:bg-white/10">
                 {message.attachment.kind === 'IMAGE' ? (
-                  <a href={message.attachment.url} target="_blank" rel="noreferrer" className="block" onClick={stop}>
+                  <a href={attachmentUrl} target="_blank" rel="noreferrer" className="block" onClick={stop}>
                     <img
-                      src={message.attachment.url}
+                      src={attachmentPreviewUrl || undefined}
+                      width={message.attachment.width || undefined}
+                      height={message.attachment.height || undefined}
+                      loading="lazy"
                       alt={message.attachment.name || 'attachment'}
                       className="max-h-60 w-full rounded-lg object-cover"
                     />
                   </a>
                 ) : null}
                 {message.attachment.kind === 'VIDEO' ? (
-                  <video controls className="max-h-64 w-full rounded-lg">
-                    <source src={message.attachment.url} type={message.attachment.contentType || 'video/mp4'} />
+                  <video key={attachmentUrl || 'pending'} controls className="max-h-64 w-full rounded-lg">
+                    <source src={attachmentUrl || undefined} type={message.attachment.contentType || 'video/mp4'} />
                   </video>
                 ) : null}
                 {message.attachment.kind !== 'IMAGE' && message.attachment.kind !== 'VIDEO' ? (
                   <a
-                    href={message.attachment.url}
+                    href={attachmentUrl}
                     target="_blank"
                     rel="noreferrer"
                     onClick={stop}
@@ -117,7 +117,7 @@ function UserSidebar({
           >
             <div className="flex items-start justify-between gap-3">
               <div className="flex min-w-0 items-start gap-2.5">
-                <Avatar name={user.name} imageUrl={user.profileImageUrl} size="md" />
+                <Avatar name={user.name} imageUrl={user.profileThumbnails?.[0]?.url || user.profileImageUrl} size="md" />
                 <div className="min-w-0">
                   <div className="flex items-center gap-2">
                     <span className="truncate text-sm font-semibold text-slate-900 dark:text-slate-50">{user.name}</span>
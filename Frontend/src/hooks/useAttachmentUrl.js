@@ -0,0 +1,27 @@
+import { useEffect, useState } from 'react'
+import { resolveAttachmentUrl } from '../utils/media'
+
+function useAttachmentUrl(value) {
+  const [url, setUrl] = useState(null)
+
+  useEffect(() => {
+    let active = true
+    setUrl(null)
+    if (!value) return undefined
+
+    resolveAttachmentUrl(value)
+      .then((resolved) => {
+        if (active) setUrl(resolved)
+      })
+      .catch(() => {
+        if (active) setUrl(null)
+      })
+    return () => {
+      active = false
+    }
+  }, [value])
+
+  return url
+}
+
+export default useAttachmentUrl
@@ -94,6 +94,9 @@ const toViewMessage = (message, currentUserId) => {
       ? {
           ...parsed.attachment,
           url: resolveAssetUrl(parsed.attachment.url),
+          previewUrl: resolveAssetUrl(message.thumbnails?.[message.thumbnails.length - 1]?.url),
+          width: message.imageWidth || null,
+          height: message.imageHeight || null,
         }
       : null,
     deletedForEveryone: parsed.deletedForEveryone,
@@ -457,9 +460,13 @@ function ChatDashboard() {
 
         const updated = roomMessages.map((message) => {
           const matchesReceipt =
-            Array.isArray(payload.messageIds) && payload.messageIds.length > 0
-              ? payload.messageIds.includes(message.id)
-              : message.senderId === user.userId
+            payload.lastReadMessageId != null
+              ? typeof message.id === 'number' &&
+                message.id <= payload.lastReadMessageId &&
+                message.senderId !== payload.readerId
+              : Array.isArray(payload.messageIds) && payload.messageIds.length > 0
+                ? payload.messageIds.includes(message.id)
+                : message.senderId === user.userId
 
           if (!matchesReceipt) {
             return message
@@ -480,18 +487,26 @@ function ChatDashboard() {
   )
 
   const handlePresenceEvent = useCallback((payload) => {
-    if (!payload?.userId) return
+    const changes = Array.isArray(payload?.changes) ? payload.changes.filter((change) => change?.userId) : []
+    if (changes.length === 0) return
+    const changesByUserId = new Map(changes.map((change) => [change.userId, change]))
     setUsers((prevUsers) =>
       prevUsers.map((chatUser) => {
-        if (chatUser.userId === payload.userId) {
-          return { ...chatUser, online: payload.online }
+        const change = changesByUserId.get(chatUser.userId)
+        if (change) {
+          return { ...chatUser, online: change.online, lastSeenAt: change.lastSeenAt ?? chatUser.lastSeenAt }
         }
 
-        if (isGroupChat(chatUser) && Array.isArray(chatUser.memberIds) && chatUser.memberIds.includes(payload.userId)) {
+        if (
+          isGroupChat(chatUser) &&
+          Array.isArray(chatUser.memberIds) &&
+          chatUser.memberIds.some((memberId) => changesByUserId.has(memberId))
+        ) {
           const updatedMembers = Array.isArray(chatUser.members)
-            ? chatUser.members.map((member) =>
-                member.userId === payload.userId ? { ...member, online: payload.online } : member,
-              )
+            ? chatUser.members.map((member) => {
+                const memberChange = changesByUserId.get(member.userId)
+                return memberChange ? { ...member, online: memberChange.online } : member
+              })
             : []
           return {
             ...chatUser,
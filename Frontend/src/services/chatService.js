@@ -138,6 +138,15 @@ export const uploadChatAttachment = async (file) => {
   }
 }
 
+export const fetchAttachmentDownloadUrl = async (url) => {
+  try {
+    const response = await api.get('/chat/attachments/download-url', withAuth({ params: { url } }))
+    return response.data
+  } catch (error) {
+    attachUserMessage(error, 'Failed to load attachment')
+  }
+}
+
 export const editMessage = async (messageId, content) => {
   try {
     const response = await api.patch(`/chat/messages/${messageId}`, { content }, withAuth())
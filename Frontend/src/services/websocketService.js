@@ -22,10 +22,17 @@ export const USER_CALL_DESTINATION = '/user/queue/call'
 export const USER_TYPING_DESTINATION = '/user/queue/typing'
 export const USER_READ_RECEIPTS_DESTINATION = '/user/queue/read-receipts'
 export const USER_ROOMS_DESTINATION = '/user/queue/rooms'
-export const TOPIC_PRESENCE_DESTINATION = '/topic/presence'
+export const USER_PRESENCE_DESTINATION = '/user/queue/presence'
+export const USER_BATCH_DESTINATION = '/user/queue/batch'
 const GROUP_TOPIC_PREFIX = '/topic/group/'
 const GROUP_CALL_TOPIC_PREFIX = '/topic/group-call/'
 
+// Transport: 'native' tries the raw WebSocket endpoint first and falls back to SockJS; 'sockjs' always uses SockJS
+const WS_TRANSPORT = (import.meta.env.VITE_WS_TRANSPORT || 'native').toLowerCase()
+const NATIVE_WS_PATH = '/ws-native'
+// Set once the native endpoint fails before opening (proxy without upgrade support etc.)
+let nativeTransportUnavailable = false
+
 /**
  * Parse nested JSON strings in message payloads
  */
@@ -145,8 +152,10 @@ export const createChatSocketClient = ({
     throw new Error(`WebSocket URL must start with http:// or https://. Got: ${wsBaseUrl}`)
   }
 
+  const nativeUrl = toNativeWebSocketUrl(wsBaseUrl)
+
   if (debug) {
-    console.log(`🔌 [WebSocket] Configuring SockJS connection`)
+    console.log(`🔌 [WebSocket] Configuring ${WS_TRANSPORT === 'native' ? 'native WebSocket (SockJS fallback)' : 'SockJS'} connection`)
     console.log(`   URL: ${wsBaseUrl}`)
     console.log(`   Auth: JWT Bearer token (${token ? 'present' : 'missing'})`)
   }
@@ -155,6 +164,21 @@ export const createChatSocketClient = ({
     // CRITICAL: SockJS only accepts http:// or https:// URLs
     // It automatically upgrades to wss:// when needed
     webSocketFactory: () => {
+      if (WS_TRANSPORT === 'native' && !nativeTransportUnavailable) {
+        if (debug) console.log(`🔌 [WebSocket] Creating native transport: ${nativeUrl}`)
+        const socket = new WebSocket(nativeUrl, ['v12.stomp', 'v11.stomp', 'v10.stomp'])
+        let opened = false
+        socket.addEventListener('open', () => {
+          opened = true
+        })
+        socket.addEventListener('close', () => {
+          if (!opened) {
+            console.warn('⚠️ [WebSocket] Native endpoint unavailable, falling back to SockJS')
+            nativeTransportUnavailable = true
+          }
+        })
+        return socket
+      }
       if (debug) console.log(`🔌 [WebSocket] Creating SockJS transport...`)
       return new SockJS(wsBaseUrl, null, {
         // Disable some transport methods for better compatibility
@@ -216,16 +240,61 @@ export const createChatSocketClient = ({
   })
 }
 
+// Opt-in outbound batching window; unset or 0 keeps one frame per event
+const BATCH_WINDOW_MS = Number(import.meta.env.VITE_WS_BATCH_WINDOW_MS) || 0
+
+// Per-client subscription id -> payload callback, used to unpack batched frames
+const payloadCallbacks = new WeakMap()
+
 /**
  * Subscribe to a destination and parse payload
  */
 export const subscribeWithPayload = (client, destination, callback) => {
-  return client.subscribe(destination, (frame) => {
+  const subscription = client.subscribe(destination, (frame) => {
     const data = parsePayload(frame)
     if (data) {
       callback?.(data)
     }
   })
+  if (!payloadCallbacks.has(client)) {
+    payloadCallbacks.set(client, new Map())
+  }
+  const callbacks = payloadCallbacks.get(client)
+  callbacks.set(subscription.id, callback)
+  return {
+    id: subscription.id,
+    unsubscribe: (headers) => {
+      callbacks.delete(subscription.id)
+      subscription.unsubscribe(headers)
+    },
+  }
+}
+
+/**
+ * Ask the server to batch events for this session. Each batch is an array of
+ * { destination, subscription, body } entries, dispatched in order to the
+ * callback of the subscription that would have received the frame.
+ */
+const subscribeToBatches = (client) => {
+  return client.subscribe(
+    USER_BATCH_DESTINATION,
+    (frame) => {
+      let entries
+      try {
+        entries = JSON.parse(frame.body)
+      } catch {
+        return
+      }
+      const callbacks = payloadCallbacks.get(client)
+      ;(Array.isArray(entries) ? entries : [entries]).forEach((entry) => {
+        const data = parseNestedJson(entry?.body)
+        if (data) {
+          callbacks?.get(entry.subscription)?.(data)
+        }
+      })
+    },
+    { 'batch-window-ms': String(BATCH_WINDOW_MS) }
+  )
 }
 
 /**
@@ -242,6 +311,10 @@ export const attachSubscriptions = (client, handlers) => {
     subscriptions.push(subscribeWithPayload(client, destination, callback))
   }
 
+  if (BATCH_WINDOW_MS > 0) {
+    subscriptions.push(subscribeToBatches(client))
+  }
+
   // Subscribe to all message queues
   subscribe(USER_MESSAGES_DESTINATION, handlers.onMessage)
   subscribe(USER_STATUS_DESTINATION, handlers.onStatus)
@@ -249,7 +322,7 @@ export const attachSubscriptions = (client, handlers) => {
   subscribe(USER_TYPING_DESTINATION, handlers.onTyping)
   subscribe(USER_READ_RECEIPTS_DESTINATION, handlers.onReadReceipt)
   subscribe(USER_ROOMS_DESTINATION, handlers.onRoomEvent)
-  subscribe(TOPIC_PRESENCE_DESTINATION, handlers.onPresence)
+  subscribe(USER_PRESENCE_DESTINATION, handlers.onPresence)
 
   // Return cleanup function
   return () => {
@@ -284,6 +357,17 @@ export const normalizeWebSocketUrl = (url) => {
   return url
 }
 
+/**
+ * Utility: Derive the raw WebSocket endpoint from the SockJS URL
+ * http://host/ws → ws://host/ws-native, https://host/ws → wss://host/ws-native
+ */
+const toNativeWebSocketUrl = (sockJsUrl) => {
+  const url = new URL(sockJsUrl)
+  url.protocol = url.protocol === 'https:' ? 'wss:' : 'ws:'
+  url.pathname = url.pathname.replace(/\/ws\/?$/, '') + NATIVE_WS_PATH
+  return url.toString()
+}
+
 /**
  * Validate WebSocket configuration before creating client
  */
@@ -1,3 +1,6 @@
+import { fetchAttachmentDownloadUrl } from '../services/chatService'
+import { getToken } from './auth'
+
 const API_BASE_URL = import.meta.env.VITE_API_URL || 'http://localhost:8080/api'
 const BACKEND_ORIGIN = API_BASE_URL.replace(/\/api\/?$/, '')
 
@@ -8,6 +11,37 @@ export const resolveMediaUrl = (value) => {
   return `${BACKEND_ORIGIN}/${value}`
 }
 
+// Chat attachments require auth; <img>/<video> cannot send headers, so they load through
+// short-lived signed links. Links are cached until shortly before they expire.
+const SIGNED_URL_REFRESH_MARGIN_MS = 30000
+const signedUrls = new Map()
+
+const toUploadPath = (value) => {
+  const url = resolveMediaUrl(value)
+  if (!url || !url.startsWith(BACKEND_ORIGIN)) return null
+  const path = url.slice(BACKEND_ORIGIN.length)
+  return path.startsWith('/uploads/chat/') ? path : null
+}
+
+export const resolveAttachmentUrl = (value) => {
+  const path = toUploadPath(value)
+  if (!path || !getToken()) return Promise.resolve(resolveMediaUrl(value))
+
+  const cached = signedUrls.get(path)
+  if (cached && cached.expiresAt - SIGNED_URL_REFRESH_MARGIN_MS > Date.now()) {
+    return cached.url
+  }
+  // Concurrent callers share the pending request until it settles
+  const entry = { expiresAt: Infinity }
+  entry.url = fetchAttachmentDownloadUrl(path).then((signed) => {
+    entry.expiresAt = Date.now() + signed.expiresInSeconds * 1000
+    return resolveMediaUrl(signed.url)
+  })
+  entry.url.catch(() => signedUrls.delete(path))
+  signedUrls.set(path, entry)
+  return entry.url
+}
+
 export const getInitials = (name) => {
   const source = String(name || '').trim()
   if (!source) return '?'
@@ -1,10 +1,16 @@
 package com.chatconnecting.chatconnecting.chat;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
 import java.util.List;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -12,7 +18,9 @@ import org.springframework.web.bind.annotation.PatchMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.multipart.MultipartFile;
@@ -28,11 +36,25 @@ import com.chatconnecting.chatconnecting.exception.ForbiddenOperationException;
 import com.chatconnecting.chatconnecting.message.dto.AttachmentUploadResponse;
 import com.chatconnecting.chatconnecting.message.dto.ChatMessageResponse;
 import com.chatconnecting.chatconnecting.message.dto.ForwardMessageRequest;
+import com.chatconnecting.chatconnecting.message.dto.GlobalSearchResponse;
+import com.chatconnecting.chatconnecting.message.dto.MessageCursorResponse;
 import com.chatconnecting.chatconnecting.message.dto.MessagePageResponse;
 import com.chatconnecting.chatconnecting.message.dto.MessageReactionRequest;
 import com.chatconnecting.chatconnecting.message.dto.MessageUpdateRequest;
+import com.chatconnecting.chatconnecting.message.dto.RoomLaneStats;
 import com.chatconnecting.chatconnecting.message.service.MessageService;
+import com.chatconnecting.chatconnecting.message.service.RoomLaneExecutor;
+import com.chatconnecting.chatconnecting.storage.dto.CreateUploadRequest;
+import com.chatconnecting.chatconnecting.storage.dto.DownloadUrlResponse;
+import com.chatconnecting.chatconnecting.storage.dto.UploadSessionResponse;
+import com.chatconnecting.chatconnecting.storage.service.AttachmentAccessService;
+import com.chatconnecting.chatconnecting.websocket.OutboundBatcher;
+import com.chatconnecting.chatconnecting.websocket.OutboundFlowControl;
+import com.chatconnecting.chatconnecting.websocket.TransportMetrics;
+import com.chatconnecting.chatconnecting.websocket.dto.OutboundFlowStats;
+import com.chatconnecting.chatconnecting.websocket.dto.TransportStats;
 
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 
@@ -42,9 +64,16 @@ import lombok.RequiredArgsConstructor;
 public class ChatController {
 
     private static final Logger log = LoggerFactory.getLogger(ChatController.class);
+    private static final String UPLOAD_OFFSET_HEADER = "Upload-Offset";
+    private static final String UPLOAD_LENGTH_HEADER = "Upload-Length";
 
     private final ChatService chatService;
     private final MessageService messageService;
+    private final RoomLaneExecutor roomLaneExecutor;
+    private final AttachmentAccessService attachmentAccessService;
+    private final OutboundFlowControl outboundFlowControl;
+    private final OutboundBatcher outboundBatcher;
+    private final TransportMetrics transportMetrics;
 
     @GetMapping("/users")
     public ResponseEntity<List<UserChatSummaryResponse>> getChatUsers(Authentication authentication) {
@@ -132,6 +161,21 @@ public class ChatController {
         return ResponseEntity.ok(messageService.getChatHistory(email, chatRoomId, page, size));
     }
 
+    @GetMapping("/rooms/{chatRoomId}/history")
+    public ResponseEntity<MessageCursorResponse> getMessageHistory(
+            @PathVariable Long chatRoomId,
+            @RequestParam(required = false) Long before,
+            @RequestParam(required = false) Long after,
+            @RequestParam(required = false) Long around,
+            @RequestParam(defaultValue = "30") int size,
+            Authentication authentication
+    ) {
+        String email = requireAuthEmail(authentication);
+        log.debug("Loading room history: requester={}, roomId={}, before={}, after={}, around={}, size={}",
+                email, chatRoomId, before, after, around, size);
+        return ResponseEntity.ok(messageService.getChatHistorySlice(email, chatRoomId, before, after, around, size));
+    }
+
     @PostMapping("/rooms/{chatRoomId}/read")
     public ResponseEntity<MessageResponse> markAsRead(
             @PathVariable Long chatRoomId,
@@ -194,6 +238,18 @@ public class ChatController {
         return ResponseEntity.ok(messageService.searchMessages(email, chatRoomId, query, page, size));
     }
 
+    @GetMapping("/search")
+    public ResponseEntity<GlobalSearchResponse> searchAllRooms(
+            @RequestParam String query,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "30") int size,
+            @RequestParam(defaultValue = "relevance") String sort,
+            Authentication authentication
+    ) {
+        String email = requireAuthEmail(authentication);
+        return ResponseEntity.ok(messageService.searchAllRooms(email, query, cursor, size, sort));
+    }
+
     @PostMapping("/messages/{messageId}/reactions")
     public ResponseEntity<ChatMessageResponse> addReaction(
             @PathVariable Long messageId,
@@ -223,6 +279,131 @@ public class ChatController {
         return ResponseEntity.ok(messageService.uploadAttachment(email, file));
     }
 
+    @PostMapping("/attachments/stream")
+    public ResponseEntity<AttachmentUploadResponse> uploadAttachmentStream(
+            @RequestHeader(HttpHeaders.CONTENT_TYPE) String contentType,
+            @RequestHeader(value = "X-File-Name", required = false) String fileName,
+            HttpServletRequest request,
+            Authentication authentication
+    ) throws IOException {
+        String email = requireAuthEmail(authentication);
+        try (InputStream body = request.getInputStream()) {
+            return ResponseEntity.ok(messageService.uploadAttachmentStream(
+                    email,
+                    body,
+                    contentType,
+                    request.getContentLengthLong(),
+                    fileName
+            ));
+        }
+    }
+
+    /**
+     * Short-lived signed link for loading a chat attachment in an {@code <img>} or {@code <video>} tag
+     */
+    @GetMapping("/attachments/download-url")
+    public ResponseEntity<DownloadUrlResponse> getAttachmentDownloadUrl(
+            @RequestParam("url") String url,
+            Authentication authentication
+    ) {
+        String email = requireAuthEmail(authentication);
+        Long viewerId = chatService.getUserByEmail(email).getId();
+        return ResponseEntity.ok(attachmentAccessService.signDownload(url, viewerId));
+    }
+
+    @PostMapping("/attachments/uploads")
+    public ResponseEntity<UploadSessionResponse> createAttachmentUpload(
+            @Valid @RequestBody CreateUploadRequest request,
+            Authentication authentication
+    ) {
+        String email = requireAuthEmail(authentication);
+        UploadSessionResponse upload = messageService.createAttachmentUpload(email, request);
+        return ResponseEntity.created(URI.create("/api/chat/attachments/uploads/" + upload.getUploadId()))
+                .header(UPLOAD_OFFSET_HEADER, String.valueOf(upload.getOffset()))
+                .header(UPLOAD_LENGTH_HEADER, String.valueOf(upload.getSize()))
+                .body(upload);
+    }
+
+    @RequestMapping(value = "/attachments/uploads/{uploadId}", method = {RequestMethod.GET, RequestMethod.HEAD})
+    public ResponseEntity<UploadSessionResponse> getAttachmentUpload(
+            @PathVariable String uploadId,
+            Authentication authentication
+    ) {
+        String email = requireAuthEmail(authentication);
+        UploadSessionResponse upload = messageService.getAttachmentUpload(email, uploadId);
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.noStore())
+                .header(UPLOAD_OFFSET_HEADER, String.valueOf(upload.getOffset()))
+                .header(UPLOAD_LENGTH_HEADER, String.valueOf(upload.getSize()))
+                .body(upload);
+    }
+
+    @PatchMapping("/attachments/uploads/{uploadId}")
+    public ResponseEntity<Void> appendAttachmentUpload(
+            @PathVariable String uploadId,
+            @RequestHeader(UPLOAD_OFFSET_HEADER) long offset,
+            HttpServletRequest request,
+            Authentication authentication
+    ) throws IOException {
+        String email = requireAuthEmail(authentication);
+        try (InputStream body = request.getInputStream()) {
+            UploadSessionResponse upload = messageService.appendAttachmentUpload(email, uploadId, offset, body);
+            return ResponseEntity.noContent()
+                    .header(UPLOAD_OFFSET_HEADER, String.valueOf(upload.getOffset()))
+                    .build();
+        }
+    }
+
+    @PostMapping("/attachments/uploads/{uploadId}/complete")
+    public ResponseEntity<AttachmentUploadResponse> completeAttachmentUpload(
+            @PathVariable String uploadId,
+            Authentication authentication
+    ) {
+        String email = requireAuthEmail(authentication);
+        return ResponseEntity.ok(messageService.completeAttachmentUpload(email, uploadId));
+    }
+
+    @DeleteMapping("/attachments/uploads/{uploadId}")
+    public ResponseEntity<Void> cancelAttachmentUpload(
+            @PathVariable String uploadId,
+            Authentication authentication
+    ) {
+        String email = requireAuthEmail(authentication);
+        messageService.cancelAttachmentUpload(email, uploadId);
+        return ResponseEntity.noContent().build();
+    }
+
+    /**
+     * Queue depth and counters of the per-room message lanes.
+     */
+    @GetMapping("/lane-stats")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<RoomLaneStats> getLaneStats() {
+        return ResponseEntity.ok(roomLaneExecutor.stats());
+    }
+
+    /**
+     * Outbound backlog, congested sessions, shed frames and batching across WebSocket sessions
+     */
+    @GetMapping("/outbound-stats")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<OutboundFlowStats> getOutboundStats() {
+        OutboundFlowStats stats = outboundFlowControl.stats();
+        stats.setBatchingSessions(outboundBatcher.batchingSessions());
+        stats.setBatchesSent(outboundBatcher.batchesSent());
+        stats.setBatchedFrames(outboundBatcher.framesBatched());
+        return ResponseEntity.ok(stats);
+    }
+
+    /**
+     * Open and total sessions, compressed sessions and payload bytes per WebSocket transport
+     */
+    @GetMapping("/transport-stats")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<TransportStats> getTransportStats() {
+        return ResponseEntity.ok(transportMetrics.stats());
+    }
+
     private String requireAuthEmail(Authentication authentication) {
         if (authentication == null || authentication.getName() == null || authentication.getName().isBlank()) {
             throw new ForbiddenOperationException("Unauthorized request");
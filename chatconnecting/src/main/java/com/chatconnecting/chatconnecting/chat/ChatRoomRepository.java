@@ -1,5 +1,6 @@
 package com.chatconnecting.chatconnecting.chat;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import org.springframework.data.jpa.repository.JpaRepository;
@@ -60,4 +61,89 @@ public interface ChatRoomRepository extends JpaRepository<ChatRoom, Long> {
               )
             """)
     Optional<ChatRoom> findByIdAndParticipant(@Param("roomId") Long roomId, @Param("userId") Long userId);
+
+    @Query("""
+            select c.roomType as roomType,
+                   userOne.id as userOneId,
+                   userOne.email as userOneEmail,
+                   userTwo.id as userTwoId,
+                   userTwo.email as userTwoEmail
+            from ChatRoom c
+            left join c.userOne userOne
+            left join c.userTwo userTwo
+            where c.id = :roomId
+            """)
+    Optional<RoomMembershipRow> findMembershipRow(@Param("roomId") Long roomId);
+
+    @Query("""
+            select distinct c.id
+            from ChatRoom c
+            left join c.members members
+            where members.id = :userId
+               or c.userOne.id = :userId
+               or c.userTwo.id = :userId
+            """)
+    List<Long> findRoomIdsForUser(@Param("userId") Long userId);
+
+    @Query("select m.id as id, m.email as email from ChatRoom c join c.members m where c.id = :roomId")
+    List<RoomMemberRow> findMemberRows(@Param("roomId") Long roomId);
+
+    @Query("""
+            select c
+            from ChatRoom c
+            where not exists (
+                    select 1
+                    from ConversationSummary s
+                    where s.chatRoomId = c.id
+            )
+            """)
+    List<ChatRoom> findRoomsWithoutSummaries();
+
+    @Query("""
+            select userOne.email as firstEmail, userTwo.email as secondEmail
+            from ChatRoom c
+            join c.userOne userOne
+            join c.userTwo userTwo
+            where c.roomType = com.chatconnecting.chatconnecting.chat.ChatRoomType.DIRECT
+              and (userOne.email in :emails or userTwo.email in :emails)
+            """)
+    List<EmailPairRow> findDirectPeerEmails(@Param("emails") Collection<String> emails);
+
+    /**
+     * Pairs of (member in {@code emails}, other member of the same group).
+     */
+    @Query("""
+            select distinct subject.email as firstEmail, peer.email as secondEmail
+            from ChatRoom c
+            join c.members subject
+            join c.members peer
+            where c.roomType = com.chatconnecting.chatconnecting.chat.ChatRoomType.GROUP
+              and subject.email in :emails
+              and peer.id <> subject.id
+            """)
+    List<EmailPairRow> findGroupPeerEmails(@Param("emails") Collection<String> emails);
+
+    interface RoomMembershipRow {
+        ChatRoomType getRoomType();
+
+        Long getUserOneId();
+
+        String getUserOneEmail();
+
+        Long getUserTwoId();
+
+        String getUserTwoEmail();
+    }
+
+    interface RoomMemberRow {
+        Long getId();
+
+        String getEmail();
+    }
+
+    interface EmailPairRow {
+        String getFirstEmail();
+
+        String getSecondEmail();
+    }
 }
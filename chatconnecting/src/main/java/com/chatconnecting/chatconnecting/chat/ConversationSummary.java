@@ -0,0 +1,75 @@
+package com.chatconnecting.chatconnecting.chat;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
+import java.time.LocalDateTime;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.hibernate.annotations.UpdateTimestamp;
+
+/**
+ * Per-user read model of a conversation as shown in the sidebar. Rows are kept up to date
+ * incrementally by {@code ConversationSummaryService} so the sidebar does not have to query
+ * every room on each load.
+ */
+@Entity
+@Table(
+        name = "conversation_summaries",
+        uniqueConstraints = @UniqueConstraint(columnNames = {"owner_id", "chat_room_id"}),
+        indexes = {
+                @Index(name = "idx_summary_owner_time", columnList = "owner_id,last_message_at"),
+                @Index(name = "idx_summary_room", columnList = "chat_room_id")
+        }
+)
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ConversationSummary {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "owner_id", nullable = false)
+    private Long ownerId;
+
+    @Column(name = "chat_room_id", nullable = false)
+    private Long chatRoomId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "room_type", nullable = false, length = 16)
+    private ChatRoomType roomType;
+
+    @Column(name = "peer_user_id")
+    private Long peerUserId;
+
+    @Column(name = "last_message_id")
+    private Long lastMessageId;
+
+    @Column(name = "last_message_preview", length = 255)
+    private String lastMessagePreview;
+
+    @Column(name = "last_message_at")
+    private LocalDateTime lastMessageAt;
+
+    @Column(name = "unread_count", nullable = false)
+    @Builder.Default
+    private long unreadCount = 0L;
+
+    @UpdateTimestamp
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+}
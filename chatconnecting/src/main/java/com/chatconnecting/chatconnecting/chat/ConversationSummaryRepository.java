@@ -0,0 +1,77 @@
+package com.chatconnecting.chatconnecting.chat;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+public interface ConversationSummaryRepository extends JpaRepository<ConversationSummary, Long> {
+
+    List<ConversationSummary> findByOwnerId(Long ownerId);
+
+    @Query("select s.ownerId from ConversationSummary s where s.chatRoomId = :chatRoomId")
+    List<Long> findOwnerIdsByChatRoomId(@Param("chatRoomId") Long chatRoomId);
+
+    // MySQL applies SET assignments left to right, so lastMessageId has to stay last for the
+    // "is this message newer" guard to see the previous value.
+    @Modifying
+    @Query("""
+            update ConversationSummary s
+               set s.lastMessagePreview = case
+                       when s.lastMessageId is null or s.lastMessageId < :messageId then :preview
+                       else s.lastMessagePreview end,
+                   s.lastMessageAt = case
+                       when s.lastMessageId is null or s.lastMessageId < :messageId then :sentAt
+                       else s.lastMessageAt end,
+                   s.unreadCount = case
+                       when s.ownerId = :senderId then s.unreadCount
+                       else s.unreadCount + 1 end,
+                   s.lastMessageId = case
+                       when s.lastMessageId is null or s.lastMessageId < :messageId then :messageId
+                       else s.lastMessageId end
+             where s.chatRoomId = :chatRoomId
+            """)
+    int recordMessage(
+            @Param("chatRoomId") Long chatRoomId,
+            @Param("senderId") Long senderId,
+            @Param("messageId") Long messageId,
+            @Param("preview") String preview,
+            @Param("sentAt") LocalDateTime sentAt
+    );
+
+    @Modifying
+    @Query("""
+            update ConversationSummary s
+               set s.lastMessagePreview = :preview
+             where s.chatRoomId = :chatRoomId
+               and s.lastMessageId = :messageId
+            """)
+    int updatePreview(
+            @Param("chatRoomId") Long chatRoomId,
+            @Param("messageId") Long messageId,
+            @Param("preview") String preview
+    );
+
+    @Modifying
+    @Query("""
+            update ConversationSummary s
+               set s.unreadCount = :unreadCount
+             where s.chatRoomId = :chatRoomId
+               and s.ownerId = :ownerId
+            """)
+    int updateUnreadCount(
+            @Param("chatRoomId") Long chatRoomId,
+            @Param("ownerId") Long ownerId,
+            @Param("unreadCount") long unreadCount
+    );
+
+    @Modifying
+    @Query("delete from ConversationSummary s where s.chatRoomId = :chatRoomId and s.ownerId = :ownerId")
+    int deleteByChatRoomIdAndOwnerId(@Param("chatRoomId") Long chatRoomId, @Param("ownerId") Long ownerId);
+
+    @Modifying
+    @Query("delete from ConversationSummary s where s.chatRoomId = :chatRoomId")
+    int deleteByChatRoomId(@Param("chatRoomId") Long chatRoomId);
+}
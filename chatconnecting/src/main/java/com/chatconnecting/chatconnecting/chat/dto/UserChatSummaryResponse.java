@@ -1,6 +1,7 @@
 package com.chatconnecting.chatconnecting.chat.dto;
 
 import com.chatconnecting.chatconnecting.chat.ChatRoomType;
+import com.chatconnecting.chatconnecting.storage.dto.ThumbnailResponse;
 import java.time.LocalDateTime;
 import java.util.List;
 import lombok.AllArgsConstructor;
@@ -19,7 +20,9 @@ public class UserChatSummaryResponse {
     private String name;
     private String email;
     private String profileImageUrl;
+    private List<ThumbnailResponse> profileThumbnails;
     private boolean online;
+    private LocalDateTime lastSeenAt;
     private Long unreadCount;
     private String lastMessagePreview;
     private LocalDateTime lastMessageAt;
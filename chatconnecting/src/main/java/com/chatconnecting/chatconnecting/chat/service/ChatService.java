@@ -3,6 +3,7 @@ package com.chatconnecting.chatconnecting.chat.service;
 import com.chatconnecting.chatconnecting.chat.ChatRoom;
 import com.chatconnecting.chatconnecting.chat.ChatRoomRepository;
 import com.chatconnecting.chatconnecting.chat.ChatRoomType;
+import com.chatconnecting.chatconnecting.chat.ConversationSummary;
 import com.chatconnecting.chatconnecting.chat.dto.ChatRoomMemberResponse;
 import com.chatconnecting.chatconnecting.chat.dto.ChatRoomResponse;
 import com.chatconnecting.chatconnecting.chat.dto.CreateGroupRequest;
@@ -12,26 +13,29 @@ import com.chatconnecting.chatconnecting.chat.dto.UserChatSummaryResponse;
 import com.chatconnecting.chatconnecting.exception.BadRequestException;
 import com.chatconnecting.chatconnecting.exception.ForbiddenOperationException;
 import com.chatconnecting.chatconnecting.exception.ResourceNotFoundException;
-import com.chatconnecting.chatconnecting.message.Message;
 import com.chatconnecting.chatconnecting.message.MessageRepository;
-import com.chatconnecting.chatconnecting.message.MessageStatus;
 import com.chatconnecting.chatconnecting.message.StoredMessageContent;
+import com.chatconnecting.chatconnecting.message.service.MessageSearchService;
+import com.chatconnecting.chatconnecting.message.service.ReadWatermarkService;
+import com.chatconnecting.chatconnecting.presence.PresenceService;
+import com.chatconnecting.chatconnecting.storage.service.AttachmentStorageService;
+import com.chatconnecting.chatconnecting.storage.service.ThumbnailService;
 import com.chatconnecting.chatconnecting.user.User;
 import com.chatconnecting.chatconnecting.user.UserRepository;
-import com.chatconnecting.chatconnecting.websocket.PresenceService;
-import java.time.LocalDateTime;
+import com.chatconnecting.chatconnecting.websocket.StompEventPublisher;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import lombok.RequiredArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.dao.DataIntegrityViolationException;
-import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.util.StringUtils;
@@ -47,20 +51,37 @@ public class ChatService {
     private final ChatRoomRepository chatRoomRepository;
     private final UserRepository userRepository;
     private final MessageRepository messageRepository;
+    private final ConversationSummaryService conversationSummaryService;
+    private final ReadWatermarkService readWatermarkService;
+    private final MessageSearchService messageSearchService;
+    private final RoomMembershipCache roomMembershipCache;
     private final PresenceService presenceService;
-    private final SimpMessagingTemplate messagingTemplate;
+    private final StompEventPublisher stompEventPublisher;
+    private final AttachmentStorageService attachmentStorageService;
+    private final ThumbnailService thumbnailService;
 
     @Transactional(readOnly = true)
     public List<UserChatSummaryResponse> getSidebarUsers(String currentEmail) {
         User currentUser = getUserByEmail(currentEmail);
         List<UserChatSummaryResponse> summaries = new ArrayList<>();
 
-        for (User user : userRepository.findAllByIdNot(currentUser.getId())) {
-            summaries.add(buildDirectSummary(currentUser, user));
+        Map<Long, ConversationSummary> summariesByRoomId = new HashMap<>();
+        Map<Long, ConversationSummary> directSummariesByPeerId = new HashMap<>();
+        for (ConversationSummary summary : conversationSummaryService.findByOwner(currentUser.getId())) {
+            summariesByRoomId.put(summary.getChatRoomId(), summary);
+            if (summary.getPeerUserId() != null) {
+                directSummariesByPeerId.put(summary.getPeerUserId(), summary);
+            }
+        }
+
+        List<User> users = userRepository.findAllByIdNot(currentUser.getId());
+        thumbnailService.warm(users.stream().map(User::getProfileImageUrl).toList());
+        for (User user : users) {
+            summaries.add(buildDirectSummary(currentUser, user, directSummariesByPeerId.get(user.getId())));
         }
 
         for (ChatRoom room : chatRoomRepository.findGroupRoomsForUser(currentUser.getId())) {
-            summaries.add(buildGroupSummary(currentUser, room));
+            summaries.add(buildGroupSummary(currentUser, room, summariesByRoomId.get(room.getId())));
         }
 
         summaries.sort(
@@ -102,6 +123,8 @@ public class ChatService {
                 .build();
 
         ChatRoom saved = chatRoomRepository.saveAndFlush(room);
+        conversationSummaryService.ensureParticipants(saved);
+        roomMembershipCache.invalidate(saved.getId());
         log.info(
                 "Group created: roomId={}, adminId={}, members={}",
                 saved.getId(),
@@ -133,6 +156,8 @@ public class ChatService {
         }
 
         ChatRoom saved = chatRoomRepository.saveAndFlush(room);
+        conversationSummaryService.ensureParticipants(saved);
+        roomMembershipCache.invalidate(saved.getId());
         notifyRoomParticipants("groupUpdated", saved, saved.getParticipants(), null);
         return toRoomResponse(saved, currentUser);
     }
@@ -158,6 +183,9 @@ public class ChatService {
 
         room.getMembers().remove(removedUser);
         ChatRoom saved = chatRoomRepository.saveAndFlush(room);
+        conversationSummaryService.removeParticipant(saved.getId(), removedUser.getId());
+        readWatermarkService.removeMember(saved.getId(), removedUser.getId());
+        roomMembershipCache.invalidate(saved.getId());
 
         notifyRoomParticipants("groupUpdated", saved, saved.getParticipants(), removedUser.getId());
         notifyRoomParticipants("groupRemovedForUser", saved, List.of(removedUser), removedUser.getId());
@@ -184,6 +212,9 @@ public class ChatService {
         }
 
         ChatRoom saved = chatRoomRepository.saveAndFlush(room);
+        conversationSummaryService.removeParticipant(saved.getId(), currentUser.getId());
+        readWatermarkService.removeMember(saved.getId(), currentUser.getId());
+        roomMembershipCache.invalidate(saved.getId());
 
         notifyRoomParticipants("groupUpdated", saved, saved.getParticipants(), currentUser.getId());
         notifyRoomParticipants("groupLeftForUser", saved, List.of(currentUser), currentUser.getId());
@@ -201,7 +232,14 @@ public class ChatService {
         Collection<User> membersCopy = new ArrayList<>(room.getParticipants());
 
         // Delete messages in the group
+        for (String attachmentName : messageRepository.findAttachmentNamesByRoom(room.getId())) {
+            attachmentStorageService.release(StoredMessageContent.chatAttachmentUrl(attachmentName));
+        }
         messageRepository.deleteByRoomAndType(room.getId(), ChatRoomType.GROUP);
+        conversationSummaryService.removeRoom(room.getId());
+        readWatermarkService.removeRoom(room.getId());
+        messageSearchService.removeRoom(room.getId());
+        roomMembershipCache.invalidate(room.getId());
 
         // Delete the chat room
         chatRoomRepository.delete(room);
@@ -215,13 +253,11 @@ public class ChatService {
                 .room(null)
                 .build();
 
-        for (User member : membersCopy) {
-            messagingTemplate.convertAndSendToUser(
-                    resolveUserDestinationKey(member),
-                    ROOM_EVENTS_DESTINATION,
-                    deleteEvent
-            );
-        }
+        stompEventPublisher.sendToUsers(
+                membersCopy.stream().map(this::resolveUserDestinationKey).toList(),
+                ROOM_EVENTS_DESTINATION,
+                deleteEvent
+        );
 
         return ChatRoomResponse.builder()
                 .chatRoomId(room.getId())
@@ -251,6 +287,7 @@ public class ChatService {
 
         room.setAdmin(newAdmin);
         ChatRoom saved = chatRoomRepository.saveAndFlush(room);
+        roomMembershipCache.invalidate(saved.getId());
 
         log.info("Admin assigned: roomId={}, oldAdminId={}, newAdminId={}",
                 room.getId(), currentUser.getId(), newAdmin.getId());
@@ -270,12 +307,39 @@ public class ChatService {
                 .orElseGet(() -> createRoomWithRaceProtection(currentUser, participant, normalizedPair));
     }
 
+    /**
+     * Loads the room entity; callers that only need the room id, type or members should use
+     * {@link #requireRoomMembership(Long, User)} instead.
+     */
     @Transactional(readOnly = true)
     public ChatRoom getAuthorizedRoom(Long roomId, User currentUser) {
-        return chatRoomRepository.findByIdAndParticipant(roomId, currentUser.getId())
+        requireRoomAccess(roomId, currentUser);
+        return chatRoomRepository.findById(roomId)
+                .orElseThrow(() -> new ForbiddenOperationException("You do not have access to this chat room"));
+    }
+
+    /**
+     * Membership check against {@link RoomMembershipCache} for callers that do not need the room.
+     */
+    public void requireRoomAccess(Long roomId, User currentUser) {
+        requireRoomMembership(roomId, currentUser);
+    }
+
+    /**
+     * The cached type and members of a room the user belongs to, without touching the database
+     * once the room is cached.
+     */
+    public RoomMembershipCache.RoomMembership requireRoomMembership(Long roomId, User currentUser) {
+        return roomMembershipCache.get(roomId)
+                .filter(room -> room.contains(currentUser.getId()))
                 .orElseThrow(() -> new ForbiddenOperationException("You do not have access to this chat room"));
     }
 
+    @Transactional(readOnly = true)
+    public List<Long> getRoomIdsForUser(User user) {
+        return chatRoomRepository.findRoomIdsForUser(user.getId());
+    }
+
     @Transactional(readOnly = true)
     public User getUserByEmail(String email) {
         return userRepository.findByEmail(email)
@@ -327,26 +391,19 @@ public class ChatService {
         return builder.build();
     }
 
-    private UserChatSummaryResponse buildDirectSummary(User currentUser, User user) {
-        Optional<ChatRoom> roomOptional = findRoomBetweenUsers(currentUser.getId(), user.getId());
-        Long chatRoomId = roomOptional.map(ChatRoom::getId).orElse(null);
-        Optional<Message> lastMessage = roomOptional.flatMap(room -> messageRepository.findTopByChatRoomIdOrderByCreatedAtDesc(room.getId()));
-
+    private UserChatSummaryResponse buildDirectSummary(User currentUser, User user, ConversationSummary summary) {
         return UserChatSummaryResponse.builder()
                 .userId(user.getId())
                 .name(user.getName())
                 .email(user.getEmail())
                 .profileImageUrl(user.getProfileImageUrl())
+                .profileThumbnails(thumbnailService.thumbnailsFor(user.getProfileImageUrl()))
                 .online(presenceService.isUserOnline(user.getEmail()))
-                .unreadCount(chatRoomId == null ? 0L : messageRepository.countUnreadMessagesForViewer(
-                        chatRoomId,
-                        currentUser.getId(),
-                        ChatRoomType.DIRECT,
-                        ChatRoomType.GROUP
-                ))
-                .lastMessagePreview(lastMessage.map(this::previewFor).orElse(null))
-                .lastMessageAt(lastMessage.map(Message::getCreatedAt).orElse(null))
-                .chatRoomId(chatRoomId)
+                .lastSeenAt(user.getLastSeenAt())
+                .unreadCount(summary == null ? 0L : summary.getUnreadCount())
+                .lastMessagePreview(summary == null ? null : summary.getLastMessagePreview())
+                .lastMessageAt(summary == null ? null : summary.getLastMessageAt())
+                .chatRoomId(summary == null ? null : summary.getChatRoomId())
                 .roomType(ChatRoomType.DIRECT)
                 .adminId(null)
                 .memberCount(2L)
@@ -357,8 +414,7 @@ public class ChatService {
                 .build();
     }
 
-    private UserChatSummaryResponse buildGroupSummary(User currentUser, ChatRoom room) {
-        Optional<Message> lastMessage = messageRepository.findTopByChatRoomIdOrderByCreatedAtDesc(room.getId());
+    private UserChatSummaryResponse buildGroupSummary(User currentUser, ChatRoom room, ConversationSummary summary) {
         List<User> members = room.getParticipants().stream()
                 .sorted(Comparator.comparing(User::getName, String.CASE_INSENSITIVE_ORDER))
                 .toList();
@@ -373,14 +429,9 @@ public class ChatService {
                 .email(null)
                 .profileImageUrl(null)
                 .online(someoneElseOnline)
-                .unreadCount(messageRepository.countUnreadMessagesForViewer(
-                        room.getId(),
-                        currentUser.getId(),
-                        ChatRoomType.DIRECT,
-                        ChatRoomType.GROUP
-                ))
-                .lastMessagePreview(lastMessage.map(this::previewFor).orElse(null))
-                .lastMessageAt(lastMessage.map(Message::getCreatedAt).orElse(null))
+                .unreadCount(summary == null ? 0L : summary.getUnreadCount())
+                .lastMessagePreview(summary == null ? null : summary.getLastMessagePreview())
+                .lastMessageAt(summary == null ? null : summary.getLastMessageAt())
                 .chatRoomId(room.getId())
                 .roomType(ChatRoomType.GROUP)
                 .adminId(room.getAdmin() != null ? room.getAdmin().getId() : null)
@@ -400,7 +451,9 @@ public class ChatService {
                 .build();
 
         try {
-            return chatRoomRepository.saveAndFlush(candidate);
+            ChatRoom saved = chatRoomRepository.saveAndFlush(candidate);
+            conversationSummaryService.ensureParticipants(saved);
+            return saved;
         } catch (DataIntegrityViolationException ex) {
             log.debug(
                     "Detected concurrent chat room creation for pair=({},{}), refetching existing room",
@@ -413,23 +466,35 @@ public class ChatService {
     }
 
     private void notifyRoomParticipants(String eventType, ChatRoom room, Collection<User> recipients, Long affectedUserId) {
-        for (User recipient : recipients) {
-            messagingTemplate.convertAndSendToUser(
-                    resolveUserDestinationKey(recipient),
-                    ROOM_EVENTS_DESTINATION,
-                    RoomEventResponse.builder()
-                            .eventType(eventType)
-                            .chatRoomId(room.getId())
-                            .affectedUserId(affectedUserId)
-                            .room(toRoomResponse(room, recipient))
-                            .build()
-            );
+        if (!room.isGroupRoom()) {
+            // Direct room responses carry the other participant, which differs per recipient.
+            for (User recipient : recipients) {
+                stompEventPublisher.sendToUser(
+                        resolveUserDestinationKey(recipient),
+                        ROOM_EVENTS_DESTINATION,
+                        RoomEventResponse.builder()
+                                .eventType(eventType)
+                                .chatRoomId(room.getId())
+                                .affectedUserId(affectedUserId)
+                                .room(toRoomResponse(room, recipient))
+                                .build()
+                );
+            }
+            return;
         }
-    }
 
-    private String previewFor(Message message) {
-        String preview = StoredMessageContent.parse(message.getContent()).preview();
-        return shortenPreview(preview);
+        // Group room responses do not depend on the viewer: build and serialize them once.
+        RoomEventResponse event = RoomEventResponse.builder()
+                .eventType(eventType)
+                .chatRoomId(room.getId())
+                .affectedUserId(affectedUserId)
+                .room(toRoomResponse(room, null))
+                .build();
+        stompEventPublisher.sendToUsers(
+                recipients.stream().map(this::resolveUserDestinationKey).toList(),
+                ROOM_EVENTS_DESTINATION,
+                event
+        );
     }
 
     private ChatRoomMemberResponse toMemberResponse(User member) {
@@ -522,17 +587,6 @@ public class ChatService {
         return destinationKey;
     }
 
-    private String shortenPreview(String content) {
-        if (content == null) {
-            return null;
-        }
-        String trimmed = content.trim();
-        if (trimmed.length() <= 60) {
-            return trimmed;
-        }
-        return trimmed.substring(0, 60) + "...";
-    }
-
     private Long[] normalizePair(Long firstUserId, Long secondUserId) {
         long min = Math.min(firstUserId, secondUserId);
         long max = Math.max(firstUserId, secondUserId);
@@ -0,0 +1,154 @@
+package com.chatconnecting.chatconnecting.chat.service;
+
+import com.chatconnecting.chatconnecting.chat.ChatRoom;
+import com.chatconnecting.chatconnecting.chat.ChatRoomRepository;
+import com.chatconnecting.chatconnecting.chat.ChatRoomType;
+import com.chatconnecting.chatconnecting.chat.ConversationSummary;
+import com.chatconnecting.chatconnecting.chat.ConversationSummaryRepository;
+import com.chatconnecting.chatconnecting.message.Message;
+import com.chatconnecting.chatconnecting.message.MessageRepository;
+import com.chatconnecting.chatconnecting.message.StoredMessageContent;
+import com.chatconnecting.chatconnecting.message.service.ReadWatermarkService;
+import com.chatconnecting.chatconnecting.user.User;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Maintains the per-user {@link ConversationSummary} rows that back the chat sidebar.
+ */
+@Service
+@RequiredArgsConstructor
+public class ConversationSummaryService {
+
+    private static final Logger log = LoggerFactory.getLogger(ConversationSummaryService.class);
+    private static final int MAX_PREVIEW_LENGTH = 60;
+
+    private final ConversationSummaryRepository conversationSummaryRepository;
+    private final ChatRoomRepository chatRoomRepository;
+    private final MessageRepository messageRepository;
+    private final ReadWatermarkService readWatermarkService;
+
+    @Transactional(readOnly = true)
+    public List<ConversationSummary> findByOwner(Long ownerId) {
+        return conversationSummaryRepository.findByOwnerId(ownerId);
+    }
+
+    /**
+     * Create missing summary rows for the current participants of a room.
+     */
+    @Transactional
+    public void ensureParticipants(ChatRoom room) {
+        Set<Long> existingOwnerIds = new HashSet<>(conversationSummaryRepository.findOwnerIdsByChatRoomId(room.getId()));
+        List<User> missingParticipants = room.getParticipants().stream()
+                .filter(participant -> !existingOwnerIds.contains(participant.getId()))
+                .toList();
+        if (missingParticipants.isEmpty()) {
+            return;
+        }
+
+        Optional<Message> lastMessage = messageRepository.findTopByChatRoomIdOrderByCreatedAtDesc(room.getId());
+        for (User participant : missingParticipants) {
+            conversationSummaryRepository.save(buildSummary(room, participant, lastMessage));
+        }
+    }
+
+    @Transactional
+    public void recordMessage(Message message) {
+        ChatRoom room = message.getChatRoom();
+        int updated = conversationSummaryRepository.recordMessage(
+                room.getId(),
+                message.getSender().getId(),
+                message.getId(),
+                previewFor(message),
+                message.getCreatedAt()
+        );
+        if (updated < room.getParticipants().size()) {
+            ensureParticipants(room);
+        }
+    }
+
+    @Transactional
+    public void recordMessageUpdated(Message message) {
+        conversationSummaryRepository.updatePreview(message.getChatRoom().getId(), message.getId(), previewFor(message));
+    }
+
+    @Transactional
+    public void markRoomRead(Long chatRoomId, Long ownerId) {
+        conversationSummaryRepository.updateUnreadCount(chatRoomId, ownerId, 0L);
+    }
+
+    /**
+     * Recount unread messages for one participant, used when a single message changes visibility.
+     */
+    @Transactional
+    public void refreshUnreadCount(ChatRoom room, Long ownerId) {
+        conversationSummaryRepository.updateUnreadCount(room.getId(), ownerId, countUnread(room.getId(), ownerId));
+    }
+
+    @Transactional
+    public void removeParticipant(Long chatRoomId, Long ownerId) {
+        conversationSummaryRepository.deleteByChatRoomIdAndOwnerId(chatRoomId, ownerId);
+    }
+
+    @Transactional
+    public void removeRoom(Long chatRoomId) {
+        conversationSummaryRepository.deleteByChatRoomId(chatRoomId);
+    }
+
+    /**
+     * Build summary rows for rooms created before the read model existed.
+     */
+    @Transactional
+    public int backfillMissingSummaries() {
+        List<ChatRoom> rooms = chatRoomRepository.findRoomsWithoutSummaries();
+        for (ChatRoom room : rooms) {
+            ensureParticipants(room);
+        }
+        if (!rooms.isEmpty()) {
+            log.info("Backfilled conversation summaries for {} chat rooms", rooms.size());
+        }
+        return rooms.size();
+    }
+
+    private ConversationSummary buildSummary(ChatRoom room, User owner, Optional<Message> lastMessage) {
+        return ConversationSummary.builder()
+                .ownerId(owner.getId())
+                .chatRoomId(room.getId())
+                .roomType(room.getRoomType())
+                .peerUserId(room.isGroupRoom() ? null : room.getOtherParticipant(owner.getId()).getId())
+                .lastMessageId(lastMessage.map(Message::getId).orElse(null))
+                .lastMessagePreview(lastMessage.map(this::previewFor).orElse(null))
+                .lastMessageAt(lastMessage.map(Message::getCreatedAt).orElse(null))
+                .unreadCount(countUnread(room.getId(), owner.getId()))
+                .build();
+    }
+
+    private long countUnread(Long chatRoomId, Long ownerId) {
+        return messageRepository.countUnreadMessagesForViewer(
+                chatRoomId,
+                ownerId,
+                readWatermarkService.lastReadMessageId(chatRoomId, ownerId),
+                ChatRoomType.DIRECT,
+                ChatRoomType.GROUP
+        );
+    }
+
+    private String previewFor(Message message) {
+        String preview = StoredMessageContent.parse(message.getContent()).preview();
+        if (preview == null) {
+            return null;
+        }
+        String trimmed = preview.trim();
+        if (trimmed.length() <= MAX_PREVIEW_LENGTH) {
+            return trimmed;
+        }
+        return trimmed.substring(0, MAX_PREVIEW_LENGTH) + "...";
+    }
+}
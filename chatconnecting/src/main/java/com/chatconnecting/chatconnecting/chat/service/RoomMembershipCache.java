@@ -0,0 +1,148 @@
+package com.chatconnecting.chatconnecting.chat.service;
+
+import com.chatconnecting.chatconnecting.chat.ChatRoomRepository;
+import com.chatconnecting.chatconnecting.chat.ChatRoomType;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Room type and member ids per room, so authorization checks do not load the member graph. Every
+ * group operation that changes membership must call {@link #invalidate(Long)}; a load that races
+ * with an invalidation is discarded. Only existing rooms are cached, least recently used first out
+ * once {@code app.chat.membership-cache.max-rooms} is reached.
+ */
+@Component
+public class RoomMembershipCache {
+
+    private final ChatRoomRepository chatRoomRepository;
+    private final Map<Long, RoomMembership> memberships;
+    // One token per room with a load in flight; invalidate() drops it so the load is not cached.
+    private final Map<Long, Object> loads = new ConcurrentHashMap<>();
+
+    public RoomMembershipCache(
+            ChatRoomRepository chatRoomRepository,
+            @Value("${app.chat.membership-cache.max-rooms:10000}") int maxRooms
+    ) {
+        this.chatRoomRepository = chatRoomRepository;
+        int capacity = Math.max(maxRooms, 1);
+        this.memberships = new LinkedHashMap<>(256, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, RoomMembership> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    public boolean isMember(Long roomId, Long userId) {
+        return roomId != null && userId != null && get(roomId).map(room -> room.contains(userId)).orElse(false);
+    }
+
+    public boolean isGroupMember(Long roomId, Long userId) {
+        return roomId != null && userId != null && get(roomId)
+                .map(room -> room.roomType() == ChatRoomType.GROUP && room.contains(userId))
+                .orElse(false);
+    }
+
+    public Optional<RoomMembership> get(Long roomId) {
+        if (roomId == null) {
+            return Optional.empty();
+        }
+        synchronized (memberships) {
+            RoomMembership cached = memberships.get(roomId);
+            if (cached != null) {
+                return Optional.of(cached);
+            }
+        }
+
+        Object token = loads.computeIfAbsent(roomId, key -> new Object());
+        try {
+            Optional<RoomMembership> loaded = load(roomId);
+            loaded.ifPresent(membership -> {
+                synchronized (memberships) {
+                    if (loads.get(roomId) == token) {
+                        memberships.put(roomId, membership);
+                    }
+                }
+            });
+            return loaded;
+        } finally {
+            loads.remove(roomId, token);
+        }
+    }
+
+    /**
+     * Drop the cached membership now and again once the surrounding transaction commits, so a
+     * concurrent reader cannot re-cache the pre-commit member list.
+     */
+    public void invalidate(Long roomId) {
+        if (roomId == null) {
+            return;
+        }
+        evict(roomId);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    evict(roomId);
+                }
+            });
+        }
+    }
+
+    private void evict(Long roomId) {
+        synchronized (memberships) {
+            loads.remove(roomId);
+            memberships.remove(roomId);
+        }
+    }
+
+    private Optional<RoomMembership> load(Long roomId) {
+        return chatRoomRepository.findMembershipRow(roomId).map(row -> {
+            Map<Long, String> members = new TreeMap<>();
+            for (ChatRoomRepository.RoomMemberRow member : chatRoomRepository.findMemberRows(roomId)) {
+                members.put(member.getId(), member.getEmail());
+            }
+            if (members.isEmpty()) {
+                if (row.getUserOneId() != null) {
+                    members.put(row.getUserOneId(), row.getUserOneEmail());
+                }
+                if (row.getUserTwoId() != null) {
+                    members.put(row.getUserTwoId(), row.getUserTwoEmail());
+                }
+            }
+
+            long[] ids = new long[members.size()];
+            String[] keys = new String[members.size()];
+            int index = 0;
+            for (Map.Entry<Long, String> member : members.entrySet()) {
+                ids[index] = member.getKey();
+                keys[index] = member.getValue();
+                index++;
+            }
+            return new RoomMembership(roomId, row.getRoomType(), ids, keys);
+        });
+    }
+
+    /**
+     * Immutable snapshot of a room's members: sorted primitive ids and, at the same index, each
+     * member's user destination key (email).
+     */
+    public record RoomMembership(Long roomId, ChatRoomType roomType, long[] memberIds, String[] destinationKeys) {
+
+        public boolean contains(long userId) {
+            return Arrays.binarySearch(memberIds, userId) >= 0;
+        }
+
+        public int size() {
+            return memberIds.length;
+        }
+    }
+}
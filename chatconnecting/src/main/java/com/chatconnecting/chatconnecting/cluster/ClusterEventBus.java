@@ -0,0 +1,22 @@
+package com.chatconnecting.chatconnecting.cluster;
+
+import java.util.Collection;
+import java.util.function.Consumer;
+
+/**
+ * Transport between application nodes. Implementations must preserve order per (sender,
+ * receiver) pair and must not call the receiver on the sending thread.
+ */
+public interface ClusterEventBus {
+
+    void register(String nodeId, Consumer<ClusterFrame> receiver);
+
+    void unregister(String nodeId);
+
+    void send(Collection<String> targetNodeIds, ClusterFrame frame);
+
+    /**
+     * Delivers to every registered node except the origin.
+     */
+    void broadcast(ClusterFrame frame);
+}
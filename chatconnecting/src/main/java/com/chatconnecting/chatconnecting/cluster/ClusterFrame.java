@@ -0,0 +1,9 @@
+package com.chatconnecting.chatconnecting.cluster;
+
+/**
+ * An outbound STOMP message relayed between nodes. {@code destination} is the destination the
+ * application sent to, e.g. {@code /user/alice@example.com/queue/messages} or
+ * {@code /topic/group/42}; {@code payload} is the already serialized body.
+ */
+public record ClusterFrame(String originNodeId, String destination, String contentType, byte[] payload) {
+}
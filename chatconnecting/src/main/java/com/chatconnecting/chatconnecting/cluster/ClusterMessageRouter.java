@@ -0,0 +1,138 @@
+package com.chatconnecting.chatconnecting.cluster;
+
+import com.chatconnecting.chatconnecting.presence.PresenceService;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.util.MimeTypeUtils;
+import org.springframework.util.StringUtils;
+
+/**
+ * Sits on the broker channel and relays what the application sends to other nodes: a user
+ * destination goes only to the nodes holding one of the user's sessions according to presence,
+ * a topic goes to every node. Frames received from the bus are replayed into the local broker
+ * channel, where the simple broker and user destination resolution handle them as usual.
+ * <p>
+ * A user with no known session anywhere is flooded to all nodes when enabled, which covers the
+ * gap between a connect on another node and that node's next presence heartbeat.
+ */
+public class ClusterMessageRouter implements ChannelInterceptor {
+
+    static final String ORIGIN_HEADER = "clusterOriginNode";
+
+    private static final Logger log = LoggerFactory.getLogger(ClusterMessageRouter.class);
+    private static final String TOPIC_PREFIX = "/topic/";
+
+    private final ClusterEventBus bus;
+    private final String nodeId;
+    private final PresenceService presenceService;
+    private final MessageChannel brokerChannel;
+    private final String userDestinationPrefix;
+    private final boolean floodUnknownUsers;
+
+    public ClusterMessageRouter(
+            ClusterEventBus bus,
+            String nodeId,
+            PresenceService presenceService,
+            MessageChannel brokerChannel,
+            String userDestinationPrefix,
+            boolean floodUnknownUsers
+    ) {
+        this.bus = bus;
+        this.nodeId = nodeId;
+        this.presenceService = presenceService;
+        this.brokerChannel = brokerChannel;
+        this.userDestinationPrefix = userDestinationPrefix.endsWith("/") ? userDestinationPrefix : userDestinationPrefix + "/";
+        this.floodUnknownUsers = floodUnknownUsers;
+    }
+
+    @PostConstruct
+    public void start() {
+        bus.register(nodeId, this::receive);
+    }
+
+    @PreDestroy
+    public void stop() {
+        bus.unregister(nodeId);
+    }
+
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        MessageHeaders headers = message.getHeaders();
+        if (headers.containsKey(ORIGIN_HEADER)) {
+            return message;
+        }
+        SimpMessageType messageType = SimpMessageHeaderAccessor.getMessageType(headers);
+        String destination = SimpMessageHeaderAccessor.getDestination(headers);
+        if (destination == null || (messageType != null && messageType != SimpMessageType.MESSAGE)) {
+            return message;
+        }
+
+        if (destination.startsWith(userDestinationPrefix)) {
+            String user = userOf(destination);
+            if (user == null) {
+                return message;
+            }
+            Set<String> nodes = presenceService.remoteNodes(user);
+            if (!nodes.isEmpty()) {
+                bus.send(nodes, toFrame(destination, message));
+            } else if (floodUnknownUsers && !presenceService.isUserOnline(user)) {
+                bus.broadcast(toFrame(destination, message));
+            }
+        } else if (destination.startsWith(TOPIC_PREFIX)) {
+            bus.broadcast(toFrame(destination, message));
+        }
+        return message;
+    }
+
+    void receive(ClusterFrame frame) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        accessor.setDestination(frame.destination());
+        if (frame.contentType() != null) {
+            accessor.setContentType(MimeTypeUtils.parseMimeType(frame.contentType()));
+        }
+        accessor.setHeader(ORIGIN_HEADER, frame.originNodeId());
+        brokerChannel.send(MessageBuilder.createMessage(frame.payload(), accessor.getMessageHeaders()));
+    }
+
+    private ClusterFrame toFrame(String destination, Message<?> message) {
+        Object contentType = message.getHeaders().get(MessageHeaders.CONTENT_TYPE);
+        return new ClusterFrame(
+                nodeId,
+                destination,
+                contentType == null ? null : contentType.toString(),
+                payloadBytes(message.getPayload(), destination)
+        );
+    }
+
+    private byte[] payloadBytes(Object payload, String destination) {
+        if (payload instanceof byte[] bytes) {
+            return bytes;
+        }
+        if (payload instanceof String text) {
+            return text.getBytes(StandardCharsets.UTF_8);
+        }
+        // The template always serializes before sending, so this only catches hand-built messages.
+        log.warn("Relaying unserialized {} payload for {} as its string form", payload.getClass().getSimpleName(), destination);
+        return String.valueOf(payload).getBytes(StandardCharsets.UTF_8);
+    }
+
+    private String userOf(String destination) {
+        int start = userDestinationPrefix.length();
+        int end = destination.indexOf('/', start);
+        if (end <= start) {
+            return null;
+        }
+        return StringUtils.replace(destination.substring(start, end), "%2F", "/");
+    }
+}
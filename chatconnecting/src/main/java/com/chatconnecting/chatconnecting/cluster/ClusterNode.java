@@ -0,0 +1,7 @@
+package com.chatconnecting.chatconnecting.cluster;
+
+/**
+ * Identity of this instance within the cluster; shared by presence leases and the event bus.
+ */
+public record ClusterNode(String id) {
+}
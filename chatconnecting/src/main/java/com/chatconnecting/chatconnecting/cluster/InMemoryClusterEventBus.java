@@ -0,0 +1,82 @@
+package com.chatconnecting.chatconnecting.cluster;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Bus between nodes living in the same JVM. A single-instance deployment registers only itself,
+ * so nothing is ever relayed; tests register several nodes against one instance. Each node gets
+ * its own delivery thread, which keeps frames in order per receiver.
+ */
+public class InMemoryClusterEventBus implements ClusterEventBus {
+
+    private static final Logger log = LoggerFactory.getLogger(InMemoryClusterEventBus.class);
+
+    private final Map<String, Endpoint> endpoints = new ConcurrentHashMap<>();
+
+    @Override
+    public void register(String nodeId, Consumer<ClusterFrame> receiver) {
+        ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "cluster-bus-" + nodeId);
+            thread.setDaemon(true);
+            return thread;
+        });
+        Endpoint previous = endpoints.put(nodeId, new Endpoint(receiver, executor));
+        if (previous != null) {
+            previous.executor().shutdown();
+        }
+    }
+
+    @Override
+    public void unregister(String nodeId) {
+        Endpoint endpoint = endpoints.remove(nodeId);
+        if (endpoint != null) {
+            endpoint.executor().shutdown();
+        }
+    }
+
+    @Override
+    public void send(Collection<String> targetNodeIds, ClusterFrame frame) {
+        for (String nodeId : targetNodeIds) {
+            if (!nodeId.equals(frame.originNodeId())) {
+                deliver(nodeId, endpoints.get(nodeId), frame);
+            }
+        }
+    }
+
+    @Override
+    public void broadcast(ClusterFrame frame) {
+        endpoints.forEach((nodeId, endpoint) -> {
+            if (!nodeId.equals(frame.originNodeId())) {
+                deliver(nodeId, endpoint, frame);
+            }
+        });
+    }
+
+    private void deliver(String nodeId, Endpoint endpoint, ClusterFrame frame) {
+        if (endpoint == null) {
+            log.debug("Dropping frame for unknown node {} (destination={})", nodeId, frame.destination());
+            return;
+        }
+        try {
+            endpoint.executor().execute(() -> {
+                try {
+                    endpoint.receiver().accept(frame);
+                } catch (Exception ex) {
+                    log.warn("Node {} failed to handle frame for {}: {}", nodeId, frame.destination(), ex.getMessage());
+                }
+            });
+        } catch (Exception ex) {
+            log.debug("Node {} is shutting down; dropping frame for {}", nodeId, frame.destination());
+        }
+    }
+
+    private record Endpoint(Consumer<ClusterFrame> receiver, ExecutorService executor) {
+    }
+}
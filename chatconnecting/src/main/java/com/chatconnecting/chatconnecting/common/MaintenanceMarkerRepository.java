@@ -0,0 +1,6 @@
+package com.chatconnecting.chatconnecting.common;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface MaintenanceMarkerRepository extends JpaRepository<MaintenanceMarker, String> {
+}
@@ -0,0 +1,42 @@
+package com.chatconnecting.chatconnecting.concurrency;
+
+import com.chatconnecting.chatconnecting.exception.ServiceBusyException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+/**
+ * Holds a {@link DatabaseWorkLimiter} permit for the duration of each API request it is mapped to.
+ * A request that cannot get one within the timeout is answered with 503 instead of waiting on the
+ * pool. Upload endpoints whose duration is bound by the client's network are not mapped.
+ */
+@Component
+@RequiredArgsConstructor
+public class DatabaseWorkInterceptor implements HandlerInterceptor {
+
+    private static final String PERMIT_ATTRIBUTE = DatabaseWorkInterceptor.class.getName() + ".permit";
+
+    private final DatabaseWorkLimiter databaseWorkLimiter;
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (!databaseWorkLimiter.isEnabled() || request.getAttribute(PERMIT_ATTRIBUTE) != null) {
+            return true;
+        }
+        if (!databaseWorkLimiter.acquire()) {
+            throw new ServiceBusyException("Server is busy, please retry");
+        }
+        request.setAttribute(PERMIT_ATTRIBUTE, Boolean.TRUE);
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        if (request.getAttribute(PERMIT_ATTRIBUTE) != null) {
+            request.removeAttribute(PERMIT_ATTRIBUTE);
+            databaseWorkLimiter.release();
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package com.chatconnecting.chatconnecting.concurrency;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Caps how many units of database-bound work run at once. Platform pools are already bounded, but
+ * with virtual threads thousands of requests could otherwise queue inside the connection pool
+ * (and pin their carriers in the JDBC driver), so in virtual mode callers take a permit first.
+ * Permits default to the Hikari pool size.
+ */
+@Component
+public class DatabaseWorkLimiter {
+
+    private final boolean enabled;
+    private final int permits;
+    private final long acquireTimeoutMs;
+    private final Semaphore semaphore;
+
+    @Autowired
+    public DatabaseWorkLimiter(
+            ExecutionMode executionMode,
+            @Value("${app.threads.db-permits:${spring.datasource.hikari.maximum-pool-size:10}}") int permits,
+            @Value("${app.threads.db-permit-timeout-ms:${spring.datasource.hikari.connection-timeout:30000}}")
+            long acquireTimeoutMs
+    ) {
+        this(executionMode.isVirtual(), permits, acquireTimeoutMs);
+    }
+
+    public DatabaseWorkLimiter(boolean enabled, int permits, long acquireTimeoutMs) {
+        this.enabled = enabled;
+        this.permits = Math.max(permits, 1);
+        this.acquireTimeoutMs = Math.max(acquireTimeoutMs, 0L);
+        this.semaphore = new Semaphore(this.permits, true);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Returns {@code false} if no permit became free within the timeout. Always succeeds when the
+     * limiter is disabled; {@link #release()} must be called only after a successful acquire.
+     */
+    public boolean acquire() {
+        return acquire(acquireTimeoutMs);
+    }
+
+    /**
+     * {@link #acquire()} with a caller-specific timeout, for threads that must not wait as long as
+     * a request would.
+     */
+    public boolean acquire(long timeoutMs) {
+        if (!enabled) {
+            return true;
+        }
+        try {
+            return semaphore.tryAcquire(Math.max(timeoutMs, 0L), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    public void release() {
+        if (enabled) {
+            semaphore.release();
+        }
+    }
+
+    public int availablePermits() {
+        return enabled ? semaphore.availablePermits() : permits;
+    }
+
+    public int permits() {
+        return permits;
+    }
+}
@@ -0,0 +1,91 @@
+package com.chatconnecting.chatconnecting.concurrency;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Chooses between platform and virtual threads for the application's own executors. Virtual mode
+ * follows {@code spring.threads.virtual.enabled}, the same switch Spring Boot uses for Tomcat,
+ * and only takes effect on a JVM that has virtual threads; the build targets Java 17, so they are
+ * looked up reflectively and platform threads are used otherwise.
+ */
+@Component
+public class ExecutionMode {
+
+    private static final Logger log = LoggerFactory.getLogger(ExecutionMode.class);
+
+    private final boolean virtual;
+
+    public ExecutionMode(@Value("${spring.threads.virtual.enabled:false}") boolean virtualRequested) {
+        boolean available = virtualThreadsAvailable();
+        if (virtualRequested && !available) {
+            log.warn("Virtual threads requested but this JVM ({}) has none; using platform threads",
+                    System.getProperty("java.version"));
+        }
+        this.virtual = virtualRequested && available;
+        log.info("Execution mode: {} threads", virtual ? "virtual" : "platform");
+    }
+
+    public boolean isVirtual() {
+        return virtual;
+    }
+
+    /**
+     * Named daemon threads for pools that keep their own sizing in both modes.
+     */
+    public ThreadFactory threadFactory(String prefix) {
+        if (virtual) {
+            return virtualThreadFactory(prefix);
+        }
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * One virtual thread per task in virtual mode; {@code null} in platform mode so the caller
+     * keeps its bounded pool.
+     */
+    public Executor perTaskExecutor(String prefix) {
+        if (!virtual) {
+            return null;
+        }
+        try {
+            Method method = Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class);
+            return (ExecutorService) method.invoke(null, virtualThreadFactory(prefix));
+        } catch (ReflectiveOperationException ex) {
+            throw new IllegalStateException("Unable to create virtual thread executor", ex);
+        }
+    }
+
+    public static boolean virtualThreadsAvailable() {
+        try {
+            Thread.class.getMethod("ofVirtual");
+            return true;
+        } catch (NoSuchMethodException ex) {
+            return false;
+        }
+    }
+
+    static ThreadFactory virtualThreadFactory(String prefix) {
+        try {
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            Class<?> ofVirtual = Class.forName("java.lang.Thread$Builder$OfVirtual");
+            builder = ofVirtual.getMethod("name", String.class, long.class).invoke(builder, prefix, 1L);
+            return (ThreadFactory) Class.forName("java.lang.Thread$Builder").getMethod("factory").invoke(builder);
+        } catch (ReflectiveOperationException ex) {
+            throw new IllegalStateException("Virtual threads are not available on this JVM", ex);
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package com.chatconnecting.chatconnecting.concurrency;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessageDeliveryException;
+import org.springframework.messaging.MessageHandler;
+import org.springframework.messaging.handler.invocation.AbstractMethodMessageHandler;
+import org.springframework.messaging.support.ExecutorChannelInterceptor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.messaging.support.MessageHeaderAccessor;
+import org.springframework.stereotype.Component;
+
+/**
+ * Takes a {@link DatabaseWorkLimiter} permit around {@code @MessageMapping} handling on the
+ * inbound channel, so per-task virtual threads cannot oversubscribe the connection pool. Broker
+ * and user-destination handlers do no database work and are left alone.
+ * <p>
+ * The channel calls {@link #afterMessageHandled} even when {@link #beforeHandle} rejected the
+ * message, so the permit is recorded as a header on the message that goes on to be handled and
+ * released only when that header is present.
+ */
+@Component
+@RequiredArgsConstructor
+public class InboundWorkInterceptor implements ExecutorChannelInterceptor {
+
+    static final String PERMIT_HEADER = "chatconnect.dbPermit";
+
+    private final DatabaseWorkLimiter databaseWorkLimiter;
+
+    @Override
+    public Message<?> beforeHandle(Message<?> message, MessageChannel channel, MessageHandler handler) {
+        if (!databaseWorkLimiter.isEnabled() || !(handler instanceof AbstractMethodMessageHandler<?>)) {
+            return message;
+        }
+        if (!databaseWorkLimiter.acquire()) {
+            throw new MessageDeliveryException(message, "Server is busy, please retry");
+        }
+        MessageHeaderAccessor accessor = MessageHeaderAccessor.getMutableAccessor(message);
+        accessor.setHeader(PERMIT_HEADER, Boolean.TRUE);
+        return MessageBuilder.createMessage(message.getPayload(), accessor.getMessageHeaders());
+    }
+
+    @Override
+    public void afterMessageHandled(Message<?> message, MessageChannel channel, MessageHandler handler, Exception ex) {
+        if (Boolean.TRUE.equals(message.getHeaders().get(PERMIT_HEADER))) {
+            databaseWorkLimiter.release();
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package com.chatconnecting.chatconnecting.config;
+
+import com.chatconnecting.chatconnecting.storage.service.AttachmentAccessService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.stereotype.Component;
+
+/**
+ * Links existing attachment messages to their files so downloads of older attachments pass the
+ * access check. Runs once, in the background; until it finishes those files answer 403.
+ */
+@Component
+@RequiredArgsConstructor
+public class AttachmentReferenceInitializer implements ApplicationRunner {
+
+    private final AttachmentAccessService attachmentAccessService;
+    private final OneTimeTaskRunner oneTimeTaskRunner;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        oneTimeTaskRunner.submit("attachment-reference-backfill", attachmentAccessService::backfill);
+    }
+}
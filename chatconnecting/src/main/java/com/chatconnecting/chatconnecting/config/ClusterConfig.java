@@ -0,0 +1,69 @@
+package com.chatconnecting.chatconnecting.config;
+
+import com.chatconnecting.chatconnecting.cluster.ClusterEventBus;
+import com.chatconnecting.chatconnecting.cluster.ClusterMessageRouter;
+import com.chatconnecting.chatconnecting.cluster.ClusterNode;
+import com.chatconnecting.chatconnecting.cluster.InMemoryClusterEventBus;
+import com.chatconnecting.chatconnecting.presence.PresenceService;
+import java.net.InetAddress;
+import java.util.UUID;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.messaging.MessageChannel;
+
+/**
+ * Node identity and the inter-node event bus. The bundled bus only connects nodes inside one
+ * JVM; a networked transport replaces it by declaring its own {@link ClusterEventBus} bean.
+ */
+@Configuration
+public class ClusterConfig {
+
+    private static final Logger log = LoggerFactory.getLogger(ClusterConfig.class);
+
+    @Bean
+    public ClusterNode clusterNode(@Value("${app.cluster.node-id:}") String nodeId) {
+        String resolved = nodeId == null || nodeId.isBlank() ? generatedNodeId() : nodeId.trim();
+        log.info("Cluster node id: {}", resolved);
+        return new ClusterNode(resolved);
+    }
+
+    @Bean
+    @ConditionalOnMissingBean(ClusterEventBus.class)
+    public ClusterEventBus clusterEventBus() {
+        return new InMemoryClusterEventBus();
+    }
+
+    @Bean
+    public ClusterMessageRouter clusterMessageRouter(
+            ClusterEventBus clusterEventBus,
+            ClusterNode clusterNode,
+            PresenceService presenceService,
+            @Lazy @Qualifier("brokerChannel") MessageChannel brokerChannel,
+            @Value("${app.cluster.flood-unknown-users:true}") boolean floodUnknownUsers
+    ) {
+        return new ClusterMessageRouter(
+                clusterEventBus,
+                clusterNode.id(),
+                presenceService,
+                brokerChannel,
+                "/user/",
+                floodUnknownUsers
+        );
+    }
+
+    private String generatedNodeId() {
+        String suffix = UUID.randomUUID().toString().substring(0, 8);
+        try {
+            String host = InetAddress.getLocalHost().getHostName();
+            return (host.length() > 50 ? host.substring(0, 50) : host) + "-" + suffix;
+        } catch (Exception ex) {
+            return "node-" + suffix;
+        }
+    }
+}
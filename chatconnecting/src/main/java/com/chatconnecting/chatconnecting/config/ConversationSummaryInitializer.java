@@ -0,0 +1,29 @@
+package com.chatconnecting.chatconnecting.config;
+
+import com.chatconnecting.chatconnecting.chat.service.ConversationSummaryService;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+@Component
+@Order(2)
+@RequiredArgsConstructor
+public class ConversationSummaryInitializer implements ApplicationRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(ConversationSummaryInitializer.class);
+
+    private final ConversationSummaryService conversationSummaryService;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        try {
+            conversationSummaryService.backfillMissingSummaries();
+        } catch (Exception ex) {
+            log.warn("Unable to backfill conversation summaries: {}", ex.getMessage());
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package com.chatconnecting.chatconnecting.config;
+
+import com.chatconnecting.chatconnecting.message.service.MessageSearchService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.stereotype.Component;
+
+/**
+ * Indexes messages that predate the search index and dates postings that predate its
+ * {@code created_at} column. Each runs once, in the background; search simply returns fewer hits
+ * until they finish.
+ */
+@Component
+@RequiredArgsConstructor
+public class MessageSearchIndexInitializer implements ApplicationRunner {
+
+    private final MessageSearchService messageSearchService;
+    private final OneTimeTaskRunner oneTimeTaskRunner;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        oneTimeTaskRunner.submit("message-search-backfill", messageSearchService::backfill);
+        oneTimeTaskRunner.submit("message-search-posting-dates", messageSearchService::backfillCreatedAt);
+    }
+}
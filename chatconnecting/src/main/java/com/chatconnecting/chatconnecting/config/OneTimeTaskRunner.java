@@ -0,0 +1,54 @@
+package com.chatconnecting.chatconnecting.config;
+
+import com.chatconnecting.chatconnecting.common.MaintenanceMarker;
+import com.chatconnecting.chatconnecting.common.MaintenanceMarkerRepository;
+import com.chatconnecting.chatconnecting.concurrency.ExecutionMode;
+import jakarta.annotation.PreDestroy;
+import java.time.LocalDateTime;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+/**
+ * Runs startup backfills in the background, one at a time, at most once per database. A task that
+ * completes is recorded in {@code maintenance_markers} and skipped on later starts; one that fails
+ * or is interrupted by shutdown runs again on the next start, so tasks must be idempotent.
+ */
+@Component
+public class OneTimeTaskRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(OneTimeTaskRunner.class);
+
+    private final MaintenanceMarkerRepository maintenanceMarkerRepository;
+    private final ExecutorService executor;
+
+    public OneTimeTaskRunner(MaintenanceMarkerRepository maintenanceMarkerRepository, ExecutionMode executionMode) {
+        this.maintenanceMarkerRepository = maintenanceMarkerRepository;
+        this.executor = Executors.newSingleThreadExecutor(executionMode.threadFactory("one-time-task-"));
+    }
+
+    public void submit(String name, Runnable task) {
+        executor.execute(() -> {
+            if (maintenanceMarkerRepository.existsById(name)) {
+                return;
+            }
+            try {
+                task.run();
+                maintenanceMarkerRepository.save(MaintenanceMarker.builder()
+                        .name(name)
+                        .completedAt(LocalDateTime.now())
+                        .build());
+                log.info("One-time task {} completed", name);
+            } catch (Exception ex) {
+                log.warn("One-time task {} failed, it will run again on the next start: {}", name, ex.getMessage());
+            }
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,54 @@
+package com.chatconnecting.chatconnecting.config;
+
+import com.chatconnecting.chatconnecting.cluster.ClusterNode;
+import com.chatconnecting.chatconnecting.presence.InMemoryPresenceStore;
+import com.chatconnecting.chatconnecting.presence.JdbcPresenceStore;
+import com.chatconnecting.chatconnecting.presence.PresenceStore;
+import com.chatconnecting.chatconnecting.presence.ReplicatedPresenceService;
+import java.time.Clock;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * Presence is replicated through the database by default; {@code app.presence.store=memory}
+ * keeps it inside this JVM for single-instance deployments.
+ */
+@Configuration
+public class PresenceConfig {
+
+    private static final Logger log = LoggerFactory.getLogger(PresenceConfig.class);
+
+    @Bean
+    public PresenceStore presenceStore(
+            @Value("${app.presence.store:jdbc}") String storeType,
+            JdbcTemplate jdbcTemplate
+    ) {
+        if ("memory".equalsIgnoreCase(storeType.trim())) {
+            return new InMemoryPresenceStore();
+        }
+        return new JdbcPresenceStore(jdbcTemplate);
+    }
+
+    @Bean
+    public ReplicatedPresenceService presenceService(
+            PresenceStore presenceStore,
+            ClusterNode clusterNode,
+            @Value("${app.presence.session-lease-ms:30000}") long sessionLeaseMs,
+            @Value("${app.presence.node-lease-ms:15000}") long nodeLeaseMs,
+            @Value("${app.presence.last-seen-flush-ms:30000}") long lastSeenFlushMs
+    ) {
+        log.info("Presence node {} using {}", clusterNode.id(), presenceStore.getClass().getSimpleName());
+        return new ReplicatedPresenceService(
+                presenceStore,
+                clusterNode.id(),
+                Clock.systemUTC(),
+                sessionLeaseMs,
+                nodeLeaseMs,
+                lastSeenFlushMs
+        );
+    }
+}
@@ -0,0 +1,59 @@
+package com.chatconnecting.chatconnecting.config;
+
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Converts the legacy per-message {@code message_seen_by} join table into one read watermark per
+ * group member, once. The legacy table is left in place so a bad conversion can be redone; it can
+ * be dropped in a later release.
+ */
+@Component
+@RequiredArgsConstructor
+public class ReadWatermarkMigration implements ApplicationRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(ReadWatermarkMigration.class);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final OneTimeTaskRunner oneTimeTaskRunner;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        oneTimeTaskRunner.submit("read-watermarks-from-seen-by", this::migrate);
+    }
+
+    private void migrate() {
+        Integer legacyTables = jdbcTemplate.queryForObject(
+                """
+                select count(*)
+                from information_schema.tables
+                where table_schema = database()
+                  and table_name = 'message_seen_by'
+                """,
+                Integer.class
+        );
+        if (legacyTables == null || legacyTables == 0) {
+            return;
+        }
+
+        int migrated = jdbcTemplate.update("""
+                insert into read_watermarks (chat_room_id, user_id, last_read_message_id, last_read_at)
+                select m.chat_room_id, sb.user_id, max(sb.message_id), now()
+                from message_seen_by sb
+                join messages m on m.id = sb.message_id
+                join chat_rooms r on r.id = m.chat_room_id and r.room_type = 'GROUP'
+                where not exists (
+                    select 1 from read_watermarks w
+                     where w.chat_room_id = m.chat_room_id
+                       and w.user_id = sb.user_id
+                )
+                group by m.chat_room_id, sb.user_id
+                """);
+        log.info("Migrated {} group read watermarks from message_seen_by", migrated);
+    }
+}
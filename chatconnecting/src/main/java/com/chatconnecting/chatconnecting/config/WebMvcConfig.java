@@ -0,0 +1,23 @@
+package com.chatconnecting.chatconnecting.config;
+
+import com.chatconnecting.chatconnecting.concurrency.DatabaseWorkInterceptor;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+@Configuration
+@RequiredArgsConstructor
+public class WebMvcConfig implements WebMvcConfigurer {
+
+    private final DatabaseWorkInterceptor databaseWorkInterceptor;
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        // Streamed and resumable uploads spend most of their time reading the client's body; holding
+        // a permit for that would let a few slow uploads starve every other API call.
+        registry.addInterceptor(databaseWorkInterceptor)
+                .addPathPatterns("/api/**")
+                .excludePathPatterns("/api/chat/attachments/stream", "/api/chat/attachments/uploads/*");
+    }
+}
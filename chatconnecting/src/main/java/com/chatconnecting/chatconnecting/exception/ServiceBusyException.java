@@ -0,0 +1,7 @@
+package com.chatconnecting.chatconnecting.exception;
+
+public class ServiceBusyException extends RuntimeException {
+    public ServiceBusyException(String message) {
+        super(message);
+    }
+}
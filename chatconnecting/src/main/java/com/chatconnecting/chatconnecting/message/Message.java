@@ -12,9 +12,7 @@ import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
 import jakarta.persistence.Index;
 import jakarta.persistence.JoinColumn;
-import jakarta.persistence.JoinTable;
 import jakarta.persistence.ManyToOne;
-import jakarta.persistence.ManyToMany;
 import jakarta.persistence.OneToMany;
 import jakarta.persistence.Table;
 import java.time.LocalDateTime;
@@ -32,7 +30,9 @@ import org.hibernate.annotations.CreationTimestamp;
         name = "messages",
         indexes = {
                 @Index(name = "idx_message_room_time", columnList = "chat_room_id,created_at"),
-                @Index(name = "idx_message_receiver_status", columnList = "receiver_id,status")
+                @Index(name = "idx_message_room_id", columnList = "chat_room_id,id"),
+                @Index(name = "idx_message_receiver_status", columnList = "receiver_id,status"),
+                @Index(name = "idx_message_attachment", columnList = "attachment_name")
         }
 )
 @Getter
@@ -61,6 +61,13 @@ public class Message {
     @Column(nullable = false, length = 2000)
     private String content;
 
+    /**
+     * File name of the chat attachment referenced by {@link #content}, kept in its own indexed
+     * column so downloads can be authorized without scanning message bodies.
+     */
+    @Column(name = "attachment_name", length = 128)
+    private String attachmentName;
+
     @Enumerated(EnumType.STRING)
     @Column(nullable = false, length = 16)
     @Builder.Default
@@ -76,15 +83,6 @@ public class Message {
     @Column(name = "read_at")
     private LocalDateTime readAt;
 
-    @ManyToMany(fetch = FetchType.LAZY)
-    @JoinTable(
-            name = "message_seen_by",
-            joinColumns = @JoinColumn(name = "message_id"),
-            inverseJoinColumns = @JoinColumn(name = "user_id")
-    )
-    @Builder.Default
-    private Set<User> seenBy = new LinkedHashSet<>();
-
     @OneToMany(mappedBy = "message", orphanRemoval = true)
     @Builder.Default
     private Set<MessageReaction> reactions = new LinkedHashSet<>();
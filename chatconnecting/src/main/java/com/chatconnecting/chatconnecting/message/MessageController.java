@@ -1,6 +1,7 @@
 package com.chatconnecting.chatconnecting.message;
 
 import com.chatconnecting.chatconnecting.exception.ForbiddenOperationException;
+import com.chatconnecting.chatconnecting.message.dto.MessageCursorResponse;
 import com.chatconnecting.chatconnecting.message.dto.MessagePageResponse;
 import com.chatconnecting.chatconnecting.message.service.MessageService;
 import lombok.RequiredArgsConstructor;
@@ -40,4 +41,20 @@ public class MessageController {
                 size);
         return ResponseEntity.ok(messageService.getChatHistory(authentication.getName(), chatRoomId, page, size));
     }
+
+    @GetMapping("/{chatRoomId}/history")
+    public ResponseEntity<MessageCursorResponse> getMessageHistory(
+            @PathVariable Long chatRoomId,
+            @RequestParam(required = false) Long before,
+            @RequestParam(required = false) Long after,
+            @RequestParam(required = false) Long around,
+            @RequestParam(defaultValue = "30") int size,
+            Authentication authentication
+    ) {
+        if (authentication == null || authentication.getName() == null || authentication.getName().isBlank()) {
+            throw new ForbiddenOperationException("Unauthorized request");
+        }
+        return ResponseEntity.ok(messageService.getChatHistorySlice(
+                authentication.getName(), chatRoomId, before, after, around, size));
+    }
 }
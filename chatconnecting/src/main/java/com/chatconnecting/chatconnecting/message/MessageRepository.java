@@ -7,6 +7,7 @@ import java.util.Optional;
 
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
@@ -34,11 +35,90 @@ public interface MessageRepository extends JpaRepository<Message, Long> {
             Pageable pageable
     );
 
+    @Query("""
+            select m from Message m
+             where m.chatRoom.id = :chatRoomId
+               and m.id < :beforeId
+               and not exists (
+                    select 1 from HiddenMessage hm
+                     where hm.message.id = m.id
+                       and hm.user.id = :viewerId
+               )
+             order by m.id desc
+            """)
+    Slice<Message> findVisibleBefore(
+            @Param("chatRoomId") Long chatRoomId,
+            @Param("viewerId") Long viewerId,
+            @Param("beforeId") Long beforeId,
+            Pageable pageable
+    );
+
+    @Query("""
+            select m from Message m
+             where m.chatRoom.id = :chatRoomId
+               and m.id > :afterId
+               and not exists (
+                    select 1 from HiddenMessage hm
+                     where hm.message.id = m.id
+                       and hm.user.id = :viewerId
+               )
+             order by m.id asc
+            """)
+    Slice<Message> findVisibleAfter(
+            @Param("chatRoomId") Long chatRoomId,
+            @Param("viewerId") Long viewerId,
+            @Param("afterId") Long afterId,
+            Pageable pageable
+    );
+
     Optional<Message> findTopByChatRoomIdOrderByCreatedAtDesc(Long chatRoomId);
 
+    @Query("""
+            select m from Message m
+             where m.id > :afterId
+               and m.id <= :upToId
+               and not exists (
+                    select 1 from MessageSearchTerm t
+                     where t.messageId = m.id
+               )
+             order by m.id asc
+            """)
+    List<Message> findUnindexedAfter(@Param("afterId") Long afterId, @Param("upToId") Long upToId, Pageable pageable);
+
+    @Query("""
+            select distinct m.chatRoom.id from Message m
+             where m.attachmentName = :attachmentName
+               and not exists (
+                    select 1 from HiddenMessage hm
+                     where hm.message.id = m.id
+                       and hm.user.id = :viewerId
+               )
+            """)
+    List<Long> findRoomIdsReferencingAttachment(
+            @Param("attachmentName") String attachmentName,
+            @Param("viewerId") Long viewerId
+    );
+
+    @Query("select coalesce(max(m.id), 0) from Message m")
+    long findMaxId();
+
+    @Query("""
+            select m.id as id, m.content as content from Message m
+             where m.id > :afterId
+               and m.id <= :upToId
+               and m.attachmentName is null
+               and m.content like concat(:prefix, '%')
+             order by m.id asc
+            """)
+    List<StoredContentRow> findUnlinkedMetaContentAfter(
+            @Param("afterId") Long afterId,
+            @Param("upToId") Long upToId,
+            @Param("prefix") String prefix,
+            Pageable pageable
+    );
+
     @Query("""
             select distinct m from Message m
-            left join fetch m.seenBy seenBy
             left join fetch m.reactions reactions
             left join fetch reactions.user reactionUser
              where m.id = :messageId
@@ -58,9 +138,7 @@ public interface MessageRepository extends JpaRepository<Message, Long> {
                and (
                     (m.chatRoom.roomType = :directType and m.status <> com.chatconnecting.chatconnecting.message.MessageStatus.READ)
                     or
-                    (m.chatRoom.roomType = :groupType and not exists (
-                        select 1 from m.seenBy seenUser where seenUser.id = :viewerId
-                    ))
+                    (m.chatRoom.roomType = :groupType and m.id > :readUpToId)
                )
                and not exists (
                     select 1 from HiddenMessage hm
@@ -71,6 +149,7 @@ public interface MessageRepository extends JpaRepository<Message, Long> {
     long countUnreadMessagesForViewer(
             @Param("chatRoomId") Long chatRoomId,
             @Param("viewerId") Long viewerId,
+            @Param("readUpToId") Long readUpToId,
             @Param("directType") ChatRoomType directType,
             @Param("groupType") ChatRoomType groupType
     );
@@ -92,6 +171,20 @@ public interface MessageRepository extends JpaRepository<Message, Long> {
             @Param("readAt") LocalDateTime readAt
     );
 
+    @Modifying
+    @Query("""
+            update Message m
+               set m.status = com.chatconnecting.chatconnecting.message.MessageStatus.READ,
+                   m.readAt = :readAt,
+                   m.deliveredAt = coalesce(m.deliveredAt, :readAt)
+             where m.id in :messageIds
+               and m.status <> com.chatconnecting.chatconnecting.message.MessageStatus.READ
+            """)
+    int markMessagesAsReadByIds(
+            @Param("messageIds") Collection<Long> messageIds,
+            @Param("readAt") LocalDateTime readAt
+    );
+
     @Modifying
     @Query("""
             update Message m
@@ -113,18 +206,38 @@ public interface MessageRepository extends JpaRepository<Message, Long> {
 
     @Query("""
             select distinct m from Message m
-            left join fetch m.seenBy seenBy
+            left join fetch m.reactions reactions
+            left join fetch reactions.user reactionUser
              where m.chatRoom.id = :chatRoomId
                and m.sender.id <> :viewerId
-             order by m.createdAt asc
+               and not exists (
+                    select 1 from HiddenMessage hm
+                     where hm.message.id = m.id
+                       and hm.user.id = :viewerId
+               )
+               and (
+                    (m.chatRoom.roomType = :directType
+                        and m.receiver.id = :viewerId
+                        and m.status <> com.chatconnecting.chatconnecting.message.MessageStatus.READ)
+                    or
+                    (m.chatRoom.roomType = :groupType and m.id > :readUpToId)
+               )
+             order by m.id asc
             """)
-    List<Message> findRoomMessagesForViewer(@Param("chatRoomId") Long chatRoomId, @Param("viewerId") Long viewerId);
+    List<Message> findUnreadMessagesForViewer(
+            @Param("chatRoomId") Long chatRoomId,
+            @Param("viewerId") Long viewerId,
+            @Param("readUpToId") Long readUpToId,
+            @Param("directType") ChatRoomType directType,
+            @Param("groupType") ChatRoomType groupType
+    );
 
+    /**
+     * Count and highest id of the messages {@link #findUnreadMessagesForViewer} would return,
+     * without loading them.
+     */
     @Query("""
-            select distinct m from Message m
-            left join fetch m.seenBy seenBy
-            left join fetch m.reactions reactions
-            left join fetch reactions.user reactionUser
+            select count(m.id) as unread, max(m.id) as lastMessageId from Message m
              where m.chatRoom.id = :chatRoomId
                and m.sender.id <> :viewerId
                and not exists (
@@ -137,47 +250,62 @@ public interface MessageRepository extends JpaRepository<Message, Long> {
                         and m.receiver.id = :viewerId
                         and m.status <> com.chatconnecting.chatconnecting.message.MessageStatus.READ)
                     or
-                    (m.chatRoom.roomType = :groupType
-                        and not exists (
-                            select 1 from m.seenBy seenUser where seenUser.id = :viewerId
-                        ))
+                    (m.chatRoom.roomType = :groupType and m.id > :readUpToId)
                )
-             order by m.createdAt asc
             """)
-    List<Message> findUnreadMessagesForViewer(
+    UnreadRange findUnreadRangeForViewer(
             @Param("chatRoomId") Long chatRoomId,
             @Param("viewerId") Long viewerId,
+            @Param("readUpToId") Long readUpToId,
             @Param("directType") ChatRoomType directType,
             @Param("groupType") ChatRoomType groupType
     );
 
     @Modifying
     @Query("""
-            delete from Message m
+            update Message m
+               set m.status = com.chatconnecting.chatconnecting.message.MessageStatus.READ,
+                   m.readAt = :readAt,
+                   m.deliveredAt = coalesce(m.deliveredAt, :readAt)
              where m.chatRoom.id = :chatRoomId
-               and m.chatRoom.roomType = :roomType
+               and m.receiver.id = :readerId
+               and m.id <= :upToId
+               and m.status <> com.chatconnecting.chatconnecting.message.MessageStatus.READ
             """)
-    void deleteByRoomAndType(
+    int markMessagesAsReadUpTo(
             @Param("chatRoomId") Long chatRoomId,
-            @Param("roomType") ChatRoomType roomType
+            @Param("readerId") Long readerId,
+            @Param("upToId") Long upToId,
+            @Param("readAt") LocalDateTime readAt
     );
 
-    // ✅ FIXED: moved inside interface
     @Query("""
-            select m from Message m
+            select m.attachmentName from Message m
              where m.chatRoom.id = :chatRoomId
-               and lower(m.content) like lower(concat('%', :query, '%'))
-               and not exists (
-                    select 1 from HiddenMessage hm
-                     where hm.message.id = m.id
-                       and hm.user.id = :viewerId
-               )
-             order by m.createdAt desc
+               and m.attachmentName is not null
+            """)
+    List<String> findAttachmentNamesByRoom(@Param("chatRoomId") Long chatRoomId);
+
+    @Modifying
+    @Query("""
+            delete from Message m
+             where m.chatRoom.id = :chatRoomId
+               and m.chatRoom.roomType = :roomType
             """)
-    Page<Message> searchVisibleRoomMessages(
+    void deleteByRoomAndType(
             @Param("chatRoomId") Long chatRoomId,
-            @Param("viewerId") Long viewerId,
-            @Param("query") String query,
-            Pageable pageable
+            @Param("roomType") ChatRoomType roomType
     );
+
+    interface UnreadRange {
+        long getUnread();
+
+        Long getLastMessageId();
+    }
+
+    interface StoredContentRow {
+        Long getId();
+
+        String getContent();
+    }
 }
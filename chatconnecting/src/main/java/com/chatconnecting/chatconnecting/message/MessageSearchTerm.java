@@ -0,0 +1,57 @@
+package com.chatconnecting.chatconnecting.message;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
+import java.time.LocalDateTime;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * One posting of the message search index: a normalized term occurring in a message.
+ */
+@Entity
+@Table(
+        name = "message_search_terms",
+        uniqueConstraints = @UniqueConstraint(columnNames = {"message_id", "term"}),
+        indexes = {
+                @Index(name = "idx_search_room_term", columnList = "chat_room_id,term,message_id"),
+                @Index(name = "idx_search_message", columnList = "message_id"),
+                @Index(name = "idx_search_term_time", columnList = "term,created_at")
+        }
+)
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class MessageSearchTerm {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false, length = MessageSearchTokenizer.MAX_TERM_LENGTH)
+    private String term;
+
+    @Column(name = "message_id", nullable = false)
+    private Long messageId;
+
+    @Column(name = "chat_room_id", nullable = false)
+    private Long chatRoomId;
+
+    @Column(nullable = false)
+    private int frequency;
+
+    // Copied from the message so the newest postings of a term come straight off an index.
+    @Column(name = "created_at")
+    private LocalDateTime createdAt;
+}
@@ -0,0 +1,66 @@
+package com.chatconnecting.chatconnecting.message;
+
+import java.util.Collection;
+import java.util.List;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+public interface MessageSearchTermRepository extends JpaRepository<MessageSearchTerm, Long> {
+
+    @Query("""
+            select t.messageId as messageId,
+                   t.chatRoomId as chatRoomId,
+                   t.term as term,
+                   t.frequency as frequency
+              from MessageSearchTerm t
+             where t.chatRoomId in :chatRoomIds
+               and t.term like :prefix
+               and not exists (
+                    select 1 from HiddenMessage hm
+                     where hm.message.id = t.messageId
+                       and hm.user.id = :viewerId
+               )
+             order by t.createdAt desc, t.messageId desc
+            """)
+    List<TermHit> findHitsByPrefix(
+            @Param("chatRoomIds") Collection<Long> chatRoomIds,
+            @Param("viewerId") Long viewerId,
+            @Param("prefix") String prefix,
+            Pageable pageable
+    );
+
+    @Query("""
+            select t.messageId as messageId,
+                   t.chatRoomId as chatRoomId,
+                   t.term as term,
+                   t.frequency as frequency
+              from MessageSearchTerm t
+             where t.messageId in :messageIds
+               and t.term like :prefix
+            """)
+    List<TermHit> findHitsByPrefixInMessages(
+            @Param("messageIds") Collection<Long> messageIds,
+            @Param("prefix") String prefix
+    );
+
+    @Modifying
+    @Query("delete from MessageSearchTerm t where t.messageId = :messageId")
+    int deleteByMessageId(@Param("messageId") Long messageId);
+
+    @Modifying
+    @Query("delete from MessageSearchTerm t where t.chatRoomId = :chatRoomId")
+    int deleteByChatRoomId(@Param("chatRoomId") Long chatRoomId);
+
+    interface TermHit {
+        Long getMessageId();
+
+        Long getChatRoomId();
+
+        String getTerm();
+
+        int getFrequency();
+    }
+}
@@ -0,0 +1,69 @@
+package com.chatconnecting.chatconnecting.message;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Splits message text into normalized search terms: lower-cased, accents stripped, split on
+ * anything that is not a letter or digit. Terms therefore never contain LIKE wildcards.
+ */
+public final class MessageSearchTokenizer {
+
+    public static final int MAX_TERM_LENGTH = 64;
+
+    private static final Pattern SEPARATORS = Pattern.compile("[^\\p{L}\\p{N}]+");
+    private static final Pattern COMBINING_MARKS = Pattern.compile("\\p{M}+");
+
+    private MessageSearchTokenizer() {
+    }
+
+    /**
+     * Term frequencies of the searchable text of a stored message: its text and attachment name,
+     * never the metadata envelope.
+     */
+    public static Map<String, Integer> termFrequencies(String storedContent) {
+        StoredMessageContent.ParsedContent parsed = StoredMessageContent.parse(storedContent);
+        Map<String, Integer> frequencies = new LinkedHashMap<>();
+        if (parsed.deletedForEveryone()) {
+            return frequencies;
+        }
+        for (String term : split(parsed.text())) {
+            frequencies.merge(term, 1, Integer::sum);
+        }
+        if (parsed.attachment() != null) {
+            for (String term : split(parsed.attachment().name())) {
+                frequencies.merge(term, 1, Integer::sum);
+            }
+        }
+        return frequencies;
+    }
+
+    /**
+     * Distinct terms of a user query, in order of appearance.
+     */
+    public static Set<String> queryTerms(String query) {
+        return new LinkedHashSet<>(split(query));
+    }
+
+    private static List<String> split(String text) {
+        if (text == null || text.isBlank()) {
+            return List.of();
+        }
+        String normalized = COMBINING_MARKS.matcher(Normalizer.normalize(text, Normalizer.Form.NFKD)).replaceAll("");
+        List<String> terms = new ArrayList<>();
+        for (String token : SEPARATORS.split(normalized.toLowerCase(Locale.ROOT))) {
+            if (token.isEmpty()) {
+                continue;
+            }
+            terms.add(token.length() > MAX_TERM_LENGTH ? token.substring(0, MAX_TERM_LENGTH) : token);
+        }
+        return terms;
+    }
+}
@@ -0,0 +1,42 @@
+package com.chatconnecting.chatconnecting.message;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+public interface ReadWatermarkRepository extends JpaRepository<ReadWatermark, Long> {
+
+    Optional<ReadWatermark> findByChatRoomIdAndUserId(Long chatRoomId, Long userId);
+
+    List<ReadWatermark> findByChatRoomId(Long chatRoomId);
+
+    @Modifying
+    @Query("""
+            update ReadWatermark w
+               set w.lastReadMessageId = :messageId,
+                   w.lastReadAt = :readAt
+             where w.chatRoomId = :chatRoomId
+               and w.userId = :userId
+               and w.lastReadMessageId < :messageId
+            """)
+    int advance(
+            @Param("chatRoomId") Long chatRoomId,
+            @Param("userId") Long userId,
+            @Param("messageId") Long messageId,
+            @Param("readAt") LocalDateTime readAt
+    );
+
+    boolean existsByChatRoomIdAndUserId(Long chatRoomId, Long userId);
+
+    @Modifying
+    @Query("delete from ReadWatermark w where w.chatRoomId = :chatRoomId and w.userId = :userId")
+    int deleteByChatRoomIdAndUserId(@Param("chatRoomId") Long chatRoomId, @Param("userId") Long userId);
+
+    @Modifying
+    @Query("delete from ReadWatermark w where w.chatRoomId = :chatRoomId")
+    int deleteByChatRoomId(@Param("chatRoomId") Long chatRoomId);
+}
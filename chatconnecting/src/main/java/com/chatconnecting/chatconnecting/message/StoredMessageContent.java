@@ -8,6 +8,7 @@ import java.util.Map;
 public final class StoredMessageContent {
 
     public static final String META_PREFIX = "__CHATCONNECT_META__:";
+    public static final String CHAT_ATTACHMENT_URL_PREFIX = "/uploads/chat/";
 
     private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
 
@@ -35,6 +36,29 @@ public final class StoredMessageContent {
         }
     }
 
+    /**
+     * File name of the {@code /uploads/chat/} attachment in {@code content}, or {@code null}.
+     */
+    public static String chatAttachmentName(String content) {
+        ParsedContent parsed = parse(content);
+        if (parsed.deletedForEveryone() || parsed.attachment() == null || parsed.attachment().url() == null) {
+            return null;
+        }
+        String url = parsed.attachment().url();
+        if (!url.startsWith(CHAT_ATTACHMENT_URL_PREFIX) || url.length() == CHAT_ATTACHMENT_URL_PREFIX.length()) {
+            return null;
+        }
+        String name = url.substring(CHAT_ATTACHMENT_URL_PREFIX.length());
+        return name.length() <= 128 && name.indexOf('/') < 0 ? name : null;
+    }
+
+    /**
+     * The download URL of a stored {@code messages.attachment_name}.
+     */
+    public static String chatAttachmentUrl(String attachmentName) {
+        return attachmentName == null ? null : CHAT_ATTACHMENT_URL_PREFIX + attachmentName;
+    }
+
     public static String buildDeletedPayload() {
         return META_PREFIX + "{\"v\":1,\"text\":\"\",\"deletedForEveryone\":true}";
     }
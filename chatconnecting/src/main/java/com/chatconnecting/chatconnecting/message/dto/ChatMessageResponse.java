@@ -2,6 +2,7 @@ package com.chatconnecting.chatconnecting.message.dto;
 
 import com.chatconnecting.chatconnecting.chat.ChatRoomType;
 import com.chatconnecting.chatconnecting.message.MessageStatus;
+import com.chatconnecting.chatconnecting.storage.dto.ThumbnailResponse;
 import java.time.LocalDateTime;
 import java.util.List;
 import lombok.AllArgsConstructor;
@@ -28,6 +29,9 @@ public class ChatMessageResponse {
     private String fileUrl;
     private String fileName;
     private String fileContentType;
+    private Integer imageWidth;
+    private Integer imageHeight;
+    private List<ThumbnailResponse> thumbnails;
     private MessageStatus status;
     private String eventType;
     private LocalDateTime timestamp;
@@ -0,0 +1,23 @@
+package com.chatconnecting.chatconnecting.message.dto;
+
+import java.util.List;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class GlobalSearchResponse {
+    private List<ChatMessageResponse> messages;
+    private List<RoomSearchHitCount> rooms;
+    private long totalHits;
+    // Set when older matches were cut off; totalHits and every room's hits are then lower bounds.
+    private boolean countsLowerBound;
+    private boolean hasMore;
+    private String nextCursor;
+}
@@ -0,0 +1,24 @@
+package com.chatconnecting.chatconnecting.message.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class LaneStats {
+    private int lane;
+    private int queueDepth;
+    private int maxQueueDepth;
+    private boolean busy;
+    private long submitted;
+    private long completed;
+    private long rejected;
+    private long failed;
+    private long permitTimeouts;
+}
@@ -0,0 +1,22 @@
+package com.chatconnecting.chatconnecting.message.dto;
+
+import java.util.List;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class MessageCursorResponse {
+    private List<ChatMessageResponse> messages;
+    private int size;
+    private boolean hasOlder;
+    private boolean hasNewer;
+    private Long olderCursor;
+    private Long newerCursor;
+}
@@ -19,4 +19,6 @@ public class MessagePageResponse {
     private long totalElements;
     private int totalPages;
     private boolean last;
+    // Set by search when older matches were cut off; totalElements is then a lower bound.
+    private boolean totalLowerBound;
 }
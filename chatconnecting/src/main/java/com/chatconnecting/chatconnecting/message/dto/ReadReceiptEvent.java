@@ -8,6 +8,10 @@ import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
 
+/**
+ * Everything up to and including {@code lastReadMessageId} in the room has been read by the
+ * reader. {@code messageIds} is only filled in when legacy per-message events are enabled.
+ */
 @Getter
 @Setter
 @Builder
@@ -17,5 +21,6 @@ public class ReadReceiptEvent {
     private Long chatRoomId;
     private Long readerId;
     private LocalDateTime readAt;
+    private Long lastReadMessageId;
     private List<Long> messageIds;
 }
@@ -0,0 +1,20 @@
+package com.chatconnecting.chatconnecting.message.dto;
+
+import java.util.List;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class RoomLaneStats {
+    private int laneCount;
+    private int queueCapacity;
+    private int totalQueueDepth;
+    private List<LaneStats> lanes;
+}
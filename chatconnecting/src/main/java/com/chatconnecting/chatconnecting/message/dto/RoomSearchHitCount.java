@@ -0,0 +1,17 @@
+package com.chatconnecting.chatconnecting.message.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class RoomSearchHitCount {
+    private Long chatRoomId;
+    private long hits;
+}
@@ -0,0 +1,209 @@
+package com.chatconnecting.chatconnecting.message.service;
+
+import com.chatconnecting.chatconnecting.message.Message;
+import com.chatconnecting.chatconnecting.message.MessageRepository;
+import com.chatconnecting.chatconnecting.message.MessageSearchTermRepository;
+import com.chatconnecting.chatconnecting.message.MessageSearchTermRepository.TermHit;
+import com.chatconnecting.chatconnecting.message.MessageSearchTokenizer;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Inverted index over the searchable text of messages, stored in {@code message_search_terms}.
+ * Postings are rewritten whenever a message is sent, edited or deleted for everyone.
+ *
+ * <p>Every query term is matched as a prefix. A message must match all terms; hits are ranked by
+ * exact term matches, then prefix matches weighted by frequency, then recency.
+ */
+@Service
+public class MessageSearchService {
+
+    private static final Logger log = LoggerFactory.getLogger(MessageSearchService.class);
+    private static final int MAX_QUERY_TERMS = 8;
+    private static final int BACKFILL_BATCH_SIZE = 500;
+
+    private final MessageSearchTermRepository messageSearchTermRepository;
+    private final MessageRepository messageRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final int candidateLimit;
+
+    public MessageSearchService(
+            MessageSearchTermRepository messageSearchTermRepository,
+            MessageRepository messageRepository,
+            JdbcTemplate jdbcTemplate,
+            @Value("${app.search.candidate-limit:2000}") int candidateLimit
+    ) {
+        this.messageSearchTermRepository = messageSearchTermRepository;
+        this.messageRepository = messageRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.candidateLimit = Math.max(candidateLimit, 1);
+    }
+
+    @Transactional
+    public void index(Message message) {
+        messageSearchTermRepository.deleteByMessageId(message.getId());
+        insertPostings(List.of(message));
+    }
+
+    @Transactional
+    public void removeRoom(Long chatRoomId) {
+        messageSearchTermRepository.deleteByChatRoomId(chatRoomId);
+    }
+
+    /**
+     * Ranked hits across {@code chatRoomIds}, excluding messages the viewer has hidden. At most
+     * {@code app.search.candidate-limit} of the newest postings of the first query term are
+     * considered, which bounds the cost of very common prefixes; when that cap is reached the
+     * result is marked incomplete and its size is only a lower bound.
+     */
+    @Transactional(readOnly = true)
+    public SearchResult search(Collection<Long> chatRoomIds, Long viewerId, String query) {
+        List<String> terms = MessageSearchTokenizer.queryTerms(query).stream().limit(MAX_QUERY_TERMS).toList();
+        if (terms.isEmpty() || chatRoomIds.isEmpty()) {
+            return new SearchResult(List.of(), true);
+        }
+
+        Map<Long, Candidate> candidates = new HashMap<>();
+        List<TermHit> firstHits = messageSearchTermRepository.findHitsByPrefix(
+                chatRoomIds,
+                viewerId,
+                terms.get(0) + "%",
+                PageRequest.of(0, candidateLimit)
+        );
+        for (TermHit hit : firstHits) {
+            candidates.computeIfAbsent(hit.getMessageId(), id -> new Candidate(id, hit.getChatRoomId(), terms.size()))
+                    .record(0, terms.get(0), hit);
+        }
+
+        for (int index = 1; index < terms.size() && !candidates.isEmpty(); index++) {
+            String term = terms.get(index);
+            for (TermHit hit : messageSearchTermRepository.findHitsByPrefixInMessages(candidates.keySet(), term + "%")) {
+                candidates.get(hit.getMessageId()).record(index, term, hit);
+            }
+            int matchedTerms = index + 1;
+            candidates.values().removeIf(candidate -> candidate.matchedTerms() < matchedTerms);
+        }
+
+        List<SearchHit> hits = candidates.values().stream()
+                .map(candidate -> new SearchHit(candidate.messageId, candidate.chatRoomId, candidate.score()))
+                .sorted(Comparator.comparingDouble(SearchHit::score).reversed()
+                        .thenComparing(SearchHit::messageId, Comparator.reverseOrder()))
+                .toList();
+        return new SearchResult(hits, firstHits.size() < candidateLimit);
+    }
+
+    /**
+     * Index messages that have no postings yet, in id order and in batches, to cover messages
+     * written before the index existed. Messages sent from now on are indexed as they are written,
+     * so the scan stops at the current newest message.
+     */
+    public long backfill() {
+        long upToId = messageRepository.findMaxId();
+        long lastId = 0;
+        long indexed = 0;
+        while (true) {
+            List<Message> batch = messageRepository.findUnindexedAfter(lastId, upToId, PageRequest.of(0, BACKFILL_BATCH_SIZE));
+            if (batch.isEmpty()) {
+                break;
+            }
+            insertPostings(batch);
+            indexed += batch.size();
+            lastId = batch.get(batch.size() - 1).getId();
+        }
+        if (indexed > 0) {
+            log.info("Indexed {} messages for search", indexed);
+        }
+        return indexed;
+    }
+
+    /**
+     * Copy message timestamps onto postings written before {@code created_at} was part of the index.
+     */
+    public int backfillCreatedAt() {
+        int updated = jdbcTemplate.update("""
+                update message_search_terms t
+                  join messages m on m.id = t.message_id
+                   set t.created_at = m.created_at
+                 where t.created_at is null
+                """);
+        if (updated > 0) {
+            log.info("Dated {} search postings", updated);
+        }
+        return updated;
+    }
+
+    private void insertPostings(List<Message> messages) {
+        List<Object[]> rows = new ArrayList<>();
+        for (Message message : messages) {
+            Long chatRoomId = message.getChatRoom().getId();
+            LocalDateTime createdAt = message.getCreatedAt() == null ? LocalDateTime.now() : message.getCreatedAt();
+            MessageSearchTokenizer.termFrequencies(message.getContent())
+                    .forEach((term, frequency) -> rows.add(new Object[]{term, message.getId(), chatRoomId, frequency, createdAt}));
+        }
+        if (!rows.isEmpty()) {
+            jdbcTemplate.batchUpdate(
+                    "insert ignore into message_search_terms (term, message_id, chat_room_id, frequency, created_at) values (?, ?, ?, ?, ?)",
+                    rows
+            );
+        }
+    }
+
+    public record SearchHit(Long messageId, Long chatRoomId, double score) {
+    }
+
+    /**
+     * Hits of one search; {@code complete} is {@code false} when the candidate cap cut off older
+     * matches, so {@code hits.size()} undercounts.
+     */
+    public record SearchResult(List<SearchHit> hits, boolean complete) {
+    }
+
+    private static final class Candidate {
+
+        private final Long messageId;
+        private final Long chatRoomId;
+        private final double[] termScores;
+
+        private Candidate(Long messageId, Long chatRoomId, int termCount) {
+            this.messageId = messageId;
+            this.chatRoomId = chatRoomId;
+            this.termScores = new double[termCount];
+        }
+
+        private void record(int termIndex, String queryTerm, TermHit hit) {
+            double weight = hit.getTerm().equals(queryTerm) ? 2.0 : 1.0;
+            double score = weight + Math.log1p(hit.getFrequency()) / 10.0;
+            termScores[termIndex] = Math.max(termScores[termIndex], score);
+        }
+
+        private int matchedTerms() {
+            int matched = 0;
+            for (double termScore : termScores) {
+                if (termScore > 0) {
+                    matched++;
+                }
+            }
+            return matched;
+        }
+
+        private double score() {
+            double total = 0;
+            for (double termScore : termScores) {
+                total += termScore;
+            }
+            return total;
+        }
+    }
+}
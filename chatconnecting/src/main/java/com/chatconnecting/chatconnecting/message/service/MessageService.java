@@ -3,6 +3,8 @@ package com.chatconnecting.chatconnecting.message.service;
 import com.chatconnecting.chatconnecting.chat.ChatRoom;
 import com.chatconnecting.chatconnecting.chat.ChatRoomType;
 import com.chatconnecting.chatconnecting.chat.service.ChatService;
+import com.chatconnecting.chatconnecting.chat.service.ConversationSummaryService;
+import com.chatconnecting.chatconnecting.chat.service.RoomMembershipCache.RoomMembership;
 import com.chatconnecting.chatconnecting.exception.BadRequestException;
 import com.chatconnecting.chatconnecting.exception.ForbiddenOperationException;
 import com.chatconnecting.chatconnecting.exception.ResourceNotFoundException;
@@ -19,38 +21,47 @@ import com.chatconnecting.chatconnecting.message.dto.ChatMessageRequest;
 import com.chatconnecting.chatconnecting.message.dto.ChatMessageResponse;
 import com.chatconnecting.chatconnecting.message.dto.DeliveryAckRequest;
 import com.chatconnecting.chatconnecting.message.dto.ForwardMessageRequest;
+import com.chatconnecting.chatconnecting.message.dto.GlobalSearchResponse;
+import com.chatconnecting.chatconnecting.message.dto.MessageCursorResponse;
 import com.chatconnecting.chatconnecting.message.dto.MessageReactionRequest;
 import com.chatconnecting.chatconnecting.message.dto.MessageReactionResponse;
 import com.chatconnecting.chatconnecting.message.dto.MessagePageResponse;
 import com.chatconnecting.chatconnecting.message.dto.ReadMessageRequest;
-import com.chatconnecting.chatconnecting.message.dto.ReadReceiptEvent;
+import com.chatconnecting.chatconnecting.message.dto.RoomSearchHitCount;
 import com.chatconnecting.chatconnecting.message.dto.TypingEventRequest;
 import com.chatconnecting.chatconnecting.message.dto.TypingEventResponse;
 import com.chatconnecting.chatconnecting.notification.service.NotificationService;
+import com.chatconnecting.chatconnecting.storage.UploadSession;
+import com.chatconnecting.chatconnecting.storage.dto.CreateUploadRequest;
+import com.chatconnecting.chatconnecting.storage.dto.UploadSessionResponse;
+import com.chatconnecting.chatconnecting.storage.service.AttachmentAccessService;
+import com.chatconnecting.chatconnecting.storage.service.AttachmentStorageService;
+import com.chatconnecting.chatconnecting.storage.service.ResumableUploadService;
+import com.chatconnecting.chatconnecting.storage.service.ThumbnailService;
 import com.chatconnecting.chatconnecting.user.User;
-import com.chatconnecting.chatconnecting.websocket.PresenceService;
+import com.chatconnecting.chatconnecting.websocket.StompEventPublisher;
 import java.io.IOException;
 import java.io.InputStream;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
-import java.nio.file.StandardCopyOption;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
 import java.util.Set;
-import java.util.UUID;
+import java.util.stream.Stream;
 import lombok.RequiredArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
-import org.springframework.data.domain.Pageable;
-import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.data.domain.Slice;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.util.StringUtils;
@@ -65,12 +76,10 @@ public class MessageService {
     private static final String MESSAGE_DESTINATION = "/queue/messages";
     private static final String STATUS_DESTINATION = "/queue/status";
     private static final String TYPING_DESTINATION = "/queue/typing";
-    private static final String READ_RECEIPTS_DESTINATION = "/queue/read-receipts";
     private static final String GROUP_TOPIC_DESTINATION_PREFIX = "/topic/group/";
     private static final long MAX_ATTACHMENT_SIZE_BYTES = 20L * 1024L * 1024L;
     private static final long EDIT_WINDOW_MINUTES = 15L;
     private static final long DELETE_FOR_EVERYONE_WINDOW_MINUTES = 60L;
-    private static final Path CHAT_UPLOAD_DIR = Paths.get("uploads", "chat");
     private static final Set<String> ALLOWED_ATTACHMENT_TYPES = Set.of(
             "application/pdf",
             "image/jpeg",
@@ -96,9 +105,16 @@ public class MessageService {
     private final MessageReactionRepository messageReactionRepository;
     private final HiddenMessageRepository hiddenMessageRepository;
     private final ChatService chatService;
-    private final PresenceService presenceService;
+    private final ConversationSummaryService conversationSummaryService;
+    private final ReadWatermarkService readWatermarkService;
+    private final ReadReceiptPublisher readReceiptPublisher;
+    private final MessageSearchService messageSearchService;
     private final NotificationService notificationService;
-    private final SimpMessagingTemplate messagingTemplate;
+    private final StompEventPublisher stompEventPublisher;
+    private final AttachmentStorageService attachmentStorageService;
+    private final AttachmentAccessService attachmentAccessService;
+    private final ThumbnailService thumbnailService;
+    private final ResumableUploadService resumableUploadService;
 
     @Transactional(readOnly = true)
     public MessagePageResponse getChatHistory(String currentEmail, Long chatRoomId, int page, int size) {
@@ -109,16 +125,18 @@ public class MessageService {
         int safeSize = Math.min(Math.max(size, 1), 100);
 
         User currentUser = chatService.getUserByEmail(currentEmail);
-        ChatRoom room = chatService.getAuthorizedRoom(chatRoomId, currentUser);
+        RoomMembership room = chatService.requireRoomMembership(chatRoomId, currentUser);
 
         Page<Message> messagePage = messageRepository.findVisibleByChatRoomIdOrderByCreatedAtDesc(
-                room.getId(),
+                room.roomId(),
                 currentUser.getId(),
                 PageRequest.of(safePage, safeSize)
         );
 
+        Map<Long, Long> watermarks = readWatermarkService.findWatermarks(room.roomId(), room.roomType());
+        warmThumbnails(messagePage.getContent());
         List<ChatMessageResponse> messages = new ArrayList<>(
-                messagePage.getContent().stream().map(this::toResponse).toList()
+                messagePage.getContent().stream().map(message -> toResponse(message, null, watermarks)).toList()
         );
         Collections.reverse(messages);
 
@@ -132,6 +150,80 @@ public class MessageService {
                 .build();
     }
 
+    /**
+     * Cursor-based history: at most one of {@code beforeId}, {@code afterId} or {@code aroundId}
+     * may be set. Without a cursor the newest messages are returned.
+     */
+    @Transactional(readOnly = true)
+    public MessageCursorResponse getChatHistorySlice(
+            String currentEmail,
+            Long chatRoomId,
+            Long beforeId,
+            Long afterId,
+            Long aroundId,
+            int size
+    ) {
+        if (chatRoomId == null) {
+            throw new BadRequestException("Chat room id is required");
+        }
+        long cursorCount = Stream.of(beforeId, afterId, aroundId).filter(Objects::nonNull).count();
+        if (cursorCount > 1) {
+            throw new BadRequestException("Only one of before, after or around can be specified");
+        }
+        int safeSize = Math.min(Math.max(size, 1), 100);
+
+        User currentUser = chatService.getUserByEmail(currentEmail);
+        RoomMembership room = chatService.requireRoomMembership(chatRoomId, currentUser);
+
+        List<Message> messages = new ArrayList<>();
+        boolean hasOlder;
+        boolean hasNewer;
+
+        if (afterId != null) {
+            Slice<Message> newer = messageRepository.findVisibleAfter(
+                    room.roomId(), currentUser.getId(), afterId, PageRequest.of(0, safeSize));
+            messages.addAll(newer.getContent());
+            hasOlder = true;
+            hasNewer = newer.hasNext();
+        } else if (aroundId != null) {
+            int olderSize = Math.max(safeSize / 2, 1);
+            Slice<Message> older = messageRepository.findVisibleBefore(
+                    room.roomId(), currentUser.getId(), aroundId + 1, PageRequest.of(0, olderSize));
+            Slice<Message> newer = messageRepository.findVisibleAfter(
+                    room.roomId(), currentUser.getId(), aroundId, PageRequest.of(0, Math.max(safeSize - olderSize, 1)));
+            messages.addAll(older.getContent());
+            Collections.reverse(messages);
+            messages.addAll(newer.getContent());
+            hasOlder = older.hasNext();
+            hasNewer = newer.hasNext();
+        } else {
+            Slice<Message> older = messageRepository.findVisibleBefore(
+                    room.roomId(),
+                    currentUser.getId(),
+                    beforeId != null ? beforeId : Long.MAX_VALUE,
+                    PageRequest.of(0, safeSize)
+            );
+            messages.addAll(older.getContent());
+            Collections.reverse(messages);
+            hasOlder = older.hasNext();
+            hasNewer = beforeId != null;
+        }
+
+        Map<Long, Long> watermarks = readWatermarkService.findWatermarks(room.roomId(), room.roomType());
+        warmThumbnails(messages);
+        List<ChatMessageResponse> responses = messages.stream()
+                .map(message -> toResponse(message, null, watermarks))
+                .toList();
+        return MessageCursorResponse.builder()
+                .messages(responses)
+                .size(safeSize)
+                .hasOlder(hasOlder)
+                .hasNewer(hasNewer)
+                .olderCursor(hasOlder && !responses.isEmpty() ? responses.get(0).getId() : null)
+                .newerCursor(hasNewer && !responses.isEmpty() ? responses.get(responses.size() - 1).getId() : null)
+                .build();
+    }
+
     @Transactional
     public ChatMessageResponse sendMessage(String senderPrincipalName, ChatMessageRequest request) {
         User sender = chatService.getUserByEmail(senderPrincipalName);
@@ -166,16 +258,21 @@ public class MessageService {
             }
         }
 
+        String attachmentName = requireOwnAttachment(sender, content);
         Message message = Message.builder()
                 .chatRoom(room)
                 .sender(sender)
                 .receiver(receiver)
                 .content(content)
+                .attachmentName(attachmentName)
                 .status(MessageStatus.SENT)
                 .build();
 
         Message saved = messageRepository.saveAndFlush(message);
-        ChatMessageResponse payload = toResponse(saved, request.getClientMessageId());
+        conversationSummaryService.recordMessage(saved);
+        messageSearchService.index(saved);
+        attachmentStorageService.retain(StoredMessageContent.chatAttachmentUrl(attachmentName));
+        ChatMessageResponse payload = toResponse(saved, request.getClientMessageId(), Map.of());
         payload.setEventType(room.isGroupRoom() ? "groupMessage" : "message");
         log.debug("Message sent: id={}, chatRoomId={}, roomType={}, senderId={}, receiverId={}",
                 payload.getId(),
@@ -188,14 +285,15 @@ public class MessageService {
             broadcastGroupMessage(room, sender, payload);
         } else {
             broadcastToRoom(room, MESSAGE_DESTINATION, payload);
-            // Send push notification if receiver is offline
-            if (receiver != null && !presenceService.isUserOnline(receiver.getEmail())) {
-                notificationService.sendOfflineNotification(
-                        receiver,
+            // Push to the receiver's devices if they are still offline once the message is committed
+            if (receiver != null) {
+                User pushReceiver = receiver;
+                stompEventPublisher.afterCommit(resolveUserDestinationKey(pushReceiver), () -> notificationService.sendOfflineNotification(
+                        pushReceiver,
                         sender.getName(),
                         content,
                         "newMessage"
-                );
+                ));
             }
         }
         return payload;
@@ -235,6 +333,7 @@ public class MessageService {
             return toResponse(message, null);
         }
 
+        ChatRoom room = message.getChatRoom();
         LocalDateTime now = LocalDateTime.now();
         boolean changed = false;
         if (message.getStatus() == MessageStatus.SENT) {
@@ -242,10 +341,6 @@ public class MessageService {
             message.setStatus(MessageStatus.DELIVERED);
             changed = true;
         }
-        if (!message.getSeenBy().stream().anyMatch(user -> user.getId().equals(reader.getId()))) {
-            message.getSeenBy().add(reader);
-            changed = true;
-        }
         if (message.getStatus() != MessageStatus.READ || message.getReadAt() == null) {
             message.setStatus(MessageStatus.READ);
             message.setReadAt(now);
@@ -254,21 +349,63 @@ public class MessageService {
         if (changed) {
             message = messageRepository.saveAndFlush(message);
         }
+        if (room.isGroupRoom()) {
+            readWatermarkService.advance(room.getId(), reader.getId(), message.getId(), now);
+        }
+        if (changed || room.isGroupRoom()) {
+            conversationSummaryService.refreshUnreadCount(room, reader.getId());
+        }
 
         ChatMessageResponse payload = toResponse(message, null);
         payload.setEventType("messageSeen");
-        broadcastToRoom(message.getChatRoom(), STATUS_DESTINATION, payload);
-        broadcastReadReceipt(message.getChatRoom(), reader, now, List.of(message.getId()));
+        if (readReceiptPublisher.isLegacyPerMessageEvents()) {
+            broadcastToRoom(room, STATUS_DESTINATION, payload);
+        }
+        broadcastReadReceipt(room, reader, now, List.of(message.getId()));
         return payload;
     }
 
     @Transactional
     public int markMessagesAsRead(String readerEmail, Long chatRoomId) {
         User reader = chatService.getUserByEmail(readerEmail);
-        ChatRoom room = chatService.getAuthorizedRoom(chatRoomId, reader);
+        RoomMembership room = chatService.requireRoomMembership(chatRoomId, reader);
+        long readUpToId = readWatermarkService.lastReadMessageId(room.roomId(), reader.getId());
+        if (readReceiptPublisher.isLegacyPerMessageEvents()) {
+            return markLoadedMessagesAsRead(chatService.getAuthorizedRoom(chatRoomId, reader), reader, readUpToId);
+        }
+
+        MessageRepository.UnreadRange unread = messageRepository.findUnreadRangeForViewer(
+                room.roomId(),
+                reader.getId(),
+                readUpToId,
+                ChatRoomType.DIRECT,
+                ChatRoomType.GROUP
+        );
+        if (unread.getUnread() == 0) {
+            return 0;
+        }
+
+        LocalDateTime readAt = LocalDateTime.now();
+        Long lastMessageId = unread.getLastMessageId();
+        if (room.roomType() == ChatRoomType.GROUP) {
+            readWatermarkService.advance(room.roomId(), reader.getId(), lastMessageId, readAt);
+        } else {
+            messageRepository.markMessagesAsReadUpTo(room.roomId(), reader.getId(), lastMessageId, readAt);
+        }
+        conversationSummaryService.markRoomRead(room.roomId(), reader.getId());
+        readReceiptPublisher.publish(
+                room.roomId(), reader.getId(), readAt, List.of(lastMessageId), List.of(room.destinationKeys()));
+        return (int) unread.getUnread();
+    }
+
+    /**
+     * Old clients get a {@code messageSeen} event per message, so the unread messages are loaded.
+     */
+    private int markLoadedMessagesAsRead(ChatRoom room, User reader, long readUpToId) {
         List<Message> unreadMessages = messageRepository.findUnreadMessagesForViewer(
                 room.getId(),
                 reader.getId(),
+                readUpToId,
                 ChatRoomType.DIRECT,
                 ChatRoomType.GROUP
         );
@@ -278,46 +415,37 @@ public class MessageService {
         }
 
         LocalDateTime readAt = LocalDateTime.now();
-        for (Message message : unreadMessages) {
-            if (message.getStatus() == MessageStatus.SENT) {
-                message.setDeliveredAt(readAt);
-            }
-            message.setStatus(MessageStatus.READ);
-            message.setReadAt(readAt);
-            if (!message.getSeenBy().stream().anyMatch(user -> user.getId().equals(reader.getId()))) {
-                message.getSeenBy().add(reader);
-            }
+        List<Long> messageIds = unreadMessages.stream().map(Message::getId).toList();
+        if (room.isGroupRoom()) {
+            readWatermarkService.advance(room.getId(), reader.getId(), messageIds.get(messageIds.size() - 1), readAt);
+        } else {
+            messageRepository.markMessagesAsReadByIds(messageIds, readAt);
         }
+        conversationSummaryService.markRoomRead(room.getId(), reader.getId());
 
-        List<Message> savedMessages = messageRepository.saveAllAndFlush(unreadMessages);
-        List<Long> messageIds = savedMessages.stream().map(Message::getId).toList();
-
-        for (Message message : savedMessages) {
-            ChatMessageResponse payload = toResponse(message, null);
-            payload.setEventType("messageSeen");
-            broadcastToRoom(room, STATUS_DESTINATION, payload);
-        }
+        broadcastLegacySeenEvents(room, unreadMessages, readAt);
         broadcastReadReceipt(room, reader, readAt, messageIds);
-        return savedMessages.size();
+        return unreadMessages.size();
     }
 
     @Transactional(readOnly = true)
     public void sendTypingEvent(String senderEmail, TypingEventRequest request) {
         User sender = chatService.getUserByEmail(senderEmail);
-        List<User> recipients;
+        List<String> recipients;
 
         if (request.getChatRoomId() != null) {
-            ChatRoom room = chatService.getAuthorizedRoom(request.getChatRoomId(), sender);
-            recipients = room.getParticipants().stream()
-                    .filter(user -> !user.getId().equals(sender.getId()))
-                    .toList();
-
-            if (!room.isGroupRoom() && request.getReceiverId() != null) {
-                User receiver = room.getOtherParticipant(sender.getId());
-                if (!receiver.getId().equals(request.getReceiverId())) {
-                    throw new BadRequestException("Invalid receiver for this room");
+            RoomMembership room = chatService.requireRoomMembership(request.getChatRoomId(), sender);
+            recipients = new ArrayList<>(room.size());
+            for (int i = 0; i < room.size(); i++) {
+                if (room.memberIds()[i] != sender.getId()) {
+                    recipients.add(room.destinationKeys()[i]);
                 }
             }
+
+            if (room.roomType() != ChatRoomType.GROUP && request.getReceiverId() != null
+                    && (sender.getId().equals(request.getReceiverId()) || !room.contains(request.getReceiverId()))) {
+                throw new BadRequestException("Invalid receiver for this room");
+            }
         } else {
             if (request.getReceiverId() == null) {
                 throw new BadRequestException("Receiver id is required");
@@ -325,7 +453,7 @@ public class MessageService {
             if (sender.getId().equals(request.getReceiverId())) {
                 return;
             }
-            recipients = List.of(chatService.getUserById(request.getReceiverId()));
+            recipients = List.of(resolveUserDestinationKey(chatService.getUserById(request.getReceiverId())));
         }
 
         TypingEventResponse payload = TypingEventResponse.builder()
@@ -334,9 +462,7 @@ public class MessageService {
                 .typing(request.isTyping())
                 .build();
 
-        for (User recipient : recipients) {
-            messagingTemplate.convertAndSendToUser(resolveUserDestinationKey(recipient), TYPING_DESTINATION, payload);
-        }
+        stompEventPublisher.sendToUsers(recipients, TYPING_DESTINATION, payload);
     }
 
     @Transactional
@@ -351,8 +477,19 @@ public class MessageService {
             throw new BadRequestException("Message content cannot be empty");
         }
 
+        if (!Objects.equals(attachmentUrl(message.getContent()), attachmentUrl(trimmed))) {
+            // Keeping the attachment is always allowed (it may be a forwarded file); a new one must be the sender's.
+            String previousAttachmentName = message.getAttachmentName();
+            String attachmentName = requireOwnAttachment(sender, trimmed);
+            message.setAttachmentName(attachmentName);
+            attachmentStorageService.retain(StoredMessageContent.chatAttachmentUrl(attachmentName));
+            attachmentStorageService.release(StoredMessageContent.chatAttachmentUrl(previousAttachmentName));
+        }
+
         message.setContent(trimmed);
         Message saved = messageRepository.saveAndFlush(message);
+        conversationSummaryService.recordMessageUpdated(saved);
+        messageSearchService.index(saved);
         ChatMessageResponse payload = toResponse(saved, null);
         payload.setEventType("messageUpdated");
         broadcastToRoom(saved.getChatRoom(), MESSAGE_DESTINATION, payload);
@@ -366,8 +503,12 @@ public class MessageService {
                 .orElseThrow(() -> new BadRequestException("Message not found"));
         validateDeleteWindow(message);
 
+        attachmentStorageService.release(StoredMessageContent.chatAttachmentUrl(message.getAttachmentName()));
         message.setContent(StoredMessageContent.buildDeletedPayload());
+        message.setAttachmentName(null);
         Message saved = messageRepository.saveAndFlush(message);
+        conversationSummaryService.recordMessageUpdated(saved);
+        messageSearchService.index(saved);
         ChatMessageResponse payload = toResponse(saved, null);
         payload.setEventType("messageDeleted");
         broadcastToRoom(saved.getChatRoom(), MESSAGE_DESTINATION, payload);
@@ -379,16 +520,17 @@ public class MessageService {
         User requester = chatService.getUserByEmail(requesterEmail);
         Message message = messageRepository.findById(messageId)
                 .orElseThrow(() -> new BadRequestException("Message not found"));
-        chatService.getAuthorizedRoom(message.getChatRoom().getId(), requester);
+        chatService.requireRoomAccess(message.getChatRoom().getId(), requester);
 
         if (hiddenMessageRepository.existsByMessageIdAndUserId(messageId, requester.getId())) {
             return;
         }
 
-        hiddenMessageRepository.save(HiddenMessage.builder()
+        hiddenMessageRepository.saveAndFlush(HiddenMessage.builder()
                 .message(message)
                 .user(requester)
                 .build());
+        conversationSummaryService.refreshUnreadCount(message.getChatRoom(), requester.getId());
     }
 
     @Transactional(readOnly = true)
@@ -405,22 +547,109 @@ public class MessageService {
         }
 
         User requester = chatService.getUserByEmail(requesterEmail);
-        ChatRoom room = chatService.getAuthorizedRoom(chatRoomId, requester);
+        RoomMembership room = chatService.requireRoomMembership(chatRoomId, requester);
         int safePage = Math.max(page, 0);
         int safeSize = Math.min(Math.max(size, 1), 100);
-        Pageable pageable = PageRequest.of(safePage, safeSize);
 
-        Page<Message> messagePage = messageRepository.searchVisibleRoomMessages(room.getId(), requester.getId(), query.trim(), pageable);
-        List<ChatMessageResponse> messages = new ArrayList<>(messagePage.getContent().stream().map(this::toResponse).toList());
-        Collections.reverse(messages);
+        MessageSearchService.SearchResult result = messageSearchService.search(List.of(room.roomId()), requester.getId(), query);
+        List<MessageSearchService.SearchHit> hits = result.hits();
+        int from = (int) Math.min((long) safePage * safeSize, hits.size());
+        int to = Math.min(from + safeSize, hits.size());
+        List<Long> pageIds = hits.subList(from, to).stream().map(MessageSearchService.SearchHit::messageId).toList();
 
+        Map<Long, Message> messagesById = new HashMap<>();
+        for (Message message : messageRepository.findAllById(pageIds)) {
+            messagesById.put(message.getId(), message);
+        }
+        warmThumbnails(messagesById.values());
+        Map<Long, Long> watermarks = readWatermarkService.findWatermarks(room.roomId(), room.roomType());
+        List<ChatMessageResponse> messages = pageIds.stream()
+                .map(messagesById::get)
+                .filter(Objects::nonNull)
+                .map(message -> toResponse(message, null, watermarks))
+                .toList();
+
+        int totalPages = (hits.size() + safeSize - 1) / safeSize;
         return MessagePageResponse.builder()
                 .messages(messages)
-                .page(messagePage.getNumber())
-                .size(messagePage.getSize())
-                .totalElements(messagePage.getTotalElements())
-                .totalPages(messagePage.getTotalPages())
-                .last(messagePage.isLast())
+                .page(safePage)
+                .size(safeSize)
+                .totalElements(hits.size())
+                .totalPages(totalPages)
+                .last(safePage + 1 >= totalPages)
+                .totalLowerBound(!result.complete())
+                .build();
+    }
+
+    /**
+     * Search every room the requester belongs to through the shared message index. Results are
+     * ordered by relevance (or by recency with {@code sort=recent}) and paged with an opaque
+     * cursor; per-room hit counts cover all hits, not just the current page. Counts are exact
+     * unless the search hit its candidate cap, which {@code countsLowerBound} reports.
+     */
+    @Transactional(readOnly = true)
+    public GlobalSearchResponse searchAllRooms(String requesterEmail, String query, String cursor, int size, String sort) {
+        int safeSize = Math.min(Math.max(size, 1), 100);
+        if (!StringUtils.hasText(query)) {
+            return GlobalSearchResponse.builder()
+                    .messages(List.of())
+                    .rooms(List.of())
+                    .build();
+        }
+
+        User requester = chatService.getUserByEmail(requesterEmail);
+        List<Long> roomIds = chatService.getRoomIdsForUser(requester);
+        MessageSearchService.SearchResult result = messageSearchService.search(roomIds, requester.getId(), query);
+        List<MessageSearchService.SearchHit> hits = new ArrayList<>(result.hits());
+        boolean byRecency = "recent".equalsIgnoreCase(sort);
+        if (byRecency) {
+            hits.sort(Comparator.comparing(MessageSearchService.SearchHit::messageId, Comparator.reverseOrder()));
+        }
+
+        Map<Long, Long> hitsByRoom = new LinkedHashMap<>();
+        for (MessageSearchService.SearchHit hit : hits) {
+            hitsByRoom.merge(hit.chatRoomId(), 1L, Long::sum);
+        }
+
+        SearchCursor after = SearchCursor.parse(cursor);
+        List<MessageSearchService.SearchHit> remaining = after == null
+                ? hits
+                : hits.stream().filter(hit -> after.isBefore(hit, byRecency)).toList();
+        List<MessageSearchService.SearchHit> pageHits = remaining.subList(0, Math.min(safeSize, remaining.size()));
+
+        Map<Long, Message> messagesById = new HashMap<>();
+        for (Message message : messageRepository.findAllById(pageHits.stream().map(MessageSearchService.SearchHit::messageId).toList())) {
+            messagesById.put(message.getId(), message);
+        }
+        warmThumbnails(messagesById.values());
+        Map<Long, Map<Long, Long>> watermarksByRoom = new HashMap<>();
+        List<ChatMessageResponse> messages = new ArrayList<>();
+        for (MessageSearchService.SearchHit hit : pageHits) {
+            Message message = messagesById.get(hit.messageId());
+            if (message == null) {
+                continue;
+            }
+            Map<Long, Long> watermarks = watermarksByRoom.computeIfAbsent(
+                    hit.chatRoomId(),
+                    roomId -> readWatermarkService.findWatermarks(message.getChatRoom())
+            );
+            messages.add(toResponse(message, null, watermarks));
+        }
+
+        boolean hasMore = remaining.size() > pageHits.size();
+        MessageSearchService.SearchHit last = pageHits.isEmpty() ? null : pageHits.get(pageHits.size() - 1);
+        return GlobalSearchResponse.builder()
+                .messages(messages)
+                .rooms(hitsByRoom.entrySet().stream()
+                        .map(entry -> RoomSearchHitCount.builder()
+                                .chatRoomId(entry.getKey())
+                                .hits(entry.getValue())
+                                .build())
+                        .toList())
+                .totalHits(hits.size())
+                .countsLowerBound(!result.complete())
+                .hasMore(hasMore)
+                .nextCursor(hasMore && last != null ? SearchCursor.of(last) : null)
                 .build();
     }
 
@@ -429,7 +658,7 @@ public class MessageService {
         User sender = chatService.getUserByEmail(senderEmail);
         Message sourceMessage = messageRepository.findById(sourceMessageId)
                 .orElseThrow(() -> new BadRequestException("Message not found"));
-        chatService.getAuthorizedRoom(sourceMessage.getChatRoom().getId(), sender);
+        chatService.requireRoomAccess(sourceMessage.getChatRoom().getId(), sender);
 
         Set<Long> uniqueTargets = new LinkedHashSet<>(request.getTargetUserIds());
         uniqueTargets.remove(sender.getId());
@@ -449,8 +678,12 @@ public class MessageService {
                     .sender(sender)
                     .receiver(receiver)
                     .content(forwardedContent)
+                    .attachmentName(sourceMessage.getAttachmentName())
                     .status(MessageStatus.SENT)
                     .build());
+            conversationSummaryService.recordMessage(created);
+            messageSearchService.index(created);
+            attachmentStorageService.retain(StoredMessageContent.chatAttachmentUrl(sourceMessage.getAttachmentName()));
 
             ChatMessageResponse payload = toResponse(created, null);
             payload.setEventType("messageForwarded");
@@ -506,7 +739,6 @@ public class MessageService {
         return payload;
     }
 
-    @Transactional
     public AttachmentUploadResponse uploadAttachment(String userEmail, MultipartFile file) {
         if (file == null || file.isEmpty()) {
             throw new BadRequestException("Attachment file is required");
@@ -514,39 +746,111 @@ public class MessageService {
         if (file.getSize() > MAX_ATTACHMENT_SIZE_BYTES) {
             throw new BadRequestException("File size must be 20MB or less");
         }
+        try (InputStream stream = file.getInputStream()) {
+            return storeAttachment(userEmail, stream, file.getContentType(), file.getOriginalFilename());
+        } catch (IOException ex) {
+            throw new BadRequestException("Failed to store attachment");
+        }
+    }
 
-        String contentType = StringUtils.trimWhitespace(file.getContentType());
-        if (!StringUtils.hasText(contentType) || !ALLOWED_ATTACHMENT_TYPES.contains(contentType)) {
-            throw new BadRequestException("Only PDF, image, and video files are allowed");
+    /**
+     * Store a raw (non-multipart) request body, streaming it straight into the attachment store
+     * without a servlet temp file.
+     */
+    public AttachmentUploadResponse uploadAttachmentStream(
+            String userEmail,
+            InputStream content,
+            String contentType,
+            long contentLength,
+            String originalFileName
+    ) {
+        if (contentLength > MAX_ATTACHMENT_SIZE_BYTES) {
+            throw new BadRequestException("File size must be 20MB or less");
         }
+        return storeAttachment(userEmail, content, contentType, originalFileName);
+    }
+
+    /**
+     * Start a resumable attachment upload; chunks are then sent with
+     * {@link #appendAttachmentUpload} and the file is stored by {@link #completeAttachmentUpload}.
+     */
+    public UploadSessionResponse createAttachmentUpload(String userEmail, CreateUploadRequest request) {
+        String contentType = requireAttachmentType(request.getContentType());
+        if (request.getSize() > MAX_ATTACHMENT_SIZE_BYTES) {
+            throw new BadRequestException("File size must be 20MB or less");
+        }
+        User user = chatService.getUserByEmail(userEmail);
+        return toUploadResponse(resumableUploadService.create(user.getId(), contentType, request.getFileName(), request.getSize()));
+    }
+
+    public UploadSessionResponse getAttachmentUpload(String userEmail, String uploadId) {
+        User user = chatService.getUserByEmail(userEmail);
+        return toUploadResponse(resumableUploadService.get(user.getId(), uploadId));
+    }
+
+    public UploadSessionResponse appendAttachmentUpload(String userEmail, String uploadId, long offset, InputStream chunk) {
+        User user = chatService.getUserByEmail(userEmail);
+        return toUploadResponse(resumableUploadService.append(user.getId(), uploadId, offset, chunk));
+    }
+
+    public AttachmentUploadResponse completeAttachmentUpload(String userEmail, String uploadId) {
+        User user = chatService.getUserByEmail(userEmail);
+        UploadSession session = resumableUploadService.get(user.getId(), uploadId);
+        String extension = EXTENSION_BY_TYPE.getOrDefault(session.getContentType(), "bin");
+        AttachmentStorageService.StoredFile stored = resumableUploadService.complete(user.getId(), uploadId, extension);
+        return toAttachmentResponse(user, stored, session.getContentType(), session.getFileName());
+    }
 
+    public void cancelAttachmentUpload(String userEmail, String uploadId) {
+        User user = chatService.getUserByEmail(userEmail);
+        resumableUploadService.cancel(user.getId(), uploadId);
+    }
+
+    private AttachmentUploadResponse storeAttachment(String userEmail, InputStream content, String rawContentType, String originalFileName) {
+        String contentType = requireAttachmentType(rawContentType);
         User user = chatService.getUserByEmail(userEmail);
         String extension = EXTENSION_BY_TYPE.getOrDefault(contentType, "bin");
-        String fileName = user.getId() + "_" + System.currentTimeMillis() + "_" + UUID.randomUUID() + "." + extension;
-        Path uploadDir = CHAT_UPLOAD_DIR.toAbsolutePath().normalize();
-        Path targetPath = uploadDir.resolve(fileName).normalize();
-        if (!targetPath.startsWith(uploadDir)) {
-            throw new BadRequestException("Invalid attachment path");
-        }
+        AttachmentStorageService.StoredFile stored =
+                attachmentStorageService.store(content, contentType, extension, MAX_ATTACHMENT_SIZE_BYTES);
+        return toAttachmentResponse(user, stored, contentType, originalFileName);
+    }
 
-        try {
-            Files.createDirectories(uploadDir);
-            try (InputStream stream = file.getInputStream()) {
-                Files.copy(stream, targetPath, StandardCopyOption.REPLACE_EXISTING);
-            }
-        } catch (IOException ex) {
-            throw new BadRequestException("Failed to store attachment");
+    private String requireAttachmentType(String rawContentType) {
+        String contentType = StringUtils.trimWhitespace(rawContentType);
+        if (!StringUtils.hasText(contentType) || !ALLOWED_ATTACHMENT_TYPES.contains(contentType)) {
+            throw new BadRequestException("Only PDF, image, and video files are allowed");
         }
+        return contentType;
+    }
 
+    private AttachmentUploadResponse toAttachmentResponse(
+            User uploader,
+            AttachmentStorageService.StoredFile stored,
+            String contentType,
+            String originalFileName
+    ) {
+        attachmentAccessService.recordUpload(uploader.getId(), stored.fileName());
+        if (contentType.startsWith("image/")) {
+            thumbnailService.enqueue(stored.sha256());
+        }
         return AttachmentUploadResponse.builder()
-                .fileName(file.getOriginalFilename() != null ? file.getOriginalFilename() : fileName)
-                .url("/uploads/chat/" + fileName)
+                .fileName(StringUtils.hasText(originalFileName) ? originalFileName : stored.fileName())
+                .url(StoredMessageContent.CHAT_ATTACHMENT_URL_PREFIX + stored.fileName())
                 .contentType(contentType)
-                .size(file.getSize())
+                .size(stored.size())
                 .kind(resolveAttachmentKind(contentType))
                 .build();
     }
 
+    private UploadSessionResponse toUploadResponse(UploadSession session) {
+        return UploadSessionResponse.builder()
+                .uploadId(session.getId())
+                .offset(session.getOffset())
+                .size(session.getTotalBytes())
+                .expiresAt(resumableUploadService.expiresAt(session))
+                .build();
+    }
+
     private ChatRoom resolveRoom(User sender, ChatMessageRequest request) {
         if (request.getChatRoomId() != null) {
             return chatService.getAuthorizedRoom(request.getChatRoomId(), sender);
@@ -557,12 +861,19 @@ public class MessageService {
         return chatService.getOrCreateRoom(sender, request.getReceiverId());
     }
 
-    private ChatMessageResponse toResponse(Message message) {
-        return toResponse(message, null);
+    private ChatMessageResponse toResponse(Message message, String clientMessageId) {
+        return toResponse(message, clientMessageId, readWatermarkService.findWatermarks(message.getChatRoom()));
     }
 
-    private ChatMessageResponse toResponse(Message message, String clientMessageId) {
+    private ChatMessageResponse toResponse(Message message, String clientMessageId, Map<Long, Long> watermarks) {
         StoredMessageContent.ParsedContent parsed = StoredMessageContent.parse(message.getContent());
+        String attachmentUrl = parsed.attachment() != null ? parsed.attachment().url() : null;
+        Optional<ThumbnailService.ImageSize> imageSize = thumbnailService.imageSize(attachmentUrl);
+        List<Long> seenBy = readWatermarkService.seenBy(message, watermarks);
+        // Group reads only move watermarks, so a group message is read once any member has reached it.
+        MessageStatus status = message.getChatRoom().isGroupRoom() && !seenBy.isEmpty()
+                ? MessageStatus.READ
+                : message.getStatus();
         return ChatMessageResponse.builder()
                 .id(message.getId())
                 .clientMessageId(clientMessageId)
@@ -576,12 +887,15 @@ public class MessageService {
                 .fileUrl(parsed.attachment() != null ? parsed.attachment().url() : null)
                 .fileName(parsed.attachment() != null ? parsed.attachment().name() : null)
                 .fileContentType(parsed.attachment() != null ? parsed.attachment().contentType() : null)
-                .status(message.getStatus())
+                .imageWidth(imageSize.map(ThumbnailService.ImageSize::width).orElse(null))
+                .imageHeight(imageSize.map(ThumbnailService.ImageSize::height).orElse(null))
+                .thumbnails(imageSize.isPresent() ? thumbnailService.thumbnailsFor(attachmentUrl) : List.of())
+                .status(status)
                 .eventType("message")
                 .timestamp(message.getCreatedAt())
                 .deliveredAt(message.getDeliveredAt())
                 .readAt(message.getReadAt())
-                .seenBy(message.getSeenBy().stream().map(User::getId).sorted().toList())
+                .seenBy(seenBy)
                 .reactions(message.getReactions().stream()
                         .sorted(Comparator.comparing(MessageReaction::getEmoji).thenComparing(reaction -> reaction.getUser().getId()))
                         .map(reaction -> MessageReactionResponse.builder()
@@ -592,10 +906,41 @@ public class MessageService {
                 .build();
     }
 
+    private void warmThumbnails(Collection<Message> messages) {
+        List<String> urls = new ArrayList<>();
+        for (Message message : messages) {
+            String url = attachmentUrl(message.getContent());
+            if (url != null) {
+                urls.add(url);
+            }
+        }
+        thumbnailService.warm(urls);
+    }
+
+    /**
+     * The chat attachment named by client-supplied {@code content}, which must be a file the sender
+     * uploaded; otherwise anyone could reference, and so download, another room's upload.
+     */
+    private String requireOwnAttachment(User sender, String content) {
+        if (attachmentUrl(content) == null) {
+            return null;
+        }
+        String attachmentName = StoredMessageContent.chatAttachmentName(content);
+        if (!attachmentAccessService.isUploader(sender.getId(), attachmentName)) {
+            throw new ForbiddenOperationException("You can only attach files you uploaded");
+        }
+        return attachmentName;
+    }
+
+    private String attachmentUrl(String storedContent) {
+        StoredMessageContent.Attachment attachment = StoredMessageContent.parse(storedContent).attachment();
+        return attachment != null ? attachment.url() : null;
+    }
+
     private Message findAuthorizedMessage(Long messageId, User requester) {
         Message message = messageRepository.findDetailedById(messageId)
                 .orElseThrow(() -> new BadRequestException("Message not found"));
-        chatService.getAuthorizedRoom(message.getChatRoom().getId(), requester);
+        chatService.requireRoomAccess(message.getChatRoom().getId(), requester);
         return message;
     }
 
@@ -647,19 +992,32 @@ public class MessageService {
     }
 
     private void broadcastReadReceipt(ChatRoom room, User reader, LocalDateTime readAt, List<Long> messageIds) {
-        ReadReceiptEvent event = ReadReceiptEvent.builder()
-                .chatRoomId(room.getId())
-                .readerId(reader.getId())
-                .readAt(readAt)
-                .messageIds(messageIds)
-                .build();
-        broadcastToRoom(room, READ_RECEIPTS_DESTINATION, event);
+        List<String> recipients = room.getParticipants().stream()
+                .map(this::resolveUserDestinationKey)
+                .toList();
+        readReceiptPublisher.publish(room.getId(), reader.getId(), readAt, messageIds, recipients);
+    }
+
+    private void broadcastLegacySeenEvents(ChatRoom room, List<Message> messages, LocalDateTime readAt) {
+        Map<Long, Long> watermarks = readWatermarkService.findWatermarks(room);
+        for (Message message : messages) {
+            ChatMessageResponse payload = toResponse(message, null, watermarks);
+            if (payload.getStatus() != MessageStatus.READ) {
+                payload.setStatus(MessageStatus.READ);
+                payload.setReadAt(readAt);
+                if (payload.getDeliveredAt() == null) {
+                    payload.setDeliveredAt(readAt);
+                }
+            }
+            payload.setEventType("messageSeen");
+            broadcastToRoom(room, STATUS_DESTINATION, payload);
+        }
     }
 
     private void broadcastGroupMessage(ChatRoom room, User sender, ChatMessageResponse payload) {
         String topicDestination = GROUP_TOPIC_DESTINATION_PREFIX + room.getId();
         log.debug("Sending group message to: {}", room.getId());
-        messagingTemplate.convertAndSend(topicDestination, payload);
+        stompEventPublisher.send(topicDestination, payload);
         log.debug(
                 "Broadcasted group message: chatRoomId={}, senderId={}, topic={}, members={}",
                 room.getId(),
@@ -670,8 +1028,38 @@ public class MessageService {
     }
 
     private void broadcastToRoom(ChatRoom room, String destination, Object payload) {
-        for (User participant : room.getParticipants()) {
-            messagingTemplate.convertAndSendToUser(resolveUserDestinationKey(participant), destination, payload);
+        List<String> recipients = room.getParticipants().stream()
+                .map(this::resolveUserDestinationKey)
+                .toList();
+        stompEventPublisher.sendToUsers(recipients, destination, payload);
+    }
+
+    /**
+     * Position after the last returned hit, encoded as {@code score:messageId}.
+     */
+    private record SearchCursor(double score, long messageId) {
+
+        static SearchCursor parse(String cursor) {
+            if (!StringUtils.hasText(cursor)) {
+                return null;
+            }
+            String[] parts = cursor.split(":", 2);
+            try {
+                return new SearchCursor(Double.parseDouble(parts[0]), Long.parseLong(parts[1]));
+            } catch (RuntimeException ex) {
+                throw new BadRequestException("Invalid search cursor");
+            }
+        }
+
+        static String of(MessageSearchService.SearchHit hit) {
+            return hit.score() + ":" + hit.messageId();
+        }
+
+        boolean isBefore(MessageSearchService.SearchHit hit, boolean byRecency) {
+            if (byRecency || hit.score() == score) {
+                return hit.messageId() < messageId;
+            }
+            return hit.score() < score;
         }
     }
 }
@@ -0,0 +1,140 @@
+package com.chatconnecting.chatconnecting.message.service;
+
+import com.chatconnecting.chatconnecting.message.dto.ReadReceiptEvent;
+import com.chatconnecting.chatconnecting.websocket.StompEventPublisher;
+import jakarta.annotation.PreDestroy;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Sends one range-based read receipt per (room, reader). With a debounce window configured, rapid
+ * successive reads by the same reader in the same room are merged into a single receipt carrying
+ * the highest message id and latest read time.
+ */
+@Component
+public class ReadReceiptPublisher {
+
+    private static final String READ_RECEIPTS_DESTINATION = "/queue/read-receipts";
+
+    private final StompEventPublisher stompEventPublisher;
+    private final long debounceMs;
+    private final boolean legacyPerMessageEvents;
+    private final Map<RoomReader, PendingReceipt> pending = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService scheduler;
+
+    public ReadReceiptPublisher(
+            StompEventPublisher stompEventPublisher,
+            @Value("${app.chat.read-receipts.debounce-ms:0}") long debounceMs,
+            @Value("${app.chat.read-receipts.legacy-per-message-events:false}") boolean legacyPerMessageEvents
+    ) {
+        this.stompEventPublisher = stompEventPublisher;
+        this.debounceMs = Math.max(debounceMs, 0L);
+        this.legacyPerMessageEvents = legacyPerMessageEvents;
+        this.scheduler = this.debounceMs > 0
+                ? Executors.newSingleThreadScheduledExecutor(runnable -> {
+                    Thread thread = new Thread(runnable, "read-receipt-debounce");
+                    thread.setDaemon(true);
+                    return thread;
+                })
+                : null;
+    }
+
+    /**
+     * Whether old clients still need a full {@code messageSeen} status event per message.
+     */
+    public boolean isLegacyPerMessageEvents() {
+        return legacyPerMessageEvents;
+    }
+
+    /**
+     * Publish (after commit) that {@code readerId} has read the room up to the highest id in
+     * {@code messageIds}. {@code recipients} are user destination keys.
+     */
+    public void publish(Long chatRoomId, Long readerId, LocalDateTime readAt, List<Long> messageIds, Collection<String> recipients) {
+        if (messageIds.isEmpty() || recipients.isEmpty()) {
+            return;
+        }
+        long lastReadMessageId = messageIds.stream().mapToLong(Long::longValue).max().orElseThrow();
+        List<Long> ids = legacyPerMessageEvents ? List.copyOf(messageIds) : List.of();
+        Set<String> targets = new LinkedHashSet<>(recipients);
+
+        if (scheduler == null) {
+            // Published after commit, ordered with each recipient's other events.
+            send(chatRoomId, readerId, new PendingReceipt(lastReadMessageId, readAt, ids, targets));
+            return;
+        }
+        RoomReader key = new RoomReader(chatRoomId, readerId);
+        stompEventPublisher.afterCommit(key, () -> {
+            boolean[] created = new boolean[1];
+            pending.compute(key, (ignored, existing) -> {
+                if (existing == null) {
+                    created[0] = true;
+                    return new PendingReceipt(lastReadMessageId, readAt, ids, targets);
+                }
+                return existing.merge(lastReadMessageId, readAt, ids, targets);
+            });
+            if (created[0]) {
+                scheduler.schedule(() -> flush(key), debounceMs, TimeUnit.MILLISECONDS);
+            }
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (scheduler != null) {
+            scheduler.shutdown();
+            pending.keySet().forEach(this::flush);
+        }
+    }
+
+    private void flush(RoomReader key) {
+        PendingReceipt receipt = pending.remove(key);
+        if (receipt != null) {
+            send(key.chatRoomId(), key.readerId(), receipt);
+        }
+    }
+
+    private void send(Long chatRoomId, Long readerId, PendingReceipt receipt) {
+        ReadReceiptEvent event = ReadReceiptEvent.builder()
+                .chatRoomId(chatRoomId)
+                .readerId(readerId)
+                .readAt(receipt.readAt())
+                .lastReadMessageId(receipt.lastReadMessageId())
+                .messageIds(legacyPerMessageEvents ? receipt.messageIds() : null)
+                .build();
+        stompEventPublisher.sendToUsers(receipt.recipients(), READ_RECEIPTS_DESTINATION, event);
+    }
+
+    private record RoomReader(Long chatRoomId, Long readerId) {
+    }
+
+    private record PendingReceipt(long lastReadMessageId, LocalDateTime readAt, List<Long> messageIds, Set<String> recipients) {
+
+        PendingReceipt merge(long otherLastReadMessageId, LocalDateTime otherReadAt, List<Long> otherMessageIds, Set<String> otherRecipients) {
+            List<Long> mergedIds = messageIds;
+            if (!otherMessageIds.isEmpty()) {
+                mergedIds = new ArrayList<>(messageIds);
+                mergedIds.addAll(otherMessageIds);
+            }
+            Set<String> mergedRecipients = new LinkedHashSet<>(recipients);
+            mergedRecipients.addAll(otherRecipients);
+            return new PendingReceipt(
+                    Math.max(lastReadMessageId, otherLastReadMessageId),
+                    otherReadAt.isAfter(readAt) ? otherReadAt : readAt,
+                    mergedIds,
+                    mergedRecipients
+            );
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package com.chatconnecting.chatconnecting.message.service;
+
+import com.chatconnecting.chatconnecting.chat.ChatRoom;
+import com.chatconnecting.chatconnecting.chat.ChatRoomType;
+import com.chatconnecting.chatconnecting.message.Message;
+import com.chatconnecting.chatconnecting.message.MessageStatus;
+import com.chatconnecting.chatconnecting.message.ReadWatermark;
+import com.chatconnecting.chatconnecting.message.ReadWatermarkRepository;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Group read state as one watermark per (room, member) instead of one row per message and reader.
+ * Direct rooms keep using the message status.
+ */
+@Service
+@RequiredArgsConstructor
+public class ReadWatermarkService {
+
+    private final ReadWatermarkRepository readWatermarkRepository;
+
+    @Transactional(readOnly = true)
+    public long lastReadMessageId(Long chatRoomId, Long userId) {
+        return readWatermarkRepository.findByChatRoomIdAndUserId(chatRoomId, userId)
+                .map(ReadWatermark::getLastReadMessageId)
+                .orElse(0L);
+    }
+
+    /**
+     * Watermarks of all members keyed by user id. Empty for direct rooms.
+     */
+    @Transactional(readOnly = true)
+    public Map<Long, Long> findWatermarks(ChatRoom room) {
+        return room == null ? new HashMap<>() : findWatermarks(room.getId(), room.getRoomType());
+    }
+
+    @Transactional(readOnly = true)
+    public Map<Long, Long> findWatermarks(Long chatRoomId, ChatRoomType roomType) {
+        Map<Long, Long> watermarks = new HashMap<>();
+        if (roomType != ChatRoomType.GROUP) {
+            return watermarks;
+        }
+        for (ReadWatermark watermark : readWatermarkRepository.findByChatRoomId(chatRoomId)) {
+            watermarks.put(watermark.getUserId(), watermark.getLastReadMessageId());
+        }
+        return watermarks;
+    }
+
+    /**
+     * Move the member's watermark forward to {@code messageId}. Never moves it backwards.
+     */
+    @Transactional
+    public void advance(Long chatRoomId, Long userId, Long messageId, LocalDateTime readAt) {
+        if (readWatermarkRepository.advance(chatRoomId, userId, messageId, readAt) > 0) {
+            return;
+        }
+        if (readWatermarkRepository.existsByChatRoomIdAndUserId(chatRoomId, userId)) {
+            return;
+        }
+        readWatermarkRepository.save(ReadWatermark.builder()
+                .chatRoomId(chatRoomId)
+                .userId(userId)
+                .lastReadMessageId(messageId)
+                .lastReadAt(readAt)
+                .build());
+    }
+
+    @Transactional
+    public void removeMember(Long chatRoomId, Long userId) {
+        readWatermarkRepository.deleteByChatRoomIdAndUserId(chatRoomId, userId);
+    }
+
+    @Transactional
+    public void removeRoom(Long chatRoomId) {
+        readWatermarkRepository.deleteByChatRoomId(chatRoomId);
+    }
+
+    /**
+     * Ids of the users who have seen the message. For group rooms this is every member other than
+     * the sender whose watermark has reached the message; for direct rooms it is the receiver once
+     * the message is read.
+     */
+    public List<Long> seenBy(Message message, Map<Long, Long> watermarks) {
+        if (!message.getChatRoom().isGroupRoom()) {
+            if (message.getStatus() == MessageStatus.READ && message.getReceiver() != null) {
+                return List.of(message.getReceiver().getId());
+            }
+            return List.of();
+        }
+
+        Long senderId = message.getSender().getId();
+        return watermarks.entrySet().stream()
+                .filter(entry -> !entry.getKey().equals(senderId) && entry.getValue() >= message.getId())
+                .map(Map.Entry::getKey)
+                .sorted()
+                .toList();
+    }
+}
@@ -0,0 +1,182 @@
+package com.chatconnecting.chatconnecting.message.service;
+
+import com.chatconnecting.chatconnecting.concurrency.DatabaseWorkLimiter;
+import com.chatconnecting.chatconnecting.concurrency.ExecutionMode;
+import com.chatconnecting.chatconnecting.message.dto.LaneStats;
+import com.chatconnecting.chatconnecting.message.dto.RoomLaneStats;
+import jakarta.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Striped single-threaded lanes for inbound chat work. Every task for the same room key hashes to
+ * the same lane and runs in submission order, while different rooms proceed in parallel. Lanes
+ * have bounded queues; a full lane rejects instead of blocking the inbound channel. Lane tasks hold
+ * a {@link DatabaseWorkLimiter} permit while they run. A lane waits only briefly for that permit,
+ * since every room hashed to it waits too; a task that does not get one is dropped and its
+ * {@code onRejected} callback runs instead.
+ */
+@Component
+public class RoomLaneExecutor {
+
+    private static final Logger log = LoggerFactory.getLogger(RoomLaneExecutor.class);
+    private static final long SHUTDOWN_GRACE_SECONDS = 10L;
+
+    private final Lane[] lanes;
+    private final int queueCapacity;
+    private final DatabaseWorkLimiter databaseWorkLimiter;
+    private final long permitTimeoutMs;
+
+    public RoomLaneExecutor(
+            ExecutionMode executionMode,
+            DatabaseWorkLimiter databaseWorkLimiter,
+            @Value("${app.chat.lanes.count:16}") int laneCount,
+            @Value("${app.chat.lanes.queue-capacity:1000}") int queueCapacity,
+            @Value("${app.chat.lanes.db-permit-timeout-ms:250}") long permitTimeoutMs
+    ) {
+        this.databaseWorkLimiter = databaseWorkLimiter;
+        this.permitTimeoutMs = Math.max(permitTimeoutMs, 0L);
+        this.queueCapacity = Math.max(queueCapacity, 1);
+        this.lanes = new Lane[Math.max(laneCount, 1)];
+        for (int i = 0; i < lanes.length; i++) {
+            lanes[i] = new Lane(i, this.queueCapacity, executionMode.threadFactory("room-lane-" + i + "-"));
+        }
+        log.info("Room lanes started: lanes={}, queueCapacity={}", lanes.length, this.queueCapacity);
+    }
+
+    /**
+     * Queue {@code task} on the lane owning {@code roomKey}. Returns {@code false} when that lane
+     * is full or shutting down.
+     */
+    public boolean submit(Object roomKey, Runnable task) {
+        return submit(roomKey, task, () -> { });
+    }
+
+    /**
+     * Like {@link #submit(Object, Runnable)}; if the queued task is later dropped because no
+     * database permit became free in time, {@code onRejected} runs on the lane instead.
+     */
+    public boolean submit(Object roomKey, Runnable task, Runnable onRejected) {
+        return lanes[laneOf(roomKey)].submit(task, onRejected);
+    }
+
+    public RoomLaneStats stats() {
+        List<LaneStats> laneStats = new ArrayList<>(lanes.length);
+        int totalDepth = 0;
+        for (Lane lane : lanes) {
+            LaneStats stats = lane.stats();
+            totalDepth += stats.getQueueDepth();
+            laneStats.add(stats);
+        }
+        return RoomLaneStats.builder()
+                .laneCount(lanes.length)
+                .queueCapacity(queueCapacity)
+                .totalQueueDepth(totalDepth)
+                .lanes(laneStats)
+                .build();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        for (Lane lane : lanes) {
+            lane.executor.shutdown();
+        }
+        for (Lane lane : lanes) {
+            try {
+                if (!lane.executor.awaitTermination(SHUTDOWN_GRACE_SECONDS, TimeUnit.SECONDS)) {
+                    log.warn("Room lane {} still had {} queued tasks at shutdown", lane.index, lane.queue.size());
+                    lane.executor.shutdownNow();
+                }
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                lane.executor.shutdownNow();
+            }
+        }
+    }
+
+    int laneOf(Object roomKey) {
+        int hash = roomKey == null ? 0 : roomKey.hashCode();
+        hash ^= hash >>> 16;
+        return Math.floorMod(hash, lanes.length);
+    }
+
+    private final class Lane {
+
+        private final int index;
+        private final ArrayBlockingQueue<Runnable> queue;
+        private final ThreadPoolExecutor executor;
+        private final AtomicLong submitted = new AtomicLong();
+        private final AtomicLong completed = new AtomicLong();
+        private final AtomicLong rejected = new AtomicLong();
+        private final AtomicLong failed = new AtomicLong();
+        private final AtomicLong permitTimeouts = new AtomicLong();
+        private final AtomicInteger maxDepth = new AtomicInteger();
+        private volatile boolean busy;
+
+        private Lane(int index, int queueCapacity, ThreadFactory threadFactory) {
+            this.index = index;
+            this.queue = new ArrayBlockingQueue<>(queueCapacity);
+            this.executor = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS, queue, threadFactory);
+        }
+
+        private boolean submit(Runnable task, Runnable onRejected) {
+            try {
+                executor.execute(() -> run(task, onRejected));
+            } catch (RejectedExecutionException ex) {
+                rejected.incrementAndGet();
+                return false;
+            }
+            submitted.incrementAndGet();
+            maxDepth.accumulateAndGet(queue.size(), Math::max);
+            return true;
+        }
+
+        private void run(Runnable task, Runnable onRejected) {
+            busy = true;
+            boolean permitted = databaseWorkLimiter.acquire(permitTimeoutMs);
+            try {
+                if (permitted) {
+                    task.run();
+                } else {
+                    permitTimeouts.incrementAndGet();
+                    log.warn("Room lane {} dropped a task: no database permit within {} ms", index, permitTimeoutMs);
+                    onRejected.run();
+                }
+            } catch (Exception ex) {
+                failed.incrementAndGet();
+                log.error("Room lane {} task failed", index, ex);
+            } finally {
+                if (permitted) {
+                    databaseWorkLimiter.release();
+                }
+                busy = false;
+                completed.incrementAndGet();
+            }
+        }
+
+        private LaneStats stats() {
+            return LaneStats.builder()
+                    .lane(index)
+                    .queueDepth(queue.size())
+                    .maxQueueDepth(maxDepth.get())
+                    .busy(busy)
+                    .submitted(submitted.get())
+                    .completed(completed.get())
+                    .rejected(rejected.get())
+                    .failed(failed.get())
+                    .permitTimeouts(permitTimeouts.get())
+                    .build();
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package com.chatconnecting.chatconnecting.message.service;
+
+import com.chatconnecting.chatconnecting.chat.ChatRoomType;
+import com.chatconnecting.chatconnecting.chat.service.RoomMembershipCache;
+import com.chatconnecting.chatconnecting.chat.service.RoomMembershipCache.RoomMembership;
+import com.chatconnecting.chatconnecting.exception.BadRequestException;
+import com.chatconnecting.chatconnecting.exception.ForbiddenOperationException;
+import com.chatconnecting.chatconnecting.message.dto.TypingEventResponse;
+import com.chatconnecting.chatconnecting.websocket.StompEventPublisher;
+import jakarta.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+/**
+ * In-memory typing indicators. Repeated {@code typing=true} events from the same user in the same
+ * room are forwarded at most once per throttle interval, and a user who stops sending them is
+ * reported as {@code typing=false} by a timer wheel once the TTL elapses. Membership comes from
+ * {@link RoomMembershipCache}; nothing here touches the database.
+ */
+@Service
+public class TypingIndicatorService {
+
+    private static final String TYPING_DESTINATION = "/queue/typing";
+    private static final long TICK_MS = 250L;
+
+    private final RoomMembershipCache roomMembershipCache;
+    private final StompEventPublisher stompEventPublisher;
+    private final long throttleNanos;
+    private final long ttlNanos;
+    private final Map<TypingKey, TypingState> states = new ConcurrentHashMap<>();
+    private final Set<TypingKey>[] wheel;
+    private final ScheduledExecutorService ticker;
+    private long tick;
+
+    @SuppressWarnings("unchecked")
+    public TypingIndicatorService(
+            RoomMembershipCache roomMembershipCache,
+            StompEventPublisher stompEventPublisher,
+            @Value("${app.chat.typing.throttle-ms:2000}") long throttleMs,
+            @Value("${app.chat.typing.ttl-ms:6000}") long ttlMs
+    ) {
+        this.roomMembershipCache = roomMembershipCache;
+        this.stompEventPublisher = stompEventPublisher;
+        long safeTtlMs = Math.max(ttlMs, TICK_MS);
+        this.throttleNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(throttleMs, 0L));
+        this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(safeTtlMs);
+        this.wheel = new Set[(int) (safeTtlMs / TICK_MS) + 2];
+        for (int i = 0; i < wheel.length; i++) {
+            wheel[i] = ConcurrentHashMap.newKeySet();
+        }
+        this.ticker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "typing-expiry");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.ticker.scheduleAtFixedRate(this::advanceWheel, TICK_MS, TICK_MS, TimeUnit.MILLISECONDS);
+    }
+
+    public void onTyping(Long senderId, Long chatRoomId, Long receiverId, boolean typing) {
+        RoomMembership room = roomMembershipCache.get(chatRoomId)
+                .filter(membership -> membership.contains(senderId))
+                .orElseThrow(() -> new ForbiddenOperationException("You do not have access to this chat room"));
+        if (room.roomType() == ChatRoomType.DIRECT && receiverId != null
+                && (receiverId.equals(senderId) || !room.contains(receiverId))) {
+            throw new BadRequestException("Invalid receiver for this room");
+        }
+
+        TypingKey key = new TypingKey(chatRoomId, senderId);
+        long now = System.nanoTime();
+        if (!typing) {
+            if (states.remove(key) != null) {
+                broadcast(room, senderId, false);
+            }
+            return;
+        }
+
+        TypingState state = states.computeIfAbsent(key, ignored -> new TypingState());
+        boolean notify;
+        synchronized (state) {
+            notify = !state.announced || now - state.lastBroadcastNanos >= throttleNanos;
+            if (notify) {
+                state.announced = true;
+                state.lastBroadcastNanos = now;
+            }
+            state.expiresAtNanos = now + ttlNanos;
+        }
+        wheel[slotFor(state.expiresAtNanos, now)].add(key);
+        if (notify) {
+            broadcast(room, senderId, true);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        ticker.shutdownNow();
+    }
+
+    private int slotFor(long expiresAtNanos, long now) {
+        long ticksAhead = TimeUnit.NANOSECONDS.toMillis(expiresAtNanos - now) / TICK_MS + 1;
+        synchronized (wheel) {
+            return (int) ((tick + ticksAhead) % wheel.length);
+        }
+    }
+
+    private void advanceWheel() {
+        int slot;
+        synchronized (wheel) {
+            tick++;
+            slot = (int) (tick % wheel.length);
+        }
+        Set<TypingKey> due = wheel[slot];
+        if (due.isEmpty()) {
+            return;
+        }
+        long now = System.nanoTime();
+        for (TypingKey key : due) {
+            due.remove(key);
+            TypingState state = states.get(key);
+            if (state == null) {
+                continue;
+            }
+            boolean expired;
+            synchronized (state) {
+                expired = now - state.expiresAtNanos >= 0;
+            }
+            if (expired && states.remove(key, state)) {
+                roomMembershipCache.get(key.chatRoomId())
+                        .ifPresent(room -> broadcast(room, key.userId(), false));
+            }
+        }
+    }
+
+    private void broadcast(RoomMembership room, long senderId, boolean typing) {
+        TypingEventResponse payload = TypingEventResponse.builder()
+                .chatRoomId(room.roomId())
+                .senderId(senderId)
+                .typing(typing)
+                .build();
+        long[] memberIds = room.memberIds();
+        String[] destinationKeys = room.destinationKeys();
+        List<String> recipients = new ArrayList<>(memberIds.length);
+        for (int i = 0; i < memberIds.length; i++) {
+            if (memberIds[i] != senderId) {
+                recipients.add(destinationKeys[i]);
+            }
+        }
+        stompEventPublisher.sendToUsers(recipients, TYPING_DESTINATION, payload);
+    }
+
+    private record TypingKey(Long chatRoomId, Long userId) {
+    }
+
+    private static final class TypingState {
+        private boolean announced;
+        private long lastBroadcastNanos;
+        private long expiresAtNanos;
+    }
+}
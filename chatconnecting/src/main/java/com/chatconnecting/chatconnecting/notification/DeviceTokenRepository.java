@@ -1,6 +1,7 @@
 package com.chatconnecting.chatconnecting.notification;
 
 import com.chatconnecting.chatconnecting.user.User;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import org.springframework.data.jpa.repository.JpaRepository;
@@ -8,6 +9,7 @@ import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 @Repository
 public interface DeviceTokenRepository extends JpaRepository<DeviceToken, Long> {
@@ -28,4 +30,23 @@ public interface DeviceTokenRepository extends JpaRepository<DeviceToken, Long>
 
     @Query("SELECT dt FROM DeviceToken dt WHERE dt.user.id = :userId AND dt.isActive = true")
     List<DeviceToken> findActiveTokensByUserId(@Param("userId") Long userId);
+
+    @Query("""
+            SELECT dt.user.id AS userId, dt.token AS token
+              FROM DeviceToken dt
+             WHERE dt.user.id IN :userIds
+               AND dt.isActive = true
+            """)
+    List<ActiveDeviceToken> findActiveTokensByUserIds(@Param("userIds") Collection<Long> userIds);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE DeviceToken dt SET dt.isActive = false WHERE dt.token IN :tokens")
+    int deactivateTokens(@Param("tokens") Collection<String> tokens);
+
+    interface ActiveDeviceToken {
+        Long getUserId();
+
+        String getToken();
+    }
 }
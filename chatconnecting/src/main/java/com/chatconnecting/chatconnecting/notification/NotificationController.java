@@ -3,8 +3,10 @@ package com.chatconnecting.chatconnecting.notification;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
@@ -12,6 +14,7 @@ import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 import com.chatconnecting.chatconnecting.common.dto.MessageResponse;
+import com.chatconnecting.chatconnecting.notification.dto.PushDispatchStats;
 import com.chatconnecting.chatconnecting.notification.dto.RegisterDeviceTokenRequest;
 import com.chatconnecting.chatconnecting.notification.service.NotificationService;
 import com.chatconnecting.chatconnecting.user.User;
@@ -87,4 +90,13 @@ public class NotificationController {
         log.info("All device tokens deactivated for user: {}", userEmail);
         return ResponseEntity.ok(new MessageResponse("All device tokens deactivated successfully"));
     }
+
+    /**
+     * Push dispatch queue depth and delivery counters
+     */
+    @GetMapping("/dispatch-stats")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<PushDispatchStats> getDispatchStats() {
+        return ResponseEntity.ok(notificationService.getDispatchStats());
+    }
 }
@@ -0,0 +1,24 @@
+package com.chatconnecting.chatconnecting.notification.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PushDispatchStats {
+    private int queueDepth;
+    private int queueCapacity;
+    private int pendingRetries;
+    private long enqueued;
+    private long dropped;
+    private long delivered;
+    private long retried;
+    private long failed;
+    private long invalidatedTokens;
+}
@@ -0,0 +1,71 @@
+package com.chatconnecting.chatconnecting.notification.service;
+
+import com.google.firebase.FirebaseApp;
+import com.google.firebase.messaging.BatchResponse;
+import com.google.firebase.messaging.FirebaseMessaging;
+import com.google.firebase.messaging.FirebaseMessagingException;
+import com.google.firebase.messaging.MessagingErrorCode;
+import com.google.firebase.messaging.MulticastMessage;
+import com.google.firebase.messaging.Notification;
+import com.google.firebase.messaging.SendResponse;
+import java.util.ArrayList;
+import java.util.List;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+@Component
+public class FirebasePushSender implements PushSender {
+
+    private static final Logger log = LoggerFactory.getLogger(FirebasePushSender.class);
+
+    @Override
+    public boolean isAvailable() {
+        return !FirebaseApp.getApps().isEmpty();
+    }
+
+    @Override
+    public List<DeliveryResult> send(PushNotification notification, List<String> tokens) {
+        MulticastMessage message = MulticastMessage.builder()
+                .setNotification(Notification.builder()
+                        .setTitle(notification.title())
+                        .setBody(notification.body())
+                        .build())
+                .putAllData(notification.data())
+                .addAllTokens(tokens)
+                .build();
+
+        List<DeliveryResult> results = new ArrayList<>(tokens.size());
+        try {
+            BatchResponse response = FirebaseMessaging.getInstance().sendEachForMulticast(message);
+            List<SendResponse> responses = response.getResponses();
+            for (int i = 0; i < tokens.size(); i++) {
+                SendResponse sendResponse = responses.get(i);
+                DeliveryOutcome outcome = sendResponse.isSuccessful()
+                        ? DeliveryOutcome.DELIVERED
+                        : classify(sendResponse.getException());
+                results.add(new DeliveryResult(tokens.get(i), outcome));
+            }
+            log.debug("FCM multicast sent: success={}, failure={}", response.getSuccessCount(), response.getFailureCount());
+        } catch (FirebaseMessagingException ex) {
+            log.warn("FCM multicast failed for {} tokens: {}", tokens.size(), ex.getMessage());
+            DeliveryOutcome outcome = classify(ex);
+            for (String token : tokens) {
+                results.add(new DeliveryResult(token, outcome == DeliveryOutcome.INVALID_TOKEN ? DeliveryOutcome.FAILED : outcome));
+            }
+        }
+        return results;
+    }
+
+    private DeliveryOutcome classify(FirebaseMessagingException exception) {
+        MessagingErrorCode errorCode = exception == null ? null : exception.getMessagingErrorCode();
+        if (errorCode == null) {
+            return DeliveryOutcome.RETRYABLE;
+        }
+        return switch (errorCode) {
+            case UNREGISTERED, INVALID_ARGUMENT, SENDER_ID_MISMATCH -> DeliveryOutcome.INVALID_TOKEN;
+            case UNAVAILABLE, INTERNAL, QUOTA_EXCEEDED -> DeliveryOutcome.RETRYABLE;
+            default -> DeliveryOutcome.FAILED;
+        };
+    }
+}
@@ -1,19 +1,18 @@
 package com.chatconnecting.chatconnecting.notification.service;
 
-import java.util.List;
+import java.util.Map;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
 import com.chatconnecting.chatconnecting.notification.DeviceToken;
 import com.chatconnecting.chatconnecting.notification.DeviceTokenRepository;
+import com.chatconnecting.chatconnecting.notification.dto.PushDispatchStats;
+import com.chatconnecting.chatconnecting.presence.PresenceService;
 import com.chatconnecting.chatconnecting.user.User;
-import com.google.firebase.messaging.FirebaseMessaging;
-import com.google.firebase.messaging.FirebaseMessagingException;
-import com.google.firebase.messaging.Message;
-import com.google.firebase.messaging.Notification;
 
 import lombok.RequiredArgsConstructor;
 
@@ -26,63 +25,35 @@ public class NotificationService {
     private static final int MAX_PREVIEW_LENGTH = 100;
 
     private final DeviceTokenRepository deviceTokenRepository;
+    private final PushDispatcher pushDispatcher;
+    private final PresenceService presenceService;
 
     /**
-     * Send notification to user's devices when offline
+     * Queue a notification to the user's devices when offline. Delivery happens asynchronously in
+     * {@link PushDispatcher}, so this never blocks on FCM. Only in-memory state is read, so no
+     * transaction (and no connection) is opened.
      */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public void sendOfflineNotification(
             User recipientUser,
             String senderName,
             String messageContent,
             String messageType
     ) {
-        if (FirebaseMessaging.getInstance() == null) {
-            log.debug("Firebase not initialized, skipping notification");
+        if (presenceService.isUserOnline(recipientUser.getEmail())) {
             return;
         }
-
-        List<DeviceToken> activeTokens = deviceTokenRepository.findByUserAndIsActiveTrue(recipientUser);
-
-        if (activeTokens.isEmpty()) {
-            log.debug("No active device tokens for user: {}", recipientUser.getEmail());
-            return;
-        }
-
-        String preview = truncatePreview(messageContent);
-        String notificationTitle = senderName;
-        String notificationBody = preview;
-
-        for (DeviceToken deviceToken : activeTokens) {
-            sendNotificationToToken(deviceToken.getToken(), notificationTitle, notificationBody, messageType);
-        }
-    }
-
-    /**
-     * Send notification to a specific token
-     */
-    private void sendNotificationToToken(String token, String title, String body, String messageType) {
-        try {
-            Message message = Message.builder()
-                    .setNotification(Notification.builder()
-                            .setTitle(title)
-                            .setBody(body)
-                            .build())
-                    .putData("type", messageType)
-                    .putData("timestamp", System.currentTimeMillis() + "")
-                    .setToken(token)
-                    .build();
-
-            String response = FirebaseMessaging.getInstance().send(message);
-            log.debug("Notification sent successfully: {}", response);
-        } catch (FirebaseMessagingException e) {
-            log.warn("Failed to send FCM notification: {}", e.getMessage());
-            if (e.getErrorCode().equals("messaging/invalid-registration-token")
-                    || e.getErrorCode().equals("messaging/registration-token-not-registered")) {
-                // Token is invalid, mark as inactive
-                deactivateToken(token);
-            }
-        } catch (Exception e) {
-            log.error("Unexpected error sending notification", e);
+        PushSender.PushNotification notification = new PushSender.PushNotification(
+                senderName,
+                truncatePreview(messageContent),
+                Map.of(
+                        "type", messageType,
+                        "timestamp", String.valueOf(System.currentTimeMillis())
+                )
+        );
+
+        if (!pushDispatcher.enqueue(recipientUser.getId(), notification)) {
+            log.debug("Push notification not queued for user: {}", recipientUser.getEmail());
         }
     }
 
@@ -134,6 +105,13 @@ public class NotificationService {
         log.debug("Deactivated all tokens for user: {}", userId);
     }
 
+    /**
+     * Snapshot of the push dispatch queue
+     */
+    public PushDispatchStats getDispatchStats() {
+        return pushDispatcher.stats();
+    }
+
     /**
      * Truncate message to preview length
      */
@@ -0,0 +1,225 @@
+package com.chatconnecting.chatconnecting.notification.service;
+
+import com.chatconnecting.chatconnecting.concurrency.ExecutionMode;
+import com.chatconnecting.chatconnecting.notification.DeviceTokenRepository;
+import com.chatconnecting.chatconnecting.notification.dto.PushDispatchStats;
+import com.chatconnecting.chatconnecting.notification.service.PushSender.DeliveryOutcome;
+import com.chatconnecting.chatconnecting.notification.service.PushSender.DeliveryResult;
+import com.chatconnecting.chatconnecting.notification.service.PushSender.PushNotification;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+/**
+ * Delivers push notifications off the request thread. Jobs are buffered in a bounded queue and
+ * drained by a small worker pool; device tokens are resolved per drained batch, sent in multicast
+ * chunks, retried with exponential backoff and deactivated in bulk when FCM reports them invalid.
+ */
+@Service
+public class PushDispatcher {
+
+    private static final Logger log = LoggerFactory.getLogger(PushDispatcher.class);
+    private static final int MAX_JOBS_PER_DRAIN = 100;
+
+    private final DeviceTokenRepository deviceTokenRepository;
+    private final PushSender pushSender;
+    private final ExecutionMode executionMode;
+    private final BlockingQueue<PushJob> queue;
+    private final int queueCapacity;
+    private final int workerCount;
+    private final int maxAttempts;
+    private final long initialBackoffMs;
+
+    private final AtomicLong enqueued = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong delivered = new AtomicLong();
+    private final AtomicLong retried = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong invalidatedTokens = new AtomicLong();
+    private final AtomicInteger pendingRetries = new AtomicInteger();
+
+    private ExecutorService workers;
+    private ScheduledExecutorService retryScheduler;
+    private volatile boolean running;
+
+    public PushDispatcher(
+            DeviceTokenRepository deviceTokenRepository,
+            PushSender pushSender,
+            ExecutionMode executionMode,
+            @Value("${app.push.queue-capacity:10000}") int queueCapacity,
+            @Value("${app.push.workers:2}") int workerCount,
+            @Value("${app.push.max-attempts:3}") int maxAttempts,
+            @Value("${app.push.initial-backoff-ms:1000}") long initialBackoffMs
+    ) {
+        this.deviceTokenRepository = deviceTokenRepository;
+        this.pushSender = pushSender;
+        this.executionMode = executionMode;
+        this.queueCapacity = Math.max(queueCapacity, 1);
+        this.queue = new ArrayBlockingQueue<>(this.queueCapacity);
+        this.workerCount = Math.max(workerCount, 1);
+        this.maxAttempts = Math.max(maxAttempts, 1);
+        this.initialBackoffMs = Math.max(initialBackoffMs, 0L);
+    }
+
+    @PostConstruct
+    public void start() {
+        running = true;
+        workers = Executors.newFixedThreadPool(workerCount, executionMode.threadFactory("push-dispatch-"));
+        retryScheduler = Executors.newSingleThreadScheduledExecutor(executionMode.threadFactory("push-retry-"));
+        for (int i = 0; i < workerCount; i++) {
+            workers.submit(this::runWorker);
+        }
+        log.info("Push dispatcher started: workers={}, queueCapacity={}, maxAttempts={}",
+                workerCount, queueCapacity, maxAttempts);
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        retryScheduler.shutdownNow();
+        workers.shutdownNow();
+    }
+
+    /**
+     * Queue a notification for every active device of the user. Returns {@code false} when push is
+     * disabled or the queue is full; the caller never blocks.
+     */
+    public boolean enqueue(Long userId, PushNotification notification) {
+        if (userId == null || !pushSender.isAvailable()) {
+            return false;
+        }
+        return offer(new PushJob(userId, notification, null, 1));
+    }
+
+    public PushDispatchStats stats() {
+        return PushDispatchStats.builder()
+                .queueDepth(queue.size())
+                .queueCapacity(queueCapacity)
+                .pendingRetries(pendingRetries.get())
+                .enqueued(enqueued.get())
+                .dropped(dropped.get())
+                .delivered(delivered.get())
+                .retried(retried.get())
+                .failed(failed.get())
+                .invalidatedTokens(invalidatedTokens.get())
+                .build();
+    }
+
+    private boolean offer(PushJob job) {
+        if (!queue.offer(job)) {
+            dropped.incrementAndGet();
+            log.warn("Push dispatch queue full, dropping notification for userId={}", job.userId());
+            return false;
+        }
+        enqueued.incrementAndGet();
+        return true;
+    }
+
+    private void runWorker() {
+        List<PushJob> batch = new ArrayList<>(MAX_JOBS_PER_DRAIN);
+        while (running) {
+            try {
+                PushJob first = queue.poll(1, TimeUnit.SECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, MAX_JOBS_PER_DRAIN - 1);
+                process(batch);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception ex) {
+                log.error("Unexpected error while dispatching push notifications", ex);
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void process(List<PushJob> jobs) {
+        Map<Long, List<String>> tokensByUser = resolveTokens(jobs);
+        Set<String> invalidTokens = new LinkedHashSet<>();
+
+        for (PushJob job : jobs) {
+            List<String> tokens = job.tokens() != null ? job.tokens() : tokensByUser.getOrDefault(job.userId(), List.of());
+            List<String> retryable = new ArrayList<>();
+            for (int from = 0; from < tokens.size(); from += PushSender.MAX_TOKENS_PER_BATCH) {
+                List<String> chunk = tokens.subList(from, Math.min(from + PushSender.MAX_TOKENS_PER_BATCH, tokens.size()));
+                for (DeliveryResult result : pushSender.send(job.notification(), chunk)) {
+                    switch (result.outcome()) {
+                        case DELIVERED -> delivered.incrementAndGet();
+                        case INVALID_TOKEN -> invalidTokens.add(result.token());
+                        case RETRYABLE -> retryable.add(result.token());
+                        case FAILED -> failed.incrementAndGet();
+                    }
+                }
+            }
+            scheduleRetry(job, retryable);
+        }
+
+        if (!invalidTokens.isEmpty()) {
+            int deactivated = deviceTokenRepository.deactivateTokens(invalidTokens);
+            invalidatedTokens.addAndGet(deactivated);
+            log.info("Deactivated {} invalid device tokens", deactivated);
+        }
+    }
+
+    private Map<Long, List<String>> resolveTokens(List<PushJob> jobs) {
+        Set<Long> userIds = new LinkedHashSet<>();
+        for (PushJob job : jobs) {
+            if (job.tokens() == null) {
+                userIds.add(job.userId());
+            }
+        }
+        Map<Long, List<String>> tokensByUser = new HashMap<>();
+        if (userIds.isEmpty()) {
+            return tokensByUser;
+        }
+        for (DeviceTokenRepository.ActiveDeviceToken token : deviceTokenRepository.findActiveTokensByUserIds(userIds)) {
+            tokensByUser.computeIfAbsent(token.getUserId(), key -> new ArrayList<>()).add(token.getToken());
+        }
+        return tokensByUser;
+    }
+
+    private void scheduleRetry(PushJob job, List<String> retryableTokens) {
+        if (retryableTokens.isEmpty()) {
+            return;
+        }
+        if (job.attempt() >= maxAttempts) {
+            failed.addAndGet(retryableTokens.size());
+            log.warn("Giving up push delivery for userId={} after {} attempts ({} tokens)",
+                    job.userId(), job.attempt(), retryableTokens.size());
+            return;
+        }
+
+        long delayMs = initialBackoffMs * (1L << (job.attempt() - 1));
+        PushJob retry = new PushJob(job.userId(), job.notification(), List.copyOf(retryableTokens), job.attempt() + 1);
+        retried.addAndGet(retryableTokens.size());
+        pendingRetries.incrementAndGet();
+        retryScheduler.schedule(() -> {
+            pendingRetries.decrementAndGet();
+            offer(retry);
+        }, delayMs, TimeUnit.MILLISECONDS);
+    }
+
+    private record PushJob(Long userId, PushNotification notification, List<String> tokens, int attempt) {
+    }
+}
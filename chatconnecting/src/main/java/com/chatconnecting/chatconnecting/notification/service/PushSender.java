@@ -0,0 +1,30 @@
+package com.chatconnecting.chatconnecting.notification.service;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Transport used by {@link PushDispatcher} to deliver a notification to a batch of device tokens.
+ * Implementations report one result per token, in the same order as the input.
+ */
+public interface PushSender {
+
+    int MAX_TOKENS_PER_BATCH = 500;
+
+    boolean isAvailable();
+
+    List<DeliveryResult> send(PushNotification notification, List<String> tokens);
+
+    record PushNotification(String title, String body, Map<String, String> data) {
+    }
+
+    record DeliveryResult(String token, DeliveryOutcome outcome) {
+    }
+
+    enum DeliveryOutcome {
+        DELIVERED,
+        INVALID_TOKEN,
+        RETRYABLE,
+        FAILED
+    }
+}
@@ -0,0 +1,74 @@
+package com.chatconnecting.chatconnecting.presence;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Store shared by nodes living in the same JVM: a single-instance deployment, or several
+ * {@link ReplicatedPresenceService} nodes wired together in tests.
+ */
+public class InMemoryPresenceStore implements PresenceStore {
+
+    private final Map<String, Map<String, Long>> leasesByNode = new HashMap<>();
+    private final Map<String, Instant> lastSeen = new HashMap<>();
+
+    @Override
+    public synchronized void renewLeases(String nodeId, Collection<String> usernames, long expiresAtMillis) {
+        Map<String, Long> leases = new HashMap<>();
+        for (String username : usernames) {
+            leases.put(username, expiresAtMillis);
+        }
+        leasesByNode.put(nodeId, leases);
+    }
+
+    @Override
+    public synchronized void releaseLeases(String nodeId) {
+        leasesByNode.remove(nodeId);
+    }
+
+    @Override
+    public synchronized Map<String, Set<String>> onlineNodesByUser(long nowMillis, String excludeNodeId) {
+        Map<String, Set<String>> online = new HashMap<>();
+        leasesByNode.forEach((nodeId, leases) -> {
+            if (nodeId.equals(excludeNodeId)) {
+                return;
+            }
+            leases.forEach((username, expiresAt) -> {
+                if (expiresAt > nowMillis) {
+                    online.computeIfAbsent(username, key -> new HashSet<>()).add(nodeId);
+                }
+            });
+        });
+        return online;
+    }
+
+    @Override
+    public synchronized int purgeExpired(long nowMillis) {
+        int purged = 0;
+        for (Map<String, Long> leases : leasesByNode.values()) {
+            int before = leases.size();
+            leases.values().removeIf(expiresAt -> expiresAt <= nowMillis);
+            purged += before - leases.size();
+        }
+        leasesByNode.values().removeIf(Map::isEmpty);
+        return purged;
+    }
+
+    @Override
+    public synchronized void saveLastSeen(Map<String, Instant> lastSeenByUser) {
+        lastSeenByUser.forEach((username, seenAt) -> lastSeen.merge(
+                username,
+                seenAt,
+                (current, candidate) -> candidate.isAfter(current) ? candidate : current
+        ));
+    }
+
+    public synchronized Optional<Instant> savedLastSeen(String username) {
+        return Optional.ofNullable(lastSeen.get(username));
+    }
+}
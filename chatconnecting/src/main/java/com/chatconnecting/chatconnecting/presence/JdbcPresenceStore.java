@@ -0,0 +1,90 @@
+package com.chatconnecting.chatconnecting.presence;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * Presence replicated through the shared database: a lease row per (node, user), renewed in one
+ * batch per heartbeat.
+ */
+public class JdbcPresenceStore implements PresenceStore {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public JdbcPresenceStore(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public void renewLeases(String nodeId, Collection<String> usernames, long expiresAtMillis) {
+        if (!usernames.isEmpty()) {
+            List<Object[]> rows = new ArrayList<>(usernames.size());
+            for (String username : usernames) {
+                rows.add(new Object[]{nodeId, username, expiresAtMillis});
+            }
+            jdbcTemplate.batchUpdate("""
+                    insert into presence_leases (node_id, user_email, expires_at)
+                    values (?, ?, ?)
+                    on duplicate key update expires_at = values(expires_at)
+                    """, rows);
+        }
+        // Anything this node did not renew just now belongs to a user who has gone offline here.
+        jdbcTemplate.update(
+                "delete from presence_leases where node_id = ? and expires_at < ?",
+                nodeId,
+                expiresAtMillis
+        );
+    }
+
+    @Override
+    public void releaseLeases(String nodeId) {
+        jdbcTemplate.update("delete from presence_leases where node_id = ?", nodeId);
+    }
+
+    @Override
+    public Map<String, Set<String>> onlineNodesByUser(long nowMillis, String excludeNodeId) {
+        Map<String, Set<String>> nodesByUser = new HashMap<>();
+        jdbcTemplate.query("""
+                select user_email, node_id
+                from presence_leases
+                where expires_at > ?
+                  and node_id <> ?
+                """, rs -> {
+            nodesByUser.computeIfAbsent(rs.getString("user_email"), key -> new HashSet<>()).add(rs.getString("node_id"));
+        }, nowMillis, excludeNodeId);
+        return nodesByUser;
+    }
+
+    @Override
+    public int purgeExpired(long nowMillis) {
+        return jdbcTemplate.update("delete from presence_leases where expires_at <= ?", nowMillis);
+    }
+
+    @Override
+    public void saveLastSeen(Map<String, Instant> lastSeenByUser) {
+        if (lastSeenByUser.isEmpty()) {
+            return;
+        }
+        List<Object[]> rows = new ArrayList<>(lastSeenByUser.size());
+        lastSeenByUser.forEach((username, seenAt) -> {
+            Timestamp timestamp = Timestamp.valueOf(LocalDateTime.ofInstant(seenAt, ZoneId.systemDefault()));
+            rows.add(new Object[]{timestamp, username, timestamp});
+        });
+        jdbcTemplate.batchUpdate("""
+                update users
+                set last_seen_at = ?
+                where email = ?
+                  and (last_seen_at is null or last_seen_at < ?)
+                """, rows);
+    }
+}
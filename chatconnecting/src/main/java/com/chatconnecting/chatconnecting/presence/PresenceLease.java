@@ -0,0 +1,49 @@
+package com.chatconnecting.chatconnecting.presence;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * One user online on one node. Rows are written by {@link JdbcPresenceStore}; the entity only
+ * exists so the schema is managed alongside the others.
+ */
+@Entity
+@Table(
+        name = "presence_leases",
+        uniqueConstraints = @UniqueConstraint(name = "uk_presence_node_user", columnNames = {"node_id", "user_email"}),
+        indexes = @Index(name = "idx_presence_expires", columnList = "expires_at")
+)
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PresenceLease {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "node_id", nullable = false, length = 64)
+    private String nodeId;
+
+    @Column(name = "user_email", nullable = false)
+    private String userEmail;
+
+    /**
+     * Epoch milliseconds, so the comparison does not depend on database or JVM time zones.
+     */
+    @Column(name = "expires_at", nullable = false)
+    private long expiresAt;
+}
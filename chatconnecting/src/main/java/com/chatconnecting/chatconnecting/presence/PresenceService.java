@@ -0,0 +1,43 @@
+package com.chatconnecting.chatconnecting.presence;
+
+import java.time.Instant;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Tracks which users have at least one live STOMP session anywhere in the cluster.
+ */
+public interface PresenceService {
+
+    void connect(String sessionId, String username);
+
+    void disconnect(String sessionId);
+
+    /**
+     * Renews the lease of a local session; called for every inbound frame, heartbeats included.
+     */
+    void touch(String sessionId);
+
+    boolean isUserOnline(String username);
+
+    /**
+     * Other nodes currently holding a session of the user, as of the last heartbeat.
+     */
+    Set<String> remoteNodes(String username);
+
+    /**
+     * Last activity this node has observed for the user, if any. Persisted values live on
+     * {@code users.last_seen_at}.
+     */
+    Optional<Instant> lastSeen(String username);
+
+    /**
+     * Registers a callback for cluster-wide online/offline transitions as seen by this node.
+     */
+    void addListener(Listener listener);
+
+    @FunctionalInterface
+    interface Listener {
+        void onPresenceChange(String username, boolean online);
+    }
+}
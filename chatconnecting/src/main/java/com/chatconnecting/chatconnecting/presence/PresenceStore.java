@@ -0,0 +1,31 @@
+package com.chatconnecting.chatconnecting.presence;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Shared state the presence nodes replicate through. Each node owns a set of user leases that it
+ * renews on every heartbeat; leases of a node that stops renewing simply run out.
+ */
+public interface PresenceStore {
+
+    /**
+     * Replaces the leases held by {@code nodeId} with one lease per user, valid until
+     * {@code expiresAtMillis}.
+     */
+    void renewLeases(String nodeId, Collection<String> usernames, long expiresAtMillis);
+
+    void releaseLeases(String nodeId);
+
+    /**
+     * Users holding an unexpired lease on any node other than {@code excludeNodeId}, with the
+     * nodes holding them.
+     */
+    Map<String, Set<String>> onlineNodesByUser(long nowMillis, String excludeNodeId);
+
+    int purgeExpired(long nowMillis);
+
+    void saveLastSeen(Map<String, Instant> lastSeenByUser);
+}
@@ -0,0 +1,296 @@
+package com.chatconnecting.chatconnecting.presence;
+
+import jakarta.annotation.PreDestroy;
+import java.time.Clock;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+
+/**
+ * Presence for one node of a cluster. Local sessions hold leases renewed by inbound frames and
+ * are expired when the client goes quiet without a clean disconnect. Every heartbeat the node
+ * publishes the users it holds to the {@link PresenceStore} and reads back everyone online on the
+ * other nodes, so a remote connect or disconnect is visible here within roughly two heartbeats.
+ * Last-seen times are buffered and written at most once per user per flush interval.
+ */
+public class ReplicatedPresenceService implements PresenceService {
+
+    private static final Logger log = LoggerFactory.getLogger(ReplicatedPresenceService.class);
+
+    private final PresenceStore store;
+    private final String nodeId;
+    private final Clock clock;
+    private final long sessionLeaseMs;
+    private final long nodeLeaseMs;
+    private final long lastSeenFlushMs;
+
+    private final Map<String, LocalSession> sessions = new ConcurrentHashMap<>();
+    private final Map<String, Set<String>> sessionIdsByUser = new ConcurrentHashMap<>();
+    private final Map<String, Instant> lastSeen = new ConcurrentHashMap<>();
+    private final Set<String> lastSeenDirty = ConcurrentHashMap.newKeySet();
+    private final Set<String> announcedOnline = new HashSet<>();
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+
+    private volatile Map<String, Set<String>> remoteOnline = Map.of();
+    private volatile long remoteRefreshedAt;
+    private long lastPurgeAt;
+    private long lastSeenFlushedAt;
+
+    public ReplicatedPresenceService(
+            PresenceStore store,
+            String nodeId,
+            Clock clock,
+            long sessionLeaseMs,
+            long nodeLeaseMs,
+            long lastSeenFlushMs
+    ) {
+        this.store = store;
+        this.nodeId = nodeId;
+        this.clock = clock;
+        this.sessionLeaseMs = Math.max(sessionLeaseMs, 1000L);
+        this.nodeLeaseMs = Math.max(nodeLeaseMs, 1000L);
+        this.lastSeenFlushMs = Math.max(lastSeenFlushMs, 0L);
+        this.remoteRefreshedAt = clock.millis();
+        this.lastPurgeAt = remoteRefreshedAt;
+        this.lastSeenFlushedAt = remoteRefreshedAt;
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    @Override
+    public void connect(String sessionId, String username) {
+        if (sessionId == null || username == null) {
+            return;
+        }
+        long now = clock.millis();
+        LocalSession previous = sessions.put(sessionId, new LocalSession(username, now, now + sessionLeaseMs));
+        if (previous != null && !previous.username.equals(username)) {
+            end(sessionId, previous, now);
+        }
+        sessionIdsByUser.compute(username, (key, ids) -> {
+            Set<String> updated = ids == null ? new HashSet<>() : ids;
+            updated.add(sessionId);
+            return updated;
+        });
+        recordSeen(username, now);
+        reconcile(List.of(username));
+    }
+
+    @Override
+    public void disconnect(String sessionId) {
+        if (sessionId == null) {
+            return;
+        }
+        LocalSession session = sessions.remove(sessionId);
+        if (session != null) {
+            end(sessionId, session, clock.millis());
+        }
+    }
+
+    @Override
+    public void touch(String sessionId) {
+        if (sessionId == null) {
+            return;
+        }
+        LocalSession session = sessions.get(sessionId);
+        if (session != null) {
+            long now = clock.millis();
+            session.lastActivity = now;
+            session.leaseExpiresAt = now + sessionLeaseMs;
+        }
+    }
+
+    @Override
+    public boolean isUserOnline(String username) {
+        return username != null && (sessionIdsByUser.containsKey(username) || remoteOnline.containsKey(username));
+    }
+
+    @Override
+    public Set<String> remoteNodes(String username) {
+        return username == null ? Set.of() : remoteOnline.getOrDefault(username, Set.of());
+    }
+
+    @Override
+    public Optional<Instant> lastSeen(String username) {
+        if (username == null) {
+            return Optional.empty();
+        }
+        if (sessionIdsByUser.containsKey(username)) {
+            return Optional.of(clock.instant());
+        }
+        return Optional.ofNullable(lastSeen.get(username));
+    }
+
+    @Override
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    @Scheduled(fixedDelayString = "${app.presence.heartbeat-ms:5000}")
+    public void heartbeat() {
+        long now = clock.millis();
+        expireSessions(now);
+        replicate(now);
+        if (now - lastSeenFlushedAt >= lastSeenFlushMs) {
+            flushLastSeen();
+            lastSeenFlushedAt = now;
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        long now = clock.millis();
+        sessionIdsByUser.keySet().forEach(username -> recordSeen(username, now));
+        flushLastSeen();
+        try {
+            store.releaseLeases(nodeId);
+        } catch (Exception ex) {
+            log.warn("Unable to release presence leases of node {}: {}", nodeId, ex.getMessage());
+        }
+    }
+
+    private void expireSessions(long now) {
+        sessions.forEach((sessionId, session) -> {
+            if (session.leaseExpiresAt <= now && sessions.remove(sessionId, session)) {
+                log.debug("Expiring silent STOMP session {} of {}", sessionId, session.username);
+                end(sessionId, session, session.lastActivity);
+            }
+        });
+    }
+
+    private void replicate(long now) {
+        Set<String> previous = remoteOnline.keySet();
+        try {
+            store.renewLeases(nodeId, List.copyOf(sessionIdsByUser.keySet()), now + nodeLeaseMs);
+            Map<String, Set<String>> refreshed = new HashMap<>();
+            store.onlineNodesByUser(now, nodeId).forEach((username, nodes) -> refreshed.put(username, Set.copyOf(nodes)));
+            remoteOnline = refreshed;
+            remoteRefreshedAt = now;
+            if (now - lastPurgeAt >= nodeLeaseMs) {
+                int purged = store.purgeExpired(now);
+                lastPurgeAt = now;
+                if (purged > 0) {
+                    log.info("Purged {} expired presence leases", purged);
+                }
+            }
+        } catch (Exception ex) {
+            log.warn("Presence replication failed on node {}: {}", nodeId, ex.getMessage());
+            if (now - remoteRefreshedAt < nodeLeaseMs) {
+                return;
+            }
+            // The remote view is older than any lease in it could be; stop trusting it.
+            remoteOnline = Map.of();
+        }
+
+        Set<String> current = remoteOnline.keySet();
+        Set<String> changed = new HashSet<>();
+        previous.stream().filter(username -> !current.contains(username)).forEach(changed::add);
+        current.stream().filter(username -> !previous.contains(username)).forEach(changed::add);
+        if (!changed.isEmpty()) {
+            reconcile(changed);
+        }
+    }
+
+    private void flushLastSeen() {
+        sessions.values().forEach(session -> recordSeen(session.username, session.lastActivity));
+        if (lastSeenDirty.isEmpty()) {
+            return;
+        }
+
+        Map<String, Instant> batch = new HashMap<>();
+        for (String username : List.copyOf(lastSeenDirty)) {
+            lastSeenDirty.remove(username);
+            Instant seenAt = lastSeen.get(username);
+            if (seenAt != null) {
+                batch.put(username, seenAt);
+            }
+        }
+        try {
+            store.saveLastSeen(batch);
+        } catch (Exception ex) {
+            log.warn("Unable to persist last-seen for {} users: {}", batch.size(), ex.getMessage());
+            lastSeenDirty.addAll(batch.keySet());
+            return;
+        }
+        // Offline users are on record now; only keep what is needed to skip redundant writes.
+        lastSeen.keySet().removeIf(username -> !sessionIdsByUser.containsKey(username)
+                && !lastSeenDirty.contains(username));
+    }
+
+    private void end(String sessionId, LocalSession session, long seenAt) {
+        sessionIdsByUser.computeIfPresent(session.username, (key, ids) -> {
+            ids.remove(sessionId);
+            return ids.isEmpty() ? null : ids;
+        });
+        recordSeen(session.username, seenAt);
+        reconcile(List.of(session.username));
+    }
+
+    private void recordSeen(String username, long seenAtMillis) {
+        Instant seenAt = Instant.ofEpochMilli(seenAtMillis);
+        Instant current = lastSeen.get(username);
+        if (current != null && !seenAt.isAfter(current)) {
+            return;
+        }
+        lastSeen.merge(username, seenAt, (existing, candidate) -> candidate.isAfter(existing) ? candidate : existing);
+        lastSeenDirty.add(username);
+    }
+
+    /**
+     * Compares the effective state of each user with what this node last announced and notifies
+     * listeners of the difference, so a user online on two nodes is announced once per node.
+     */
+    private void reconcile(Collection<String> usernames) {
+        synchronized (announcedOnline) {
+            List<String> wentOnline = new ArrayList<>();
+            List<String> wentOffline = new ArrayList<>();
+            for (String username : usernames) {
+                if (isUserOnline(username)) {
+                    if (announcedOnline.add(username)) {
+                        wentOnline.add(username);
+                    }
+                } else if (announcedOnline.remove(username)) {
+                    wentOffline.add(username);
+                }
+            }
+            wentOnline.forEach(username -> notifyListeners(username, true));
+            wentOffline.forEach(username -> notifyListeners(username, false));
+        }
+    }
+
+    private void notifyListeners(String username, boolean online) {
+        for (Listener listener : listeners) {
+            try {
+                listener.onPresenceChange(username, online);
+            } catch (Exception ex) {
+                log.warn("Presence listener failed for {}: {}", username, ex.getMessage());
+            }
+        }
+    }
+
+    private static final class LocalSession {
+
+        private final String username;
+        private volatile long lastActivity;
+        private volatile long leaseExpiresAt;
+
+        private LocalSession(String username, long lastActivity, long leaseExpiresAt) {
+            this.username = username;
+            this.lastActivity = lastActivity;
+            this.leaseExpiresAt = leaseExpiresAt;
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package com.chatconnecting.chatconnecting.security;
+
+import com.chatconnecting.chatconnecting.user.Role;
+import java.security.Principal;
+import java.util.List;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+/**
+ * Principal built from the JWT claims alone, without loading the user from the database.
+ */
+public record AuthenticatedUser(Long userId, String email, Role role) implements Principal {
+
+    @Override
+    public String getName() {
+        return email;
+    }
+
+    public List<GrantedAuthority> getAuthorities() {
+        return List.of(new SimpleGrantedAuthority("ROLE_" + role.name()));
+    }
+}
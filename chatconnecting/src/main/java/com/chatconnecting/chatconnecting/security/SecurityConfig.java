@@ -45,8 +45,10 @@ public class SecurityConfig {
                 .cors(Customizer.withDefaults())
                 .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
                 .authorizeHttpRequests(auth -> auth
-                .requestMatchers("/api/auth/register", "/api/auth/login", "/ws/**").permitAll()
-                .requestMatchers(HttpMethod.GET, "/uploads/**").permitAll()
+                .requestMatchers("/api/auth/register", "/api/auth/login", "/ws/**", "/ws-native").permitAll()
+                .requestMatchers(HttpMethod.GET, "/uploads/profile/**").permitAll()
+                // Chat attachments check a bearer token or signed link in AttachmentDownloadController
+                .requestMatchers(HttpMethod.GET, "/uploads/chat/**").permitAll()
                 .anyRequest().authenticated()
                 )
                 .authenticationProvider(authenticationProvider())
@@ -77,7 +79,8 @@ public class SecurityConfig {
         CorsConfiguration config = new CorsConfiguration();
         config.setAllowedOriginPatterns(parseOrigins(allowedOrigins));
         config.setAllowedHeaders(List.of("*"));
-        config.setAllowedMethods(List.of("GET", "POST", "PUT", "DELETE", "PATCH", "OPTIONS"));
+        config.setAllowedMethods(List.of("GET", "HEAD", "POST", "PUT", "DELETE", "PATCH", "OPTIONS"));
+        config.setExposedHeaders(List.of("Location", "Upload-Offset", "Upload-Length"));
         config.setAllowCredentials(true);
 
         UrlBasedCorsConfigurationSource source = new UrlBasedCorsConfigurationSource();
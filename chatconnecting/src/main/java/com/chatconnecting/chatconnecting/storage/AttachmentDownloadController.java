@@ -0,0 +1,181 @@
+package com.chatconnecting.chatconnecting.storage;
+
+import com.chatconnecting.chatconnecting.chat.service.ChatService;
+import com.chatconnecting.chatconnecting.security.AuthenticatedUser;
+import com.chatconnecting.chatconnecting.storage.service.AttachmentAccessService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpRange;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * Serves uploaded files with strong ETags, immutable caching and single-range requests. The body
+ * goes out through Tomcat sendfile when the connector supports it, otherwise through
+ * {@link FileChannel#transferTo}. Chat attachments need a bearer token or a signed link from
+ * {@code /api/chat/attachments/download-url}.
+ */
+@RestController
+@RequiredArgsConstructor
+public class AttachmentDownloadController {
+
+    private static final String IMMUTABLE_MAX_AGE = "max-age=31536000, immutable";
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    private final AttachmentAccessService attachmentAccessService;
+    private final ChatService chatService;
+
+    @GetMapping("/uploads/{area:chat|profile}/{fileName:.+}")
+    public void download(
+            @PathVariable String area,
+            @PathVariable String fileName,
+            @RequestParam(required = false) Long uid,
+            @RequestParam(required = false) Long exp,
+            @RequestParam(required = false) String sig,
+            Authentication authentication,
+            HttpServletRequest request,
+            HttpServletResponse response
+    ) throws IOException {
+        Long viewerId = viewerId(authentication, fileName, uid, exp, sig);
+        serve(attachmentAccessService.open(area, fileName, viewerId), request, response);
+    }
+
+    @GetMapping("/uploads/{area:chat|profile}/thumbs/{size:\\d+}/{fileName:.+}")
+    public void downloadThumbnail(
+            @PathVariable String area,
+            @PathVariable int size,
+            @PathVariable String fileName,
+            @RequestParam(required = false) Long uid,
+            @RequestParam(required = false) Long exp,
+            @RequestParam(required = false) String sig,
+            Authentication authentication,
+            HttpServletRequest request,
+            HttpServletResponse response
+    ) throws IOException {
+        Long viewerId = viewerId(authentication, fileName, uid, exp, sig);
+        serve(attachmentAccessService.openThumbnail(area, size, fileName, viewerId), request, response);
+    }
+
+    private void serve(
+            AttachmentAccessService.Download download,
+            HttpServletRequest request,
+            HttpServletResponse response
+    ) throws IOException {
+        response.setHeader(HttpHeaders.ETAG, download.etag());
+        response.setHeader(HttpHeaders.CACHE_CONTROL, (download.publicFile() ? "public, " : "private, ") + IMMUTABLE_MAX_AGE);
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        if (matches(request.getHeader(HttpHeaders.IF_NONE_MATCH), download.etag())) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+        response.setContentType(download.mediaType().toString());
+
+        long size = download.size();
+        long start = 0;
+        long length = size;
+        HttpRange range = requestedRange(request, download.etag());
+        if (range != null) {
+            try {
+                start = range.getRangeStart(size);
+                length = range.getRangeEnd(size) - start + 1;
+            } catch (IllegalArgumentException ex) {
+                length = 0;
+            }
+            // HttpRange clamps the end but not the start, so a range starting past the end comes back empty.
+            if (length <= 0 || start >= size) {
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + size);
+                response.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+                return;
+            }
+            response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+            response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + (start + length - 1) + "/" + size);
+        }
+        response.setContentLengthLong(length);
+        if (HttpMethod.HEAD.matches(request.getMethod()) || length == 0) {
+            return;
+        }
+
+        if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+            request.setAttribute(SENDFILE_FILENAME, download.path().toString());
+            request.setAttribute(SENDFILE_START, start);
+            request.setAttribute(SENDFILE_END, start + length);
+            return;
+        }
+        try (FileChannel file = FileChannel.open(download.path(), StandardOpenOption.READ)) {
+            WritableByteChannel out = Channels.newChannel(response.getOutputStream());
+            long position = start;
+            long remaining = length;
+            while (remaining > 0) {
+                long transferred = file.transferTo(position, remaining, out);
+                if (transferred <= 0) {
+                    break;
+                }
+                position += transferred;
+                remaining -= transferred;
+            }
+        }
+    }
+
+    /**
+     * The single range to serve, or {@code null} for the full body. Multi-range and malformed
+     * headers fall back to the full body, as does an {@code If-Range} that no longer matches.
+     */
+    private HttpRange requestedRange(HttpServletRequest request, String etag) {
+        String rangeHeader = request.getHeader(HttpHeaders.RANGE);
+        if (rangeHeader == null) {
+            return null;
+        }
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        if (ifRange != null && !ifRange.equals(etag)) {
+            return null;
+        }
+        try {
+            List<HttpRange> ranges = HttpRange.parseRanges(rangeHeader);
+            return ranges.size() == 1 ? ranges.get(0) : null;
+        } catch (IllegalArgumentException ex) {
+            return null;
+        }
+    }
+
+    private boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if (tag.equals("*") || tag.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private Long viewerId(Authentication authentication, String fileName, Long uid, Long exp, String sig) {
+        if (authentication == null || authentication instanceof AnonymousAuthenticationToken) {
+            return sig == null ? null : attachmentAccessService.signedViewer(fileName, uid, exp, sig);
+        }
+        if (authentication.getPrincipal() instanceof AuthenticatedUser user) {
+            return user.userId();
+        }
+        return chatService.getUserByEmail(authentication.getName()).getId();
+    }
+}
@@ -0,0 +1,48 @@
+package com.chatconnecting.chatconnecting.storage;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
+import java.time.LocalDateTime;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.hibernate.annotations.CreationTimestamp;
+
+/**
+ * Records that a user uploaded the chat attachment stored as {@code fileName}. Only the uploader
+ * may attach a file to a new message; content-addressed names make the same row valid for every
+ * user who uploads identical content.
+ */
+@Entity
+@Table(
+        name = "attachment_grants",
+        uniqueConstraints = @UniqueConstraint(name = "uk_attachment_grant", columnNames = {"user_id", "file_name"})
+)
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class AttachmentGrant {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    @Column(name = "file_name", nullable = false, length = 128)
+    private String fileName;
+
+    @CreationTimestamp
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+}
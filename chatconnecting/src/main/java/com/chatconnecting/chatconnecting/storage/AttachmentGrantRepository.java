@@ -0,0 +1,8 @@
+package com.chatconnecting.chatconnecting.storage;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface AttachmentGrantRepository extends JpaRepository<AttachmentGrant, Long> {
+
+    boolean existsByUserIdAndFileName(Long userId, String fileName);
+}
@@ -0,0 +1,54 @@
+package com.chatconnecting.chatconnecting.storage;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+public interface StoredBlobRepository extends JpaRepository<StoredBlob, Long> {
+
+    Optional<StoredBlob> findBySha256(String sha256);
+
+    @Modifying
+    @Query("""
+            update StoredBlob b
+               set b.refCount = b.refCount + 1,
+                   b.releasedAt = null
+             where b.sha256 = :sha256
+            """)
+    int retain(@Param("sha256") String sha256);
+
+    /**
+     * MySQL applies SET assignments left to right, so {@code releasedAt} is computed from the
+     * reference count before it is decremented.
+     */
+    @Modifying
+    @Query("""
+            update StoredBlob b
+               set b.releasedAt = case when b.refCount <= 1 then :now else b.releasedAt end,
+                   b.refCount = b.refCount - 1
+             where b.sha256 = :sha256
+               and b.refCount > 0
+            """)
+    int release(@Param("sha256") String sha256, @Param("now") LocalDateTime now);
+
+    @Query("""
+            select b.sha256 as sha256, b.width as width, b.height as height
+              from StoredBlob b
+             where b.sha256 in :hashes
+               and b.width is not null
+            """)
+    List<BlobDimensions> findDimensions(@Param("hashes") Collection<String> hashes);
+
+    interface BlobDimensions {
+        String getSha256();
+
+        Integer getWidth();
+
+        Integer getHeight();
+    }
+}
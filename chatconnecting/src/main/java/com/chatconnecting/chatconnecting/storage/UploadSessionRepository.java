@@ -0,0 +1,91 @@
+package com.chatconnecting.chatconnecting.storage;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+public interface UploadSessionRepository extends JpaRepository<UploadSession, String> {
+
+    Optional<UploadSession> findByIdAndUserId(String id, Long userId);
+
+    long countByUserId(Long userId);
+
+    @Query("select coalesce(sum(s.totalBytes), 0) from UploadSession s where s.userId = :userId")
+    long sumTotalBytesByUserId(@Param("userId") Long userId);
+
+    /**
+     * Advance the offset only if no other request moved it first and the caller still holds the
+     * lease.
+     */
+    @Transactional
+    @Modifying
+    @Query("""
+            update UploadSession s
+               set s.offset = :newOffset,
+                   s.lastActivityAt = :now
+             where s.id = :id
+               and s.offset = :expectedOffset
+               and s.leaseToken = :leaseToken
+            """)
+    int advanceOffset(
+            @Param("id") String id,
+            @Param("leaseToken") String leaseToken,
+            @Param("expectedOffset") long expectedOffset,
+            @Param("newOffset") long newOffset,
+            @Param("now") LocalDateTime now
+    );
+
+    /**
+     * Take the session's lease if it is free or has expired. Returns 0 if another request holds it
+     * or the session is not the user's.
+     */
+    @Transactional
+    @Modifying
+    @Query("""
+            update UploadSession s
+               set s.leaseToken = :leaseToken,
+                   s.leaseExpiresAt = :expiresAt
+             where s.id = :id
+               and s.userId = :userId
+               and (s.leaseToken is null or s.leaseExpiresAt < :now)
+            """)
+    int acquireLease(
+            @Param("id") String id,
+            @Param("userId") Long userId,
+            @Param("leaseToken") String leaseToken,
+            @Param("now") LocalDateTime now,
+            @Param("expiresAt") LocalDateTime expiresAt
+    );
+
+    @Transactional
+    @Modifying
+    @Query("""
+            update UploadSession s
+               set s.leaseToken = null,
+                   s.leaseExpiresAt = null
+             where s.id = :id
+               and s.leaseToken = :leaseToken
+            """)
+    int releaseLease(@Param("id") String id, @Param("leaseToken") String leaseToken);
+
+    /**
+     * Delete a session that is still idle past {@code cutoff} and not leased.
+     */
+    @Transactional
+    @Modifying
+    @Query("""
+            delete from UploadSession s
+             where s.id = :id
+               and s.lastActivityAt < :cutoff
+               and (s.leaseToken is null or s.leaseExpiresAt < :now)
+            """)
+    int deleteIfAbandoned(@Param("id") String id, @Param("cutoff") LocalDateTime cutoff, @Param("now") LocalDateTime now);
+
+    @Query("select s.id from UploadSession s where s.lastActivityAt < :cutoff")
+    List<String> findIdsInactiveSince(@Param("cutoff") LocalDateTime cutoff);
+}
@@ -0,0 +1,21 @@
+package com.chatconnecting.chatconnecting.storage.dto;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.Positive;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Getter
+@Setter
+@NoArgsConstructor
+public class CreateUploadRequest {
+
+    private String fileName;
+
+    @NotBlank(message = "Content type is required")
+    private String contentType;
+
+    @Positive(message = "Upload size must be greater than zero")
+    private long size;
+}
@@ -0,0 +1,19 @@
+package com.chatconnecting.chatconnecting.storage.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ThumbnailResponse {
+    private int size;
+    private String url;
+    private int width;
+    private int height;
+}
@@ -0,0 +1,181 @@
+package com.chatconnecting.chatconnecting.storage.service;
+
+import com.chatconnecting.chatconnecting.chat.service.RoomMembershipCache;
+import com.chatconnecting.chatconnecting.exception.BadRequestException;
+import com.chatconnecting.chatconnecting.exception.ForbiddenOperationException;
+import com.chatconnecting.chatconnecting.exception.ResourceNotFoundException;
+import com.chatconnecting.chatconnecting.message.MessageRepository;
+import com.chatconnecting.chatconnecting.message.StoredMessageContent;
+import com.chatconnecting.chatconnecting.storage.AttachmentGrantRepository;
+import com.chatconnecting.chatconnecting.storage.dto.DownloadUrlResponse;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+/**
+ * Resolves {@code /uploads/<area>/<name>} downloads. Profile images are public; chat attachments
+ * are only served to users who can see a message referencing the file, and only uploaders can
+ * make a message reference a file.
+ */
+@Service
+@RequiredArgsConstructor
+public class AttachmentAccessService {
+
+    public static final String CHAT_AREA = "chat";
+    public static final String PROFILE_AREA = "profile";
+
+    private static final Logger log = LoggerFactory.getLogger(AttachmentAccessService.class);
+    private static final int BACKFILL_BATCH_SIZE = 500;
+    private static final Pattern CHAT_DOWNLOAD_PATH = Pattern.compile("^/uploads/chat/(?:thumbs/\\d+/)?([^/?#]+)$");
+
+    private final AttachmentStorageService attachmentStorageService;
+    private final ThumbnailService thumbnailService;
+    private final MessageRepository messageRepository;
+    private final AttachmentGrantRepository attachmentGrantRepository;
+    private final RoomMembershipCache roomMembershipCache;
+    private final JdbcTemplate jdbcTemplate;
+    private final DownloadUrlSigner downloadUrlSigner;
+
+    public Download open(String area, String fileName, Long viewerId) {
+        requireAccess(area, fileName, viewerId);
+        Path path = attachmentStorageService.resolve(area, fileName)
+                .orElseThrow(() -> new ResourceNotFoundException("File not found"));
+        long size;
+        try {
+            size = Files.size(path);
+        } catch (IOException ex) {
+            throw new ResourceNotFoundException("File not found");
+        }
+        // Content-addressed names carry their hash; legacy names are unique and never rewritten.
+        String etag = "\"" + attachmentStorageService.hashOf("/uploads/" + area + "/" + fileName).orElse(fileName) + "\"";
+        MediaType mediaType = MediaTypeFactory.getMediaType(fileName).orElse(MediaType.APPLICATION_OCTET_STREAM);
+        return new Download(path, size, etag, mediaType, PROFILE_AREA.equals(area));
+    }
+
+    /**
+     * A thumbnail is readable by whoever can read the original file.
+     */
+    public Download openThumbnail(String area, int size, String fileName, Long viewerId) {
+        requireAccess(area, fileName, viewerId);
+        String sha256 = attachmentStorageService.hashOf("/uploads/" + area + "/" + fileName)
+                .orElseThrow(() -> new ResourceNotFoundException("Thumbnail not found"));
+        Path path = thumbnailService.thumbnail(sha256, size)
+                .orElseThrow(() -> new ResourceNotFoundException("Thumbnail not found"));
+        try {
+            return new Download(path, Files.size(path), "\"" + sha256 + "-" + size + "\"", MediaType.IMAGE_JPEG, PROFILE_AREA.equals(area));
+        } catch (IOException ex) {
+            throw new ResourceNotFoundException("Thumbnail not found");
+        }
+    }
+
+    /**
+     * A signed link to a chat attachment or one of its thumbnails for {@code viewerId}, who must be
+     * able to read the file now.
+     */
+    public DownloadUrlResponse signDownload(String path, Long viewerId) {
+        Matcher matcher = CHAT_DOWNLOAD_PATH.matcher(path == null ? "" : path);
+        if (!matcher.matches()) {
+            throw new BadRequestException("Not a chat attachment URL");
+        }
+        requireAccess(CHAT_AREA, matcher.group(1), viewerId);
+        DownloadUrlSigner.SignedDownload signed = downloadUrlSigner.sign(matcher.group(1), viewerId);
+        return DownloadUrlResponse.builder()
+                .url(path + "?" + signed.query())
+                .expiresInSeconds(Math.max(signed.expiresAt() - Instant.now().getEpochSecond(), 0))
+                .build();
+    }
+
+    /**
+     * The viewer a signed download link was issued to, or {@code null} if it is missing, forged or
+     * expired.
+     */
+    public Long signedViewer(String fileName, Long viewerId, Long expiresAt, String signature) {
+        return downloadUrlSigner.verify(fileName, viewerId, expiresAt, signature);
+    }
+
+    /**
+     * Remember that {@code userId} uploaded {@code fileName}, so they may attach it to messages.
+     */
+    public void recordUpload(Long userId, String fileName) {
+        jdbcTemplate.update("""
+                insert into attachment_grants (user_id, file_name, created_at)
+                values (?, ?, now())
+                on duplicate key update user_id = user_id
+                """, userId, fileName);
+    }
+
+    public boolean isUploader(Long userId, String fileName) {
+        return userId != null && fileName != null && attachmentGrantRepository.existsByUserIdAndFileName(userId, fileName);
+    }
+
+    /**
+     * Fill {@code messages.attachment_name} for attachment messages written before the column
+     * existed. Messages written from now on are linked, after the ownership check, when they are
+     * sent, so the scan stops at the current newest message.
+     */
+    public long backfill() {
+        long upToId = messageRepository.findMaxId();
+        long lastId = 0;
+        long linked = 0;
+        while (true) {
+            List<MessageRepository.StoredContentRow> batch = messageRepository.findUnlinkedMetaContentAfter(
+                    lastId,
+                    upToId,
+                    StoredMessageContent.META_PREFIX,
+                    PageRequest.of(0, BACKFILL_BATCH_SIZE)
+            );
+            if (batch.isEmpty()) {
+                break;
+            }
+            List<Object[]> rows = new ArrayList<>();
+            for (MessageRepository.StoredContentRow row : batch) {
+                String attachmentName = StoredMessageContent.chatAttachmentName(row.getContent());
+                if (attachmentName != null) {
+                    rows.add(new Object[]{attachmentName, row.getId()});
+                }
+            }
+            if (!rows.isEmpty()) {
+                jdbcTemplate.batchUpdate(
+                        "update messages set attachment_name = ? where id = ? and attachment_name is null",
+                        rows
+                );
+                linked += rows.size();
+            }
+            lastId = batch.get(batch.size() - 1).getId();
+        }
+        if (linked > 0) {
+            log.info("Linked {} messages to their attachments", linked);
+        }
+        return linked;
+    }
+
+    private void requireAccess(String area, String fileName, Long viewerId) {
+        if (CHAT_AREA.equals(area) && !canViewChatAttachment(fileName, viewerId)) {
+            throw new ForbiddenOperationException("You do not have access to this file");
+        }
+    }
+
+    private boolean canViewChatAttachment(String fileName, Long viewerId) {
+        if (viewerId == null) {
+            return false;
+        }
+        return messageRepository.findRoomIdsReferencingAttachment(fileName, viewerId).stream()
+                .anyMatch(roomId -> roomMembershipCache.isMember(roomId, viewerId));
+    }
+
+    public record Download(Path path, long size, String etag, MediaType mediaType, boolean publicFile) {
+    }
+}
@@ -0,0 +1,265 @@
+package com.chatconnecting.chatconnecting.storage.service;
+
+import com.chatconnecting.chatconnecting.exception.BadRequestException;
+import com.chatconnecting.chatconnecting.storage.StoredBlobRepository;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Content-addressed file store. Uploads are streamed through a SHA-256 digest into a temp file
+ * and moved to {@code store/ab/cd/<hash>}; identical content is stored once. Public URLs keep the
+ * {@code /uploads/<area>/<name>} shape, with {@code <hash>.<ext>} as the name.
+ */
+@Service
+public class AttachmentStorageService {
+
+    private static final Logger log = LoggerFactory.getLogger(AttachmentStorageService.class);
+    private static final long TRANSFER_CHUNK_BYTES = 1024L * 1024L;
+    private static final Pattern BLOB_NAME = Pattern.compile("^([0-9a-f]{64})\\.([a-z0-9]{1,8})$");
+    private static final Pattern BLOB_URL = Pattern.compile("^/uploads/[a-z]+/([0-9a-f]{64})\\.[a-z0-9]{1,8}$");
+
+    private final StoredBlobRepository storedBlobRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final Path uploadRoot;
+    private final Path blobRoot;
+    private final Path tempDir;
+
+    public AttachmentStorageService(
+            StoredBlobRepository storedBlobRepository,
+            JdbcTemplate jdbcTemplate,
+            TransactionTemplate transactionTemplate,
+            @Value("${app.storage.root:uploads}") String uploadRoot
+    ) {
+        this.storedBlobRepository = storedBlobRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.uploadRoot = Paths.get(uploadRoot).toAbsolutePath().normalize();
+        this.blobRoot = this.uploadRoot.resolve("store");
+        this.tempDir = this.blobRoot.resolve("tmp");
+    }
+
+    /**
+     * Stream {@code content} into the store. Fails with {@link BadRequestException} once more than
+     * {@code maxBytes} have been read; nothing is kept in that case.
+     */
+    public StoredFile store(InputStream content, String contentType, String extension, long maxBytes) {
+        MessageDigest digest = sha256();
+        Path tempFile = tempDir.resolve(UUID.randomUUID() + ".part");
+        long size = 0;
+        try {
+            Files.createDirectories(tempDir);
+            try (ReadableByteChannel source = Channels.newChannel(new DigestInputStream(content, digest));
+                 FileChannel target = FileChannel.open(tempFile, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+                long transferred;
+                while ((transferred = target.transferFrom(source, size, Math.min(TRANSFER_CHUNK_BYTES, maxBytes + 1 - size))) > 0) {
+                    size += transferred;
+                    if (size > maxBytes) {
+                        throw new BadRequestException("File size must be " + (maxBytes / (1024L * 1024L)) + "MB or less");
+                    }
+                }
+            }
+            if (size == 0) {
+                throw new BadRequestException("File is empty");
+            }
+
+            return commit(tempFile, HexFormat.of().formatHex(digest.digest()), size, contentType, extension);
+        } catch (IOException ex) {
+            log.warn("Failed to store uploaded file: {}", ex.getMessage());
+            throw new BadRequestException("Failed to store file");
+        } finally {
+            deleteQuietly(tempFile);
+        }
+    }
+
+    /**
+     * Move a fully written file (for example a finished resumable upload) into the store.
+     */
+    public StoredFile adopt(Path file, String contentType, String extension) {
+        MessageDigest digest = sha256();
+        long size = 0;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate((int) TRANSFER_CHUNK_BYTES);
+            int read;
+            while ((read = channel.read(buffer)) >= 0) {
+                buffer.flip();
+                digest.update(buffer);
+                buffer.clear();
+                size += read;
+            }
+            return commit(file, HexFormat.of().formatHex(digest.digest()), size, contentType, extension);
+        } catch (IOException ex) {
+            log.warn("Failed to store uploaded file: {}", ex.getMessage());
+            throw new BadRequestException("Failed to store file");
+        } finally {
+            deleteQuietly(file);
+        }
+    }
+
+    /**
+     * The row is registered (or its grace period refreshed) before the file is checked, so the
+     * collector, which deletes a blob's file and row under a row lock, can never remove a file
+     * that this upload has just decided to reuse.
+     */
+    private StoredFile commit(Path file, String sha256, long size, String contentType, String extension) throws IOException {
+        register(sha256, size, contentType);
+        Path blobPath = blobPath(sha256);
+        if (!Files.exists(blobPath)) {
+            Files.createDirectories(blobPath.getParent());
+            try {
+                Files.move(file, blobPath, StandardCopyOption.ATOMIC_MOVE);
+            } catch (FileAlreadyExistsException ex) {
+                log.debug("Blob {} was stored concurrently", sha256);
+            }
+        }
+        return new StoredFile(sha256, sha256 + "." + extension, size);
+    }
+
+    /**
+     * Delete blobs that have had no references for longer than the grace period. Each blob is
+     * re-checked under a row lock so a concurrent upload or retain of the same content wins;
+     * {@code onDeleted} runs under that lock, so derived files are gone before the content can be
+     * stored again.
+     */
+    public int collectReleased(LocalDateTime releasedBefore, int limit, Consumer<String> onDeleted) {
+        List<String> candidates = jdbcTemplate.queryForList(
+                "select sha256 from stored_blobs where ref_count = 0 and released_at < ? limit ?",
+                String.class,
+                releasedBefore,
+                limit
+        );
+        int deleted = 0;
+        for (String sha256 : candidates) {
+            Boolean removed = transactionTemplate.execute(status -> {
+                List<String> locked = jdbcTemplate.queryForList(
+                        "select sha256 from stored_blobs where sha256 = ? and ref_count = 0 and released_at < ? for update",
+                        String.class,
+                        sha256,
+                        releasedBefore
+                );
+                if (locked.isEmpty()) {
+                    return false;
+                }
+                try {
+                    Files.deleteIfExists(blobPath(sha256));
+                } catch (IOException ex) {
+                    log.warn("Unable to delete blob {}: {}", sha256, ex.getMessage());
+                    return false;
+                }
+                jdbcTemplate.update("delete from stored_blobs where sha256 = ?", sha256);
+                onDeleted.accept(sha256);
+                return true;
+            });
+            if (Boolean.TRUE.equals(removed)) {
+                deleted++;
+            }
+        }
+        return deleted;
+    }
+
+    /**
+     * Filesystem path for a public file name: the sharded blob for {@code <hash>.<ext>} names,
+     * otherwise the legacy flat file under {@code uploads/<area>/}.
+     */
+    public Optional<Path> resolve(String area, String fileName) {
+        Matcher matcher = BLOB_NAME.matcher(fileName);
+        if (matcher.matches()) {
+            Path blobPath = blobPath(matcher.group(1));
+            return Files.isRegularFile(blobPath) ? Optional.of(blobPath) : Optional.empty();
+        }
+        Path areaDir = uploadRoot.resolve(area).normalize();
+        Path legacy = areaDir.resolve(fileName).normalize();
+        if (!legacy.startsWith(areaDir) || !Files.isRegularFile(legacy)) {
+            return Optional.empty();
+        }
+        return Optional.of(legacy);
+    }
+
+    /**
+     * Record one more reference to the blob behind {@code url}. Legacy URLs are ignored.
+     */
+    @Transactional
+    public void retain(String url) {
+        hashOf(url).ifPresent(storedBlobRepository::retain);
+    }
+
+    @Transactional
+    public void release(String url) {
+        hashOf(url).ifPresent(sha256 -> storedBlobRepository.release(sha256, LocalDateTime.now()));
+    }
+
+    public Optional<String> hashOf(String url) {
+        if (url == null) {
+            return Optional.empty();
+        }
+        Matcher matcher = BLOB_URL.matcher(url);
+        return matcher.matches() ? Optional.of(matcher.group(1)) : Optional.empty();
+    }
+
+    /**
+     * Directory for partially uploaded files. It shares the store's filesystem so finished uploads
+     * can be moved in atomically.
+     */
+    public Path sessionDir() {
+        return blobRoot.resolve("sessions");
+    }
+
+    public Path blobPath(String sha256) {
+        return blobRoot.resolve(sha256.substring(0, 2)).resolve(sha256.substring(2, 4)).resolve(sha256);
+    }
+
+    private void register(String sha256, long size, String contentType) {
+        jdbcTemplate.update("""
+                insert into stored_blobs (sha256, size_bytes, content_type, ref_count, created_at, released_at)
+                values (?, ?, ?, 0, now(), now())
+                on duplicate key update released_at = case when ref_count = 0 then now() else released_at end
+                """, sha256, size, contentType);
+    }
+
+    private MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException("SHA-256 is not available", ex);
+        }
+    }
+
+    private void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException ex) {
+            log.debug("Unable to delete temp upload {}: {}", path, ex.getMessage());
+        }
+    }
+
+    public record StoredFile(String sha256, String fileName, long size) {
+    }
+}
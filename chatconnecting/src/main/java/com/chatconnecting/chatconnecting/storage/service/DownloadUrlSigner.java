@@ -0,0 +1,69 @@
+package com.chatconnecting.chatconnecting.storage.service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.time.Instant;
+import java.util.Base64;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+/**
+ * Short-lived download links for chat attachments, which browsers load through {@code <img>} and
+ * {@code <video>} tags that cannot send an Authorization header. A link carries the viewer id and
+ * an expiry, HMAC-signed over the file name, so it grants nothing beyond that one file (and its
+ * thumbnails) for that viewer. Expiries are rounded up to the TTL so links stay stable, and
+ * cacheable, for at least one TTL.
+ */
+@Service
+public class DownloadUrlSigner {
+
+    private static final String ALGORITHM = "HmacSHA256";
+
+    private final SecretKeySpec key;
+    private final long ttlSeconds;
+
+    public DownloadUrlSigner(
+            @Value("${app.storage.download-url-secret:${jwt.secret}}") String secret,
+            @Value("${app.storage.download-url-ttl-seconds:600}") long ttlSeconds
+    ) {
+        this.key = new SecretKeySpec(("download:" + secret).getBytes(StandardCharsets.UTF_8), ALGORITHM);
+        this.ttlSeconds = Math.max(ttlSeconds, 1);
+    }
+
+    public SignedDownload sign(String fileName, long viewerId) {
+        long expiresAt = (Instant.now().getEpochSecond() / ttlSeconds + 2) * ttlSeconds;
+        return new SignedDownload(viewerId, expiresAt, signature(fileName, viewerId, expiresAt));
+    }
+
+    /**
+     * The viewer a valid, unexpired link was issued to, or {@code null}.
+     */
+    public Long verify(String fileName, Long viewerId, Long expiresAt, String signature) {
+        if (viewerId == null || expiresAt == null || signature == null || Instant.now().getEpochSecond() >= expiresAt) {
+            return null;
+        }
+        byte[] expected = signature(fileName, viewerId, expiresAt).getBytes(StandardCharsets.US_ASCII);
+        return MessageDigest.isEqual(expected, signature.getBytes(StandardCharsets.US_ASCII)) ? viewerId : null;
+    }
+
+    private String signature(String fileName, long viewerId, long expiresAt) {
+        try {
+            Mac mac = Mac.getInstance(ALGORITHM);
+            mac.init(key);
+            byte[] digest = mac.doFinal((fileName + "\n" + viewerId + "\n" + expiresAt).getBytes(StandardCharsets.UTF_8));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(digest);
+        } catch (GeneralSecurityException ex) {
+            throw new IllegalStateException("HmacSHA256 is not available", ex);
+        }
+    }
+
+    public record SignedDownload(long viewerId, long expiresAt, String signature) {
+
+        public String query() {
+            return "uid=" + viewerId + "&exp=" + expiresAt + "&sig=" + signature;
+        }
+    }
+}
@@ -0,0 +1,281 @@
+package com.chatconnecting.chatconnecting.storage.service;
+
+import com.chatconnecting.chatconnecting.exception.BadRequestException;
+import com.chatconnecting.chatconnecting.exception.ConflictException;
+import com.chatconnecting.chatconnecting.exception.ResourceNotFoundException;
+import com.chatconnecting.chatconnecting.storage.UploadSession;
+import com.chatconnecting.chatconnecting.storage.UploadSessionRepository;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Stream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * tus-style resumable uploads: a session owns a preallocated part file, chunks are written at
+ * their offset with positional channel writes, and the finished file is moved into the
+ * content-addressed store. Sessions idle past the TTL are collected by
+ * {@link StorageGarbageCollector}.
+ *
+ * <p>Everything that has to hold across nodes lives in the database: quotas are checked with the
+ * user's row locked, and a request touching a part file first takes the session's lease.
+ */
+@Service
+public class ResumableUploadService {
+
+    private static final Logger log = LoggerFactory.getLogger(ResumableUploadService.class);
+    private static final int WRITE_BUFFER_BYTES = 256 * 1024;
+    private static final String PART_SUFFIX = ".part";
+
+    private final UploadSessionRepository uploadSessionRepository;
+    private final AttachmentStorageService attachmentStorageService;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final int maxSessionsPerUser;
+    private final long maxPendingBytesPerUser;
+    private final long sessionTtlMinutes;
+    private final long leaseMinutes;
+
+    public ResumableUploadService(
+            UploadSessionRepository uploadSessionRepository,
+            AttachmentStorageService attachmentStorageService,
+            JdbcTemplate jdbcTemplate,
+            TransactionTemplate transactionTemplate,
+            @Value("${app.uploads.max-sessions-per-user:3}") int maxSessionsPerUser,
+            @Value("${app.uploads.max-pending-mb-per-user:100}") long maxPendingMbPerUser,
+            @Value("${app.uploads.session-ttl-minutes:1440}") long sessionTtlMinutes,
+            @Value("${app.uploads.lease-minutes:10}") long leaseMinutes
+    ) {
+        this.uploadSessionRepository = uploadSessionRepository;
+        this.attachmentStorageService = attachmentStorageService;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.maxSessionsPerUser = Math.max(maxSessionsPerUser, 1);
+        this.maxPendingBytesPerUser = Math.max(maxPendingMbPerUser, 1L) * 1024L * 1024L;
+        this.sessionTtlMinutes = Math.max(sessionTtlMinutes, 1L);
+        this.leaseMinutes = Math.max(leaseMinutes, 1L);
+    }
+
+    public UploadSession create(Long userId, String contentType, String fileName, long totalBytes) {
+        if (totalBytes <= 0) {
+            throw new BadRequestException("Upload size must be greater than zero");
+        }
+        String id = UUID.randomUUID().toString();
+        // The user's row serializes quota checks from every node until the new session is committed.
+        UploadSession session = transactionTemplate.execute(status -> {
+            jdbcTemplate.queryForList("select id from users where id = ? for update", Long.class, userId);
+            if (uploadSessionRepository.countByUserId(userId) >= maxSessionsPerUser) {
+                throw new BadRequestException("Too many uploads in progress");
+            }
+            if (uploadSessionRepository.sumTotalBytesByUserId(userId) + totalBytes > maxPendingBytesPerUser) {
+                throw new BadRequestException("Upload quota exceeded");
+            }
+            return uploadSessionRepository.save(UploadSession.builder()
+                    .id(id)
+                    .userId(userId)
+                    .contentType(contentType)
+                    .fileName(fileName)
+                    .totalBytes(totalBytes)
+                    .offset(0)
+                    .lastActivityAt(LocalDateTime.now())
+                    .build());
+        });
+
+        Path partFile = partFile(id);
+        try {
+            Files.createDirectories(partFile.getParent());
+            try (RandomAccessFile file = new RandomAccessFile(partFile.toFile(), "rw")) {
+                file.setLength(totalBytes);
+            }
+        } catch (IOException ex) {
+            log.warn("Unable to allocate upload {}: {}", id, ex.getMessage());
+            discard(id);
+            throw new BadRequestException("Failed to start upload");
+        }
+        return session;
+    }
+
+    public UploadSession get(Long userId, String uploadId) {
+        return uploadSessionRepository.findByIdAndUserId(uploadId, userId)
+                .orElseThrow(() -> new ResourceNotFoundException("Upload not found"));
+    }
+
+    /**
+     * Write one chunk at {@code offset}, which must equal the session's current offset. Bytes that
+     * arrive before the connection drops are kept, so the client can resume from the returned
+     * offset (or a later HEAD).
+     */
+    public UploadSession append(Long userId, String uploadId, long offset, InputStream body) {
+        String leaseToken = acquireLease(userId, uploadId);
+        try {
+            UploadSession session = get(userId, uploadId);
+            if (offset != session.getOffset()) {
+                throw new ConflictException("Upload offset mismatch, expected " + session.getOffset());
+            }
+
+            long remaining = session.getTotalBytes() - offset;
+            long written = 0;
+            boolean interrupted = false;
+            boolean overflow = false;
+            try (FileChannel channel = FileChannel.open(partFile(uploadId), StandardOpenOption.WRITE)) {
+                byte[] buffer = new byte[WRITE_BUFFER_BYTES];
+                try {
+                    while (written < remaining) {
+                        int read = body.read(buffer, 0, (int) Math.min(buffer.length, remaining - written));
+                        if (read < 0) {
+                            break;
+                        }
+                        ByteBuffer chunk = ByteBuffer.wrap(buffer, 0, read);
+                        while (chunk.hasRemaining()) {
+                            written += channel.write(chunk, offset + written);
+                        }
+                    }
+                    overflow = written == remaining && body.read() >= 0;
+                } catch (IOException ex) {
+                    interrupted = true;
+                    log.debug("Upload {} interrupted after {} bytes: {}", uploadId, written, ex.getMessage());
+                }
+                channel.force(false);
+            } catch (IOException ex) {
+                log.warn("Unable to write upload {}: {}", uploadId, ex.getMessage());
+                throw new BadRequestException("Failed to write upload chunk");
+            }
+
+            long newOffset = offset + written;
+            if (written > 0 && uploadSessionRepository.advanceOffset(uploadId, leaseToken, offset, newOffset, LocalDateTime.now()) == 0) {
+                throw new ConflictException("Upload offset changed concurrently");
+            }
+            session.setOffset(newOffset);
+            if (overflow) {
+                throw new BadRequestException("Chunk exceeds the declared upload size");
+            }
+            if (interrupted) {
+                throw new BadRequestException("Upload interrupted at offset " + newOffset);
+            }
+            return session;
+        } finally {
+            uploadSessionRepository.releaseLease(uploadId, leaseToken);
+        }
+    }
+
+    /**
+     * Move a fully received upload into the attachment store and close the session.
+     */
+    public AttachmentStorageService.StoredFile complete(Long userId, String uploadId, String extension) {
+        String leaseToken = acquireLease(userId, uploadId);
+        try {
+            UploadSession session = get(userId, uploadId);
+            if (session.getOffset() != session.getTotalBytes()) {
+                throw new BadRequestException("Upload is incomplete");
+            }
+            AttachmentStorageService.StoredFile stored =
+                    attachmentStorageService.adopt(partFile(uploadId), session.getContentType(), extension);
+            uploadSessionRepository.deleteById(uploadId);
+            return stored;
+        } finally {
+            uploadSessionRepository.releaseLease(uploadId, leaseToken);
+        }
+    }
+
+    public void cancel(Long userId, String uploadId) {
+        String leaseToken = acquireLease(userId, uploadId);
+        try {
+            discard(uploadId);
+        } finally {
+            uploadSessionRepository.releaseLease(uploadId, leaseToken);
+        }
+    }
+
+    public LocalDateTime expiresAt(UploadSession session) {
+        return session.getLastActivityAt().plusMinutes(sessionTtlMinutes);
+    }
+
+    /**
+     * Drop sessions idle for longer than the TTL, plus part files left without a session row.
+     */
+    public int expireAbandoned() {
+        LocalDateTime cutoff = LocalDateTime.now().minusMinutes(sessionTtlMinutes);
+        int expired = 0;
+        for (String uploadId : uploadSessionRepository.findIdsInactiveSince(cutoff)) {
+            if (uploadSessionRepository.deleteIfAbandoned(uploadId, cutoff, LocalDateTime.now()) > 0) {
+                deleteQuietly(partFile(uploadId));
+                expired++;
+            }
+        }
+
+        List<Path> orphans = new ArrayList<>();
+        Path sessionDir = attachmentStorageService.sessionDir();
+        if (Files.isDirectory(sessionDir)) {
+            long cutoffMillis = System.currentTimeMillis() - sessionTtlMinutes * 60_000L;
+            try (Stream<Path> listing = Files.list(sessionDir)) {
+                listing.filter(path -> path.getFileName().toString().endsWith(PART_SUFFIX))
+                        .filter(path -> lastModified(path) < cutoffMillis)
+                        .forEach(orphans::add);
+            } catch (IOException ex) {
+                log.warn("Unable to scan upload sessions: {}", ex.getMessage());
+            }
+        }
+        for (Path orphan : orphans) {
+            String name = orphan.getFileName().toString();
+            String uploadId = name.substring(0, name.length() - PART_SUFFIX.length());
+            if (!uploadSessionRepository.existsById(uploadId)) {
+                deleteQuietly(orphan);
+                expired++;
+            }
+        }
+        return expired;
+    }
+
+    /**
+     * Take the session's lease for this request, so no other request on any node works on the
+     * part file meanwhile.
+     */
+    private String acquireLease(Long userId, String uploadId) {
+        String leaseToken = UUID.randomUUID().toString();
+        LocalDateTime now = LocalDateTime.now();
+        if (uploadSessionRepository.acquireLease(uploadId, userId, leaseToken, now, now.plusMinutes(leaseMinutes)) == 0) {
+            get(userId, uploadId);
+            throw new ConflictException("Upload is already receiving data");
+        }
+        return leaseToken;
+    }
+
+    private void discard(String uploadId) {
+        uploadSessionRepository.deleteById(uploadId);
+        deleteQuietly(partFile(uploadId));
+    }
+
+    private Path partFile(String uploadId) {
+        return attachmentStorageService.sessionDir().resolve(uploadId + PART_SUFFIX);
+    }
+
+    private long lastModified(Path path) {
+        try {
+            return Files.getLastModifiedTime(path).toMillis();
+        } catch (IOException ex) {
+            return Long.MAX_VALUE;
+        }
+    }
+
+    private void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException ex) {
+            log.debug("Unable to delete upload file {}: {}", path, ex.getMessage());
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.chatconnecting.chatconnecting.storage.service;
+
+import java.time.LocalDateTime;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Periodic cleanup of abandoned upload sessions and of blobs nothing has referenced for longer
+ * than the grace period, together with their thumbnails.
+ */
+@Component
+public class StorageGarbageCollector {
+
+    private static final Logger log = LoggerFactory.getLogger(StorageGarbageCollector.class);
+    private static final int BLOB_BATCH_SIZE = 200;
+
+    private final ResumableUploadService resumableUploadService;
+    private final AttachmentStorageService attachmentStorageService;
+    private final ThumbnailService thumbnailService;
+    private final long blobGraceHours;
+
+    public StorageGarbageCollector(
+            ResumableUploadService resumableUploadService,
+            AttachmentStorageService attachmentStorageService,
+            ThumbnailService thumbnailService,
+            @Value("${app.storage.blob-grace-hours:24}") long blobGraceHours
+    ) {
+        this.resumableUploadService = resumableUploadService;
+        this.attachmentStorageService = attachmentStorageService;
+        this.thumbnailService = thumbnailService;
+        this.blobGraceHours = Math.max(blobGraceHours, 1L);
+    }
+
+    @Scheduled(
+            initialDelayString = "${app.storage.gc-interval-ms:600000}",
+            fixedDelayString = "${app.storage.gc-interval-ms:600000}"
+    )
+    public void collect() {
+        try {
+            int expired = resumableUploadService.expireAbandoned();
+            if (expired > 0) {
+                log.info("Expired {} abandoned upload sessions", expired);
+            }
+        } catch (Exception ex) {
+            log.warn("Upload session cleanup failed: {}", ex.getMessage());
+        }
+
+        try {
+            LocalDateTime cutoff = LocalDateTime.now().minusHours(blobGraceHours);
+            int deleted;
+            int total = 0;
+            do {
+                deleted = attachmentStorageService.collectReleased(cutoff, BLOB_BATCH_SIZE, thumbnailService::discard);
+                total += deleted;
+            } while (deleted == BLOB_BATCH_SIZE);
+            if (total > 0) {
+                log.info("Deleted {} unreferenced blobs", total);
+            }
+        } catch (Exception ex) {
+            log.warn("Blob cleanup failed: {}", ex.getMessage());
+        }
+    }
+}
@@ -0,0 +1,455 @@
+package com.chatconnecting.chatconnecting.storage.service;
+
+import com.chatconnecting.chatconnecting.storage.StoredBlobRepository;
+import com.chatconnecting.chatconnecting.storage.dto.ThumbnailResponse;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+/**
+ * Derives JPEG thumbnails for stored images on a bounded worker pool. Thumbnails live in
+ * {@code uploads/thumbs} under a byte budget with least-recently-used eviction; an evicted or
+ * never-rendered thumbnail is rendered again on its first request.
+ */
+@Service
+public class ThumbnailService {
+
+    private static final Logger log = LoggerFactory.getLogger(ThumbnailService.class);
+    private static final long MAX_SOURCE_PIXELS = 100_000_000L;
+    private static final int DIMENSIONS_CACHE_SIZE = 10_000;
+    private static final float JPEG_QUALITY = 0.82f;
+    private static final ImageSize UNKNOWN = new ImageSize(0, 0);
+    private static final Pattern THUMBNAIL_FILE = Pattern.compile("^[0-9a-f]{64}_\\d+\\.jpg$");
+
+    private final AttachmentStorageService attachmentStorageService;
+    private final StoredBlobRepository storedBlobRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final Path thumbnailDir;
+    private final int[] sizes;
+    private final int workerCount;
+    private final int queueCapacity;
+    private final long cacheMaxBytes;
+    private final long renderTimeoutMs;
+
+    private final Map<String, CompletableFuture<Boolean>> inFlight = new ConcurrentHashMap<>();
+    private final Map<String, ImageSize> dimensions = Collections.synchronizedMap(
+            new LinkedHashMap<>(256, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, ImageSize> eldest) {
+                    return size() > DIMENSIONS_CACHE_SIZE;
+                }
+            }
+    );
+    private final LinkedHashMap<Path, Long> cacheEntries = new LinkedHashMap<>(256, 0.75f, true);
+    private long cacheBytes;
+
+    private ThreadPoolExecutor workers;
+
+    public ThumbnailService(
+            AttachmentStorageService attachmentStorageService,
+            StoredBlobRepository storedBlobRepository,
+            JdbcTemplate jdbcTemplate,
+            @Value("${app.storage.root:uploads}") String uploadRoot,
+            @Value("${app.thumbnails.sizes:96,480}") int[] sizes,
+            @Value("${app.thumbnails.workers:2}") int workerCount,
+            @Value("${app.thumbnails.queue-capacity:256}") int queueCapacity,
+            @Value("${app.thumbnails.cache-max-mb:512}") long cacheMaxMb,
+            @Value("${app.thumbnails.render-timeout-ms:5000}") long renderTimeoutMs
+    ) {
+        this.attachmentStorageService = attachmentStorageService;
+        this.storedBlobRepository = storedBlobRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.thumbnailDir = Paths.get(uploadRoot).toAbsolutePath().normalize().resolve("thumbs");
+        this.sizes = Arrays.stream(sizes).filter(size -> size > 0).sorted().distinct().toArray();
+        this.workerCount = Math.max(workerCount, 1);
+        this.queueCapacity = Math.max(queueCapacity, 1);
+        this.cacheMaxBytes = Math.max(cacheMaxMb, 1L) * 1024L * 1024L;
+        this.renderTimeoutMs = Math.max(renderTimeoutMs, 0L);
+    }
+
+    @PostConstruct
+    public void start() {
+        AtomicInteger counter = new AtomicInteger();
+        workers = new ThreadPoolExecutor(
+                workerCount,
+                workerCount,
+                0L,
+                TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "thumbnail-" + counter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }
+        );
+        loadCacheIndex();
+        log.info("Thumbnail pipeline started: sizes={}, workers={}, cacheEntries={}, cacheBytes={}",
+                Arrays.toString(sizes), workerCount, cacheEntries.size(), cacheBytes);
+    }
+
+    @PreDestroy
+    public void stop() {
+        workers.shutdownNow();
+    }
+
+    /**
+     * Render thumbnails for a freshly stored blob in the background. Non-images are skipped by the
+     * worker; a full queue drops the job, and the thumbnails are rendered on first request instead.
+     */
+    public void enqueue(String sha256) {
+        submit(sha256);
+    }
+
+    /**
+     * Forget a deleted blob: remove its thumbnails from disk and the cache index, and its cached
+     * dimensions.
+     */
+    public void discard(String sha256) {
+        dimensions.remove(sha256);
+        for (int size : sizes) {
+            Path path = thumbnailPath(sha256, size);
+            synchronized (cacheEntries) {
+                Long bytes = cacheEntries.remove(path);
+                if (bytes != null) {
+                    cacheBytes -= bytes;
+                }
+            }
+            try {
+                Files.deleteIfExists(path);
+            } catch (IOException ex) {
+                log.debug("Unable to delete thumbnail {}: {}", path, ex.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Path of the {@code size} thumbnail, rendering it first (bounded by the render timeout) when it
+     * is not cached.
+     */
+    public Optional<Path> thumbnail(String sha256, int size) {
+        if (Arrays.binarySearch(sizes, size) < 0) {
+            return Optional.empty();
+        }
+        Path path = thumbnailPath(sha256, size);
+        if (touch(path)) {
+            return Optional.of(path);
+        }
+        try {
+            submit(sha256).get(renderTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return Optional.empty();
+        } catch (ExecutionException | TimeoutException ex) {
+            return Optional.empty();
+        }
+        return touch(path) ? Optional.of(path) : Optional.empty();
+    }
+
+    /**
+     * Load dimensions for many attachment URLs with one query, so that building a page of
+     * responses does not look blobs up one by one.
+     */
+    public void warm(Collection<String> urls) {
+        Set<String> missing = new LinkedHashSet<>();
+        for (String url : urls) {
+            attachmentStorageService.hashOf(url)
+                    .filter(sha256 -> !dimensions.containsKey(sha256))
+                    .ifPresent(missing::add);
+        }
+        if (missing.isEmpty()) {
+            return;
+        }
+        for (StoredBlobRepository.BlobDimensions row : storedBlobRepository.findDimensions(missing)) {
+            dimensions.put(row.getSha256(), new ImageSize(row.getWidth(), row.getHeight()));
+            missing.remove(row.getSha256());
+        }
+        missing.forEach(sha256 -> dimensions.put(sha256, UNKNOWN));
+    }
+
+    public Optional<ImageSize> imageSize(String url) {
+        return attachmentStorageService.hashOf(url).flatMap(sha256 -> {
+            ImageSize size = dimensions.get(sha256);
+            if (size == null) {
+                warm(List.of(url));
+                size = dimensions.get(sha256);
+            }
+            return size == null || size == UNKNOWN ? Optional.empty() : Optional.of(size);
+        });
+    }
+
+    /**
+     * Thumbnail URLs ({@code /uploads/<area>/thumbs/<size>/<name>}) and their dimensions for an
+     * image URL; empty for legacy files, non-images and images that have not been decoded yet.
+     */
+    public List<ThumbnailResponse> thumbnailsFor(String url) {
+        Optional<ImageSize> original = imageSize(url);
+        if (original.isEmpty()) {
+            return List.of();
+        }
+        int slash = url.lastIndexOf('/');
+        String prefix = url.substring(0, slash + 1) + "thumbs/";
+        String fileName = url.substring(slash + 1);
+        List<ThumbnailResponse> thumbnails = new ArrayList<>(sizes.length);
+        for (int size : sizes) {
+            ImageSize fitted = original.get().fitWithin(size);
+            thumbnails.add(ThumbnailResponse.builder()
+                    .size(size)
+                    .url(prefix + size + "/" + fileName)
+                    .width(fitted.width())
+                    .height(fitted.height())
+                    .build());
+        }
+        return thumbnails;
+    }
+
+    private CompletableFuture<Boolean> submit(String sha256) {
+        CompletableFuture<Boolean> created = new CompletableFuture<>();
+        CompletableFuture<Boolean> existing = inFlight.putIfAbsent(sha256, created);
+        if (existing != null) {
+            return existing;
+        }
+        try {
+            workers.execute(() -> {
+                try {
+                    created.complete(render(sha256));
+                } catch (Exception ex) {
+                    log.warn("Failed to render thumbnails for {}: {}", sha256, ex.getMessage());
+                    created.complete(false);
+                } finally {
+                    inFlight.remove(sha256, created);
+                }
+            });
+        } catch (RejectedExecutionException ex) {
+            inFlight.remove(sha256, created);
+            log.warn("Thumbnail queue full, skipping blob {}", sha256);
+            created.complete(false);
+        }
+        return created;
+    }
+
+    private boolean render(String sha256) throws IOException {
+        Path source = attachmentStorageService.blobPath(sha256);
+        if (!Files.isRegularFile(source)) {
+            return false;
+        }
+
+        BufferedImage image;
+        int width;
+        int height;
+        try (ImageInputStream input = ImageIO.createImageInputStream(source.toFile())) {
+            Iterator<ImageReader> readers = input == null ? Collections.emptyIterator() : ImageIO.getImageReaders(input);
+            if (!readers.hasNext()) {
+                return false;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, true);
+                width = reader.getWidth(0);
+                height = reader.getHeight(0);
+                if (width <= 0 || height <= 0 || (long) width * height > MAX_SOURCE_PIXELS) {
+                    return false;
+                }
+                // Decode at no more than twice the largest thumbnail; the rest of the pixels are never needed.
+                int subsampling = Math.max(1, Math.max(width, height) / (sizes[sizes.length - 1] * 2));
+                ImageReadParam param = reader.getDefaultReadParam();
+                param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+                image = reader.read(0, param);
+            } finally {
+                reader.dispose();
+            }
+        }
+
+        ImageSize original = new ImageSize(width, height);
+        jdbcTemplate.update("update stored_blobs set width = ?, height = ? where sha256 = ?", width, height, sha256);
+        dimensions.put(sha256, original);
+
+        for (int size : sizes) {
+            Path target = thumbnailPath(sha256, size);
+            if (!Files.isRegularFile(target)) {
+                writeJpeg(scale(image, original.fitWithin(size)), target);
+            }
+        }
+        return true;
+    }
+
+    private BufferedImage scale(BufferedImage source, ImageSize target) {
+        BufferedImage current = source;
+        // Halve step by step first: a single bilinear pass from far larger images aliases badly.
+        while (current.getWidth() / 2 >= target.width() && current.getHeight() / 2 >= target.height()) {
+            current = draw(current, current.getWidth() / 2, current.getHeight() / 2);
+        }
+        return draw(current, target.width(), target.height());
+    }
+
+    private BufferedImage draw(BufferedImage source, int width, int height) {
+        BufferedImage scaled = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = scaled.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.setColor(Color.WHITE);
+            graphics.fillRect(0, 0, width, height);
+            graphics.drawImage(source, 0, 0, width, height, null);
+        } finally {
+            graphics.dispose();
+        }
+        return scaled;
+    }
+
+    private void writeJpeg(BufferedImage image, Path target) throws IOException {
+        Files.createDirectories(thumbnailDir);
+        Path temp = thumbnailDir.resolve(target.getFileName() + "." + UUID.randomUUID() + ".part");
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        try (ImageOutputStream output = ImageIO.createImageOutputStream(temp.toFile())) {
+            writer.setOutput(output);
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(JPEG_QUALITY);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+        try {
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+        track(target, Files.size(target));
+    }
+
+    private Path thumbnailPath(String sha256, int size) {
+        return thumbnailDir.resolve(sha256 + "_" + size + ".jpg");
+    }
+
+    private boolean touch(Path path) {
+        synchronized (cacheEntries) {
+            if (cacheEntries.get(path) == null) {
+                return false;
+            }
+            if (Files.isRegularFile(path)) {
+                return true;
+            }
+            cacheBytes -= cacheEntries.remove(path);
+            return false;
+        }
+    }
+
+    private void track(Path path, long bytes) {
+        List<Path> evicted = new ArrayList<>();
+        synchronized (cacheEntries) {
+            Long previous = cacheEntries.put(path, bytes);
+            cacheBytes += bytes - (previous == null ? 0L : previous);
+            Iterator<Map.Entry<Path, Long>> iterator = cacheEntries.entrySet().iterator();
+            while (cacheBytes > cacheMaxBytes && iterator.hasNext()) {
+                Map.Entry<Path, Long> eldest = iterator.next();
+                if (eldest.getKey().equals(path)) {
+                    continue;
+                }
+                cacheBytes -= eldest.getValue();
+                evicted.add(eldest.getKey());
+                iterator.remove();
+            }
+        }
+        for (Path stale : evicted) {
+            try {
+                Files.deleteIfExists(stale);
+            } catch (IOException ex) {
+                log.debug("Unable to evict thumbnail {}: {}", stale, ex.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Rebuild the LRU index from disk, oldest files first, and drop partial writes left by a crash.
+     */
+    private void loadCacheIndex() {
+        List<Path> files = new ArrayList<>();
+        try {
+            Files.createDirectories(thumbnailDir);
+            try (Stream<Path> listing = Files.list(thumbnailDir)) {
+                listing.forEach(files::add);
+            }
+        } catch (IOException ex) {
+            log.warn("Unable to read thumbnail cache {}: {}", thumbnailDir, ex.getMessage());
+            return;
+        }
+        files.sort(Comparator.comparingLong(this::lastModified));
+        for (Path file : files) {
+            try {
+                if (THUMBNAIL_FILE.matcher(file.getFileName().toString()).matches()) {
+                    track(file, Files.size(file));
+                } else if (file.getFileName().toString().endsWith(".part")) {
+                    Files.deleteIfExists(file);
+                }
+            } catch (IOException ex) {
+                log.debug("Skipping thumbnail cache entry {}: {}", file, ex.getMessage());
+            }
+        }
+    }
+
+    private long lastModified(Path path) {
+        try {
+            return Files.getLastModifiedTime(path).toMillis();
+        } catch (IOException ex) {
+            return 0L;
+        }
+    }
+
+    public record ImageSize(int width, int height) {
+
+        /**
+         * These dimensions scaled to fit a {@code box}x{@code box} square, never upscaled.
+         */
+        public ImageSize fitWithin(int box) {
+            double scale = Math.min(1.0, (double) box / Math.max(width, height));
+            return new ImageSize(
+                    Math.max(1, (int) Math.round(width * scale)),
+                    Math.max(1, (int) Math.round(height * scale))
+            );
+        }
+    }
+}
@@ -3,12 +3,10 @@ package com.chatconnecting.chatconnecting.user;
 import com.chatconnecting.chatconnecting.exception.BadRequestException;
 import com.chatconnecting.chatconnecting.exception.ResourceNotFoundException;
 import com.chatconnecting.chatconnecting.user.dto.UserProfileResponse;
+import com.chatconnecting.chatconnecting.storage.service.AttachmentStorageService;
+import com.chatconnecting.chatconnecting.storage.service.ThumbnailService;
 import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
-import java.nio.file.StandardCopyOption;
-import java.time.Instant;
+import java.io.InputStream;
 import java.util.Set;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
@@ -22,9 +20,11 @@ public class UserProfileService {
 
     private static final Set<String> ALLOWED_CONTENT_TYPES = Set.of("image/jpeg", "image/png");
     private static final long MAX_FILE_SIZE_BYTES = 5L * 1024L * 1024L;
-    private static final Path PROFILE_UPLOAD_DIR = Paths.get("uploads", "profile");
+    private static final String PROFILE_UPLOAD_URL_PREFIX = "/uploads/profile/";
 
     private final UserRepository userRepository;
+    private final AttachmentStorageService attachmentStorageService;
+    private final ThumbnailService thumbnailService;
 
     @Transactional
     public UserProfileResponse uploadProfileImage(String userEmail, MultipartFile file) {
@@ -43,22 +43,21 @@ public class UserProfileService {
                 .orElseThrow(() -> new ResourceNotFoundException("User not found"));
 
         String extension = "image/png".equals(contentType) ? "png" : "jpg";
-        String fileName = user.getId() + "_" + Instant.now().toEpochMilli() + "." + extension;
-        Path uploadDir = PROFILE_UPLOAD_DIR.toAbsolutePath().normalize();
-        Path targetPath = uploadDir.resolve(fileName).normalize();
-
-        if (!targetPath.startsWith(uploadDir)) {
-            throw new BadRequestException("Invalid file path");
-        }
-
-        try {
-            Files.createDirectories(uploadDir);
-            Files.copy(file.getInputStream(), targetPath, StandardCopyOption.REPLACE_EXISTING);
+        AttachmentStorageService.StoredFile stored;
+        try (InputStream stream = file.getInputStream()) {
+            stored = attachmentStorageService.store(stream, contentType, extension, MAX_FILE_SIZE_BYTES);
         } catch (IOException ex) {
             throw new BadRequestException("Failed to store profile image");
         }
+        thumbnailService.enqueue(stored.sha256());
 
-        user.setProfileImageUrl("/uploads/profile/" + fileName);
+        String previousImageUrl = user.getProfileImageUrl();
+        String imageUrl = PROFILE_UPLOAD_URL_PREFIX + stored.fileName();
+        if (!imageUrl.equals(previousImageUrl)) {
+            attachmentStorageService.retain(imageUrl);
+            attachmentStorageService.release(previousImageUrl);
+        }
+        user.setProfileImageUrl(imageUrl);
         User savedUser = userRepository.save(user);
         return toResponse(savedUser);
     }
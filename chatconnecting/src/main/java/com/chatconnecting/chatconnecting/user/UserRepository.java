@@ -1,8 +1,11 @@
 package com.chatconnecting.chatconnecting.user;
 
+import java.util.Collection;
 import java.util.Optional;
 import java.util.List;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 public interface UserRepository extends JpaRepository<User, Long> {
     Optional<User> findByEmail(String email);
@@ -10,4 +13,13 @@ public interface UserRepository extends JpaRepository<User, Long> {
     boolean existsByEmail(String email);
 
     List<User> findAllByIdNot(Long id);
+
+    @Query("select u.id as id, u.email as email from User u where u.email in :emails")
+    List<UserIdentityRow> findIdentitiesByEmailIn(@Param("emails") Collection<String> emails);
+
+    interface UserIdentityRow {
+        Long getId();
+
+        String getEmail();
+    }
 }
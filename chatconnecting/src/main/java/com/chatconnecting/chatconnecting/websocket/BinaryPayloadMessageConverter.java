@@ -0,0 +1,41 @@
+package com.chatconnecting.chatconnecting.websocket;
+
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.converter.AbstractMessageConverter;
+import tools.jackson.databind.ObjectMapper;
+
+/**
+ * Reads and writes CBOR or Smile payloads for STOMP frames whose {@code content-type} names that
+ * encoding. Content type matching is strict, so frames without one keep going to the JSON
+ * converter.
+ */
+public class BinaryPayloadMessageConverter extends AbstractMessageConverter {
+
+    private final ObjectMapper mapper;
+
+    public BinaryPayloadMessageConverter(PayloadEncoding encoding, PayloadTranscoder transcoder) {
+        super(encoding.mimeType());
+        this.mapper = transcoder.mapperFor(encoding);
+        setStrictContentTypeMatch(true);
+    }
+
+    @Override
+    protected boolean supports(Class<?> clazz) {
+        return true;
+    }
+
+    @Override
+    protected Object convertFromInternal(Message<?> message, Class<?> targetClass, Object conversionHint) {
+        Object payload = message.getPayload();
+        if (!(payload instanceof byte[] bytes)) {
+            return null;
+        }
+        return mapper.readValue(bytes, targetClass);
+    }
+
+    @Override
+    protected Object convertToInternal(Object payload, MessageHeaders headers, Object conversionHint) {
+        return mapper.writeValueAsBytes(payload);
+    }
+}
@@ -1,11 +1,10 @@
 package com.chatconnecting.chatconnecting.websocket;
 
-import com.chatconnecting.chatconnecting.chat.ChatRoom;
-import com.chatconnecting.chatconnecting.chat.ChatRoomRepository;
+import com.chatconnecting.chatconnecting.chat.ChatRoomType;
+import com.chatconnecting.chatconnecting.chat.service.RoomMembershipCache;
 import com.chatconnecting.chatconnecting.exception.BadRequestException;
 import com.chatconnecting.chatconnecting.exception.ForbiddenOperationException;
 import com.chatconnecting.chatconnecting.exception.ResourceNotFoundException;
-import com.chatconnecting.chatconnecting.user.User;
 import com.chatconnecting.chatconnecting.user.UserRepository;
 import com.chatconnecting.chatconnecting.websocket.dto.CallSignalMessage;
 import com.chatconnecting.chatconnecting.websocket.dto.GroupCallSignalMessage;
@@ -23,7 +22,7 @@ public class CallSignalingService {
     private static final Logger log = LoggerFactory.getLogger(CallSignalingService.class);
 
     private final UserRepository userRepository;
-    private final ChatRoomRepository chatRoomRepository;
+    private final RoomMembershipCache roomMembershipCache;
     private final SimpMessagingTemplate messagingTemplate;
 
     public void relayDirectSignal(String authenticatedEmail, CallSignalMessage message) {
@@ -51,23 +50,17 @@ public class CallSignalingService {
             throw new BadRequestException("Invalid group call signaling payload");
         }
 
-        User sender = userRepository.findByEmail(source)
-                .orElseThrow(() -> new ResourceNotFoundException("Authenticated user was not found"));
-
-        ChatRoom room = chatRoomRepository.findByIdAndParticipant(message.getChatRoomId(), sender.getId())
+        RoomMembershipCache.RoomMembership room = roomMembershipCache.get(message.getChatRoomId())
+                .filter(membership -> hasDestinationKey(membership, source))
                 .orElseThrow(() -> new ForbiddenOperationException("You are not a member of this group"));
 
-        if (!room.isGroupRoom()) {
+        if (room.roomType() != ChatRoomType.GROUP) {
             throw new BadRequestException("Group call signaling is allowed only for group rooms");
         }
 
         String target = normalize(message.getTo());
-        if (target != null) {
-            boolean targetExistsInRoom = room.getParticipants().stream()
-                    .anyMatch(member -> target.equalsIgnoreCase(member.getEmail()));
-            if (!targetExistsInRoom) {
-                throw new BadRequestException("Target user is not a member of this group");
-            }
+        if (target != null && !hasDestinationKey(room, target)) {
+            throw new BadRequestException("Target user is not a member of this group");
         }
 
         if (message.getData() == null) {
@@ -76,12 +69,21 @@ public class CallSignalingService {
         message.setFrom(source);
         message.setTo(target);
 
-        String destination = "/topic/group-call/" + room.getId();
+        String destination = "/topic/group-call/" + room.roomId();
         log.info("Sending group call signal: type={}, roomId={}, from={}, to={}",
-                message.getType(), room.getId(), source, target);
+                message.getType(), room.roomId(), source, target);
         messagingTemplate.convertAndSend(destination, message);
     }
 
+    private boolean hasDestinationKey(RoomMembershipCache.RoomMembership room, String email) {
+        for (String destinationKey : room.destinationKeys()) {
+            if (email.equalsIgnoreCase(destinationKey)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     private String normalize(String value) {
         if (value == null) {
             return null;
@@ -1,5 +1,8 @@
 package com.chatconnecting.chatconnecting.websocket;
 
+import com.chatconnecting.chatconnecting.chat.ChatRoomType;
+import com.chatconnecting.chatconnecting.chat.service.RoomMembershipCache;
+import com.chatconnecting.chatconnecting.chat.service.RoomMembershipCache.RoomMembership;
 import com.chatconnecting.chatconnecting.common.dto.MessageResponse;
 import com.chatconnecting.chatconnecting.exception.BadRequestException;
 import com.chatconnecting.chatconnecting.exception.ForbiddenOperationException;
@@ -8,6 +11,9 @@ import com.chatconnecting.chatconnecting.message.dto.DeliveryAckRequest;
 import com.chatconnecting.chatconnecting.message.dto.ReadMessageRequest;
 import com.chatconnecting.chatconnecting.message.dto.TypingEventRequest;
 import com.chatconnecting.chatconnecting.message.service.MessageService;
+import com.chatconnecting.chatconnecting.message.service.RoomLaneExecutor;
+import com.chatconnecting.chatconnecting.message.service.TypingIndicatorService;
+import com.chatconnecting.chatconnecting.security.AuthenticatedUser;
 import jakarta.validation.Valid;
 import java.security.Principal;
 import lombok.RequiredArgsConstructor;
@@ -24,8 +30,14 @@ import org.springframework.stereotype.Controller;
 public class ChatWebSocketController {
 
     private static final Logger log = LoggerFactory.getLogger(ChatWebSocketController.class);
+    private static final String ERRORS_DESTINATION = "/queue/errors";
+    private static final String BUSY_MESSAGE = "This conversation is busy, please retry in a moment";
 
     private final MessageService messageService;
+    private final TypingIndicatorService typingIndicatorService;
+    private final RoomLaneExecutor roomLaneExecutor;
+    private final RoomMembershipCache roomMembershipCache;
+    private final StompEventPublisher stompEventPublisher;
 
     @MessageMapping("/chat.send")
     public void sendMessage(@Valid @Payload ChatMessageRequest request, Principal principal) {
@@ -37,7 +49,25 @@ public class ChatWebSocketController {
                 principal.getName(),
                 request.getChatRoomId(),
                 request.getReceiverId());
-        messageService.sendMessage(principal.getName(), request);
+        String principalName = principal.getName();
+        boolean accepted = roomLaneExecutor.submit(laneKey(principal, request), () -> {
+            try {
+                messageService.sendMessage(principalName, request);
+            } catch (ForbiddenOperationException | BadRequestException | IllegalArgumentException ex) {
+                log.warn("WebSocket message rejected: {}", ex.getMessage());
+                stompEventPublisher.sendToUser(principalName, ERRORS_DESTINATION, new MessageResponse(ex.getMessage()));
+            } catch (Exception ex) {
+                log.error("Unexpected websocket message error", ex);
+                stompEventPublisher.sendToUser(
+                        principalName,
+                        ERRORS_DESTINATION,
+                        new MessageResponse("Unexpected websocket server error")
+                );
+            }
+        }, () -> stompEventPublisher.sendToUser(principalName, ERRORS_DESTINATION, new MessageResponse(BUSY_MESSAGE)));
+        if (!accepted) {
+            throw new BadRequestException(BUSY_MESSAGE);
+        }
     }
 
     @MessageMapping("/chat")
@@ -56,6 +86,10 @@ public class ChatWebSocketController {
                 request.getReceiverId(),
                 request.getChatRoomId(),
                 request.isTyping());
+        if (principal instanceof AuthenticatedUser user && request.getChatRoomId() != null) {
+            typingIndicatorService.onTyping(user.userId(), request.getChatRoomId(), request.getReceiverId(), request.isTyping());
+            return;
+        }
         messageService.sendTypingEvent(principal.getName(), request);
     }
 
@@ -77,15 +111,38 @@ public class ChatWebSocketController {
         messageService.markMessageAsRead(principal.getName(), request);
     }
 
+    /**
+     * Both sides of a direct conversation share a lane whether the client addressed it by room id
+     * or by receiver id; group rooms get a lane per room.
+     */
+    private Object laneKey(Principal principal, ChatMessageRequest request) {
+        Long roomId = request.getChatRoomId();
+        if (roomId != null) {
+            RoomMembership room = roomMembershipCache.get(roomId).orElse(null);
+            if (room != null && room.roomType() == ChatRoomType.DIRECT && room.size() == 2) {
+                return directKey(room.memberIds()[0], room.memberIds()[1]);
+            }
+            return "room:" + roomId;
+        }
+        if (principal instanceof AuthenticatedUser user && request.getReceiverId() != null) {
+            return directKey(user.userId(), request.getReceiverId());
+        }
+        return "user:" + principal.getName();
+    }
+
+    private String directKey(long firstUserId, long secondUserId) {
+        return "direct:" + Math.min(firstUserId, secondUserId) + ":" + Math.max(firstUserId, secondUserId);
+    }
+
     @MessageExceptionHandler({ForbiddenOperationException.class, BadRequestException.class, IllegalArgumentException.class})
-    @SendToUser("/queue/errors")
+    @SendToUser(ERRORS_DESTINATION)
     public MessageResponse handleKnownMessageExceptions(Exception exception) {
         log.warn("WebSocket message rejected: {}", exception.getMessage());
         return new MessageResponse(exception.getMessage());
     }
 
     @MessageExceptionHandler(Exception.class)
-    @SendToUser("/queue/errors")
+    @SendToUser(ERRORS_DESTINATION)
     public MessageResponse handleMessageExceptions(Exception exception) {
         log.error("Unexpected websocket message error", exception);
         return new MessageResponse("Unexpected websocket server error");
@@ -1,7 +1,9 @@
 package com.chatconnecting.chatconnecting.websocket;
 
-import com.chatconnecting.chatconnecting.chat.ChatRoom;
-import com.chatconnecting.chatconnecting.chat.ChatRoomRepository;
+import com.chatconnecting.chatconnecting.chat.ChatRoomType;
+import com.chatconnecting.chatconnecting.chat.service.RoomMembershipCache;
+import com.chatconnecting.chatconnecting.presence.PresenceService;
+import com.chatconnecting.chatconnecting.security.AuthenticatedUser;
 import com.chatconnecting.chatconnecting.security.JwtService;
 import com.chatconnecting.chatconnecting.user.User;
 import com.chatconnecting.chatconnecting.user.UserRepository;
@@ -19,8 +21,6 @@ import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
 import org.springframework.messaging.support.ChannelInterceptor;
 import org.springframework.messaging.support.MessageHeaderAccessor;
 import org.springframework.security.authentication.BadCredentialsException;
-import org.springframework.security.core.userdetails.UserDetails;
-import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.stereotype.Component;
 
 @Component
@@ -32,9 +32,9 @@ public class JwtChannelInterceptor implements ChannelInterceptor {
     private static final Pattern GROUP_CALL_TOPIC_PATTERN = Pattern.compile("^/topic/group-call/(\\d+)$");
 
     private final JwtService jwtService;
-    private final UserDetailsService userDetailsService;
     private final UserRepository userRepository;
-    private final ChatRoomRepository chatRoomRepository;
+    private final RoomMembershipCache roomMembershipCache;
+    private final PresenceService presenceService;
 
     @Override
     public Message<?> preSend(Message<?> message, MessageChannel channel) {
@@ -43,6 +43,9 @@ public class JwtChannelInterceptor implements ChannelInterceptor {
             return message;
         }
 
+        // Any inbound frame, heartbeats included, proves the session is still alive.
+        presenceService.touch(accessor.getSessionId());
+
         if (StompCommand.SUBSCRIBE.equals(accessor.getCommand())) {
             authorizeSubscription(accessor);
             return message;
@@ -60,18 +63,21 @@ public class JwtChannelInterceptor implements ChannelInterceptor {
         }
 
         try {
-            String username = jwtService.extractUsername(token);
-            UserDetails userDetails = userDetailsService.loadUserByUsername(username);
-            if (!jwtService.validateToken(token, userDetails)) {
-                throw new BadCredentialsException("Invalid JWT token");
-            }
-
-            String principalName = userDetails.getUsername();
+            JwtService.VerifiedToken verified = jwtService.verify(token);
+            String principalName = verified.username();
             if (principalName == null || principalName.isBlank()) {
                 throw new BadCredentialsException("Invalid JWT principal");
             }
 
-            Principal principal = () -> principalName;
+            AuthenticatedUser principal;
+            if (verified.hasEmbeddedIdentity()) {
+                principal = new AuthenticatedUser(verified.userId(), principalName, verified.role());
+            } else {
+                // Older tokens carry no user id: resolve it once for the lifetime of the session.
+                User user = userRepository.findByEmail(principalName)
+                        .orElseThrow(() -> new BadCredentialsException("Authenticated user not found"));
+                principal = new AuthenticatedUser(user.getId(), user.getEmail(), user.getRole());
+            }
             accessor.setUser(principal);
             if (accessor.getSessionAttributes() != null) {
                 accessor.getSessionAttributes().put("username", principalName);
@@ -128,17 +134,21 @@ public class JwtChannelInterceptor implements ChannelInterceptor {
             throw new BadCredentialsException("Invalid destination");
         }
 
-        User user = userRepository.findByEmail(principalName)
-                .orElseThrow(() -> new BadCredentialsException("Authenticated user not found"));
+        Long userId = accessor.getUser() instanceof AuthenticatedUser authenticatedUser
+                ? authenticatedUser.userId()
+                : userRepository.findByEmail(principalName)
+                        .map(User::getId)
+                        .orElseThrow(() -> new BadCredentialsException("Authenticated user not found"));
 
-        ChatRoom room = chatRoomRepository.findByIdAndParticipant(roomId, user.getId())
+        RoomMembershipCache.RoomMembership room = roomMembershipCache.get(roomId)
+                .filter(membership -> membership.contains(userId))
                 .orElseThrow(() -> {
                     log.warn("Rejecting {} topic SUBSCRIBE: user {} has no access to room {}",
                             topicType, principalName, roomId);
                     return new BadCredentialsException("You do not have access to this group");
                 });
 
-        if (!room.isGroupRoom()) {
+        if (room.roomType() != ChatRoomType.GROUP) {
             log.warn("Rejecting {} topic SUBSCRIBE: destination {} points to non-group room {}",
                     topicType, destination, roomId);
             throw new BadCredentialsException("Invalid group destination");
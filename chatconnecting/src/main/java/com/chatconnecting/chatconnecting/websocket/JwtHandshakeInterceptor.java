@@ -9,8 +9,6 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.server.ServerHttpRequest;
 import org.springframework.http.server.ServerHttpResponse;
-import org.springframework.security.core.userdetails.UserDetails;
-import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.stereotype.Component;
 import org.springframework.web.socket.WebSocketHandler;
 import org.springframework.web.socket.server.HandshakeInterceptor;
@@ -22,7 +20,6 @@ public class JwtHandshakeInterceptor implements HandshakeInterceptor {
     private static final Logger log = LoggerFactory.getLogger(JwtHandshakeInterceptor.class);
 
     private final JwtService jwtService;
-    private final UserDetailsService userDetailsService;
 
     @Override
     public boolean beforeHandshake(
@@ -39,9 +36,8 @@ public class JwtHandshakeInterceptor implements HandshakeInterceptor {
         }
 
         try {
-            String username = jwtService.extractUsername(token);
-            UserDetails userDetails = userDetailsService.loadUserByUsername(username);
-            if (!jwtService.validateToken(token, userDetails)) {
+            String username = jwtService.verify(token).username();
+            if (username == null || username.isBlank()) {
                 log.warn("Rejecting websocket handshake due to invalid JWT (uri={})", request.getURI());
                 response.setStatusCode(HttpStatus.UNAUTHORIZED);
                 return false;
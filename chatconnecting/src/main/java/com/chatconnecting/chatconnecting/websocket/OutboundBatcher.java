@@ -0,0 +1,371 @@
+package com.chatconnecting.chatconnecting.websocket;
+
+import com.chatconnecting.chatconnecting.concurrency.ExecutionMode;
+import jakarta.annotation.PreDestroy;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.context.event.EventListener;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessageHandler;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.ExecutorChannelInterceptor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.messaging.support.MessageHeaderAccessor;
+import org.springframework.stereotype.Component;
+import org.springframework.util.MimeType;
+import org.springframework.util.MimeTypeUtils;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+import org.springframework.web.socket.messaging.SessionSubscribeEvent;
+import org.springframework.web.socket.messaging.SessionUnsubscribeEvent;
+import tools.jackson.databind.ObjectMapper;
+import tools.jackson.databind.json.JsonMapper;
+
+/**
+ * Opt-in outbound batching. A session that subscribes to {@value #BATCH_DESTINATION} (optionally
+ * with a {@value #WINDOW_HEADER} header) has its JSON MESSAGE frames collected for the flush window
+ * and delivered as one frame on that subscription, whose body is an array of
+ * {@code {"destination", "subscription", "body"}} entries in send order, where destination is the
+ * one the client subscribed to (e.g. {@code /user/queue/messages}). Frames pass the
+ * {@link OutboundFlowControl} priority rules as they are collected, and a batch is flushed early
+ * once it reaches the frame or byte cap. Sessions that never subscribe are unaffected.
+ * <p>
+ * Flushes happen on the scheduler or on whichever thread fills a batch, outside the broker's
+ * ordered publishing, so every outbound frame of a batching session goes through a per-session
+ * outbox instead: the outbox hands one frame at a time to the channel and sends the next only
+ * after the previous one has been handled, keeping STOMP order on a multi-threaded executor.
+ */
+@Component
+public class OutboundBatcher implements ExecutorChannelInterceptor {
+
+    public static final String BATCH_DESTINATION = "/user/queue/batch";
+    public static final String WINDOW_HEADER = "batch-window-ms";
+
+    private static final Logger log = LoggerFactory.getLogger(OutboundBatcher.class);
+    private static final ObjectMapper OBJECT_MAPPER = JsonMapper.builder().build();
+    private static final String OUTBOX_TASK_HEADER = "chatconnect.outboxTask";
+
+    private final MessageChannel clientOutboundChannel;
+    private final OutboundFlowControl outboundFlowControl;
+    private final long defaultWindowMs;
+    private final long maxWindowMs;
+    private final int maxFrames;
+    private final int maxBytes;
+    private final ScheduledExecutorService scheduler;
+    private final Map<String, SessionBatch> batches = new ConcurrentHashMap<>();
+    private final Map<String, SessionOutbox> outboxes = new ConcurrentHashMap<>();
+    private final AtomicLong batchesSent = new AtomicLong();
+    private final AtomicLong framesBatched = new AtomicLong();
+
+    public OutboundBatcher(
+            @Lazy @Qualifier("clientOutboundChannel") MessageChannel clientOutboundChannel,
+            OutboundFlowControl outboundFlowControl,
+            ExecutionMode executionMode,
+            @Value("${app.ws.batching.window-ms:15}") long defaultWindowMs,
+            @Value("${app.ws.batching.max-window-ms:200}") long maxWindowMs,
+            @Value("${app.ws.batching.max-frames:50}") int maxFrames,
+            @Value("${app.ws.batching.max-bytes:65536}") int maxBytes
+    ) {
+        this.clientOutboundChannel = clientOutboundChannel;
+        this.outboundFlowControl = outboundFlowControl;
+        this.maxWindowMs = Math.max(maxWindowMs, 1L);
+        this.defaultWindowMs = Math.min(Math.max(defaultWindowMs, 1L), this.maxWindowMs);
+        this.maxFrames = Math.max(maxFrames, 1);
+        this.maxBytes = Math.max(maxBytes, 1);
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(executionMode.threadFactory("ws-batch-flush-"));
+    }
+
+    @EventListener
+    public void onSubscribe(SessionSubscribeEvent event) {
+        StompHeaderAccessor accessor = StompHeaderAccessor.wrap(event.getMessage());
+        if (!BATCH_DESTINATION.equals(accessor.getDestination()) || accessor.getSessionId() == null) {
+            return;
+        }
+        long windowMs = parseWindow(accessor.getFirstNativeHeader(WINDOW_HEADER));
+        outboxes.computeIfAbsent(accessor.getSessionId(), SessionOutbox::new);
+        batches.put(accessor.getSessionId(), new SessionBatch(accessor.getSessionId(), accessor.getSubscriptionId(), windowMs));
+        log.debug("Session {} opted into outbound batching, windowMs={}", accessor.getSessionId(), windowMs);
+    }
+
+    @EventListener
+    public void onUnsubscribe(SessionUnsubscribeEvent event) {
+        StompHeaderAccessor accessor = StompHeaderAccessor.wrap(event.getMessage());
+        SessionBatch batch = accessor.getSessionId() == null ? null : batches.get(accessor.getSessionId());
+        if (batch != null && batch.subscriptionId.equals(accessor.getSubscriptionId())) {
+            batches.remove(batch.sessionId);
+            flush(batch);
+        }
+    }
+
+    @EventListener
+    public void onDisconnect(SessionDisconnectEvent event) {
+        batches.remove(event.getSessionId());
+        SessionOutbox outbox = outboxes.remove(event.getSessionId());
+        if (outbox != null) {
+            outbox.clear();
+        }
+    }
+
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        if (message.getHeaders().containsKey(OUTBOX_TASK_HEADER)) {
+            return message;
+        }
+        String sessionId = SimpMessageHeaderAccessor.getSessionId(message.getHeaders());
+        SessionOutbox outbox = sessionId == null ? null : outboxes.get(sessionId);
+        if (outbox == null) {
+            return message;
+        }
+        SessionBatch batch = batches.get(sessionId);
+        if (batch != null && SimpMessageHeaderAccessor.getMessageType(message.getHeaders()) == SimpMessageType.MESSAGE
+                && isBatchable(message)) {
+            Message<?> admitted = outboundFlowControl.admit(message);
+            if (admitted != null) {
+                batch.add(admitted);
+            }
+            return null;
+        }
+        if (batch != null) {
+            // Keep order: whatever is already collected goes out ahead of this frame.
+            flush(batch);
+        }
+        outbox.enqueue(message);
+        return null;
+    }
+
+    @Override
+    public void afterMessageHandled(Message<?> message, MessageChannel channel, MessageHandler handler, Exception ex) {
+        if (message.getHeaders().get(OUTBOX_TASK_HEADER) instanceof Runnable next) {
+            next.run();
+        }
+    }
+
+    public int batchingSessions() {
+        return batches.size();
+    }
+
+    public long batchesSent() {
+        return batchesSent.get();
+    }
+
+    public long framesBatched() {
+        return framesBatched.get();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+
+    private long parseWindow(String requested) {
+        if (requested == null || requested.isBlank()) {
+            return defaultWindowMs;
+        }
+        try {
+            return Math.min(Math.max(Long.parseLong(requested.trim()), 1L), maxWindowMs);
+        } catch (NumberFormatException ex) {
+            return defaultWindowMs;
+        }
+    }
+
+    private boolean isBatchable(Message<?> message) {
+        if (!(message.getPayload() instanceof byte[])
+                || SimpMessageHeaderAccessor.getSubscriptionId(message.getHeaders()) == null) {
+            return false;
+        }
+        Object contentType = message.getHeaders().get(MessageHeaders.CONTENT_TYPE);
+        if (contentType == null) {
+            return true;
+        }
+        MimeType mimeType = contentType instanceof MimeType type ? type : MimeTypeUtils.parseMimeType(contentType.toString());
+        return MimeTypeUtils.APPLICATION_JSON.isCompatibleWith(mimeType);
+    }
+
+    private void flush(SessionBatch batch) {
+        SessionOutbox outbox = outboxes.get(batch.sessionId);
+        boolean start;
+        // Draining and queueing together keeps concurrent flushes of one batch in drain order.
+        synchronized (batch) {
+            List<Message<?>> frames = batch.drain();
+            if (frames.isEmpty() || outbox == null) {
+                return;
+            }
+            start = outbox.offer(frames.size() == 1 ? frames.get(0) : toBatchMessage(batch, frames));
+            batchesSent.incrementAndGet();
+            framesBatched.addAndGet(frames.size());
+        }
+        if (start) {
+            outbox.sendNext();
+        }
+    }
+
+    private Message<byte[]> toBatchMessage(SessionBatch batch, List<Message<?>> frames) {
+        int size = 2;
+        for (Message<?> frame : frames) {
+            size += ((byte[]) frame.getPayload()).length + 96;
+        }
+        ByteArrayOutputStream body = new ByteArrayOutputStream(size);
+        body.write('[');
+        for (int i = 0; i < frames.size(); i++) {
+            Message<?> frame = frames.get(i);
+            if (i > 0) {
+                body.write(',');
+            }
+            body.writeBytes(ascii("{\"destination\":"));
+            body.writeBytes(jsonString(OutboundFlowControl.clientDestination(frame.getHeaders())));
+            body.writeBytes(ascii(",\"subscription\":"));
+            body.writeBytes(jsonString(SimpMessageHeaderAccessor.getSubscriptionId(frame.getHeaders())));
+            body.writeBytes(ascii(",\"body\":"));
+            byte[] payload = (byte[]) frame.getPayload();
+            body.writeBytes(payload.length == 0 ? ascii("null") : payload);
+            body.write('}');
+        }
+        body.write(']');
+
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        accessor.setSessionId(batch.sessionId);
+        accessor.setSubscriptionId(batch.subscriptionId);
+        accessor.setDestination(BATCH_DESTINATION);
+        accessor.setContentType(MimeTypeUtils.APPLICATION_JSON);
+        return MessageBuilder.createMessage(body.toByteArray(), accessor.getMessageHeaders());
+    }
+
+    private static byte[] jsonString(String value) {
+        return OBJECT_MAPPER.writeValueAsBytes(value);
+    }
+
+    private static byte[] ascii(String value) {
+        return value.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * Sends a session's frames one at a time: the next frame goes to the channel once the previous
+     * one has been handled (or was rejected before reaching a handler).
+     */
+    private final class SessionOutbox {
+
+        private final String sessionId;
+        private final Queue<Message<?>> queue = new ArrayDeque<>();
+        private boolean sending;
+
+        private SessionOutbox(String sessionId) {
+            this.sessionId = sessionId;
+        }
+
+        private void enqueue(Message<?> message) {
+            if (offer(message)) {
+                sendNext();
+            }
+        }
+
+        /**
+         * Queues the frame; returns {@code true} if the caller has to start sending.
+         */
+        private synchronized boolean offer(Message<?> message) {
+            queue.add(message);
+            if (sending) {
+                return false;
+            }
+            sending = true;
+            return true;
+        }
+
+        private void sendNext() {
+            while (true) {
+                Message<?> next;
+                synchronized (this) {
+                    next = queue.poll();
+                    if (next == null) {
+                        sending = false;
+                        return;
+                    }
+                }
+                if (send(next)) {
+                    return;
+                }
+            }
+        }
+
+        /**
+         * Returns {@code true} if a handler will pick the frame up and continue the outbox afterwards.
+         */
+        private boolean send(Message<?> message) {
+            AtomicBoolean continued = new AtomicBoolean();
+            Runnable continuation = () -> {
+                if (continued.compareAndSet(false, true)) {
+                    sendNext();
+                }
+            };
+            MessageHeaderAccessor accessor = MessageHeaderAccessor.getMutableAccessor(message);
+            accessor.setHeader(OUTBOX_TASK_HEADER, continuation);
+            try {
+                if (clientOutboundChannel.send(MessageBuilder.createMessage(message.getPayload(), accessor.getMessageHeaders()))) {
+                    return true;
+                }
+            } catch (Exception ex) {
+                log.warn("Failed to send outbound frame for session {}: {}", sessionId, ex.getMessage());
+            }
+            return !continued.compareAndSet(false, true);
+        }
+
+        private synchronized void clear() {
+            queue.clear();
+        }
+    }
+
+    private final class SessionBatch {
+
+        private final String sessionId;
+        private final String subscriptionId;
+        private final long windowMs;
+        private List<Message<?>> frames = new ArrayList<>();
+        private int bytes;
+
+        private SessionBatch(String sessionId, String subscriptionId, long windowMs) {
+            this.sessionId = sessionId;
+            this.subscriptionId = subscriptionId;
+            this.windowMs = windowMs;
+        }
+
+        private void add(Message<?> frame) {
+            boolean full;
+            synchronized (this) {
+                if (frames.isEmpty()) {
+                    scheduler.schedule(() -> flush(this), windowMs, TimeUnit.MILLISECONDS);
+                }
+                frames.add(frame);
+                bytes += ((byte[]) frame.getPayload()).length;
+                full = frames.size() >= maxFrames || bytes >= maxBytes;
+            }
+            if (full) {
+                flush(this);
+            }
+        }
+
+        private synchronized List<Message<?>> drain() {
+            List<Message<?>> drained = frames;
+            frames = new ArrayList<>();
+            bytes = 0;
+            return drained;
+        }
+    }
+}
@@ -0,0 +1,372 @@
+package com.chatconnecting.chatconnecting.websocket;
+
+import com.chatconnecting.chatconnecting.websocket.dto.OutboundFlowStats;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.NativeMessageHeaderAccessor;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.BinaryMessage;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.WebSocketHandlerDecorator;
+import org.springframework.web.socket.handler.WebSocketHandlerDecoratorFactory;
+import org.springframework.web.socket.handler.WebSocketSessionDecorator;
+import org.springframework.web.socket.sockjs.transport.session.AbstractHttpSockJsSession;
+import tools.jackson.core.JacksonException;
+import tools.jackson.databind.JsonNode;
+import tools.jackson.databind.ObjectMapper;
+import tools.jackson.databind.json.JsonMapper;
+
+/**
+ * Per-session outbound flow control. Every MESSAGE frame handed to the client outbound channel is
+ * counted against its session until the transport has written it; once a session has more than
+ * {@code app.ws.outbound.soft-buffer-bytes} pending, or a write (or a SockJS poll) has been
+ * outstanding for longer than {@code app.ws.outbound.soft-time-ms}, the session is congested and
+ * frames are shed by {@link OutboundPriority}: typing and presence are dropped, status updates are
+ * parked and coalesced to the latest value per message or reader, and everything else is sent.
+ * Parked frames are flushed once the session drains below half the soft limit. Sessions that
+ * still exceed the hard send limits configured on the transport are closed by Spring and resync on
+ * reconnect.
+ */
+@Component
+public class OutboundFlowControl implements ChannelInterceptor, WebSocketHandlerDecoratorFactory {
+
+    private static final Logger log = LoggerFactory.getLogger(OutboundFlowControl.class);
+    private static final ObjectMapper OBJECT_MAPPER = JsonMapper.builder().build();
+    private static final byte[] STOMP_MESSAGE_COMMAND = "MESSAGE\n".getBytes(StandardCharsets.US_ASCII);
+
+    private final MessageChannel clientOutboundChannel;
+    private final long softBufferBytes;
+    private final long softTimeMs;
+    private final int maxParkedPerSession;
+    private final Map<String, SessionFlow> sessions = new ConcurrentHashMap<>();
+    private final AtomicLong droppedFrames = new AtomicLong();
+    private final AtomicLong coalescedFrames = new AtomicLong();
+    private final AtomicLong terminatedSessions = new AtomicLong();
+    private final AtomicLong parkSequence = new AtomicLong();
+
+    public OutboundFlowControl(
+            @Lazy @Qualifier("clientOutboundChannel") MessageChannel clientOutboundChannel,
+            @Value("${app.ws.outbound.soft-buffer-bytes:131072}") long softBufferBytes,
+            @Value("${app.ws.outbound.soft-time-ms:2000}") long softTimeMs,
+            @Value("${app.ws.outbound.max-parked:500}") int maxParkedPerSession
+    ) {
+        this.clientOutboundChannel = clientOutboundChannel;
+        this.softBufferBytes = Math.max(softBufferBytes, 1L);
+        this.softTimeMs = Math.max(softTimeMs, 1L);
+        this.maxParkedPerSession = Math.max(maxParkedPerSession, 1);
+    }
+
+    @Override
+    public WebSocketHandler decorate(WebSocketHandler handler) {
+        return new FlowControlHandler(handler);
+    }
+
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        if (SimpMessageHeaderAccessor.getMessageType(message.getHeaders()) != SimpMessageType.MESSAGE) {
+            return message;
+        }
+        SessionFlow flow = sessions.get(SimpMessageHeaderAccessor.getSessionId(message.getHeaders()));
+        if (flow == null) {
+            return message;
+        }
+        if (admit(flow, message) == null) {
+            return null;
+        }
+        flow.enqueued(payloadSize(message.getPayload()));
+        return message;
+    }
+
+    /**
+     * Apply the priority rules to a MESSAGE frame without counting it as pending. Returns
+     * {@code null} if the frame was dropped or parked.
+     */
+    public Message<?> admit(Message<?> message) {
+        SessionFlow flow = sessions.get(SimpMessageHeaderAccessor.getSessionId(message.getHeaders()));
+        return flow == null ? message : admit(flow, message);
+    }
+
+    private Message<?> admit(SessionFlow flow, Message<?> message) {
+        String destination = clientDestination(message.getHeaders());
+        OutboundPriority priority = OutboundPriority.of(destination);
+        if (priority != OutboundPriority.RELIABLE) {
+            long now = System.currentTimeMillis();
+            boolean congested = flow.congested(now);
+            if (priority == OutboundPriority.DROPPABLE && congested) {
+                flow.dropped.incrementAndGet();
+                droppedFrames.incrementAndGet();
+                return null;
+            }
+            // Once anything is parked, newer status frames queue behind it so the latest value wins.
+            if (priority == OutboundPriority.COALESCIBLE && (congested || flow.hasParked())) {
+                flow.park(coalesceKey(destination, message.getPayload()), message);
+                if (!congested) {
+                    flushParked(flow);
+                }
+                return null;
+            }
+        }
+        return message;
+    }
+
+    public OutboundFlowStats stats() {
+        long now = System.currentTimeMillis();
+        int congested = 0;
+        long pendingBytes = 0;
+        long parked = 0;
+        for (SessionFlow flow : sessions.values()) {
+            if (flow.congested(now)) {
+                congested++;
+            }
+            pendingBytes += flow.pendingBytes.get();
+            parked += flow.parkedCount();
+        }
+        return OutboundFlowStats.builder()
+                .sessions(sessions.size())
+                .congestedSessions(congested)
+                .pendingBytes(pendingBytes)
+                .droppedFrames(droppedFrames.get())
+                .coalescedFrames(coalescedFrames.get())
+                .parkedFrames(parked)
+                .terminatedSessions(terminatedSessions.get())
+                .build();
+    }
+
+    /**
+     * The destination the client subscribed to. User destinations reach this channel already
+     * resolved to the broker's session-suffixed queue, with the client-facing one kept in the
+     * {@link SimpMessageHeaderAccessor#ORIGINAL_DESTINATION} native header.
+     */
+    static String clientDestination(MessageHeaders headers) {
+        String original = NativeMessageHeaderAccessor.getFirstNativeHeader(SimpMessageHeaderAccessor.ORIGINAL_DESTINATION, headers);
+        return original != null ? original : SimpMessageHeaderAccessor.getDestination(headers);
+    }
+
+    private void flushParked(SessionFlow flow) {
+        for (Message<?> parked : flow.drainParked()) {
+            clientOutboundChannel.send(parked);
+        }
+    }
+
+    private String coalesceKey(String destination, Object payload) {
+        if (payload instanceof byte[] bytes) {
+            try {
+                JsonNode node = OBJECT_MAPPER.readTree(bytes);
+                if (node.hasNonNull("chatRoomId") && node.hasNonNull("readerId")) {
+                    return destination + "|" + node.get("chatRoomId").asString() + ":" + node.get("readerId").asString();
+                }
+                if (node.hasNonNull("id")) {
+                    return destination + "|" + node.get("id").asString();
+                }
+            } catch (JacksonException ex) {
+                log.debug("Outbound status payload is not JSON, parking without coalescing");
+            }
+        }
+        return destination + "#" + parkSequence.incrementAndGet();
+    }
+
+    private static int payloadSize(Object payload) {
+        if (payload instanceof byte[] bytes) {
+            return bytes.length;
+        }
+        return payload instanceof String text ? text.length() : 0;
+    }
+
+    private static boolean isStompMessageFrame(WebSocketMessage<?> message) {
+        if (message instanceof TextMessage text) {
+            return text.getPayload().startsWith("MESSAGE\n");
+        }
+        if (message instanceof BinaryMessage binary) {
+            ByteBuffer buffer = binary.getPayload();
+            if (buffer.remaining() < STOMP_MESSAGE_COMMAND.length) {
+                return false;
+            }
+            for (int i = 0; i < STOMP_MESSAGE_COMMAND.length; i++) {
+                if (buffer.get(buffer.position() + i) != STOMP_MESSAGE_COMMAND[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        return false;
+    }
+
+    private final class FlowControlHandler extends WebSocketHandlerDecorator {
+
+        private FlowControlHandler(WebSocketHandler delegate) {
+            super(delegate);
+        }
+
+        @Override
+        public void afterConnectionEstablished(WebSocketSession session) throws Exception {
+            SessionFlow flow = new SessionFlow(session.getId(), session instanceof AbstractHttpSockJsSession httpSession
+                    ? httpSession
+                    : null);
+            sessions.put(session.getId(), flow);
+            super.afterConnectionEstablished(new MeteredSession(session, flow));
+        }
+
+        @Override
+        public void afterConnectionClosed(WebSocketSession session, CloseStatus closeStatus) throws Exception {
+            SessionFlow flow = sessions.remove(session.getId());
+            if (CloseStatus.SESSION_NOT_RELIABLE.equalsCode(closeStatus) && flow != null) {
+                terminatedSessions.incrementAndGet();
+                log.warn("Closed slow WebSocket session {}: pendingBytes={}, dropped={}, coalesced={}",
+                        session.getId(), flow.pendingBytes.get(), flow.dropped.get(), flow.coalesced.get());
+            }
+            super.afterConnectionClosed(session, closeStatus);
+        }
+    }
+
+    private final class MeteredSession extends WebSocketSessionDecorator {
+
+        private final SessionFlow flow;
+
+        private MeteredSession(WebSocketSession delegate, SessionFlow flow) {
+            super(delegate);
+            this.flow = flow;
+        }
+
+        @Override
+        public void sendMessage(WebSocketMessage<?> message) throws IOException {
+            if (!isStompMessageFrame(message)) {
+                super.sendMessage(message);
+                return;
+            }
+            flow.writeStartedAt = System.currentTimeMillis();
+            try {
+                super.sendMessage(message);
+            } finally {
+                flow.written();
+                if (flow.hasParked() && !flow.congested(System.currentTimeMillis())) {
+                    flushParked(flow);
+                }
+            }
+        }
+    }
+
+    private final class SessionFlow {
+
+        private final String sessionId;
+        private final AbstractHttpSockJsSession httpSession;
+        private final ConcurrentLinkedQueue<Integer> inFlightSizes = new ConcurrentLinkedQueue<>();
+        private final AtomicLong pendingBytes = new AtomicLong();
+        private final AtomicLong dropped = new AtomicLong();
+        private final AtomicLong coalesced = new AtomicLong();
+        private final LinkedHashMap<String, Message<?>> parked = new LinkedHashMap<>();
+        private volatile long writeStartedAt;
+        private volatile long pollPendingSince;
+        private volatile boolean congested;
+
+        private SessionFlow(String sessionId, AbstractHttpSockJsSession httpSession) {
+            this.sessionId = sessionId;
+            this.httpSession = httpSession;
+        }
+
+        private void enqueued(int size) {
+            inFlightSizes.add(size);
+            pendingBytes.addAndGet(size);
+        }
+
+        private void written() {
+            writeStartedAt = 0L;
+            Integer size = inFlightSizes.poll();
+            if (size != null) {
+                pendingBytes.addAndGet(-size);
+            }
+            // Polling SockJS transports cache frames until the client's next request.
+            if (httpSession == null) {
+                return;
+            }
+            if (httpSession.isActive()) {
+                pollPendingSince = 0L;
+            } else if (pollPendingSince == 0L) {
+                pollPendingSince = System.currentTimeMillis();
+            }
+        }
+
+        /**
+         * Enters congestion above the soft limits and leaves it only once pending bytes fall below
+         * half the soft buffer, so a session hovering at the limit does not flap.
+         */
+        private boolean congested(long now) {
+            if (httpSession != null && httpSession.isActive()) {
+                pollPendingSince = 0L;
+            }
+            long started = writeStartedAt;
+            long pollSince = pollPendingSince;
+            long bytes = pendingBytes.get();
+            boolean stalled = (started != 0L && now - started > softTimeMs)
+                    || (pollSince != 0L && now - pollSince > softTimeMs);
+            if (bytes > softBufferBytes || stalled) {
+                if (!congested) {
+                    congested = true;
+                    log.info("WebSocket session {} congested (pendingBytes={}, stalled={}); shedding low-priority frames",
+                            sessionId, bytes, stalled);
+                }
+                return true;
+            }
+            if (congested && bytes > softBufferBytes / 2) {
+                return true;
+            }
+            if (congested) {
+                congested = false;
+                log.info("WebSocket session {} recovered", sessionId);
+            }
+            return false;
+        }
+
+        private synchronized void park(String key, Message<?> message) {
+            if (parked.put(key, message) != null) {
+                coalesced.incrementAndGet();
+                coalescedFrames.incrementAndGet();
+                return;
+            }
+            if (parked.size() > maxParkedPerSession) {
+                Iterator<String> eldest = parked.keySet().iterator();
+                eldest.next();
+                eldest.remove();
+                dropped.incrementAndGet();
+                droppedFrames.incrementAndGet();
+            }
+        }
+
+        private synchronized boolean hasParked() {
+            return !parked.isEmpty();
+        }
+
+        private synchronized int parkedCount() {
+            return parked.size();
+        }
+
+        private synchronized List<Message<?>> drainParked() {
+            List<Message<?>> drained = new ArrayList<>(parked.values());
+            parked.clear();
+            return drained;
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package com.chatconnecting.chatconnecting.websocket;
+
+/**
+ * How an outbound frame may be treated when its session cannot keep up.
+ */
+public enum OutboundPriority {
+    /** Typing and presence: the next update supersedes it, so it can be dropped. */
+    DROPPABLE,
+    /** Delivery/seen status and read receipts: only the latest value per key matters. */
+    COALESCIBLE,
+    /** Chat messages, call signaling, room events and errors: never dropped. */
+    RELIABLE;
+
+    /**
+     * Classifies by the client-facing destination, e.g. {@code /user/queue/typing}, not the
+     * broker's resolved per-session queue.
+     */
+    public static OutboundPriority of(String destination) {
+        if (destination == null) {
+            return RELIABLE;
+        }
+        if (destination.endsWith("/queue/typing") || destination.endsWith("/queue/presence")) {
+            return DROPPABLE;
+        }
+        if (destination.endsWith("/queue/status") || destination.endsWith("/queue/read-receipts")) {
+            return COALESCIBLE;
+        }
+        return RELIABLE;
+    }
+}
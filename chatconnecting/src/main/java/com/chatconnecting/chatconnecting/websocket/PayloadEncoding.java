@@ -0,0 +1,48 @@
+package com.chatconnecting.chatconnecting.websocket;
+
+import java.util.Locale;
+import org.springframework.util.MimeType;
+import org.springframework.util.MimeTypeUtils;
+
+/**
+ * STOMP payload encodings a client can ask for with the {@value #CONNECT_HEADER} CONNECT header.
+ */
+public enum PayloadEncoding {
+    JSON(MimeTypeUtils.APPLICATION_JSON),
+    CBOR(new MimeType("application", "cbor")),
+    SMILE(new MimeType("application", "x-jackson-smile"));
+
+    public static final String CONNECT_HEADER = "payload-encoding";
+
+    private final MimeType mimeType;
+
+    PayloadEncoding(MimeType mimeType) {
+        this.mimeType = mimeType;
+    }
+
+    public MimeType mimeType() {
+        return mimeType;
+    }
+
+    public boolean isBinary() {
+        return this != JSON;
+    }
+
+    /**
+     * Accepts the encoding name ({@code cbor}) or its MIME type ({@code application/cbor}); anything
+     * unknown or missing means JSON.
+     */
+    public static PayloadEncoding fromHeader(String value) {
+        if (value == null || value.isBlank()) {
+            return JSON;
+        }
+        String requested = value.trim().toLowerCase(Locale.ROOT);
+        for (PayloadEncoding encoding : values()) {
+            if (encoding.name().toLowerCase(Locale.ROOT).equals(requested)
+                    || encoding.mimeType.toString().equals(requested)) {
+                return encoding;
+            }
+        }
+        return JSON;
+    }
+}
@@ -0,0 +1,149 @@
+package com.chatconnecting.chatconnecting.websocket;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.event.EventListener;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.stereotype.Component;
+import org.springframework.util.MimeType;
+import org.springframework.util.MimeTypeUtils;
+import org.springframework.web.socket.BinaryMessage;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.WebSocketHandlerDecorator;
+import org.springframework.web.socket.handler.WebSocketHandlerDecoratorFactory;
+import org.springframework.web.socket.handler.WebSocketSessionDecorator;
+import org.springframework.web.socket.messaging.SessionConnectEvent;
+import org.springframework.web.socket.sockjs.transport.SockJsSession;
+
+/**
+ * Per-session payload encoding. A client sends {@code payload-encoding: cbor} (or {@code smile})
+ * on CONNECT and from then on receives MESSAGE bodies in that encoding, with a matching
+ * {@code content-type}, as binary WebSocket frames. SockJS only carries text frames, so SockJS
+ * sessions that ask for a binary encoding keep receiving JSON; clients can tell from the
+ * {@code content-type} of each MESSAGE. Inbound SEND frames are decoded by content type through
+ * {@link BinaryPayloadMessageConverter}, independent of what was negotiated.
+ */
+@Component
+public class PayloadEncodingNegotiator implements ChannelInterceptor, WebSocketHandlerDecoratorFactory {
+
+    private static final Logger log = LoggerFactory.getLogger(PayloadEncodingNegotiator.class);
+
+    private final PayloadTranscoder payloadTranscoder;
+    private final Map<String, Boolean> binaryCapable = new ConcurrentHashMap<>();
+    private final Map<String, PayloadEncoding> encodings = new ConcurrentHashMap<>();
+
+    public PayloadEncodingNegotiator(PayloadTranscoder payloadTranscoder) {
+        this.payloadTranscoder = payloadTranscoder;
+    }
+
+    @Override
+    public WebSocketHandler decorate(WebSocketHandler handler) {
+        return new EncodingHandler(handler);
+    }
+
+    @EventListener
+    public void onSessionConnect(SessionConnectEvent event) {
+        StompHeaderAccessor accessor = StompHeaderAccessor.wrap(event.getMessage());
+        String sessionId = accessor.getSessionId();
+        PayloadEncoding requested = PayloadEncoding.fromHeader(accessor.getFirstNativeHeader(PayloadEncoding.CONNECT_HEADER));
+        if (sessionId == null || !requested.isBinary()) {
+            return;
+        }
+        if (!binaryCapable.getOrDefault(sessionId, false)) {
+            log.debug("Session {} asked for {} over a text-only transport; keeping JSON", sessionId, requested);
+            return;
+        }
+        encodings.put(sessionId, requested);
+        log.debug("Session {} negotiated {} payloads", sessionId, requested);
+    }
+
+    public PayloadEncoding encodingOf(String sessionId) {
+        return sessionId == null ? PayloadEncoding.JSON : encodings.getOrDefault(sessionId, PayloadEncoding.JSON);
+    }
+
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        if (encodings.isEmpty() || SimpMessageHeaderAccessor.getMessageType(message.getHeaders()) != SimpMessageType.MESSAGE
+                || !(message.getPayload() instanceof byte[] json) || json.length == 0) {
+            return message;
+        }
+        PayloadEncoding encoding = encodingOf(SimpMessageHeaderAccessor.getSessionId(message.getHeaders()));
+        if (!encoding.isBinary() || !isJson(message.getHeaders())) {
+            return message;
+        }
+        byte[] encoded;
+        try {
+            encoded = payloadTranscoder.encode(json, encoding);
+        } catch (RuntimeException ex) {
+            log.debug("Sending JSON, payload could not be re-encoded as {}: {}", encoding, ex.getMessage());
+            return message;
+        }
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.wrap(message);
+        accessor.setContentType(encoding.mimeType());
+        return MessageBuilder.createMessage(encoded, accessor.getMessageHeaders());
+    }
+
+    private static boolean isJson(MessageHeaders headers) {
+        Object contentType = headers.get(MessageHeaders.CONTENT_TYPE);
+        if (contentType == null) {
+            return true;
+        }
+        MimeType mimeType = contentType instanceof MimeType type ? type : MimeTypeUtils.parseMimeType(contentType.toString());
+        return MimeTypeUtils.APPLICATION_JSON.isCompatibleWith(mimeType);
+    }
+
+    private final class EncodingHandler extends WebSocketHandlerDecorator {
+
+        private EncodingHandler(WebSocketHandler delegate) {
+            super(delegate);
+        }
+
+        @Override
+        public void afterConnectionEstablished(WebSocketSession session) throws Exception {
+            boolean binary = !(WebSocketSessionDecorator.unwrap(session) instanceof SockJsSession);
+            binaryCapable.put(session.getId(), binary);
+            super.afterConnectionEstablished(binary ? new BinaryFrameSession(session) : session);
+        }
+
+        @Override
+        public void afterConnectionClosed(WebSocketSession session, CloseStatus closeStatus) throws Exception {
+            binaryCapable.remove(session.getId());
+            encodings.remove(session.getId());
+            super.afterConnectionClosed(session, closeStatus);
+        }
+    }
+
+    /**
+     * STOMP frames are written as text unless their content type is octet-stream; once a binary
+     * encoding is negotiated they must go out as binary frames so the body bytes survive.
+     */
+    private final class BinaryFrameSession extends WebSocketSessionDecorator {
+
+        private BinaryFrameSession(WebSocketSession delegate) {
+            super(delegate);
+        }
+
+        @Override
+        public void sendMessage(WebSocketMessage<?> message) throws IOException {
+            if (message instanceof TextMessage text && encodings.containsKey(getId()) && text.getPayloadLength() > 1) {
+                super.sendMessage(new BinaryMessage(text.asBytes(), text.isLast()));
+                return;
+            }
+            super.sendMessage(message);
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package com.chatconnecting.chatconnecting.websocket;
+
+import com.chatconnecting.chatconnecting.message.StoredMessageContent;
+import java.io.ByteArrayOutputStream;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.springframework.stereotype.Component;
+import tools.jackson.core.JsonGenerator;
+import tools.jackson.core.JsonParser;
+import tools.jackson.core.JsonToken;
+import tools.jackson.databind.JsonNode;
+import tools.jackson.databind.ObjectMapper;
+import tools.jackson.databind.json.JsonMapper;
+import tools.jackson.dataformat.cbor.CBORMapper;
+import tools.jackson.dataformat.smile.SmileMapper;
+
+/**
+ * Re-encodes the JSON payloads produced by the STOMP message converter into CBOR or Smile for
+ * sessions that negotiated a binary encoding. The JSON is streamed token by token into the binary
+ * generator, without building a tree. {@code content} strings carrying the
+ * {@link StoredMessageContent#META_PREFIX} envelope are sent as the nested object instead of a
+ * string of escaped JSON. The broker hands the same payload array to every subscriber, so recent
+ * results are kept per payload array (arrays compare by identity) and reused for the rest of a
+ * fan-out.
+ */
+@Component
+public class PayloadTranscoder {
+
+    private static final String CONTENT_FIELD = "content";
+    private static final int RECENT_PAYLOADS = 64;
+
+    private final ObjectMapper jsonMapper = JsonMapper.builder().build();
+    private final Map<PayloadEncoding, ObjectMapper> binaryMappers = Map.of(
+            PayloadEncoding.CBOR, CBORMapper.builder().build(),
+            PayloadEncoding.SMILE, SmileMapper.builder().build()
+    );
+    private final Map<byte[], Encoded> recent = new LinkedHashMap<>(RECENT_PAYLOADS * 2, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<byte[], Encoded> eldest) {
+            return size() > RECENT_PAYLOADS;
+        }
+    };
+
+    public byte[] encode(byte[] json, PayloadEncoding encoding) {
+        ObjectMapper mapper = binaryMappers.get(encoding);
+        if (mapper == null) {
+            return json;
+        }
+        Encoded encoded;
+        synchronized (recent) {
+            encoded = recent.computeIfAbsent(json, ignored -> new Encoded());
+        }
+        // Sessions of one fan-out wait for the first encoding instead of each doing their own.
+        synchronized (encoded) {
+            return encoded.bytes.computeIfAbsent(encoding, ignored -> transcode(json, mapper));
+        }
+    }
+
+    ObjectMapper mapperFor(PayloadEncoding encoding) {
+        return encoding.isBinary() ? binaryMappers.get(encoding) : jsonMapper;
+    }
+
+    private byte[] transcode(byte[] json, ObjectMapper mapper) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(json.length);
+        try (JsonParser parser = jsonMapper.createParser(json);
+             JsonGenerator generator = mapper.createGenerator(out)) {
+            JsonToken token;
+            while ((token = parser.nextToken()) != null) {
+                JsonNode meta = token == JsonToken.VALUE_STRING && CONTENT_FIELD.equals(parser.currentName())
+                        ? contentMeta(parser.getString())
+                        : null;
+                if (meta != null) {
+                    generator.writeTree(meta);
+                } else {
+                    generator.copyCurrentEvent(parser);
+                }
+            }
+        }
+        return out.toByteArray();
+    }
+
+    private JsonNode contentMeta(String content) {
+        if (!content.startsWith(StoredMessageContent.META_PREFIX)) {
+            return null;
+        }
+        try {
+            return jsonMapper.readTree(content.substring(StoredMessageContent.META_PREFIX.length()));
+        } catch (RuntimeException ignored) {
+            // Malformed envelope: leave the original string for the client to handle.
+            return null;
+        }
+    }
+
+    private static final class Encoded {
+
+        private final Map<PayloadEncoding, byte[]> bytes = new EnumMap<>(PayloadEncoding.class);
+    }
+}
@@ -0,0 +1,199 @@
+package com.chatconnecting.chatconnecting.websocket;
+
+import com.chatconnecting.chatconnecting.chat.ChatRoomRepository;
+import com.chatconnecting.chatconnecting.chat.ChatRoomRepository.EmailPairRow;
+import com.chatconnecting.chatconnecting.presence.PresenceService;
+import com.chatconnecting.chatconnecting.user.UserRepository;
+import com.chatconnecting.chatconnecting.user.UserRepository.UserIdentityRow;
+import com.chatconnecting.chatconnecting.websocket.dto.PresenceBatchEvent;
+import com.chatconnecting.chatconnecting.websocket.dto.PresenceEvent;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.simp.user.SimpUserRegistry;
+import org.springframework.stereotype.Component;
+
+/**
+ * Delivers presence changes only to users who share a room with the subject. Flips are coalesced
+ * per user and flushed as one {@link PresenceBatchEvent} per recipient every batch interval; an
+ * offline flip is held for a grace window so a session that reconnects in time is never
+ * announced as offline at all.
+ */
+@Component
+public class PresenceFanout implements PresenceService.Listener {
+
+    private static final Logger log = LoggerFactory.getLogger(PresenceFanout.class);
+    private static final String PRESENCE_DESTINATION = "/queue/presence";
+    private static final int QUERY_CHUNK_SIZE = 500;
+
+    private final PresenceService presenceService;
+    private final ChatRoomRepository chatRoomRepository;
+    private final UserRepository userRepository;
+    private final SimpUserRegistry simpUserRegistry;
+    private final StompEventPublisher stompEventPublisher;
+    private final long batchMs;
+    private final long offlineGraceNanos;
+    private final Map<String, PendingChange> pending = new ConcurrentHashMap<>();
+    private final Set<String> announcedOnline = ConcurrentHashMap.newKeySet();
+    private final ScheduledExecutorService ticker;
+
+    public PresenceFanout(
+            PresenceService presenceService,
+            ChatRoomRepository chatRoomRepository,
+            UserRepository userRepository,
+            SimpUserRegistry simpUserRegistry,
+            StompEventPublisher stompEventPublisher,
+            @Value("${app.presence.fanout.batch-ms:250}") long batchMs,
+            @Value("${app.presence.fanout.offline-grace-ms:5000}") long offlineGraceMs
+    ) {
+        this.presenceService = presenceService;
+        this.chatRoomRepository = chatRoomRepository;
+        this.userRepository = userRepository;
+        this.simpUserRegistry = simpUserRegistry;
+        this.stompEventPublisher = stompEventPublisher;
+        this.batchMs = Math.max(batchMs, 10L);
+        this.offlineGraceNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(offlineGraceMs, 0L));
+        this.ticker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "presence-fanout");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PostConstruct
+    void start() {
+        presenceService.addListener(this);
+        ticker.scheduleWithFixedDelay(this::flushSafely, batchMs, batchMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        ticker.shutdownNow();
+    }
+
+    @Override
+    public void onPresenceChange(String username, boolean online) {
+        // Only the latest flip per user matters; earlier ones in the same window are superseded.
+        pending.put(username, new PendingChange(online, System.nanoTime()));
+    }
+
+    private void flushSafely() {
+        try {
+            flush();
+        } catch (Exception ex) {
+            log.warn("Presence fan-out failed: {}", ex.getMessage(), ex);
+        }
+    }
+
+    private void flush() {
+        if (pending.isEmpty()) {
+            return;
+        }
+        long now = System.nanoTime();
+        Map<String, Boolean> due = new LinkedHashMap<>();
+        pending.forEach((username, change) -> {
+            if (change.online() == announcedOnline.contains(username)) {
+                // Flapped back to what watchers already know.
+                pending.remove(username, change);
+                return;
+            }
+            if (!change.online() && now - change.changedAtNanos() < offlineGraceNanos) {
+                return;
+            }
+            if (pending.remove(username, change)) {
+                due.put(username, change.online());
+            }
+        });
+        if (due.isEmpty()) {
+            return;
+        }
+
+        due.forEach((username, online) -> {
+            if (online) {
+                announcedOnline.add(username);
+            } else {
+                announcedOnline.remove(username);
+            }
+        });
+
+        List<String> subjects = new ArrayList<>(due.keySet());
+        Map<String, PresenceEvent> events = toEvents(subjects, due);
+        Map<String, Set<PresenceEvent>> batches = new HashMap<>();
+        for (int start = 0; start < subjects.size(); start += QUERY_CHUNK_SIZE) {
+            List<String> chunk = subjects.subList(start, Math.min(start + QUERY_CHUNK_SIZE, subjects.size()));
+            for (EmailPairRow row : chatRoomRepository.findDirectPeerEmails(chunk)) {
+                addToBatch(batches, events, row.getFirstEmail(), row.getSecondEmail());
+                addToBatch(batches, events, row.getSecondEmail(), row.getFirstEmail());
+            }
+            for (EmailPairRow row : chatRoomRepository.findGroupPeerEmails(chunk)) {
+                addToBatch(batches, events, row.getFirstEmail(), row.getSecondEmail());
+            }
+        }
+
+        batches.forEach((recipient, changes) -> stompEventPublisher.sendToUser(
+                recipient,
+                PRESENCE_DESTINATION,
+                PresenceBatchEvent.builder().changes(List.copyOf(changes)).build()
+        ));
+        log.debug("Fanned out {} presence changes to {} recipients", events.size(), batches.size());
+    }
+
+    private Map<String, PresenceEvent> toEvents(List<String> subjects, Map<String, Boolean> due) {
+        Map<String, PresenceEvent> events = new HashMap<>();
+        for (int start = 0; start < subjects.size(); start += QUERY_CHUNK_SIZE) {
+            List<String> chunk = subjects.subList(start, Math.min(start + QUERY_CHUNK_SIZE, subjects.size()));
+            for (UserIdentityRow user : userRepository.findIdentitiesByEmailIn(chunk)) {
+                boolean online = Boolean.TRUE.equals(due.get(user.getEmail()));
+                events.put(user.getEmail(), PresenceEvent.builder()
+                        .userId(user.getId())
+                        .email(user.getEmail())
+                        .online(online)
+                        .lastSeenAt(online ? null : lastSeenAt(user.getEmail()))
+                        .build());
+            }
+        }
+        return events;
+    }
+
+    private void addToBatch(
+            Map<String, Set<PresenceEvent>> batches,
+            Map<String, PresenceEvent> events,
+            String subject,
+            String recipient
+    ) {
+        PresenceEvent event = events.get(subject);
+        if (event == null || recipient == null || recipient.equals(subject)) {
+            return;
+        }
+        // Watchers connected to other nodes are served by those nodes' own fan-out.
+        if (simpUserRegistry.getUser(recipient) == null) {
+            return;
+        }
+        // A recipient sharing several rooms with the subject still gets the change once.
+        batches.computeIfAbsent(recipient, key -> new LinkedHashSet<>()).add(event);
+    }
+
+    private LocalDateTime lastSeenAt(String username) {
+        return presenceService.lastSeen(username)
+                .map(seenAt -> LocalDateTime.ofInstant(seenAt, ZoneId.systemDefault()))
+                .orElseGet(LocalDateTime::now);
+    }
+
+    private record PendingChange(boolean online, long changedAtNanos) {
+    }
+}
@@ -0,0 +1,213 @@
+package com.chatconnecting.chatconnecting.websocket;
+
+import com.chatconnecting.chatconnecting.concurrency.ExecutionMode;
+import jakarta.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.StringUtils;
+
+/**
+ * Outbound STOMP events raised inside a transaction are buffered and published only after the
+ * transaction commits, so the fan-out does not hold a database connection and rolled-back changes
+ * are never pushed to clients. Outside a transaction events are sent immediately.
+ * <p>
+ * Committed events are published on striped single-threaded lanes. Every event has an ordering
+ * key (the recipient for user destinations, the destination for topics) and events with the same
+ * key always use the same stripe, so each recipient sees events in commit order while different
+ * recipients are served in parallel. Stripe queues are bounded; a committing thread that finds its
+ * stripe full waits for room instead of publishing out of order.
+ */
+@Component
+public class StompEventPublisher {
+
+    private static final Logger log = LoggerFactory.getLogger(StompEventPublisher.class);
+
+    private final SimpMessagingTemplate messagingTemplate;
+    private final ThreadPoolExecutor[] stripes;
+    private final ThreadLocal<Boolean> onStripe = ThreadLocal.withInitial(() -> Boolean.FALSE);
+    private final AtomicLong backpressured = new AtomicLong();
+
+    public StompEventPublisher(
+            SimpMessagingTemplate messagingTemplate,
+            ExecutionMode executionMode,
+            @Value("${app.ws.broadcast.threads:4}") int threads,
+            @Value("${app.ws.broadcast.queue-capacity:10000}") int queueCapacity
+    ) {
+        this.messagingTemplate = messagingTemplate;
+        this.stripes = new ThreadPoolExecutor[Math.max(threads, 1)];
+        RejectedExecutionHandler waitForRoom = this::waitForRoom;
+        for (int i = 0; i < stripes.length; i++) {
+            stripes[i] = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                    new ArrayBlockingQueue<>(Math.max(queueCapacity, 1)),
+                    executionMode.threadFactory("stomp-broadcast-" + i + "-"),
+                    waitForRoom);
+        }
+    }
+
+    public void sendToUser(String user, String destination, Object payload) {
+        enqueue(user, () -> messagingTemplate.convertAndSendToUser(user, destination, payload));
+    }
+
+    /**
+     * Fan a shared payload out to many users. The payload is serialized once and the same
+     * {@code byte[]} message is handed to every user destination.
+     */
+    public void sendToUsers(Collection<String> users, String destination, Object payload) {
+        if (users.isEmpty()) {
+            return;
+        }
+        SharedPayload shared = new SharedPayload(payload);
+        for (String user : List.copyOf(users)) {
+            enqueue(user, () -> {
+                Message<?> message = shared.message();
+                if (message == null) {
+                    messagingTemplate.convertAndSendToUser(user, destination, payload);
+                } else {
+                    messagingTemplate.send(userDestination(user, destination), message);
+                }
+            });
+        }
+    }
+
+    public void send(String destination, Object payload) {
+        enqueue(destination, () -> messagingTemplate.convertAndSend(destination, payload));
+    }
+
+    /**
+     * Run a side effect (for example a push notification) only once the surrounding transaction
+     * has committed, ordered with the other events that share {@code orderingKey}.
+     */
+    public void afterCommit(Object orderingKey, Runnable task) {
+        enqueue(orderingKey, task);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        for (ThreadPoolExecutor stripe : stripes) {
+            stripe.shutdown();
+        }
+    }
+
+    private void enqueue(Object orderingKey, Runnable task) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            runSafely(task);
+            return;
+        }
+
+        PendingEvents pending = (PendingEvents) TransactionSynchronizationManager.getResource(this);
+        if (pending == null) {
+            pending = new PendingEvents();
+            TransactionSynchronizationManager.bindResource(this, pending);
+            TransactionSynchronizationManager.registerSynchronization(pending);
+        }
+        pending.tasks.computeIfAbsent(stripeOf(orderingKey), ignored -> new ArrayList<>()).add(task);
+    }
+
+    private int stripeOf(Object orderingKey) {
+        int hash = orderingKey == null ? 0 : orderingKey.hashCode();
+        hash ^= hash >>> 16;
+        return Math.floorMod(hash, stripes.length);
+    }
+
+    private void waitForRoom(Runnable publish, ThreadPoolExecutor stripe) {
+        if (stripe.isShutdown()) {
+            log.debug("Dropping outbound STOMP events during shutdown");
+            return;
+        }
+        if (onStripe.get()) {
+            // A stripe waiting on a full stripe could wait on itself; publish here instead.
+            publish.run();
+            return;
+        }
+        long count = backpressured.incrementAndGet();
+        if (count == 1 || count % 1000 == 0) {
+            log.warn("STOMP broadcast stripe full; committing thread waits for room ({} times so far)", count);
+        }
+        try {
+            stripe.getQueue().put(publish);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            log.warn("Interrupted while waiting to publish committed STOMP events; they were dropped");
+        }
+    }
+
+    private String userDestination(String user, String destination) {
+        return messagingTemplate.getUserDestinationPrefix() + StringUtils.replace(user, "/", "%2F")
+                + (destination.startsWith("/") ? destination : "/" + destination);
+    }
+
+    private void runSafely(Runnable task) {
+        try {
+            task.run();
+        } catch (Exception ex) {
+            log.warn("Failed to publish outbound STOMP event: {}", ex.getMessage(), ex);
+        }
+    }
+
+    /**
+     * Converts a fan-out payload on first use, on whichever stripe gets to it first.
+     */
+    private final class SharedPayload {
+
+        private final Object payload;
+        private Message<?> message;
+        private boolean converted;
+
+        private SharedPayload(Object payload) {
+            this.payload = payload;
+        }
+
+        private synchronized Message<?> message() {
+            if (!converted) {
+                message = messagingTemplate.getMessageConverter().toMessage(payload, null);
+                converted = true;
+            }
+            return message;
+        }
+    }
+
+    private final class PendingEvents implements TransactionSynchronization {
+
+        private final Map<Integer, List<Runnable>> tasks = new LinkedHashMap<>();
+
+        @Override
+        public void afterCommit() {
+            tasks.forEach((stripe, stripeTasks) -> {
+                List<Runnable> committed = List.copyOf(stripeTasks);
+                stripes[stripe].execute(() -> {
+                    onStripe.set(Boolean.TRUE);
+                    try {
+                        committed.forEach(StompEventPublisher.this::runSafely);
+                    } finally {
+                        onStripe.set(Boolean.FALSE);
+                    }
+                });
+            });
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            TransactionSynchronizationManager.unbindResourceIfPossible(StompEventPublisher.this);
+            if (status != STATUS_COMMITTED && !tasks.isEmpty()) {
+                log.debug("Discarding outbound STOMP events of {} stripes after transaction rollback", tasks.size());
+            }
+            tasks.clear();
+        }
+    }
+}
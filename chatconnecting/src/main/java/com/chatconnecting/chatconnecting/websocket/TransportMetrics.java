@@ -0,0 +1,174 @@
+package com.chatconnecting.chatconnecting.websocket;
+
+import com.chatconnecting.chatconnecting.websocket.dto.TransportStats;
+import com.chatconnecting.chatconnecting.websocket.dto.TransportUsage;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketExtension;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.WebSocketHandlerDecorator;
+import org.springframework.web.socket.handler.WebSocketHandlerDecoratorFactory;
+import org.springframework.web.socket.handler.WebSocketSessionDecorator;
+import org.springframework.web.socket.sockjs.transport.session.PollingSockJsSession;
+import org.springframework.web.socket.sockjs.transport.session.StreamingSockJsSession;
+import org.springframework.web.socket.sockjs.transport.session.WebSocketServerSockJsSession;
+
+/**
+ * Session counts and payload bytes per transport, so the move from SockJS to the raw WebSocket
+ * endpoint can be tracked. Bytes are STOMP frame bytes before SockJS framing and before
+ * permessage-deflate compression.
+ */
+@Component
+public class TransportMetrics implements WebSocketHandlerDecoratorFactory {
+
+    private enum Transport {
+        WEBSOCKET("websocket"),
+        SOCKJS_WEBSOCKET("sockjs-websocket"),
+        SOCKJS_STREAMING("sockjs-streaming"),
+        SOCKJS_POLLING("sockjs-polling");
+
+        private final String label;
+
+        Transport(String label) {
+            this.label = label;
+        }
+
+        private String label() {
+            return label;
+        }
+    }
+
+    private static final String PERMESSAGE_DEFLATE = "permessage-deflate";
+
+    private final Map<Transport, Counters> counters = new ConcurrentHashMap<>();
+    private final Map<String, TrackedSession> sessions = new ConcurrentHashMap<>();
+
+    public TransportMetrics() {
+        for (Transport transport : Transport.values()) {
+            counters.put(transport, new Counters());
+        }
+    }
+
+    @Override
+    public WebSocketHandler decorate(WebSocketHandler handler) {
+        return new MeteringHandler(handler);
+    }
+
+    public TransportStats stats() {
+        List<TransportUsage> usage = new ArrayList<>();
+        int open = 0;
+        for (Transport transport : Transport.values()) {
+            Counters counter = counters.get(transport);
+            open += counter.open.get();
+            usage.add(TransportUsage.builder()
+                    .transport(transport.label())
+                    .openSessions(counter.open.get())
+                    .totalSessions(counter.total.get())
+                    .compressedSessions(counter.compressed.get())
+                    .bytesIn(counter.bytesIn.get())
+                    .bytesOut(counter.bytesOut.get())
+                    .build());
+        }
+        return TransportStats.builder().openSessions(open).transports(usage).build();
+    }
+
+    private static Transport transportOf(WebSocketSession session) {
+        WebSocketSession raw = WebSocketSessionDecorator.unwrap(session);
+        if (raw instanceof PollingSockJsSession) {
+            return Transport.SOCKJS_POLLING;
+        }
+        if (raw instanceof StreamingSockJsSession) {
+            return Transport.SOCKJS_STREAMING;
+        }
+        if (raw instanceof WebSocketServerSockJsSession) {
+            return Transport.SOCKJS_WEBSOCKET;
+        }
+        return Transport.WEBSOCKET;
+    }
+
+    private static boolean isCompressed(WebSocketSession session) {
+        for (WebSocketExtension extension : session.getExtensions()) {
+            if (PERMESSAGE_DEFLATE.equalsIgnoreCase(extension.getName())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private record TrackedSession(Counters counters, boolean compressed) {
+    }
+
+    private static final class Counters {
+        private final AtomicInteger open = new AtomicInteger();
+        private final AtomicLong total = new AtomicLong();
+        private final AtomicInteger compressed = new AtomicInteger();
+        private final AtomicLong bytesIn = new AtomicLong();
+        private final AtomicLong bytesOut = new AtomicLong();
+    }
+
+    private final class MeteringHandler extends WebSocketHandlerDecorator {
+
+        private MeteringHandler(WebSocketHandler delegate) {
+            super(delegate);
+        }
+
+        @Override
+        public void afterConnectionEstablished(WebSocketSession session) throws Exception {
+            Counters counter = counters.get(transportOf(session));
+            boolean compressed = isCompressed(session);
+            sessions.put(session.getId(), new TrackedSession(counter, compressed));
+            counter.open.incrementAndGet();
+            counter.total.incrementAndGet();
+            if (compressed) {
+                counter.compressed.incrementAndGet();
+            }
+            super.afterConnectionEstablished(new MeteredSession(session, counter));
+        }
+
+        @Override
+        public void handleMessage(WebSocketSession session, WebSocketMessage<?> message) throws Exception {
+            TrackedSession tracked = sessions.get(session.getId());
+            if (tracked != null) {
+                tracked.counters().bytesIn.addAndGet(message.getPayloadLength());
+            }
+            super.handleMessage(session, message);
+        }
+
+        @Override
+        public void afterConnectionClosed(WebSocketSession session, CloseStatus closeStatus) throws Exception {
+            TrackedSession tracked = sessions.remove(session.getId());
+            if (tracked != null) {
+                tracked.counters().open.decrementAndGet();
+                if (tracked.compressed()) {
+                    tracked.counters().compressed.decrementAndGet();
+                }
+            }
+            super.afterConnectionClosed(session, closeStatus);
+        }
+    }
+
+    private static final class MeteredSession extends WebSocketSessionDecorator {
+
+        private final Counters counter;
+
+        private MeteredSession(WebSocketSession delegate, Counters counter) {
+            super(delegate);
+            this.counter = counter;
+        }
+
+        @Override
+        public void sendMessage(WebSocketMessage<?> message) throws IOException {
+            super.sendMessage(message);
+            counter.bytesOut.addAndGet(message.getPayloadLength());
+        }
+    }
+}
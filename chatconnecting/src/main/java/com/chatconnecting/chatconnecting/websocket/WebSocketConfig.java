@@ -1,17 +1,28 @@
 package com.chatconnecting.chatconnecting.websocket;
 
+import com.chatconnecting.chatconnecting.cluster.ClusterMessageRouter;
+import com.chatconnecting.chatconnecting.concurrency.ExecutionMode;
+import com.chatconnecting.chatconnecting.concurrency.InboundWorkInterceptor;
 import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executor;
 import lombok.RequiredArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.messaging.converter.MessageConverter;
 import org.springframework.messaging.simp.config.ChannelRegistration;
 import org.springframework.messaging.simp.config.MessageBrokerRegistry;
+import org.springframework.scheduling.TaskScheduler;
 import org.springframework.web.socket.config.annotation.EnableWebSocketMessageBroker;
 import org.springframework.web.socket.config.annotation.StompEndpointRegistry;
 import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerConfigurer;
+import org.springframework.web.socket.config.annotation.WebSocketTransportRegistration;
+import org.springframework.web.socket.server.standard.ServletServerContainerFactoryBean;
 
 @Configuration
 @EnableWebSocketMessageBroker
@@ -23,31 +34,142 @@ public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
     @Value("${app.ws.allowed-origins:http://localhost:5173}")
     private String wsAllowedOrigins;
 
+    @Value("${app.ws.heartbeat-ms:10000}")
+    private long heartbeatMs;
+
+    @Value("${app.ws.inbound-threads:16}")
+    private int inboundThreads;
+
+    @Value("${app.ws.outbound-threads:16}")
+    private int outboundThreads;
+
+    @Value("${app.ws.send-buffer-limit-bytes:524288}")
+    private int sendBufferLimitBytes;
+
+    @Value("${app.ws.send-time-limit-ms:10000}")
+    private int sendTimeLimitMs;
+
+    @Value("${app.ws.sockjs.message-cache-size:200}")
+    private int sockJsMessageCacheSize;
+
+    @Value("${app.ws.native.path:/ws-native}")
+    private String nativeEndpointPath;
+
+    @Value("${app.ws.message-size-limit-bytes:65536}")
+    private int messageSizeLimitBytes;
+
+    @Value("${app.ws.native.max-text-buffer-bytes:65536}")
+    private int maxTextBufferBytes;
+
+    @Value("${app.ws.native.max-binary-buffer-bytes:65536}")
+    private int maxBinaryBufferBytes;
+
     private final JwtChannelInterceptor jwtChannelInterceptor;
     private final JwtHandshakeInterceptor jwtHandshakeInterceptor;
+    private final ClusterMessageRouter clusterMessageRouter;
+    private final ExecutionMode executionMode;
+    private final InboundWorkInterceptor inboundWorkInterceptor;
+    private final OutboundFlowControl outboundFlowControl;
+    private final OutboundBatcher outboundBatcher;
+    private final PayloadEncodingNegotiator payloadEncodingNegotiator;
+    private final PayloadTranscoder payloadTranscoder;
+    private final TransportMetrics transportMetrics;
+    private TaskScheduler messageBrokerTaskScheduler;
+
+    @Autowired
+    public void setMessageBrokerTaskScheduler(@Lazy TaskScheduler messageBrokerTaskScheduler) {
+        this.messageBrokerTaskScheduler = messageBrokerTaskScheduler;
+    }
 
     @Override
     public void registerStompEndpoints(StompEndpointRegistry registry) {
-        log.info("Registering STOMP endpoint /ws with allowed origins={}", wsAllowedOrigins);
+        log.info("Registering STOMP endpoints /ws (SockJS) and {} (WebSocket) with allowed origins={}",
+                nativeEndpointPath, wsAllowedOrigins);
+        String[] allowedOrigins = parseOrigins(wsAllowedOrigins);
+        // Raw WebSocket for current clients; Tomcat negotiates permessage-deflate when the client offers it.
+        registry.addEndpoint(nativeEndpointPath)
+                .setAllowedOriginPatterns(allowedOrigins)
+                .setHandshakeHandler(stompPrincipalHandshakeHandler())
+                .addInterceptors(jwtHandshakeInterceptor);
         registry.addEndpoint("/ws")
-                .setAllowedOriginPatterns(parseOrigins(wsAllowedOrigins))
+                .setAllowedOriginPatterns(allowedOrigins)
                 .setHandshakeHandler(stompPrincipalHandshakeHandler())
                 .addInterceptors(jwtHandshakeInterceptor)
-                .withSockJS();
+                .withSockJS()
+                .setHttpMessageCacheSize(sockJsMessageCacheSize);
+        // Frames of one session are handled in order even when the channel runs a task per frame.
+        registry.setPreserveReceiveOrder(true);
     }
 
     @Override
     public void configureMessageBroker(MessageBrokerRegistry registry) {
-        log.info("Configuring message broker: appPrefix=/app, simpleBroker=[/topic,/queue], userPrefix=/user");
-        registry.enableSimpleBroker("/topic", "/queue");
+        log.info("Configuring message broker: appPrefix=/app, simpleBroker=[/topic,/queue], userPrefix=/user, heartbeatMs={}",
+                heartbeatMs);
+        // Client heartbeats renew presence leases, so the broker has to negotiate them.
+        registry.enableSimpleBroker("/topic", "/queue")
+                .setHeartbeatValue(new long[]{heartbeatMs, heartbeatMs})
+                .setTaskScheduler(messageBrokerTaskScheduler);
         registry.setApplicationDestinationPrefixes("/app");
         registry.setUserDestinationPrefix("/user");
+        registry.setPreservePublishOrder(true);
+        // Relays application sends to the nodes owning the recipients' sessions.
+        registry.configureBrokerChannel().interceptors(clusterMessageRouter);
     }
 
     @Override
     public void configureClientInboundChannel(ChannelRegistration registration) {
         log.info("Registering inbound channel interceptor for JWT CONNECT validation");
-        registration.interceptors(jwtChannelInterceptor);
+        registration.interceptors(jwtChannelInterceptor, inboundWorkInterceptor);
+        configureExecutor(registration, "ws-inbound-", inboundThreads);
+    }
+
+    @Override
+    public void configureClientOutboundChannel(ChannelRegistration registration) {
+        // Batching collects frames first; flow control then sees and meters whole batches, and
+        // binary re-encoding runs last so both work on JSON.
+        registration.interceptors(outboundBatcher, outboundFlowControl, payloadEncodingNegotiator);
+        configureExecutor(registration, "ws-outbound-", outboundThreads);
+    }
+
+    @Override
+    public void configureWebSocketTransport(WebSocketTransportRegistration registration) {
+        // Hard per-session limits; OutboundFlowControl starts shedding low-priority frames well before them.
+        registration.setSendBufferSizeLimit(sendBufferLimitBytes)
+                .setSendTimeLimit(sendTimeLimitMs)
+                .setMessageSizeLimit(messageSizeLimitBytes)
+                .addDecoratorFactory(transportMetrics)
+                .addDecoratorFactory(outboundFlowControl)
+                .addDecoratorFactory(payloadEncodingNegotiator);
+    }
+
+    @Override
+    public boolean configureMessageConverters(List<MessageConverter> messageConverters) {
+        messageConverters.add(new BinaryPayloadMessageConverter(PayloadEncoding.CBOR, payloadTranscoder));
+        messageConverters.add(new BinaryPayloadMessageConverter(PayloadEncoding.SMILE, payloadTranscoder));
+        return true;
+    }
+
+    private void configureExecutor(ChannelRegistration registration, String prefix, int platformThreads) {
+        Executor perTask = executionMode.perTaskExecutor(prefix);
+        if (perTask != null) {
+            registration.executor(perTask);
+            return;
+        }
+        int threads = Math.max(platformThreads, 1);
+        registration.taskExecutor().corePoolSize(threads).maxPoolSize(threads);
+    }
+
+    /**
+     * Buffer sizes of the servlet WebSocket container, used by raw WebSocket and SockJS WebSocket
+     * sessions.
+     */
+    @Bean
+    public ServletServerContainerFactoryBean webSocketContainer() {
+        ServletServerContainerFactoryBean container = new ServletServerContainerFactoryBean();
+        container.setMaxTextMessageBufferSize(maxTextBufferBytes);
+        container.setMaxBinaryMessageBufferSize(maxBinaryBufferBytes);
+        container.setAsyncSendTimeout((long) sendTimeLimitMs);
+        return container;
     }
 
     @Bean
@@ -1,23 +1,23 @@
 package com.chatconnecting.chatconnecting.websocket;
 
-import com.chatconnecting.chatconnecting.user.UserRepository;
-import com.chatconnecting.chatconnecting.websocket.dto.PresenceEvent;
+import com.chatconnecting.chatconnecting.presence.PresenceService;
 import java.security.Principal;
 import lombok.RequiredArgsConstructor;
 import org.springframework.context.event.EventListener;
-import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
 import org.springframework.stereotype.Component;
 import org.springframework.web.socket.messaging.SessionConnectEvent;
 import org.springframework.web.socket.messaging.SessionDisconnectEvent;
 
+/**
+ * Feeds STOMP session lifecycle into {@link PresenceService}; the resulting transitions are
+ * delivered by {@link PresenceFanout}.
+ */
 @Component
 @RequiredArgsConstructor
 public class WebSocketPresenceEventListener {
 
     private final PresenceService presenceService;
-    private final UserRepository userRepository;
-    private final SimpMessagingTemplate messagingTemplate;
 
     @EventListener
     public void onSessionConnect(SessionConnectEvent event) {
@@ -27,34 +27,11 @@ public class WebSocketPresenceEventListener {
             return;
         }
 
-        boolean becameOnline = presenceService.connect(principal.getName());
-        if (becameOnline) {
-            publishPresence(principal.getName(), true);
-        }
+        presenceService.connect(accessor.getSessionId(), principal.getName());
     }
 
     @EventListener
     public void onSessionDisconnect(SessionDisconnectEvent event) {
-        StompHeaderAccessor accessor = StompHeaderAccessor.wrap(event.getMessage());
-        Principal principal = accessor.getUser();
-        if (principal == null) {
-            return;
-        }
-
-        boolean becameOffline = presenceService.disconnect(principal.getName());
-        if (becameOffline) {
-            publishPresence(principal.getName(), false);
-        }
-    }
-
-    private void publishPresence(String email, boolean online) {
-        userRepository.findByEmail(email).ifPresent(user -> messagingTemplate.convertAndSend(
-                "/topic/presence",
-                PresenceEvent.builder()
-                        .userId(user.getId())
-                        .email(user.getEmail())
-                        .online(online)
-                        .build()
-        ));
+        presenceService.disconnect(event.getSessionId());
     }
 }
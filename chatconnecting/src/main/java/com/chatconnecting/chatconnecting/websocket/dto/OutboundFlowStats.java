@@ -0,0 +1,25 @@
+package com.chatconnecting.chatconnecting.websocket.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class OutboundFlowStats {
+    private int sessions;
+    private int congestedSessions;
+    private long pendingBytes;
+    private long droppedFrames;
+    private long coalescedFrames;
+    private long parkedFrames;
+    private long terminatedSessions;
+    private int batchingSessions;
+    private long batchesSent;
+    private long batchedFrames;
+}
@@ -0,0 +1,17 @@
+package com.chatconnecting.chatconnecting.websocket.dto;
+
+import java.util.List;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PresenceBatchEvent {
+    private List<PresenceEvent> changes;
+}
@@ -1,5 +1,6 @@
 package com.chatconnecting.chatconnecting.websocket.dto;
 
+import java.time.LocalDateTime;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Getter;
@@ -15,4 +16,5 @@ public class PresenceEvent {
     private Long userId;
     private String email;
     private boolean online;
+    private LocalDateTime lastSeenAt;
 }
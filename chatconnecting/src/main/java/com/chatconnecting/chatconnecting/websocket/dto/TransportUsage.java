@@ -0,0 +1,21 @@
+package com.chatconnecting.chatconnecting.websocket.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class TransportUsage {
+    private String transport;
+    private int openSessions;
+    private long totalSessions;
+    private int compressedSessions;
+    private long bytesIn;
+    private long bytesOut;
+}
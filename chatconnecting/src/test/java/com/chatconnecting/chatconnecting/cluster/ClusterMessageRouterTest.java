@@ -0,0 +1,142 @@
+package com.chatconnecting.chatconnecting.cluster;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import com.chatconnecting.chatconnecting.presence.InMemoryPresenceStore;
+import com.chatconnecting.chatconnecting.presence.ReplicatedPresenceService;
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.support.ExecutorSubscribableChannel;
+
+/**
+ * Three nodes in one JVM, each with its own broker channel, joined by one
+ * {@link InMemoryClusterEventBus}. The captured broker channel traffic stands in for each node's
+ * simple broker.
+ */
+class ClusterMessageRouterTest {
+
+    private final InMemoryPresenceStore presenceStore = new InMemoryPresenceStore();
+    private final InMemoryClusterEventBus bus = new InMemoryClusterEventBus();
+    private final Map<String, Node> nodes = new LinkedHashMap<>();
+
+    @AfterEach
+    void tearDown() {
+        nodes.values().forEach(node -> node.router.stop());
+    }
+
+    @Test
+    void userDestinationsGoOnlyToTheNodeHoldingTheSession() throws Exception {
+        startNodes("a", "b", "c");
+        node("b").presence.connect("s1", "bob@example.com");
+        heartbeat();
+
+        node("a").template.convertAndSendToUser("bob@example.com", "/queue/messages", "hello");
+
+        assertEquals("/user/bob@example.com/queue/messages", node("a").nextDestination());
+        Message<?> relayed = node("b").next();
+        assertNotNull(relayed);
+        assertEquals("/user/bob@example.com/queue/messages", SimpMessageHeaderAccessor.getDestination(relayed.getHeaders()));
+        assertEquals("a", relayed.getHeaders().get(ClusterMessageRouter.ORIGIN_HEADER));
+        assertEquals("hello", new String((byte[]) relayed.getPayload(), StandardCharsets.UTF_8));
+        assertNull(node("c").poll());
+        assertNull(node("a").poll());
+    }
+
+    @Test
+    void topicsReachEveryNodeExactlyOnce() throws Exception {
+        startNodes("a", "b", "c");
+
+        node("a").template.convertAndSend("/topic/group/7", "hi all");
+
+        assertEquals("/topic/group/7", node("a").nextDestination());
+        assertEquals("/topic/group/7", node("b").nextDestination());
+        assertEquals("/topic/group/7", node("c").nextDestination());
+        assertNull(node("a").poll());
+        assertNull(node("b").poll());
+        assertNull(node("c").poll());
+    }
+
+    @Test
+    void usersNotYetReplicatedAreFloodedToAllNodes() throws Exception {
+        startNodes("a", "b", "c");
+        // Connected on c, but c has not published a heartbeat yet.
+        node("c").presence.connect("s1", "carol@example.com");
+
+        node("a").template.convertAndSendToUser("carol@example.com", "/queue/messages", "early");
+
+        node("a").next();
+        assertEquals("/user/carol@example.com/queue/messages", node("b").nextDestination());
+        assertEquals("/user/carol@example.com/queue/messages", node("c").nextDestination());
+    }
+
+    @Test
+    void usersOnlineOnlyLocallyAreNotRelayed() throws Exception {
+        startNodes("a", "b");
+        node("a").presence.connect("s1", "alice@example.com");
+        heartbeat();
+
+        node("a").template.convertAndSendToUser("alice@example.com", "/queue/messages", "local");
+
+        node("a").next();
+        assertNull(node("b").poll());
+    }
+
+    private void startNodes(String... nodeIds) {
+        for (String nodeId : nodeIds) {
+            nodes.put(nodeId, new Node(nodeId));
+        }
+    }
+
+    private Node node(String nodeId) {
+        return nodes.get(nodeId);
+    }
+
+    private void heartbeat() {
+        nodes.values().forEach(node -> node.presence.heartbeat());
+        nodes.values().forEach(node -> node.presence.heartbeat());
+    }
+
+    private final class Node {
+
+        private final ReplicatedPresenceService presence;
+        private final ClusterMessageRouter router;
+        private final SimpMessagingTemplate template;
+        private final BlockingQueue<Message<?>> received = new LinkedBlockingQueue<>();
+
+        private Node(String nodeId) {
+            ExecutorSubscribableChannel brokerChannel = new ExecutorSubscribableChannel();
+            brokerChannel.subscribe(received::add);
+            presence = new ReplicatedPresenceService(presenceStore, nodeId, Clock.systemUTC(), 30_000, 15_000, 30_000);
+            router = new ClusterMessageRouter(bus, nodeId, presence, brokerChannel, "/user/", true);
+            brokerChannel.addInterceptor(router);
+            router.start();
+            template = new SimpMessagingTemplate(brokerChannel);
+        }
+
+        private Message<?> next() throws InterruptedException {
+            return received.poll(2, TimeUnit.SECONDS);
+        }
+
+        private String nextDestination() throws InterruptedException {
+            Message<?> message = next();
+            assertNotNull(message);
+            return SimpMessageHeaderAccessor.getDestination(message.getHeaders());
+        }
+
+        private Message<?> poll() throws InterruptedException {
+            return received.poll(200, TimeUnit.MILLISECONDS);
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package com.chatconnecting.chatconnecting.concurrency;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks how the execution mode wires executors and the database limiter on the running JVM, and
+ * that the limiter caps concurrent holders. Nothing here depends on timing: holders are parked on
+ * latches and a zero acquire timeout makes the over-limit caller fail at once.
+ */
+class ExecutionModeTest {
+
+    @Test
+    void platformModeKeepsPoolsAndLeavesTheLimiterOff() {
+        ExecutionMode mode = new ExecutionMode(false);
+
+        assertFalse(mode.isVirtual());
+        assertNull(mode.perTaskExecutor("test-"));
+        Thread thread = mode.threadFactory("test-").newThread(() -> { });
+        assertEquals("test-1", thread.getName());
+        assertTrue(thread.isDaemon());
+        assertFalse(new DatabaseWorkLimiter(mode, 1, 0).isEnabled());
+    }
+
+    @Test
+    void virtualModeFollowsTheJvmAndEnablesTheLimiter() {
+        ExecutionMode mode = new ExecutionMode(true);
+
+        assertEquals(ExecutionMode.virtualThreadsAvailable(), mode.isVirtual());
+        assertEquals(mode.isVirtual(), mode.perTaskExecutor("test-") != null);
+        assertEquals(mode.isVirtual(), new DatabaseWorkLimiter(mode, 1, 0).isEnabled());
+    }
+
+    @Test
+    void limiterAdmitsOnlyItsPermitsAtOnce() throws Exception {
+        DatabaseWorkLimiter limiter = new DatabaseWorkLimiter(true, 3, 0);
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        CountDownLatch holding = new CountDownLatch(3);
+        CountDownLatch release = new CountDownLatch(1);
+        try {
+            List<Future<Boolean>> holders = new ArrayList<>();
+            for (int i = 0; i < 3; i++) {
+                holders.add(pool.submit(() -> {
+                    if (!limiter.acquire()) {
+                        return false;
+                    }
+                    try {
+                        holding.countDown();
+                        return release.await(5, TimeUnit.SECONDS);
+                    } finally {
+                        limiter.release();
+                    }
+                }));
+            }
+            assertTrue(holding.await(5, TimeUnit.SECONDS));
+
+            assertEquals(0, limiter.availablePermits());
+            assertFalse(pool.submit(() -> limiter.acquire()).get(5, TimeUnit.SECONDS));
+
+            release.countDown();
+            for (Future<Boolean> holder : holders) {
+                assertTrue(holder.get(5, TimeUnit.SECONDS));
+            }
+            assertEquals(3, limiter.availablePermits());
+            assertTrue(limiter.acquire());
+            limiter.release();
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void disabledLimiterNeverBlocks() {
+        DatabaseWorkLimiter limiter = new DatabaseWorkLimiter(false, 1, 0);
+
+        assertTrue(limiter.acquire());
+        assertTrue(limiter.acquire());
+        assertEquals(1, limiter.availablePermits());
+    }
+}
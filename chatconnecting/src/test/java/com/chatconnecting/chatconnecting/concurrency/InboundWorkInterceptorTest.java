@@ -0,0 +1,131 @@
+package com.chatconnecting.chatconnecting.concurrency;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.reflect.Method;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageDeliveryException;
+import org.springframework.messaging.handler.invocation.AbstractExceptionHandlerMethodResolver;
+import org.springframework.messaging.handler.invocation.AbstractMethodMessageHandler;
+import org.springframework.messaging.handler.invocation.HandlerMethodArgumentResolver;
+import org.springframework.messaging.handler.invocation.HandlerMethodReturnValueHandler;
+import org.springframework.messaging.support.ExecutorSubscribableChannel;
+import org.springframework.messaging.support.MessageBuilder;
+
+/**
+ * Runs the interceptor inside a real {@link ExecutorSubscribableChannel}, which calls
+ * {@code afterMessageHandled} on both the handled and the rejected path.
+ */
+class InboundWorkInterceptorTest {
+
+    @Test
+    void rejectedMessageDoesNotReleaseAPermit() {
+        DatabaseWorkLimiter limiter = new DatabaseWorkLimiter(true, 1, 0);
+        CountingHandler handler = new CountingHandler();
+        ExecutorSubscribableChannel channel = channel(limiter, handler);
+        assertTrue(limiter.acquire());
+
+        assertThrows(MessageDeliveryException.class, () -> channel.send(message()));
+        assertThrows(MessageDeliveryException.class, () -> channel.send(message()));
+        // A channel that reports the rejection back to the interceptor must not free a permit either.
+        Message<byte[]> rejected = message();
+        InboundWorkInterceptor interceptor = new InboundWorkInterceptor(limiter);
+        assertThrows(MessageDeliveryException.class, () -> interceptor.beforeHandle(rejected, channel, handler));
+        interceptor.afterMessageHandled(rejected, channel, handler, new MessageDeliveryException(rejected));
+
+        assertEquals(0, limiter.availablePermits());
+        assertEquals(0, handler.handled.get());
+        limiter.release();
+        assertEquals(1, limiter.availablePermits());
+    }
+
+    @Test
+    void handledMessageReturnsItsPermit() {
+        DatabaseWorkLimiter limiter = new DatabaseWorkLimiter(true, 2, 0);
+        CountingHandler handler = new CountingHandler();
+        ExecutorSubscribableChannel channel = channel(limiter, handler);
+
+        channel.send(message());
+        channel.send(message());
+        channel.send(message());
+
+        assertEquals(3, handler.handled.get());
+        assertEquals(2, limiter.availablePermits());
+    }
+
+    private static ExecutorSubscribableChannel channel(DatabaseWorkLimiter limiter, CountingHandler handler) {
+        ExecutorSubscribableChannel channel = new ExecutorSubscribableChannel(Runnable::run);
+        channel.addInterceptor(new InboundWorkInterceptor(limiter));
+        channel.subscribe(handler);
+        return channel;
+    }
+
+    private static Message<byte[]> message() {
+        return MessageBuilder.withPayload(new byte[0]).build();
+    }
+
+    /**
+     * Stands in for the {@code @MessageMapping} handler; counts messages instead of dispatching them.
+     */
+    private static final class CountingHandler extends AbstractMethodMessageHandler<String> {
+
+        private final AtomicInteger handled = new AtomicInteger();
+
+        @Override
+        public void handleMessage(Message<?> message) {
+            handled.incrementAndGet();
+        }
+
+        @Override
+        protected List<? extends HandlerMethodArgumentResolver> initArgumentResolvers() {
+            return List.of();
+        }
+
+        @Override
+        protected List<? extends HandlerMethodReturnValueHandler> initReturnValueHandlers() {
+            return List.of();
+        }
+
+        @Override
+        protected boolean isHandler(Class<?> beanType) {
+            return false;
+        }
+
+        @Override
+        protected String getMappingForMethod(Method method, Class<?> handlerType) {
+            return null;
+        }
+
+        @Override
+        protected Set<String> getDirectLookupDestinations(String mapping) {
+            return Set.of();
+        }
+
+        @Override
+        protected String getDestination(Message<?> message) {
+            return null;
+        }
+
+        @Override
+        protected String getMatchingMapping(String mapping, Message<?> message) {
+            return null;
+        }
+
+        @Override
+        protected Comparator<String> getMappingComparator(Message<?> message) {
+            return Comparator.naturalOrder();
+        }
+
+        @Override
+        protected AbstractExceptionHandlerMethodResolver createExceptionHandlerMethodResolverFor(Class<?> beanType) {
+            return null;
+        }
+    }
+}
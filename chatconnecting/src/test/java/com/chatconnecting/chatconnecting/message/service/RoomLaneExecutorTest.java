@@ -0,0 +1,131 @@
+package com.chatconnecting.chatconnecting.message.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.chatconnecting.chatconnecting.concurrency.DatabaseWorkLimiter;
+import com.chatconnecting.chatconnecting.concurrency.ExecutionMode;
+import com.chatconnecting.chatconnecting.message.dto.RoomLaneStats;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+class RoomLaneExecutorTest {
+
+    private RoomLaneExecutor executor;
+
+    @AfterEach
+    void shutdown() {
+        if (executor != null) {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void tasksOfOneRoomRunInSubmissionOrder() throws InterruptedException {
+        executor = new RoomLaneExecutor(new ExecutionMode(false), new DatabaseWorkLimiter(false, 1, 0), 4, 1000, 0);
+        int rooms = 10;
+        int tasksPerRoom = 100;
+        Map<Long, List<Integer>> seen = new HashMap<>();
+        CountDownLatch done = new CountDownLatch(rooms * tasksPerRoom);
+
+        for (int seq = 0; seq < tasksPerRoom; seq++) {
+            for (long roomId = 1; roomId <= rooms; roomId++) {
+                long room = roomId;
+                int current = seq;
+                assertTrue(executor.submit("room:" + room, () -> {
+                    if (ThreadLocalRandom.current().nextInt(20) == 0) {
+                        sleepQuietly(1);
+                    }
+                    synchronized (seen) {
+                        seen.computeIfAbsent(room, key -> new ArrayList<>()).add(current);
+                    }
+                    done.countDown();
+                }));
+            }
+        }
+
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        List<Integer> expected = new ArrayList<>();
+        for (int seq = 0; seq < tasksPerRoom; seq++) {
+            expected.add(seq);
+        }
+        synchronized (seen) {
+            assertEquals(rooms, seen.size());
+            seen.values().forEach(order -> assertEquals(expected, order));
+        }
+    }
+
+    @Test
+    void fullLaneRejectsInsteadOfBlocking() throws InterruptedException {
+        executor = new RoomLaneExecutor(new ExecutionMode(false), new DatabaseWorkLimiter(false, 1, 0), 1, 2, 0);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        assertTrue(executor.submit("room:1", () -> {
+            started.countDown();
+            awaitQuietly(release);
+        }));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        assertTrue(executor.submit("room:1", () -> { }));
+        assertTrue(executor.submit("room:2", () -> { }));
+        assertFalse(executor.submit("room:3", () -> { }));
+
+        RoomLaneStats stats = executor.stats();
+        assertEquals(2, stats.getTotalQueueDepth());
+        assertEquals(1, stats.getLanes().get(0).getRejected());
+        assertEquals(3, stats.getLanes().get(0).getSubmitted());
+        release.countDown();
+    }
+
+    @Test
+    void taskWithoutDatabasePermitIsRejectedToItsSubmitter() throws InterruptedException {
+        DatabaseWorkLimiter limiter = new DatabaseWorkLimiter(true, 1, 30000);
+        executor = new RoomLaneExecutor(new ExecutionMode(false), limiter, 1, 10, 20);
+        assertTrue(limiter.acquire());
+        AtomicBoolean ran = new AtomicBoolean();
+        CountDownLatch rejected = new CountDownLatch(1);
+
+        long started = System.nanoTime();
+        assertTrue(executor.submit("room:1", () -> ran.set(true), rejected::countDown));
+
+        assertTrue(rejected.await(5, TimeUnit.SECONDS));
+        assertTrue(System.nanoTime() - started < TimeUnit.SECONDS.toNanos(5));
+        assertFalse(ran.get());
+        limiter.release();
+        assertEquals(1, executor.stats().getLanes().get(0).getPermitTimeouts());
+
+        CountDownLatch done = new CountDownLatch(1);
+        assertTrue(executor.submit("room:1", done::countDown, () -> { }));
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (executor.stats().getLanes().get(0).getCompleted() < 2 && System.nanoTime() < deadline) {
+            sleepQuietly(5);
+        }
+        assertEquals(1, limiter.availablePermits());
+    }
+
+    private static void sleepQuietly(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package com.chatconnecting.chatconnecting.notification.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.chatconnecting.chatconnecting.concurrency.ExecutionMode;
+import com.chatconnecting.chatconnecting.notification.DeviceTokenRepository;
+import com.chatconnecting.chatconnecting.presence.PresenceService;
+import com.chatconnecting.chatconnecting.user.User;
+import java.lang.reflect.Proxy;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Drives {@link NotificationService} and a real {@link PushDispatcher} against a recording
+ * {@link PushSender}, an in-memory token table and a fixed set of online users.
+ */
+class PushDeliveryTest {
+
+    private static final User ONLINE = User.builder().id(1L).email("online@example.com").name("Online").build();
+    private static final User OFFLINE = User.builder().id(2L).email("offline@example.com").name("Offline").build();
+
+    private final RecordingPushSender pushSender = new RecordingPushSender();
+    private final PushDispatcher pushDispatcher = new PushDispatcher(
+            tokenRepository(Map.of(ONLINE.getId(), List.of("online-phone"), OFFLINE.getId(), List.of("offline-phone", "offline-tablet"))),
+            pushSender,
+            new ExecutionMode(false),
+            100,
+            1,
+            1,
+            0
+    );
+    private final NotificationService notificationService = new NotificationService(
+            null,
+            pushDispatcher,
+            new FixedPresence(Set.of(ONLINE.getEmail()))
+    );
+
+    @AfterEach
+    void stop() {
+        pushDispatcher.stop();
+    }
+
+    @Test
+    void onlyOfflineRecipientsArePushed() throws InterruptedException {
+        pushDispatcher.start();
+
+        notificationService.sendOfflineNotification(ONLINE, "Sender", "hello", "newMessage");
+        notificationService.sendOfflineNotification(OFFLINE, "Sender", "hello", "newMessage");
+
+        assertTrue(pushSender.sent.await(5, TimeUnit.SECONDS));
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (pushDispatcher.stats().getDelivered() < 2 && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(List.of("offline-phone", "offline-tablet"), pushSender.tokens);
+        assertEquals("Sender", pushSender.notifications.get(0).title());
+        assertEquals(1, pushDispatcher.stats().getEnqueued());
+        assertEquals(2, pushDispatcher.stats().getDelivered());
+    }
+
+    private static DeviceTokenRepository tokenRepository(Map<Long, List<String>> tokensByUser) {
+        return (DeviceTokenRepository) Proxy.newProxyInstance(
+                DeviceTokenRepository.class.getClassLoader(),
+                new Class<?>[]{DeviceTokenRepository.class},
+                (proxy, method, args) -> {
+                    if (!method.getName().equals("findActiveTokensByUserIds")) {
+                        throw new UnsupportedOperationException(method.getName());
+                    }
+                    List<DeviceTokenRepository.ActiveDeviceToken> rows = new ArrayList<>();
+                    for (Object userId : (Collection<?>) args[0]) {
+                        for (String token : tokensByUser.getOrDefault(userId, List.of())) {
+                            rows.add(new ActiveToken((Long) userId, token));
+                        }
+                    }
+                    return rows;
+                }
+        );
+    }
+
+    private record ActiveToken(Long userId, String token) implements DeviceTokenRepository.ActiveDeviceToken {
+
+        @Override
+        public Long getUserId() {
+            return userId;
+        }
+
+        @Override
+        public String getToken() {
+            return token;
+        }
+    }
+
+    private static final class RecordingPushSender implements PushSender {
+
+        private final List<String> tokens = new CopyOnWriteArrayList<>();
+        private final List<PushNotification> notifications = new CopyOnWriteArrayList<>();
+        private final CountDownLatch sent = new CountDownLatch(1);
+
+        @Override
+        public boolean isAvailable() {
+            return true;
+        }
+
+        @Override
+        public List<DeliveryResult> send(PushNotification notification, List<String> batch) {
+            notifications.add(notification);
+            tokens.addAll(batch);
+            sent.countDown();
+            return batch.stream().map(token -> new DeliveryResult(token, DeliveryOutcome.DELIVERED)).toList();
+        }
+    }
+
+    private record FixedPresence(Set<String> online) implements PresenceService {
+
+        @Override
+        public void connect(String sessionId, String username) {
+        }
+
+        @Override
+        public void disconnect(String sessionId) {
+        }
+
+        @Override
+        public void touch(String sessionId) {
+        }
+
+        @Override
+        public boolean isUserOnline(String username) {
+            return online.contains(username);
+        }
+
+        @Override
+        public Set<String> remoteNodes(String username) {
+            return Set.of();
+        }
+
+        @Override
+        public Optional<Instant> lastSeen(String username) {
+            return Optional.empty();
+        }
+
+        @Override
+        public void addListener(Listener listener) {
+        }
+    }
+}
@@ -0,0 +1,221 @@
+package com.chatconnecting.chatconnecting.presence;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Runs several presence nodes in one JVM against a shared in-memory store and a manual clock, so
+ * replication, lease expiry and last-seen batching can be exercised without a database.
+ */
+class PresenceClusterTest {
+
+    private static final long SESSION_LEASE_MS = 30_000;
+    private static final long NODE_LEASE_MS = 15_000;
+    private static final long LAST_SEEN_FLUSH_MS = 30_000;
+
+    @Test
+    void connectOnOneNodeBecomesVisibleOnTheOthersAfterAHeartbeat() {
+        Cluster cluster = new Cluster("a", "b");
+
+        cluster.node("a").connect("s1", "alice@example.com");
+        assertTrue(cluster.node("a").isUserOnline("alice@example.com"));
+        assertFalse(cluster.node("b").isUserOnline("alice@example.com"));
+
+        cluster.tick();
+
+        assertTrue(cluster.node("b").isUserOnline("alice@example.com"));
+        assertEquals(List.of("alice@example.com:online"), cluster.events("b"));
+    }
+
+    @Test
+    void userStaysOnlineWhileAnyNodeStillHoldsASession() {
+        Cluster cluster = new Cluster("a", "b");
+        cluster.node("a").connect("s1", "alice@example.com");
+        cluster.node("b").connect("s2", "alice@example.com");
+        cluster.tick();
+
+        cluster.node("a").disconnect("s1");
+        cluster.tick();
+        assertTrue(cluster.node("a").isUserOnline("alice@example.com"));
+        assertTrue(cluster.node("b").isUserOnline("alice@example.com"));
+        assertEquals(List.of("alice@example.com:online"), cluster.events("a"));
+
+        cluster.node("b").disconnect("s2");
+        cluster.tick();
+        assertFalse(cluster.node("a").isUserOnline("alice@example.com"));
+        assertFalse(cluster.node("b").isUserOnline("alice@example.com"));
+        assertEquals(List.of("alice@example.com:online", "alice@example.com:offline"), cluster.events("a"));
+    }
+
+    @Test
+    void leasesOfACrashedNodeRunOut() {
+        Cluster cluster = new Cluster("a", "b");
+        cluster.node("a").connect("s1", "alice@example.com");
+        cluster.tick();
+        assertTrue(cluster.node("b").isUserOnline("alice@example.com"));
+
+        cluster.crash("a");
+        cluster.advance(NODE_LEASE_MS - 1);
+        cluster.tick();
+        assertTrue(cluster.node("b").isUserOnline("alice@example.com"));
+
+        cluster.advance(2);
+        cluster.tick();
+        assertFalse(cluster.node("b").isUserOnline("alice@example.com"));
+        assertEquals(List.of("alice@example.com:online", "alice@example.com:offline"), cluster.events("b"));
+    }
+
+    @Test
+    void silentSessionsExpireWhileActiveOnesAreRenewed() {
+        Cluster cluster = new Cluster("a", "b");
+        cluster.node("a").connect("quiet", "alice@example.com");
+        cluster.node("a").connect("chatty", "bob@example.com");
+
+        for (int i = 0; i < 4; i++) {
+            cluster.advance(10_000);
+            cluster.node("a").touch("chatty");
+            cluster.tick();
+        }
+
+        assertFalse(cluster.node("a").isUserOnline("alice@example.com"));
+        assertFalse(cluster.node("b").isUserOnline("alice@example.com"));
+        assertTrue(cluster.node("a").isUserOnline("bob@example.com"));
+        assertTrue(cluster.node("b").isUserOnline("bob@example.com"));
+    }
+
+    @Test
+    void lastSeenWritesAreCoalescedPerFlushInterval() {
+        Cluster cluster = new Cluster("a");
+        long start = cluster.clock.millis();
+        cluster.node("a").connect("s1", "alice@example.com");
+
+        for (int i = 0; i < 25; i++) {
+            cluster.advance(1_000);
+            cluster.node("a").touch("s1");
+            cluster.tick();
+        }
+
+        assertEquals(0, cluster.store.writes.size());
+        cluster.advance(5_000);
+        cluster.tick();
+
+        assertEquals(1, cluster.store.writes.size());
+        assertEquals(Instant.ofEpochMilli(start + 25_000), cluster.store.writes.get(0).get("alice@example.com"));
+        assertEquals(Instant.ofEpochMilli(start + 25_000), cluster.store.savedLastSeen("alice@example.com").orElseThrow());
+
+        cluster.advance(LAST_SEEN_FLUSH_MS);
+        cluster.tick();
+        assertEquals(1, cluster.store.writes.size());
+    }
+
+    @Test
+    void lastSeenIsRecordedWhenTheLastSessionCloses() {
+        Cluster cluster = new Cluster("a");
+        cluster.node("a").connect("s1", "alice@example.com");
+        cluster.advance(4_000);
+        cluster.node("a").disconnect("s1");
+        long disconnectedAt = cluster.clock.millis();
+
+        assertEquals(Instant.ofEpochMilli(disconnectedAt), cluster.node("a").lastSeen("alice@example.com").orElseThrow());
+        cluster.advance(LAST_SEEN_FLUSH_MS);
+        cluster.tick();
+        assertEquals(Instant.ofEpochMilli(disconnectedAt), cluster.store.savedLastSeen("alice@example.com").orElseThrow());
+    }
+
+    private static final class Cluster {
+
+        private final ManualClock clock = new ManualClock(Instant.parse("2026-01-01T00:00:00Z"));
+        private final RecordingStore store = new RecordingStore();
+        private final Map<String, ReplicatedPresenceService> nodes = new LinkedHashMap<>();
+        private final Map<String, List<String>> events = new HashMap<>();
+
+        private Cluster(String... nodeIds) {
+            for (String nodeId : nodeIds) {
+                ReplicatedPresenceService node = new ReplicatedPresenceService(
+                        store, nodeId, clock, SESSION_LEASE_MS, NODE_LEASE_MS, LAST_SEEN_FLUSH_MS);
+                List<String> received = new ArrayList<>();
+                node.addListener((username, online) -> received.add(username + (online ? ":online" : ":offline")));
+                nodes.put(nodeId, node);
+                events.put(nodeId, received);
+            }
+        }
+
+        private ReplicatedPresenceService node(String nodeId) {
+            return nodes.get(nodeId);
+        }
+
+        private List<String> events(String nodeId) {
+            return events.get(nodeId);
+        }
+
+        /**
+         * One heartbeat on every live node; the second pass lets each node read what the others
+         * published in the first.
+         */
+        private void tick() {
+            nodes.values().forEach(ReplicatedPresenceService::heartbeat);
+            nodes.values().forEach(ReplicatedPresenceService::heartbeat);
+        }
+
+        private void crash(String nodeId) {
+            nodes.remove(nodeId);
+        }
+
+        private void advance(long millis) {
+            clock.advance(millis);
+        }
+    }
+
+    private static final class RecordingStore extends InMemoryPresenceStore {
+
+        private final List<Map<String, Instant>> writes = new ArrayList<>();
+
+        @Override
+        public synchronized void saveLastSeen(Map<String, Instant> lastSeenByUser) {
+            if (!lastSeenByUser.isEmpty()) {
+                writes.add(Map.copyOf(lastSeenByUser));
+            }
+            super.saveLastSeen(lastSeenByUser);
+        }
+    }
+
+    private static final class ManualClock extends Clock {
+
+        private Instant now;
+
+        private ManualClock(Instant now) {
+            this.now = now;
+        }
+
+        private void advance(long millis) {
+            now = now.plusMillis(millis);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
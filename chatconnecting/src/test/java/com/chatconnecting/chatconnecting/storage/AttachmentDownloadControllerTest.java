@@ -0,0 +1,193 @@
+package com.chatconnecting.chatconnecting.storage;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import com.chatconnecting.chatconnecting.chat.service.RoomMembershipCache;
+import com.chatconnecting.chatconnecting.exception.GlobalExceptionHandler;
+import com.chatconnecting.chatconnecting.message.MessageRepository;
+import com.chatconnecting.chatconnecting.security.AuthenticatedUser;
+import com.chatconnecting.chatconnecting.storage.service.AttachmentAccessService;
+import com.chatconnecting.chatconnecting.storage.service.AttachmentStorageService;
+import com.chatconnecting.chatconnecting.storage.service.DownloadUrlSigner;
+import com.chatconnecting.chatconnecting.user.Role;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.List;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.HttpHeaders;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+/**
+ * Conditional and range requests, and signed links, against a content-addressed blob in a
+ * temporary store. Viewer {@value #VIEWER_ID} is a member of the one room whose message references
+ * the file.
+ */
+class AttachmentDownloadControllerTest {
+
+    private static final String SECRET = "test-download-secret-of-at-least-32-chars";
+    private static final long VIEWER_ID = 7L;
+    private static final long ROOM_ID = 10L;
+    private static final String SHA256 = "9f86d081884c7d659a2feaa0c55ad015a3bf4f1b2b0b822cd15d6c15b0f00a08";
+    private static final String FILE_NAME = SHA256 + ".txt";
+    private static final String URL = "/uploads/chat/" + FILE_NAME;
+    private static final String ETAG = "\"" + SHA256 + "\"";
+    private static final String BODY = "abcdefghijklmnopqrstuvwxyz";
+
+    @TempDir
+    Path storageRoot;
+
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        AttachmentStorageService storage = new AttachmentStorageService(null, null, null, storageRoot.toString());
+        Path blob = storage.blobPath(SHA256);
+        Files.createDirectories(blob.getParent());
+        Files.writeString(blob, BODY, StandardCharsets.US_ASCII);
+
+        AttachmentAccessService access = new AttachmentAccessService(
+                storage,
+                null,
+                messageRepository(),
+                null,
+                new SingleRoomMembership(),
+                null,
+                new DownloadUrlSigner(SECRET, 600)
+        );
+        mockMvc = MockMvcBuilders.standaloneSetup(new AttachmentDownloadController(access, null))
+                .setControllerAdvice(new GlobalExceptionHandler())
+                .build();
+    }
+
+    @Test
+    void singleRangeIsPartialContent() throws Exception {
+        mockMvc.perform(viewer(get(URL)).header(HttpHeaders.RANGE, "bytes=2-5"))
+                .andExpect(status().isPartialContent())
+                .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes 2-5/26"))
+                .andExpect(header().longValue(HttpHeaders.CONTENT_LENGTH, 4))
+                .andExpect(content().string("cdef"));
+
+        mockMvc.perform(viewer(get(URL)).header(HttpHeaders.RANGE, "bytes=-3"))
+                .andExpect(status().isPartialContent())
+                .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes 23-25/26"))
+                .andExpect(content().string("xyz"));
+    }
+
+    @Test
+    void rangePastTheEndIsNotSatisfiable() throws Exception {
+        mockMvc.perform(viewer(get(URL)).header(HttpHeaders.RANGE, "bytes=26-40"))
+                .andExpect(status().isRequestedRangeNotSatisfiable())
+                .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes */26"))
+                .andExpect(content().bytes(new byte[0]));
+    }
+
+    @Test
+    void matchingEtagIsNotModified() throws Exception {
+        mockMvc.perform(viewer(get(URL)).header(HttpHeaders.IF_NONE_MATCH, "\"stale\", W/" + ETAG))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, ETAG))
+                .andExpect(content().bytes(new byte[0]));
+
+        mockMvc.perform(viewer(get(URL)).header(HttpHeaders.IF_NONE_MATCH, "\"stale\""))
+                .andExpect(status().isOk())
+                .andExpect(content().string(BODY));
+    }
+
+    @Test
+    void staleIfRangeGetsTheFullBody() throws Exception {
+        mockMvc.perform(viewer(get(URL)).header(HttpHeaders.RANGE, "bytes=2-5").header(HttpHeaders.IF_RANGE, "\"stale\""))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist(HttpHeaders.CONTENT_RANGE))
+                .andExpect(header().longValue(HttpHeaders.CONTENT_LENGTH, BODY.length()))
+                .andExpect(content().string(BODY));
+
+        mockMvc.perform(viewer(get(URL)).header(HttpHeaders.RANGE, "bytes=2-5").header(HttpHeaders.IF_RANGE, ETAG))
+                .andExpect(status().isPartialContent())
+                .andExpect(content().string("cdef"));
+    }
+
+    @Test
+    void signedLinkIsOnlyAcceptedUnexpiredAndUnaltered() throws Exception {
+        long expiresAt = Instant.now().getEpochSecond() + 600;
+        mockMvc.perform(get(URL).queryParam("uid", String.valueOf(VIEWER_ID))
+                        .queryParam("exp", String.valueOf(expiresAt))
+                        .queryParam("sig", sign(FILE_NAME, VIEWER_ID, expiresAt)))
+                .andExpect(status().isOk())
+                .andExpect(content().string(BODY));
+
+        long expired = Instant.now().getEpochSecond() - 1;
+        mockMvc.perform(get(URL).queryParam("uid", String.valueOf(VIEWER_ID))
+                        .queryParam("exp", String.valueOf(expired))
+                        .queryParam("sig", sign(FILE_NAME, VIEWER_ID, expired)))
+                .andExpect(status().isForbidden());
+
+        mockMvc.perform(get(URL).queryParam("uid", String.valueOf(VIEWER_ID))
+                        .queryParam("exp", String.valueOf(expiresAt + 3600))
+                        .queryParam("sig", sign(FILE_NAME, VIEWER_ID, expiresAt)))
+                .andExpect(status().isForbidden());
+
+        mockMvc.perform(get(URL).queryParam("uid", String.valueOf(VIEWER_ID))
+                        .queryParam("exp", String.valueOf(expiresAt))
+                        .queryParam("sig", sign(FILE_NAME, 99L, expiresAt)))
+                .andExpect(status().isForbidden());
+
+        mockMvc.perform(get(URL))
+                .andExpect(status().isForbidden());
+    }
+
+    private static MockHttpServletRequestBuilder viewer(MockHttpServletRequestBuilder request) {
+        AuthenticatedUser user = new AuthenticatedUser(VIEWER_ID, "viewer@example.com", Role.USER);
+        Authentication authentication = new UsernamePasswordAuthenticationToken(user, null, user.getAuthorities());
+        return request.principal(authentication);
+    }
+
+    /**
+     * A link signed the way {@link DownloadUrlSigner} signs, but with any expiry.
+     */
+    private static String sign(String fileName, long viewerId, long expiresAt) throws Exception {
+        Mac mac = Mac.getInstance("HmacSHA256");
+        mac.init(new SecretKeySpec(("download:" + SECRET).getBytes(StandardCharsets.UTF_8), "HmacSHA256"));
+        byte[] digest = mac.doFinal((fileName + "\n" + viewerId + "\n" + expiresAt).getBytes(StandardCharsets.UTF_8));
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(digest);
+    }
+
+    private static MessageRepository messageRepository() {
+        return (MessageRepository) Proxy.newProxyInstance(
+                MessageRepository.class.getClassLoader(),
+                new Class<?>[]{MessageRepository.class},
+                (proxy, method, args) -> {
+                    if (!method.getName().equals("findRoomIdsReferencingAttachment")) {
+                        throw new UnsupportedOperationException(method.getName());
+                    }
+                    return FILE_NAME.equals(args[0]) ? List.of(ROOM_ID) : List.of();
+                }
+        );
+    }
+
+    private static final class SingleRoomMembership extends RoomMembershipCache {
+
+        private SingleRoomMembership() {
+            super(null, 1);
+        }
+
+        @Override
+        public boolean isMember(Long roomId, Long userId) {
+            return ROOM_ID == roomId && VIEWER_ID == userId;
+        }
+    }
+}
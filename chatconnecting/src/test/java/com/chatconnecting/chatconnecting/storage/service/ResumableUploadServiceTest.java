@@ -0,0 +1,357 @@
+package com.chatconnecting.chatconnecting.storage.service;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.chatconnecting.chatconnecting.exception.BadRequestException;
+import com.chatconnecting.chatconnecting.exception.ConflictException;
+import com.chatconnecting.chatconnecting.exception.GlobalExceptionHandler;
+import com.chatconnecting.chatconnecting.storage.UploadSession;
+import com.chatconnecting.chatconnecting.storage.UploadSessionRepository;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Drives {@link ResumableUploadService} against part files in a temporary store and an in-memory
+ * session table that applies the repository's conditional updates (offset check, lease) the way
+ * the queries do.
+ */
+class ResumableUploadServiceTest {
+
+    private static final Long USER_ID = 1L;
+    private static final byte[] DATA = "0123456789".getBytes(StandardCharsets.UTF_8);
+
+    @TempDir
+    Path storageRoot;
+
+    private final Map<String, UploadSession> sessions = new ConcurrentHashMap<>();
+
+    @Test
+    void offsetMismatchIsAConflict() {
+        ResumableUploadService uploads = uploads();
+        String id = uploads.create(USER_ID, "text/plain", "digits.txt", DATA.length).getId();
+
+        ConflictException conflict = assertThrows(ConflictException.class,
+                () -> uploads.append(USER_ID, id, 4, new ByteArrayInputStream(DATA)));
+
+        assertEquals("Upload offset mismatch, expected 0", conflict.getMessage());
+        assertEquals(HttpStatus.CONFLICT, new GlobalExceptionHandler()
+                .handleConflict(conflict, new MockHttpServletRequest("PATCH", "/api/chat/attachments/uploads/" + id))
+                .getStatusCode());
+        assertEquals(0, sessions.get(id).getOffset());
+    }
+
+    @Test
+    void interruptedChunkResumesFromTheReturnedOffset() throws IOException {
+        ResumableUploadService uploads = uploads();
+        String id = uploads.create(USER_ID, "text/plain", "digits.txt", DATA.length).getId();
+
+        BadRequestException interrupted = assertThrows(BadRequestException.class,
+                () -> uploads.append(USER_ID, id, 0, new DroppingStream(Arrays.copyOf(DATA, 4))));
+
+        assertEquals("Upload interrupted at offset 4", interrupted.getMessage());
+        assertEquals(4, uploads.get(USER_ID, id).getOffset());
+        assertThrows(ConflictException.class, () -> uploads.append(USER_ID, id, 0, new ByteArrayInputStream(DATA)));
+
+        UploadSession resumed = uploads.append(USER_ID, id, 4, new ByteArrayInputStream(Arrays.copyOfRange(DATA, 4, DATA.length)));
+
+        assertEquals(DATA.length, resumed.getOffset());
+        assertArrayEquals(DATA, Files.readAllBytes(partFile(id)));
+    }
+
+    @Test
+    void bytesPastTheDeclaredSizeAreRejectedAndNotWritten() throws IOException {
+        ResumableUploadService uploads = uploads();
+        String id = uploads.create(USER_ID, "text/plain", "digits.txt", 6).getId();
+
+        BadRequestException overflow = assertThrows(BadRequestException.class,
+                () -> uploads.append(USER_ID, id, 0, new ByteArrayInputStream(DATA)));
+
+        assertEquals("Chunk exceeds the declared upload size", overflow.getMessage());
+        assertEquals(6, sessions.get(id).getOffset());
+        assertArrayEquals(Arrays.copyOf(DATA, 6), Files.readAllBytes(partFile(id)));
+        assertNull(sessions.get(id).getLeaseToken());
+    }
+
+    @Test
+    void secondConcurrentPatchIsRejectedByTheLease() throws Exception {
+        ResumableUploadService uploads = uploads();
+        String id = uploads.create(USER_ID, "text/plain", "digits.txt", DATA.length).getId();
+        HeldStream held = new HeldStream(DATA);
+
+        CompletableFuture<UploadSession> first = CompletableFuture.supplyAsync(
+                () -> uploads.append(USER_ID, id, 0, held));
+        assertTrue(held.reading.await(5, TimeUnit.SECONDS));
+
+        ConflictException conflict = assertThrows(ConflictException.class,
+                () -> uploads.append(USER_ID, id, 0, new ByteArrayInputStream(DATA)));
+        assertEquals("Upload is already receiving data", conflict.getMessage());
+
+        held.release.countDown();
+        assertEquals(DATA.length, first.get(5, TimeUnit.SECONDS).getOffset());
+        assertNull(sessions.get(id).getLeaseToken());
+        assertArrayEquals(DATA, Files.readAllBytes(partFile(id)));
+    }
+
+    @Test
+    void abandonedSessionsAndOrphanedPartFilesExpire() throws IOException {
+        ResumableUploadService uploads = uploads();
+        String abandoned = uploads.create(USER_ID, "text/plain", "abandoned.txt", DATA.length).getId();
+        String leased = uploads.create(USER_ID, "text/plain", "leased.txt", DATA.length).getId();
+        String active = uploads.create(USER_ID, "text/plain", "active.txt", DATA.length).getId();
+        LocalDateTime idleSince = LocalDateTime.now().minusHours(2);
+        sessions.get(abandoned).setLastActivityAt(idleSince);
+        sessions.get(leased).setLastActivityAt(idleSince);
+        sessions.get(leased).setLeaseToken("still-writing");
+        sessions.get(leased).setLeaseExpiresAt(LocalDateTime.now().plusMinutes(5));
+
+        Path sessionDir = partFile(abandoned).getParent();
+        Path oldOrphan = Files.write(sessionDir.resolve("old-orphan.part"), DATA);
+        Files.setLastModifiedTime(oldOrphan, FileTime.from(Instant.now().minusSeconds(7200)));
+        Path newOrphan = Files.write(sessionDir.resolve("new-orphan.part"), DATA);
+
+        assertEquals(2, uploads.expireAbandoned());
+
+        assertFalse(sessions.containsKey(abandoned));
+        assertFalse(Files.exists(partFile(abandoned)));
+        assertFalse(Files.exists(oldOrphan));
+        assertTrue(sessions.containsKey(leased));
+        assertTrue(Files.exists(partFile(leased)));
+        assertTrue(sessions.containsKey(active));
+        assertTrue(Files.exists(partFile(active)));
+        assertTrue(Files.exists(newOrphan));
+    }
+
+    private ResumableUploadService uploads() {
+        return new ResumableUploadService(
+                sessionRepository(),
+                new AttachmentStorageService(null, null, null, storageRoot.toString()),
+                new LockingJdbcTemplate(),
+                new TransactionTemplate(new NoOpTransactionManager()),
+                3,
+                100,
+                60,
+                10
+        );
+    }
+
+    private Path partFile(String uploadId) {
+        return storageRoot.resolve("store").resolve("sessions").resolve(uploadId + ".part");
+    }
+
+    private UploadSessionRepository sessionRepository() {
+        return (UploadSessionRepository) Proxy.newProxyInstance(
+                UploadSessionRepository.class.getClassLoader(),
+                new Class<?>[]{UploadSessionRepository.class},
+                (proxy, method, args) -> {
+                    synchronized (sessions) {
+                        return switch (method.getName()) {
+                            case "save" -> {
+                                UploadSession session = (UploadSession) args[0];
+                                sessions.put(session.getId(), session);
+                                yield session;
+                            }
+                            case "findByIdAndUserId" -> Optional.ofNullable(sessions.get((String) args[0]))
+                                    .filter(session -> session.getUserId().equals(args[1]))
+                                    .map(ResumableUploadServiceTest::copy);
+                            case "countByUserId" -> sessions.values().stream()
+                                    .filter(session -> session.getUserId().equals(args[0]))
+                                    .count();
+                            case "sumTotalBytesByUserId" -> sessions.values().stream()
+                                    .filter(session -> session.getUserId().equals(args[0]))
+                                    .mapToLong(UploadSession::getTotalBytes)
+                                    .sum();
+                            case "acquireLease" -> {
+                                UploadSession session = sessions.get((String) args[0]);
+                                LocalDateTime now = (LocalDateTime) args[3];
+                                if (session == null || !session.getUserId().equals(args[1]) || isLeased(session, now)) {
+                                    yield 0;
+                                }
+                                session.setLeaseToken((String) args[2]);
+                                session.setLeaseExpiresAt((LocalDateTime) args[4]);
+                                yield 1;
+                            }
+                            case "advanceOffset" -> {
+                                UploadSession session = sessions.get((String) args[0]);
+                                if (session == null || !Objects.equals(session.getLeaseToken(), args[1])
+                                        || session.getOffset() != (long) args[2]) {
+                                    yield 0;
+                                }
+                                session.setOffset((long) args[3]);
+                                session.setLastActivityAt((LocalDateTime) args[4]);
+                                yield 1;
+                            }
+                            case "releaseLease" -> {
+                                UploadSession session = sessions.get((String) args[0]);
+                                if (session == null || !Objects.equals(session.getLeaseToken(), args[1])) {
+                                    yield 0;
+                                }
+                                session.setLeaseToken(null);
+                                session.setLeaseExpiresAt(null);
+                                yield 1;
+                            }
+                            case "findIdsInactiveSince" -> sessions.values().stream()
+                                    .filter(session -> session.getLastActivityAt().isBefore((LocalDateTime) args[0]))
+                                    .map(UploadSession::getId)
+                                    .toList();
+                            case "deleteIfAbandoned" -> {
+                                UploadSession session = sessions.get((String) args[0]);
+                                if (session == null || !session.getLastActivityAt().isBefore((LocalDateTime) args[1])
+                                        || isLeased(session, (LocalDateTime) args[2])) {
+                                    yield 0;
+                                }
+                                sessions.remove(session.getId());
+                                yield 1;
+                            }
+                            case "existsById" -> sessions.containsKey((String) args[0]);
+                            case "deleteById" -> {
+                                sessions.remove((String) args[0]);
+                                yield null;
+                            }
+                            default -> throw new UnsupportedOperationException(method.getName());
+                        };
+                    }
+                }
+        );
+    }
+
+    private static boolean isLeased(UploadSession session, LocalDateTime now) {
+        return session.getLeaseToken() != null && !session.getLeaseExpiresAt().isBefore(now);
+    }
+
+    /**
+     * Rows come back detached, as from a fresh persistence context.
+     */
+    private static UploadSession copy(UploadSession session) {
+        return UploadSession.builder()
+                .id(session.getId())
+                .userId(session.getUserId())
+                .contentType(session.getContentType())
+                .fileName(session.getFileName())
+                .totalBytes(session.getTotalBytes())
+                .offset(session.getOffset())
+                .lastActivityAt(session.getLastActivityAt())
+                .leaseToken(session.getLeaseToken())
+                .leaseExpiresAt(session.getLeaseExpiresAt())
+                .build();
+    }
+
+    /**
+     * Delivers its bytes, then fails the way a dropped connection does.
+     */
+    private static final class DroppingStream extends InputStream {
+
+        private final InputStream delegate;
+
+        private DroppingStream(byte[] delivered) {
+            this.delegate = new ByteArrayInputStream(delivered);
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] one = new byte[1];
+            return read(one, 0, 1) < 0 ? -1 : one[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int read = delegate.read(buffer, offset, length);
+            if (read < 0) {
+                throw new IOException("Connection reset");
+            }
+            return read;
+        }
+    }
+
+    /**
+     * Blocks its first read until released, so a request stays inside {@code append}.
+     */
+    private static final class HeldStream extends InputStream {
+
+        private final InputStream delegate;
+        private final CountDownLatch reading = new CountDownLatch(1);
+        private final CountDownLatch release = new CountDownLatch(1);
+
+        private HeldStream(byte[] data) {
+            this.delegate = new ByteArrayInputStream(data);
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] one = new byte[1];
+            return read(one, 0, 1) < 0 ? -1 : one[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            reading.countDown();
+            try {
+                if (!release.await(5, TimeUnit.SECONDS)) {
+                    throw new IOException("never released");
+                }
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new IOException(ex);
+            }
+            return delegate.read(buffer, offset, length);
+        }
+    }
+
+    /**
+     * Stands in for the {@code select ... for update} on the user's row.
+     */
+    private static final class LockingJdbcTemplate extends JdbcTemplate {
+
+        @Override
+        public <T> List<T> queryForList(String sql, Class<T> elementType, Object... args) {
+            return List.of();
+        }
+    }
+
+    private static final class NoOpTransactionManager implements PlatformTransactionManager {
+
+        @Override
+        public TransactionStatus getTransaction(TransactionDefinition definition) {
+            return new SimpleTransactionStatus();
+        }
+
+        @Override
+        public void commit(TransactionStatus status) {
+        }
+
+        @Override
+        public void rollback(TransactionStatus status) {
+        }
+    }
+}
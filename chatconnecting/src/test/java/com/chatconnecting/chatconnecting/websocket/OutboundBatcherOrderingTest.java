@@ -0,0 +1,137 @@
+package com.chatconnecting.chatconnecting.websocket;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import com.chatconnecting.chatconnecting.concurrency.ExecutionMode;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageHandler;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.ExecutorSubscribableChannel;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.util.MimeTypeUtils;
+import org.springframework.web.socket.messaging.SessionSubscribeEvent;
+import tools.jackson.databind.JsonNode;
+import tools.jackson.databind.ObjectMapper;
+import tools.jackson.databind.json.JsonMapper;
+
+/**
+ * Interleaves batched and unbatched frames of one session on a multi-threaded outbound channel and
+ * checks that the client sees them in send order, whichever thread flushes a batch.
+ */
+class OutboundBatcherOrderingTest {
+
+    private static final String SESSION_ID = "s1";
+    private static final int FRAMES = 400;
+
+    private final ObjectMapper objectMapper = JsonMapper.builder().build();
+    private final ExecutorService executor = Executors.newFixedThreadPool(8);
+    private final List<Integer> delivered = new ArrayList<>();
+
+    @AfterEach
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void batchedAndUnbatchedFramesKeepSendOrder() throws Exception {
+        ExecutorSubscribableChannel channel = new ExecutorSubscribableChannel(executor);
+        OutboundFlowControl flowControl = new OutboundFlowControl(channel, 131072, 2000, 500);
+        OutboundBatcher batcher = new OutboundBatcher(channel, flowControl, new ExecutionMode(false), 2, 200, 7, 65536);
+        channel.addInterceptor(batcher);
+        channel.subscribe(recordingHandler());
+        batcher.onSubscribe(new SessionSubscribeEvent(this, subscribeMessage()));
+
+        for (int seq = 1; seq <= FRAMES; seq++) {
+            channel.send(seq % 5 == 0 ? binaryFrame(seq) : jsonFrame(seq));
+            if (seq % 50 == 0) {
+                Thread.sleep(3);
+            }
+        }
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (deliveredCount() < FRAMES && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        List<Integer> expected = new ArrayList<>();
+        for (int seq = 1; seq <= FRAMES; seq++) {
+            expected.add(seq);
+        }
+        synchronized (delivered) {
+            assertEquals(expected, delivered);
+        }
+        batcher.shutdown();
+    }
+
+    private MessageHandler recordingHandler() {
+        return message -> {
+            try {
+                Thread.sleep(ThreadLocalRandom.current().nextInt(2));
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+            List<Integer> seqs = new ArrayList<>();
+            byte[] payload = (byte[]) message.getPayload();
+            if (OutboundBatcher.BATCH_DESTINATION.equals(SimpMessageHeaderAccessor.getDestination(message.getHeaders()))) {
+                for (JsonNode entry : objectMapper.readTree(payload)) {
+                    seqs.add(entry.get("body").get("seq").asInt());
+                }
+            } else if (MimeTypeUtils.APPLICATION_OCTET_STREAM.equals(message.getHeaders().get(MessageHeaders.CONTENT_TYPE))) {
+                seqs.add(Integer.parseInt(new String(payload, StandardCharsets.US_ASCII)));
+            } else {
+                seqs.add(objectMapper.readTree(payload).get("seq").asInt());
+            }
+            synchronized (delivered) {
+                delivered.addAll(seqs);
+            }
+        };
+    }
+
+    private int deliveredCount() {
+        synchronized (delivered) {
+            return delivered.size();
+        }
+    }
+
+    private static Message<byte[]> subscribeMessage() {
+        StompHeaderAccessor accessor = StompHeaderAccessor.create(StompCommand.SUBSCRIBE);
+        accessor.setSessionId(SESSION_ID);
+        accessor.setSubscriptionId("batch-sub");
+        accessor.setDestination(OutboundBatcher.BATCH_DESTINATION);
+        accessor.setNativeHeader(OutboundBatcher.WINDOW_HEADER, "2");
+        return MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders());
+    }
+
+    private static Message<byte[]> jsonFrame(int seq) {
+        SimpMessageHeaderAccessor accessor = frameHeaders();
+        accessor.setContentType(MimeTypeUtils.APPLICATION_JSON);
+        return MessageBuilder.createMessage(("{\"seq\":" + seq + "}").getBytes(StandardCharsets.UTF_8), accessor.getMessageHeaders());
+    }
+
+    private static Message<byte[]> binaryFrame(int seq) {
+        SimpMessageHeaderAccessor accessor = frameHeaders();
+        accessor.setContentType(MimeTypeUtils.APPLICATION_OCTET_STREAM);
+        return MessageBuilder.createMessage(String.valueOf(seq).getBytes(StandardCharsets.US_ASCII), accessor.getMessageHeaders());
+    }
+
+    private static SimpMessageHeaderAccessor frameHeaders() {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        accessor.setSessionId(SESSION_ID);
+        accessor.setSubscriptionId("room-sub");
+        accessor.setDestination("/topic/rooms/1");
+        accessor.setLeaveMutable(true);
+        return accessor;
+    }
+}
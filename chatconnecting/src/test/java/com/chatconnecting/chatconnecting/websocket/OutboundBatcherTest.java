@@ -0,0 +1,89 @@
+package com.chatconnecting.chatconnecting.websocket;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import com.chatconnecting.chatconnecting.concurrency.ExecutionMode;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.ExecutorSubscribableChannel;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.web.socket.messaging.SessionSubscribeEvent;
+import tools.jackson.databind.JsonNode;
+import tools.jackson.databind.ObjectMapper;
+import tools.jackson.databind.json.JsonMapper;
+
+/**
+ * Batches frames that were sent to a user destination and resolved by the user destination handler
+ * and the simple broker, as they are in production.
+ */
+class OutboundBatcherTest {
+
+    private static final String SESSION_ID = "s1";
+    private static final String USER = "alice@example.com";
+
+    private final ObjectMapper objectMapper = JsonMapper.builder().build();
+    private final ExecutorSubscribableChannel clientOutboundChannel = new ExecutorSubscribableChannel();
+    private final OutboundFlowControl flowControl = new OutboundFlowControl(clientOutboundChannel, 131072, 2000, 500);
+    private final OutboundBatcher batcher = new OutboundBatcher(clientOutboundChannel, flowControl, new ExecutionMode(false), 200, 200, 2, 65536);
+    private final List<Message<?>> delivered = new ArrayList<>();
+    private UserDestinationBroker broker;
+
+    @BeforeEach
+    void setUp() {
+        clientOutboundChannel.addInterceptor(batcher);
+        clientOutboundChannel.subscribe(message -> {
+            if (SimpMessageHeaderAccessor.getMessageType(message.getHeaders()) == SimpMessageType.MESSAGE) {
+                delivered.add(message);
+            }
+        });
+        broker = new UserDestinationBroker(clientOutboundChannel);
+        broker.connect(SESSION_ID, USER);
+        broker.subscribe(SESSION_ID, USER, "messages", "/user/queue/messages");
+        broker.subscribe(SESSION_ID, USER, "status", "/user/queue/status");
+        batcher.onSubscribe(new SessionSubscribeEvent(this, batchSubscription()));
+    }
+
+    @AfterEach
+    void tearDown() {
+        broker.stop();
+        batcher.shutdown();
+    }
+
+    @Test
+    void envelopeNamesTheDestinationTheClientSubscribedTo() {
+        send("/queue/messages", "{\"id\":1}");
+        send("/queue/status", "{\"id\":1,\"status\":\"DELIVERED\"}");
+
+        assertEquals(1, delivered.size());
+        Message<?> batch = delivered.get(0);
+        assertEquals(OutboundBatcher.BATCH_DESTINATION, SimpMessageHeaderAccessor.getDestination(batch.getHeaders()));
+        JsonNode entries = objectMapper.readTree((byte[]) batch.getPayload());
+        assertEquals(2, entries.size());
+        assertEquals("/user/queue/messages", entries.get(0).get("destination").asString());
+        assertEquals("messages", entries.get(0).get("subscription").asString());
+        assertEquals(1, entries.get(0).get("body").get("id").asInt());
+        assertEquals("/user/queue/status", entries.get(1).get("destination").asString());
+        assertEquals("DELIVERED", entries.get(1).get("body").get("status").asString());
+    }
+
+    private void send(String destination, String json) {
+        broker.template().convertAndSendToUser(USER, destination, json.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static Message<byte[]> batchSubscription() {
+        StompHeaderAccessor accessor = StompHeaderAccessor.create(StompCommand.SUBSCRIBE);
+        accessor.setSessionId(SESSION_ID);
+        accessor.setSubscriptionId("batch");
+        accessor.setDestination(OutboundBatcher.BATCH_DESTINATION);
+        return MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders());
+    }
+}
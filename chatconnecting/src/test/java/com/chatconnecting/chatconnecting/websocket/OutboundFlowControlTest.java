@@ -0,0 +1,132 @@
+package com.chatconnecting.chatconnecting.websocket;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import com.chatconnecting.chatconnecting.websocket.dto.OutboundFlowStats;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.support.ExecutorSubscribableChannel;
+import org.springframework.messaging.support.NativeMessageHeaderAccessor;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+/**
+ * Sends through {@link org.springframework.messaging.simp.SimpMessagingTemplate}, user destination
+ * resolution and the simple broker into a client outbound channel guarded by
+ * {@link OutboundFlowControl}, whose session is congested because nothing it was handed has been
+ * written yet.
+ */
+class OutboundFlowControlTest {
+
+    private static final String SESSION_ID = "s1";
+    private static final String USER = "alice@example.com";
+
+    private final ExecutorSubscribableChannel clientOutboundChannel = new ExecutorSubscribableChannel();
+    private final OutboundFlowControl flowControl = new OutboundFlowControl(clientOutboundChannel, 64, 60000, 500);
+    private final List<Message<?>> delivered = new ArrayList<>();
+    private UserDestinationBroker broker;
+    private WebSocketSession transport;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        clientOutboundChannel.addInterceptor(flowControl);
+        clientOutboundChannel.subscribe(message -> {
+            if (SimpMessageHeaderAccessor.getMessageType(message.getHeaders()) == SimpMessageType.MESSAGE) {
+                delivered.add(message);
+            }
+        });
+        flowControl.decorate(new TransportCapture()).afterConnectionEstablished(session());
+        broker = new UserDestinationBroker(clientOutboundChannel);
+        broker.connect(SESSION_ID, USER);
+        broker.subscribe(SESSION_ID, USER, "messages", "/user/queue/messages");
+        broker.subscribe(SESSION_ID, USER, "typing", "/user/queue/typing");
+        broker.subscribe(SESSION_ID, USER, "status", "/user/queue/status");
+    }
+
+    @AfterEach
+    void tearDown() {
+        broker.stop();
+    }
+
+    @Test
+    void congestedSessionDropsTypingAndCoalescesStatus() throws Exception {
+        send("/queue/typing", "{\"chatRoomId\":1,\"typing\":true}");
+        send("/queue/messages", "{\"id\":5,\"content\":\"" + "x".repeat(80) + "\"}");
+        send("/queue/typing", "{\"chatRoomId\":1,\"typing\":false}");
+        send("/queue/status", "{\"id\":5,\"status\":\"DELIVERED\"}");
+        send("/queue/status", "{\"id\":5,\"status\":\"SEEN\"}");
+
+        assertEquals(List.of("/user/queue/typing", "/user/queue/messages"), destinations());
+        OutboundFlowStats stats = flowControl.stats();
+        assertEquals(1, stats.getCongestedSessions());
+        assertEquals(1, stats.getDroppedFrames());
+        assertEquals(1, stats.getCoalescedFrames());
+        assertEquals(1, stats.getParkedFrames());
+
+        // The transport catches up on both frames, which flushes the latest status.
+        transport.sendMessage(new TextMessage("MESSAGE\n\n"));
+        transport.sendMessage(new TextMessage("MESSAGE\n\n"));
+
+        assertEquals(List.of("/user/queue/typing", "/user/queue/messages", "/user/queue/status"), destinations());
+        assertEquals("{\"id\":5,\"status\":\"SEEN\"}", new String((byte[]) delivered.get(2).getPayload(), StandardCharsets.UTF_8));
+        assertEquals(0, flowControl.stats().getParkedFrames());
+    }
+
+    private void send(String destination, String json) {
+        broker.template().convertAndSendToUser(USER, destination, json.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private List<String> destinations() {
+        return delivered.stream()
+                .map(message -> NativeMessageHeaderAccessor.getFirstNativeHeader(SimpMessageHeaderAccessor.ORIGINAL_DESTINATION, message.getHeaders()))
+                .toList();
+    }
+
+    private static WebSocketSession session() {
+        return (WebSocketSession) Proxy.newProxyInstance(
+                WebSocketSession.class.getClassLoader(),
+                new Class<?>[]{WebSocketSession.class},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "getId" -> SESSION_ID;
+                    case "isOpen" -> true;
+                    default -> null;
+                }
+        );
+    }
+
+    private final class TransportCapture implements WebSocketHandler {
+
+        @Override
+        public void afterConnectionEstablished(WebSocketSession session) {
+            transport = session;
+        }
+
+        @Override
+        public void handleMessage(WebSocketSession session, WebSocketMessage<?> message) {
+        }
+
+        @Override
+        public void handleTransportError(WebSocketSession session, Throwable exception) {
+        }
+
+        @Override
+        public void afterConnectionClosed(WebSocketSession session, CloseStatus closeStatus) {
+        }
+
+        @Override
+        public boolean supportsPartialMessages() {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,205 @@
+package com.chatconnecting.chatconnecting.websocket;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.chatconnecting.chatconnecting.chat.ChatRoomType;
+import com.chatconnecting.chatconnecting.message.MessageStatus;
+import com.chatconnecting.chatconnecting.message.StoredMessageContent;
+import com.chatconnecting.chatconnecting.message.dto.ChatMessageResponse;
+import com.chatconnecting.chatconnecting.message.dto.MessageReactionResponse;
+import com.chatconnecting.chatconnecting.message.dto.TypingEventResponse;
+import com.chatconnecting.chatconnecting.storage.dto.ThumbnailResponse;
+import com.chatconnecting.chatconnecting.websocket.dto.CallSignalMessage;
+import com.chatconnecting.chatconnecting.websocket.dto.CallSignalType;
+import com.chatconnecting.chatconnecting.websocket.dto.PresenceBatchEvent;
+import com.chatconnecting.chatconnecting.websocket.dto.PresenceEvent;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.support.MessageBuilder;
+import tools.jackson.databind.JsonNode;
+import tools.jackson.databind.ObjectMapper;
+import tools.jackson.databind.json.JsonMapper;
+import tools.jackson.databind.node.ObjectNode;
+
+/**
+ * Payload sizes of JSON against the negotiated binary encodings, on the shapes the server actually
+ * pushes. Sizes are logged; the assertions only require every binary encoding to be smaller and
+ * lossless.
+ */
+class PayloadEncodingBenchmarkTest {
+
+    private static final Logger log = LoggerFactory.getLogger(PayloadEncodingBenchmarkTest.class);
+    private static final LocalDateTime NOW = LocalDateTime.of(2026, 3, 14, 9, 26, 53, 589_000_000);
+
+    private final ObjectMapper json = JsonMapper.builder().build();
+    private final PayloadTranscoder transcoder = new PayloadTranscoder();
+
+    @Test
+    void binaryEncodingsAreSmallerAndLosslessOnRealMessageShapes() {
+        Map<String, Object> shapes = new LinkedHashMap<>();
+        shapes.put("chat message (plain)", chatMessage(1L, "See you at the standup in 5", null));
+        shapes.put("chat message (reply + attachment meta)", chatMessage(2L, null, metaContent()));
+        shapes.put("group history page (20)", historyPage());
+        shapes.put("typing", TypingEventResponse.builder().chatRoomId(42L).senderId(7L).typing(true).build());
+        shapes.put("presence batch (5)", presenceBatch());
+        shapes.put("call ICE candidate", iceCandidate());
+
+        long totalJson = 0;
+        long totalCbor = 0;
+        long totalSmile = 0;
+        for (Map.Entry<String, Object> shape : shapes.entrySet()) {
+            byte[] jsonBytes = json.writeValueAsBytes(shape.getValue());
+            byte[] cbor = transcoder.encode(jsonBytes, PayloadEncoding.CBOR);
+            byte[] smile = transcoder.encode(jsonBytes, PayloadEncoding.SMILE);
+            log.info(String.format("%-40s json=%5d cbor=%5d (%3d%%) smile=%5d (%3d%%)", shape.getKey(),
+                    jsonBytes.length, cbor.length, percent(cbor, jsonBytes), smile.length, percent(smile, jsonBytes)));
+
+            assertTrue(cbor.length < jsonBytes.length, shape.getKey() + ": CBOR should be smaller");
+            assertTrue(smile.length < jsonBytes.length, shape.getKey() + ": Smile should be smaller");
+            JsonNode expected = withInlinedMeta(json.readTree(jsonBytes));
+            assertEquals(expected, transcoder.mapperFor(PayloadEncoding.CBOR).readTree(cbor), shape.getKey());
+            assertEquals(expected, transcoder.mapperFor(PayloadEncoding.SMILE).readTree(smile), shape.getKey());
+
+            totalJson += jsonBytes.length;
+            totalCbor += cbor.length;
+            totalSmile += smile.length;
+        }
+        log.info("total json={} cbor={} smile={}", totalJson, totalCbor, totalSmile);
+    }
+
+    @Test
+    void fanOutOfOnePayloadIsEncodedOnce() {
+        byte[] jsonBytes = json.writeValueAsBytes(chatMessage(3L, "hello group", null));
+
+        byte[] first = transcoder.encode(jsonBytes, PayloadEncoding.CBOR);
+
+        assertSame(first, transcoder.encode(jsonBytes, PayloadEncoding.CBOR));
+    }
+
+    @Test
+    void interleavedFanOutsKeepTheirEncodings() {
+        byte[] group = json.writeValueAsBytes(chatMessage(4L, "hello group", null));
+        byte[] typing = json.writeValueAsBytes(TypingEventResponse.builder().chatRoomId(42L).senderId(7L).typing(true).build());
+
+        byte[] groupCbor = transcoder.encode(group, PayloadEncoding.CBOR);
+        byte[] typingCbor = transcoder.encode(typing, PayloadEncoding.CBOR);
+        byte[] groupSmile = transcoder.encode(group, PayloadEncoding.SMILE);
+
+        assertSame(groupCbor, transcoder.encode(group, PayloadEncoding.CBOR));
+        assertSame(typingCbor, transcoder.encode(typing, PayloadEncoding.CBOR));
+        assertSame(groupSmile, transcoder.encode(group, PayloadEncoding.SMILE));
+    }
+
+    @Test
+    void converterReadsBinarySendFrames() {
+        BinaryPayloadMessageConverter converter = new BinaryPayloadMessageConverter(PayloadEncoding.SMILE, transcoder);
+        byte[] smile = transcoder.mapperFor(PayloadEncoding.SMILE)
+                .writeValueAsBytes(Map.of("chatRoomId", 42, "senderId", 7, "typing", true));
+        Message<byte[]> frame = MessageBuilder.withPayload(smile)
+                .setHeader(MessageHeaders.CONTENT_TYPE, PayloadEncoding.SMILE.mimeType())
+                .build();
+
+        TypingEventResponse decoded = (TypingEventResponse) converter.fromMessage(frame, TypingEventResponse.class);
+
+        assertEquals(42L, decoded.getChatRoomId());
+        assertTrue(decoded.isTyping());
+        Message<byte[]> json = MessageBuilder.withPayload("{}".getBytes()).build();
+        assertNull(converter.fromMessage(json, TypingEventResponse.class));
+    }
+
+    private JsonNode withInlinedMeta(JsonNode node) {
+        if (node instanceof ObjectNode object) {
+            JsonNode content = object.get("content");
+            if (content != null && content.isString() && content.stringValue().startsWith(StoredMessageContent.META_PREFIX)) {
+                object.set("content", json.readTree(content.stringValue().substring(StoredMessageContent.META_PREFIX.length())));
+            }
+        }
+        for (JsonNode child : node.values()) {
+            withInlinedMeta(child);
+        }
+        return node;
+    }
+
+    private static int percent(byte[] encoded, byte[] json) {
+        return encoded.length * 100 / json.length;
+    }
+
+    private static String metaContent() {
+        return StoredMessageContent.META_PREFIX + "{\"v\":1,\"text\":\"Here are the slides from today\","
+                + "\"replyTo\":{\"id\":1187,\"senderName\":\"Priya Sharma\",\"text\":\"Can someone share the deck?\"},"
+                + "\"forwarded\":false,\"attachment\":{\"url\":\"/uploads/chat/5f2c9e7a-1b3d-4c8e-9a61-quarterly-review.pdf\","
+                + "\"name\":\"quarterly-review.pdf\",\"size\":2483921,\"contentType\":\"application/pdf\",\"kind\":\"FILE\"},"
+                + "\"deletedForEveryone\":false}";
+    }
+
+    private static ChatMessageResponse chatMessage(Long id, String text, String content) {
+        return ChatMessageResponse.builder()
+                .id(1200L + id)
+                .clientMessageId("c-8f14e45f-ceea-467f-a0e6-" + id)
+                .chatRoomId(42L)
+                .roomType(ChatRoomType.GROUP)
+                .roomName("Platform team")
+                .senderId(7L)
+                .content(content != null ? content : text)
+                .messageType(content != null ? "file" : "text")
+                .status(MessageStatus.DELIVERED)
+                .eventType("messageCreated")
+                .timestamp(NOW)
+                .deliveredAt(NOW.plusSeconds(1))
+                .seenBy(List.of(3L, 9L, 12L))
+                .reactions(List.of(MessageReactionResponse.builder().userId(3L).emoji("👍").build()))
+                .thumbnails(content != null
+                        ? List.of(ThumbnailResponse.builder().size(256).url("/uploads/thumbs/5f2c9e7a-256.jpg")
+                                .width(256).height(362).build())
+                        : null)
+                .build();
+    }
+
+    private static List<ChatMessageResponse> historyPage() {
+        List<ChatMessageResponse> page = new ArrayList<>();
+        for (long i = 0; i < 20; i++) {
+            page.add(i % 5 == 0
+                    ? chatMessage(10 + i, null, metaContent())
+                    : chatMessage(10 + i, "Message number " + i + " in a busy group conversation", null));
+        }
+        return page;
+    }
+
+    private static PresenceBatchEvent presenceBatch() {
+        List<PresenceEvent> changes = new ArrayList<>();
+        for (long i = 0; i < 5; i++) {
+            changes.add(PresenceEvent.builder()
+                    .userId(100 + i)
+                    .email("member" + i + "@example.com")
+                    .online(i % 2 == 0)
+                    .lastSeenAt(i % 2 == 0 ? null : NOW)
+                    .build());
+        }
+        return PresenceBatchEvent.builder().changes(changes).build();
+    }
+
+    private static CallSignalMessage iceCandidate() {
+        Map<String, Object> candidate = new LinkedHashMap<>();
+        candidate.put("candidate", "candidate:842163049 1 udp 1677729535 203.0.113.17 54321 typ srflx raddr 192.168.1.20 "
+                + "rport 54321 generation 0 ufrag 9xQm network-cost 999");
+        candidate.put("sdpMid", "0");
+        candidate.put("sdpMLineIndex", 0);
+        return CallSignalMessage.builder()
+                .type(CallSignalType.ICE)
+                .from("alice@example.com")
+                .to("bob@example.com")
+                .data(Map.of("candidate", candidate, "chatRoomId", 42))
+                .build();
+    }
+}
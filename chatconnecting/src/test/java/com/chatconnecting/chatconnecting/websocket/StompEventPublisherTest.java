@@ -0,0 +1,109 @@
+package com.chatconnecting.chatconnecting.websocket;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.chatconnecting.chatconnecting.concurrency.ExecutionMode;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.support.ExecutorSubscribableChannel;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Commits from several threads at once through a publisher with small stripe queues, and checks
+ * that every recipient receives its events in each committer's order with none lost.
+ */
+class StompEventPublisherTest {
+
+    private static final int COMMITTERS = 4;
+    private static final int COMMITS = 200;
+    private static final List<String> USERS = List.of("a", "b", "c", "d", "e");
+
+    private final Map<String, List<String>> received = new HashMap<>();
+    private final ExecutorSubscribableChannel brokerChannel = new ExecutorSubscribableChannel();
+    private final StompEventPublisher publisher = new StompEventPublisher(
+            new SimpMessagingTemplate(brokerChannel),
+            new ExecutionMode(false),
+            3,
+            2
+    );
+
+    @AfterEach
+    void shutdown() {
+        publisher.shutdown();
+    }
+
+    @Test
+    void eachRecipientSeesCommitsInOrderUnderBackpressure() throws Exception {
+        CountDownLatch delivered = new CountDownLatch(COMMITTERS * COMMITS * USERS.size());
+        brokerChannel.subscribe(message -> {
+            String destination = SimpMessageHeaderAccessor.getDestination(message.getHeaders());
+            synchronized (received) {
+                received.computeIfAbsent(destination, ignored -> new ArrayList<>())
+                        .add(message.getPayload() instanceof byte[] bytes
+                                ? new String(bytes, StandardCharsets.UTF_8)
+                                : message.getPayload().toString());
+            }
+            delivered.countDown();
+        });
+
+        ExecutorService committers = Executors.newFixedThreadPool(COMMITTERS);
+        try {
+            for (int c = 0; c < COMMITTERS; c++) {
+                String committer = "t" + c;
+                committers.execute(() -> {
+                    for (int seq = 0; seq < COMMITS; seq++) {
+                        commit(committer + ":" + seq);
+                    }
+                });
+            }
+            assertTrue(delivered.await(20, TimeUnit.SECONDS));
+        } finally {
+            committers.shutdownNow();
+        }
+
+        synchronized (received) {
+            assertEquals(USERS.size(), received.size());
+            for (List<String> events : received.values()) {
+                for (int c = 0; c < COMMITTERS; c++) {
+                    String committer = "t" + c + ":";
+                    List<String> own = events.stream().filter(event -> event.startsWith(committer)).toList();
+                    List<String> expected = new ArrayList<>();
+                    for (int seq = 0; seq < COMMITS; seq++) {
+                        expected.add(committer + seq);
+                    }
+                    assertEquals(expected, own);
+                }
+            }
+        }
+    }
+
+    /**
+     * One transaction that sends {@code label} to every user and then commits.
+     */
+    private void commit(String label) {
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            for (String user : USERS) {
+                publisher.sendToUser(user, "/queue/messages", label);
+            }
+            List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+            synchronizations.forEach(TransactionSynchronization::afterCommit);
+            synchronizations.forEach(sync -> sync.afterCompletion(TransactionSynchronization.STATUS_COMMITTED));
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+}
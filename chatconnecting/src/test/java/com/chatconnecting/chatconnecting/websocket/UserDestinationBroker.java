@@ -0,0 +1,70 @@
+package com.chatconnecting.chatconnecting.websocket;
+
+import java.security.Principal;
+import java.util.List;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.simp.broker.SimpleBrokerMessageHandler;
+import org.springframework.messaging.simp.user.DefaultUserDestinationResolver;
+import org.springframework.messaging.simp.user.UserDestinationMessageHandler;
+import org.springframework.messaging.support.ExecutorSubscribableChannel;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.web.socket.messaging.DefaultSimpUserRegistry;
+import org.springframework.web.socket.messaging.SessionConnectedEvent;
+
+/**
+ * The send path of one node without the transport: a {@link SimpMessagingTemplate} on the broker
+ * channel, the {@link UserDestinationMessageHandler} and the simple broker, delivering into the
+ * given client outbound channel. Sessions connect and subscribe as a STOMP client's frames would.
+ */
+final class UserDestinationBroker {
+
+    private final ExecutorSubscribableChannel clientInboundChannel = new ExecutorSubscribableChannel();
+    private final ExecutorSubscribableChannel brokerChannel = new ExecutorSubscribableChannel();
+    private final DefaultSimpUserRegistry userRegistry = new DefaultSimpUserRegistry();
+    private final UserDestinationMessageHandler userDestinationHandler;
+    private final SimpleBrokerMessageHandler broker;
+    private final SimpMessagingTemplate template = new SimpMessagingTemplate(brokerChannel);
+
+    UserDestinationBroker(ExecutorSubscribableChannel clientOutboundChannel) {
+        this.userDestinationHandler = new UserDestinationMessageHandler(
+                clientInboundChannel,
+                brokerChannel,
+                new DefaultUserDestinationResolver(userRegistry)
+        );
+        this.broker = new SimpleBrokerMessageHandler(clientInboundChannel, clientOutboundChannel, brokerChannel, List.of("/topic", "/queue"));
+        userDestinationHandler.start();
+        broker.start();
+    }
+
+    SimpMessagingTemplate template() {
+        return template;
+    }
+
+    void connect(String sessionId, String username) {
+        Principal user = () -> username;
+        Message<byte[]> connect = frame(SimpMessageType.CONNECT, sessionId, user, null, null);
+        clientInboundChannel.send(connect);
+        userRegistry.onApplicationEvent(new SessionConnectedEvent(this, connect, user));
+    }
+
+    void subscribe(String sessionId, String username, String subscriptionId, String destination) {
+        clientInboundChannel.send(frame(SimpMessageType.SUBSCRIBE, sessionId, () -> username, subscriptionId, destination));
+    }
+
+    void stop() {
+        broker.stop();
+        userDestinationHandler.stop();
+    }
+
+    private static Message<byte[]> frame(SimpMessageType type, String sessionId, Principal user, String subscriptionId, String destination) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(type);
+        accessor.setSessionId(sessionId);
+        accessor.setUser(user);
+        accessor.setSubscriptionId(subscriptionId);
+        accessor.setDestination(destination);
+        return MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders());
+    }
+}